@@ -0,0 +1,65 @@
+package cgeo.geocaching.connector.gc;
+
+import cgeo.geocaching.connector.gc.GCCachePageIndex.Field;
+import cgeo.geocaching.test.CgeoTestUtils;
+import cgeo.geocaching.test.R;
+import cgeo.geocaching.test.mock.MockedCache;
+import cgeo.geocaching.utils.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Compares the indexed search of {@link GCCachePageIndex} with searching the whole page, on saved cache pages.
+ */
+public class GCCachePageIndexTest {
+
+    private static final String[] MOCKED_GEOCODES = {"GC1K1W4", "GC1ZXX2", "GC2CJPF", "GC2JVEH", "GC3FJ5F", "GC3XX5J", "GC40", "GC5BRQK", "GC6K70B"};
+    private static final int[] RAW_PAGES = {R.raw.gc430fm_published, R.raw.gc431f2_published, R.raw.gc366bq, R.raw.gc45w92, R.raw.gc6xyb6, R.raw.gc352y3_owner_view};
+
+    private static List<String> getPages() {
+        final List<String> pages = new ArrayList<>();
+        for (final String geocode : MOCKED_GEOCODES) {
+            pages.add(MockedCache.readCachePage(geocode));
+        }
+        for (final int page : RAW_PAGES) {
+            pages.add(TextUtils.replaceWhitespace(CgeoTestUtils.getFileContent(page)));
+        }
+        return pages;
+    }
+
+    /** search as done before the index was introduced */
+    private static String getMatchOnWholePage(final String page, final Field field) {
+        final String data = field.inCacheDetails ? page.substring(page.indexOf(GCConstants.STRING_CACHEDETAILS)) : page;
+        return TextUtils.getMatch(data, field.pattern, false, 0, null, false);
+    }
+
+    @Test
+    public void testSameMatchesAsWholePage() {
+        for (final String page : getPages()) {
+            final GCCachePageIndex index = new GCCachePageIndex(page);
+            assertThat(index.indexOf(GCConstants.STRING_CACHEDETAILS)).isGreaterThanOrEqualTo(0);
+            for (final Field field : Field.values()) {
+                final String expected = getMatchOnWholePage(page, field);
+                assertThat(index.getMatch(field, false, 0, null)).as(field.name()).isEqualTo(expected);
+                assertThat(index.matches(field)).as(field.name()).isEqualTo(expected != null);
+            }
+            assertThat(index.indexOf(GCConstants.STRING_WAYPOINTS)).isEqualTo(page.indexOf(GCConstants.STRING_WAYPOINTS));
+            assertThat(index.contains(GCConstants.STRING_STATUS_ARCHIVED)).isEqualTo(page.contains(GCConstants.STRING_STATUS_ARCHIVED));
+            assertThat(index.contains(GCConstants.PATTERN_GC_CHECKER)).isEqualTo(page.contains(GCConstants.PATTERN_GC_CHECKER));
+        }
+    }
+
+    @Test
+    public void testFieldsOfKnownPage() {
+        final GCCachePageIndex index = new GCCachePageIndex(MockedCache.readCachePage("GC2CJPF"));
+        assertThat(index.getMatch(Field.GEOCODE, true, null)).isEqualTo("GC2CJPF");
+        assertThat(index.getMatch(Field.SIZE, true, null)).isEqualTo("small");
+        assertThat(index.matches(Field.PREMIUMMEMBERS)).isFalse();
+        assertThat(index.getSearchStart(Field.PREMIUMMEMBERS)).isEqualTo(-1);
+        assertThat(index.getSearchStart(Field.DESC)).isEqualTo(index.getPage().indexOf(Field.DESC.anchor));
+    }
+}
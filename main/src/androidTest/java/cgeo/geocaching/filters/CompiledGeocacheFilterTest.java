@@ -0,0 +1,159 @@
+package cgeo.geocaching.filters;
+
+import cgeo.geocaching.enumerations.CacheSize;
+import cgeo.geocaching.enumerations.CacheType;
+import cgeo.geocaching.filters.core.AndGeocacheFilter;
+import cgeo.geocaching.filters.core.CompiledGeocacheFilter;
+import cgeo.geocaching.filters.core.DifficultyGeocacheFilter;
+import cgeo.geocaching.filters.core.GeocacheFilter;
+import cgeo.geocaching.filters.core.GeocacheFilterType;
+import cgeo.geocaching.filters.core.NameGeocacheFilter;
+import cgeo.geocaching.filters.core.NotGeocacheFilter;
+import cgeo.geocaching.filters.core.OrGeocacheFilter;
+import cgeo.geocaching.filters.core.SizeGeocacheFilter;
+import cgeo.geocaching.filters.core.StringFilter;
+import cgeo.geocaching.filters.core.TerrainGeocacheFilter;
+import cgeo.geocaching.filters.core.TypeGeocacheFilter;
+import cgeo.geocaching.models.Geocache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class CompiledGeocacheFilterTest {
+
+    private static final CacheType[] TYPES = {CacheType.TRADITIONAL, CacheType.MULTI, CacheType.MYSTERY, CacheType.EARTH, CacheType.MEGA_EVENT, CacheType.UNKNOWN};
+    private static final CacheSize[] SIZES = {CacheSize.MICRO, CacheSize.SMALL, CacheSize.REGULAR, CacheSize.LARGE, CacheSize.UNKNOWN};
+    private static final String[] NAME_PARTS = {"Forest", "Bridge", "Mystery", "Tree", "Lake", "Hill", "Church", "Stone"};
+
+    private static List<Geocache> createCaches(final int count) {
+        final Random rnd = new Random(42);
+        final List<Geocache> caches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Geocache cache = new Geocache();
+            cache.setGeocode("GCCOMP" + i);
+            cache.setType(TYPES[rnd.nextInt(TYPES.length)]);
+            cache.setSize(SIZES[rnd.nextInt(SIZES.length)]);
+            cache.setDifficulty(rnd.nextInt(10) * 0.5f);
+            cache.setTerrain(rnd.nextInt(10) * 0.5f);
+            if (rnd.nextInt(10) > 0) {
+                cache.setName(NAME_PARTS[rnd.nextInt(NAME_PARTS.length)] + " " + NAME_PARTS[rnd.nextInt(NAME_PARTS.length)] + " #" + i);
+            }
+            caches.add(cache);
+        }
+        return caches;
+    }
+
+    private static TypeGeocacheFilter type(final CacheType... types) {
+        final TypeGeocacheFilter filter = GeocacheFilterType.TYPE.create();
+        filter.setValues(Arrays.asList(types));
+        return filter;
+    }
+
+    private static SizeGeocacheFilter size(final CacheSize... sizes) {
+        final SizeGeocacheFilter filter = GeocacheFilterType.SIZE.create();
+        filter.setValues(Arrays.asList(sizes));
+        return filter;
+    }
+
+    private static DifficultyGeocacheFilter difficulty(final Float min, final Float max) {
+        final DifficultyGeocacheFilter filter = GeocacheFilterType.DIFFICULTY.create();
+        filter.setMinMaxRange(min, max);
+        return filter;
+    }
+
+    private static TerrainGeocacheFilter terrain(final Float min, final Float max) {
+        final TerrainGeocacheFilter filter = GeocacheFilterType.TERRAIN.create();
+        filter.setMinMaxRange(min, max);
+        return filter;
+    }
+
+    private static NameGeocacheFilter name(final StringFilter.StringFilterType type, final String text, final boolean matchCase) {
+        final NameGeocacheFilter filter = GeocacheFilterType.NAME.create();
+        filter.getStringFilter().setFilterType(type);
+        filter.getStringFilter().setTextValue(text);
+        filter.getStringFilter().setMatchCase(matchCase);
+        return filter;
+    }
+
+    private static List<GeocacheFilter> createFilters() {
+        final List<GeocacheFilter> filters = new ArrayList<>();
+
+        final AndGeocacheFilter simpleAnd = new AndGeocacheFilter();
+        simpleAnd.addChild(type(CacheType.TRADITIONAL, CacheType.MULTI));
+        simpleAnd.addChild(difficulty(1.5f, 3f));
+        simpleAnd.addChild(name(StringFilter.StringFilterType.CONTAINS, "tree", false));
+        filters.add(GeocacheFilter.create("and", false, false, simpleAnd));
+        filters.add(GeocacheFilter.create("and-inconclusive", false, true, simpleAnd));
+
+        final OrGeocacheFilter or = new OrGeocacheFilter();
+        or.addChild(size(CacheSize.MICRO));
+        final AndGeocacheFilter nestedAnd = new AndGeocacheFilter();
+        nestedAnd.addChild(terrain(3f, null));
+        nestedAnd.addChild(type(CacheType.COMMUN_CELEBRATION));
+        or.addChild(nestedAnd);
+        final OrGeocacheFilter nestedOr = new OrGeocacheFilter();
+        nestedOr.addChild(name(StringFilter.StringFilterType.PATTERN, "*hill*", false));
+        nestedOr.addChild(name(StringFilter.StringFilterType.IS_NOT_PRESENT, null, false));
+        or.addChild(nestedOr);
+        filters.add(GeocacheFilter.create("or", false, false, or));
+        filters.add(GeocacheFilter.create("or-inconclusive", false, true, or));
+
+        final NotGeocacheFilter not = new NotGeocacheFilter();
+        not.addChild(name(StringFilter.StringFilterType.STARTS_WITH, "Lake", true));
+        not.addChild(size(CacheSize.SMALL, CacheSize.REGULAR));
+        final AndGeocacheFilter andWithNot = new AndGeocacheFilter();
+        andWithNot.addChild(not);
+        andWithNot.addChild(new OrGeocacheFilter());
+        andWithNot.addChild(name(StringFilter.StringFilterType.DOES_NOT_CONTAIN, "stone", false));
+        filters.add(GeocacheFilter.create("not", false, false, andWithNot));
+        filters.add(GeocacheFilter.create("not-inconclusive", false, true, andWithNot));
+
+        filters.add(GeocacheFilter.createEmpty());
+        return filters;
+    }
+
+    @Test
+    public void sameResultAsUncompiled() {
+        final List<Geocache> caches = createCaches(2000);
+        for (GeocacheFilter filter : createFilters()) {
+            final CompiledGeocacheFilter compiled = filter.compile();
+            //evaluate more often than the adaption threshold to cover reordered children as well
+            for (int round = 0; round < 2; round++) {
+                for (Geocache cache : caches) {
+                    assertThat(compiled.filter(cache)).as("filter " + filter.getName() + ", cache " + cache.getGeocode()).isEqualTo(filter.filter(cache));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void filterList() {
+        final List<Geocache> caches = createCaches(1000);
+        for (GeocacheFilter filter : createFilters()) {
+            final List<Geocache> expected = new ArrayList<>();
+            for (Geocache cache : caches) {
+                if (filter.filter(cache)) {
+                    expected.add(cache);
+                }
+            }
+            final List<Geocache> filtered = new ArrayList<>(caches);
+            filter.filterList(filtered);
+            assertThat(filtered).as("filter " + filter.getName()).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    public void emptyLogicalFilters() {
+        final Geocache cache = new Geocache();
+        assertThat(new AndGeocacheFilter().compile().test(cache)).isEqualTo(CompiledGeocacheFilter.RESULT_TRUE);
+        assertThat(new OrGeocacheFilter().compile().test(cache)).isEqualTo(CompiledGeocacheFilter.RESULT_TRUE);
+        assertThat(new NotGeocacheFilter().compile().test(cache)).isEqualTo(CompiledGeocacheFilter.RESULT_FALSE);
+        assertThat(type().compile().test(cache)).isEqualTo(CompiledGeocacheFilter.RESULT_TRUE);
+    }
+
+}
@@ -0,0 +1,106 @@
+package cgeo.geocaching.filters;
+
+import cgeo.geocaching.enumerations.CacheType;
+import cgeo.geocaching.enumerations.LoadFlags;
+import cgeo.geocaching.filters.core.DistanceGeocacheFilter;
+import cgeo.geocaching.filters.core.GeocacheFilter;
+import cgeo.geocaching.filters.core.GeocacheFilterResultCache;
+import cgeo.geocaching.filters.core.GeocacheFilterType;
+import cgeo.geocaching.filters.core.NameGeocacheFilter;
+import cgeo.geocaching.filters.core.TypeGeocacheFilter;
+import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.storage.CacheModificationTracker;
+import cgeo.geocaching.storage.DataStore;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class GeocacheFilterResultCacheTest {
+
+    private static List<Geocache> createCaches() {
+        final List<Geocache> caches = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final Geocache cache = new Geocache();
+            cache.setGeocode("GCRESCACHE" + i);
+            cache.setName((i % 3 == 0 ? "Tree " : "Lake ") + i);
+            cache.setType(i % 2 == 0 ? CacheType.TRADITIONAL : CacheType.MULTI);
+            caches.add(cache);
+        }
+        return caches;
+    }
+
+    private static GeocacheFilter nameFilter(final String text) {
+        final NameGeocacheFilter filter = GeocacheFilterType.NAME.create();
+        filter.getStringFilter().setTextValue(text);
+        return GeocacheFilter.create("name", false, false, filter);
+    }
+
+    private static GeocacheFilter typeFilter(final CacheType type) {
+        final TypeGeocacheFilter filter = GeocacheFilterType.TYPE.create();
+        filter.setValues(Collections.singletonList(type));
+        return GeocacheFilter.create("type", false, false, filter);
+    }
+
+    private static List<Geocache> filterUncached(final List<Geocache> caches, final GeocacheFilter filter) {
+        final List<Geocache> result = new ArrayList<>(caches);
+        filter.filterList(result);
+        return result;
+    }
+
+    @Test
+    public void toggleFilters() {
+        final List<Geocache> caches = createCaches();
+        final GeocacheFilterResultCache resultCache = new GeocacheFilterResultCache();
+        for (int round = 0; round < 3; round++) {
+            assertThat(resultCache.filter(caches, nameFilter("tree"), false)).containsExactlyElementsOf(filterUncached(caches, nameFilter("tree")));
+            assertThat(resultCache.filter(caches, typeFilter(CacheType.MULTI), false)).containsExactlyElementsOf(filterUncached(caches, typeFilter(CacheType.MULTI)));
+        }
+        assertThat(resultCache.filter(caches, nameFilter("tree"), false)).hasSize(34);
+    }
+
+    @Test
+    public void modifiedCacheIsReevaluated() {
+        final List<Geocache> caches = createCaches();
+        final GeocacheFilterResultCache resultCache = new GeocacheFilterResultCache();
+        assertThat(resultCache.filter(caches, nameFilter("tree"), false)).hasSize(34);
+
+        final Geocache changed = caches.get(1);
+        final long counter = CacheModificationTracker.getModificationCounter();
+        try {
+            changed.setName("Tree changed");
+            DataStore.saveCache(changed, EnumSet.of(LoadFlags.SaveFlag.CACHE));
+            assertThat(CacheModificationTracker.getModifiedSince(counter)).contains(changed.getGeocode());
+
+            final List<Geocache> result = resultCache.filter(caches, nameFilter("tree"), false);
+            assertThat(result).hasSize(35).contains(changed);
+            assertThat(result).containsExactlyElementsOf(filterUncached(caches, nameFilter("tree")));
+        } finally {
+            DataStore.removeCache(changed.getGeocode(), EnumSet.of(LoadFlags.RemoveFlag.CACHE));
+        }
+    }
+
+    @Test
+    public void newScopeDiscardsResults() {
+        final List<Geocache> caches = createCaches();
+        final GeocacheFilterResultCache resultCache = new GeocacheFilterResultCache();
+        assertThat(resultCache.filter(caches, nameFilter("tree"), false)).hasSize(34);
+        final List<Geocache> otherCaches = new ArrayList<>(caches.subList(0, 10));
+        assertThat(resultCache.filter(otherCaches, nameFilter("tree"), false)).hasSize(4);
+    }
+
+    @Test
+    public void nonCacheableFilter() {
+        final DistanceGeocacheFilter distanceFilter = GeocacheFilterType.DISTANCE.create();
+        distanceFilter.setUseCurrentPosition(true);
+        assertThat(GeocacheFilter.create("distance", false, false, distanceFilter).isResultCacheable()).isFalse();
+        distanceFilter.setUseCurrentPosition(false);
+        assertThat(GeocacheFilter.create("distance", false, false, distanceFilter).isResultCacheable()).isTrue();
+        assertThat(nameFilter("tree").isResultCacheable()).isTrue();
+    }
+
+}
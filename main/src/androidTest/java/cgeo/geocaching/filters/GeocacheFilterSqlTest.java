@@ -0,0 +1,165 @@
+package cgeo.geocaching.filters;
+
+import cgeo.geocaching.enumerations.CacheSize;
+import cgeo.geocaching.enumerations.CacheType;
+import cgeo.geocaching.enumerations.LoadFlags;
+import cgeo.geocaching.filters.core.AndGeocacheFilter;
+import cgeo.geocaching.filters.core.BaseGeocacheFilter;
+import cgeo.geocaching.filters.core.DifficultyGeocacheFilter;
+import cgeo.geocaching.filters.core.GeocacheFilter;
+import cgeo.geocaching.filters.core.GeocacheFilterType;
+import cgeo.geocaching.filters.core.GeocodeGeocacheFilter;
+import cgeo.geocaching.filters.core.IGeocacheFilter;
+import cgeo.geocaching.filters.core.NameGeocacheFilter;
+import cgeo.geocaching.filters.core.NotGeocacheFilter;
+import cgeo.geocaching.filters.core.OrGeocacheFilter;
+import cgeo.geocaching.filters.core.OwnerGeocacheFilter;
+import cgeo.geocaching.filters.core.SizeGeocacheFilter;
+import cgeo.geocaching.filters.core.StringFilter;
+import cgeo.geocaching.filters.core.TerrainGeocacheFilter;
+import cgeo.geocaching.filters.core.TypeGeocacheFilter;
+import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.storage.DataStore;
+import cgeo.geocaching.storage.SqlBuilder;
+import cgeo.geocaching.utils.functions.Action1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Verifies for a generated set of stored caches that selection via SQL ({@link IGeocacheFilter#addToSql(SqlBuilder)})
+ * is identical to the in-memory result of {@link IGeocacheFilter#filter(Geocache)} for all caches with a conclusive in-memory result.
+ * Selectivity of each checked filter is logged.
+ */
+public class GeocacheFilterSqlTest {
+
+    private static final String GEOCODE_PREFIX = "GCSQLCHECK";
+    private static final int CACHE_COUNT = 300;
+
+    private static final CacheType[] TYPES = {CacheType.TRADITIONAL, CacheType.MULTI, CacheType.MYSTERY, CacheType.EARTH, CacheType.MEGA_EVENT, CacheType.CITO};
+    private static final CacheSize[] SIZES = {CacheSize.MICRO, CacheSize.SMALL, CacheSize.REGULAR, CacheSize.LARGE, CacheSize.OTHER};
+    private static final String[] WORDS = {"Forest", "Bridge", "Mystery", "Tree", "Lake", "Hill", "Church", "Stone"};
+
+    private static final List<Geocache> CACHES = new ArrayList<>();
+
+    @BeforeClass
+    public static void createCaches() {
+        final Random rnd = new Random(4711);
+        for (int i = 0; i < CACHE_COUNT; i++) {
+            final Geocache cache = new Geocache();
+            cache.setGeocode(GEOCODE_PREFIX + i);
+            cache.setType(TYPES[rnd.nextInt(TYPES.length)]);
+            cache.setSize(SIZES[rnd.nextInt(SIZES.length)]);
+            cache.setDifficulty(1f + rnd.nextInt(9) * 0.5f);
+            cache.setTerrain(1f + rnd.nextInt(9) * 0.5f);
+            cache.setName(WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)] + " " + i);
+            if (rnd.nextInt(5) > 0) {
+                cache.setOwnerDisplayName("owner" + rnd.nextInt(10));
+            }
+            DataStore.storeIntoDatabase(cache);
+            CACHES.add(cache);
+        }
+    }
+
+    @AfterClass
+    public static void removeCaches() {
+        for (Geocache cache : CACHES) {
+            DataStore.removeCache(cache.getGeocode(), EnumSet.of(LoadFlags.RemoveFlag.CACHE, LoadFlags.RemoveFlag.DB));
+        }
+        CACHES.clear();
+    }
+
+    @Test
+    public void stringFilters() {
+        for (StringFilter.StringFilterType type : StringFilter.StringFilterType.values()) {
+            assertSqlEqualsMemory(GeocacheFilterType.NAME, (NameGeocacheFilter f) -> {
+                f.getStringFilter().setFilterType(type);
+                f.getStringFilter().setTextValue(type == StringFilter.StringFilterType.PATTERN ? "*ee*" : "tree");
+            });
+            assertSqlEqualsMemory(GeocacheFilterType.OWNER, (OwnerGeocacheFilter f) -> {
+                f.getStringFilter().setFilterType(type);
+                f.getStringFilter().setTextValue(type == StringFilter.StringFilterType.PATTERN ? "owner?" : "owner3");
+            });
+        }
+    }
+
+    @Test
+    public void valueGroupFilters() {
+        assertSqlEqualsMemory(GeocacheFilterType.TYPE, (TypeGeocacheFilter f) -> f.setValues(Arrays.asList(CacheType.TRADITIONAL, CacheType.MULTI)));
+        assertSqlEqualsMemory(GeocacheFilterType.TYPE, (TypeGeocacheFilter f) -> f.setValues(Arrays.asList(CacheType.COMMUN_CELEBRATION, CacheType.CITO)));
+        assertSqlEqualsMemory(GeocacheFilterType.SIZE, (SizeGeocacheFilter f) -> f.setValues(Arrays.asList(CacheSize.MICRO, CacheSize.OTHER)));
+        assertSqlEqualsMemory(GeocacheFilterType.SIZE, (SizeGeocacheFilter f) -> f.setValues(new ArrayList<>()));
+    }
+
+    @Test
+    public void numberRangeFilters() {
+        assertSqlEqualsMemory(GeocacheFilterType.DIFFICULTY, (DifficultyGeocacheFilter f) -> f.setMinMaxRange(2f, 3.5f));
+        assertSqlEqualsMemory(GeocacheFilterType.DIFFICULTY, (DifficultyGeocacheFilter f) -> f.setMinMaxRange(null, 1.5f));
+        assertSqlEqualsMemory(GeocacheFilterType.TERRAIN, (TerrainGeocacheFilter f) -> f.setMinMaxRange(4f, null));
+        assertSqlEqualsMemory(GeocacheFilterType.TERRAIN, (TerrainGeocacheFilter f) -> f.setMinMaxRange(null, null));
+    }
+
+    @Test
+    public void logicalFilters() {
+        final OrGeocacheFilter or = new OrGeocacheFilter();
+        or.addChild(create(GeocacheFilterType.TYPE, (TypeGeocacheFilter f) -> f.setValues(Arrays.asList(CacheType.EARTH))));
+        or.addChild(create(GeocacheFilterType.DIFFICULTY, (DifficultyGeocacheFilter f) -> f.setMinMaxRange(4.5f, null)));
+        or.addChild(create(GeocacheFilterType.NAME, (NameGeocacheFilter f) -> f.getStringFilter().setTextValue("lake")));
+        assertSqlEqualsMemory("OR", or);
+
+        final NotGeocacheFilter not = new NotGeocacheFilter();
+        not.addChild(or);
+        assertSqlEqualsMemory("NOT(OR)", not);
+
+        //non-filtering children inside NOT
+        final NotGeocacheFilter notWithEmpty = new NotGeocacheFilter();
+        notWithEmpty.addChild(create(GeocacheFilterType.TERRAIN, (TerrainGeocacheFilter f) -> f.setMinMaxRange(null, null)));
+        notWithEmpty.addChild(create(GeocacheFilterType.SIZE, (SizeGeocacheFilter f) -> f.setValues(new ArrayList<>())));
+        final OrGeocacheFilter orWithNot = new OrGeocacheFilter();
+        orWithNot.addChild(notWithEmpty);
+        orWithNot.addChild(create(GeocacheFilterType.SIZE, (SizeGeocacheFilter f) -> f.setValues(Arrays.asList(CacheSize.LARGE))));
+        assertSqlEqualsMemory("OR(NOT(empty),LARGE)", orWithNot);
+    }
+
+    private static <T extends BaseGeocacheFilter> T create(final GeocacheFilterType type, final Action1<T> filterSetter) {
+        final T filter = type.create();
+        filterSetter.call(filter);
+        return filter;
+    }
+
+    private static <T extends BaseGeocacheFilter> void assertSqlEqualsMemory(final GeocacheFilterType type, final Action1<T> filterSetter) {
+        final T filter = create(type, filterSetter);
+        assertSqlEqualsMemory(type.name() + filter.getConfig(), filter);
+    }
+
+    private static void assertSqlEqualsMemory(final String name, final IGeocacheFilter filter) {
+        final AndGeocacheFilter filterConfig = new AndGeocacheFilter();
+        filterConfig.addChild(filter);
+        final GeocodeGeocacheFilter geocodeFilter = new GeocodeGeocacheFilter();
+        geocodeFilter.getStringFilter().setFilterType(StringFilter.StringFilterType.STARTS_WITH);
+        geocodeFilter.getStringFilter().setTextValue(GEOCODE_PREFIX);
+        filterConfig.addChild(geocodeFilter);
+        final Set<String> sqlResult = DataStore.getBatchOfStoredCaches(null, -1, GeocacheFilter.create("", false, false, filterConfig), null, false, -1).getGeocodes();
+
+        final SqlBuilder sqlBuilder = new SqlBuilder("cache-table", new String[]{"*"});
+        filter.addToSql(sqlBuilder);
+
+        for (Geocache cache : CACHES) {
+            final Boolean memoryResult = filter.filter(cache);
+            if (memoryResult == null) {
+                continue;
+            }
+            assertThat(sqlResult.contains(cache.getGeocode())).as("filter " + name + ", cache " + cache + ", SQL: " + sqlBuilder).isEqualTo(memoryResult);
+        }
+    }
+
+}
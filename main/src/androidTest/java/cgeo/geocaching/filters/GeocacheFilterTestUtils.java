@@ -4,6 +4,7 @@ import cgeo.geocaching.SearchResult;
 import cgeo.geocaching.enumerations.LoadFlags;
 import cgeo.geocaching.filters.core.AndGeocacheFilter;
 import cgeo.geocaching.filters.core.BaseGeocacheFilter;
+import cgeo.geocaching.filters.core.CompiledGeocacheFilter;
 import cgeo.geocaching.filters.core.GeocacheFilter;
 import cgeo.geocaching.filters.core.GeocacheFilterType;
 import cgeo.geocaching.filters.core.GeocodeGeocacheFilter;
@@ -43,6 +44,8 @@ public class GeocacheFilterTestUtils {
 
     public static boolean testSingleLogic(final Geocache cache, final IGeocacheFilter filter, final Boolean expectedResult) {
         assertThat(filter.filter(cache)).as("LOGIC: Wrong test result for filter: " + filter.getConfig() + "/cache: " + cache).isEqualTo(expectedResult);
+        assertThat(filter.compile().test(cache)).as("COMPILED: Wrong test result for filter: " + filter.getConfig() + "/cache: " + cache)
+                .isEqualTo(CompiledGeocacheFilter.toResult(expectedResult));
         return true;
     }
 
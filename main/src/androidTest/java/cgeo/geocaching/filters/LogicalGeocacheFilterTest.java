@@ -1,6 +1,7 @@
 package cgeo.geocaching.filters;
 
 import cgeo.geocaching.filters.core.AndGeocacheFilter;
+import cgeo.geocaching.filters.core.CompiledGeocacheFilter;
 import cgeo.geocaching.filters.core.GeocacheFilterType;
 import cgeo.geocaching.filters.core.IGeocacheFilter;
 import cgeo.geocaching.filters.core.LogicalGeocacheFilter;
@@ -49,6 +50,7 @@ public class LogicalGeocacheFilterTest {
             filter.addChild(child);
         }
         assertThat(filter.filter(null)).isEqualTo(expectedResult);
+        assertThat(filter.compile().test(new Geocache())).as("compiled").isEqualTo(CompiledGeocacheFilter.toResult(expectedResult));
     }
 
 
@@ -46,4 +46,16 @@ public class GCVoteTest {
         assertThat(ratings).containsKey("a02894bb-4a08-4c09-a73c-25939894ba15");
         assertThat(ratings.get("5520c33b-3941-45ca-9056-ea655dbaadf7")).isEqualToComparingFieldByField(new GCVoteRating(3.75f, 2, 0));
     }
+
+    @Test
+    public void testUnparsableResponse() {
+        final InputStream invalid = new ByteArrayInputStream("<votes loggedIn='false'><vote waypoint='GC1' voteAvg='x' voteCnt='1'/></votes>".getBytes());
+        assertThat(GCVote.getRatingsFromXMLResponse(invalid, false)).isNull();
+    }
+
+    @Test
+    public void testNoRatingMarker() {
+        assertThat(GCVoteRating.NO_RATING.isNoRating()).isTrue();
+        assertThat(new GCVoteRating(0, 0, 0).isNoRating()).isFalse();
+    }
 }
@@ -24,6 +24,7 @@ import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
@@ -141,6 +142,43 @@ public class DataStoreTest {
         }
     }
 
+    @Test
+    public void testImageIndex() {
+        final Geocache cache = new Geocache();
+        cache.setGeocode(ARTIFICIAL_GEOCODE);
+        cache.setDetailed(true);
+        cache.getLists().add(StoredList.STANDARD_LIST_ID);
+        cache.setDescription("<p><img src=\"https://img.example.com/description.jpg\"></p>");
+        cache.setSpoilers(Collections.singletonList(new Image.Builder().setUrl("https://img.example.com/spoiler.jpg").setTitle("Spoiler").build()));
+
+        try {
+            DataStore.saveCache(cache, EnumSet.of(SaveFlag.DB));
+            assertThat(DataStore.DBImageIndex.load(ARTIFICIAL_GEOCODE)).isNull();
+
+            cache.updateImageIndex();
+            final Map<DataStore.DBImageIndex.ImageSource, List<Image>> images = DataStore.DBImageIndex.load(ARTIFICIAL_GEOCODE);
+            assertThat(images).isNotNull();
+            assertThat(images.get(DataStore.DBImageIndex.ImageSource.SPOILER)).extracting("title").containsExactly("Spoiler");
+            assertThat(images.get(DataStore.DBImageIndex.ImageSource.DESCRIPTION)).extracting("url").containsExactly("https://img.example.com/description.jpg");
+            assertThat(images.get(DataStore.DBImageIndex.ImageSource.LOG)).isEmpty();
+
+            // saving the cache without changing its images keeps the index
+            DataStore.DBImageIndex.setCoordinates(ARTIFICIAL_GEOCODE, "https://img.example.com/spoiler.jpg", new Geopoint(48.0, 11.0));
+            DataStore.saveCache(cache, EnumSet.of(SaveFlag.DB));
+            assertThat(DataStore.DBImageIndex.load(ARTIFICIAL_GEOCODE)).isNotNull();
+
+            // changing the description outdates the index, but rebuilding it keeps the coordinates of downloaded images
+            cache.setDescription("<p><img src=\"https://img.example.com/other.jpg\"></p>");
+            DataStore.saveCache(cache, EnumSet.of(SaveFlag.DB));
+            assertThat(DataStore.DBImageIndex.load(ARTIFICIAL_GEOCODE)).isNull();
+            cache.updateImageIndex();
+            assertThat(DataStore.DBImageIndex.getCoordinates(ARTIFICIAL_GEOCODE)).containsEntry("https://img.example.com/spoiler.jpg", new Geopoint(48.0, 11.0));
+        } finally {
+            DataStore.removeCache(ARTIFICIAL_GEOCODE, REMOVE_ALL);
+        }
+        assertThat(DataStore.DBImageIndex.load(ARTIFICIAL_GEOCODE)).isNull();
+    }
+
     // Check that loading a cache by case insensitive geo code works correctly (see #3139)
     @Test
     public void testGeocodeCaseInsensitive() {
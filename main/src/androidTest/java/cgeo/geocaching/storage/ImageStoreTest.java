@@ -0,0 +1,92 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.enumerations.LoadFlags;
+import cgeo.geocaching.utils.FileUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ImageStoreTest {
+
+    private static final String GEOCODE_1 = "TEST_IMAGESTORE_1";
+    private static final String GEOCODE_2 = "TEST_IMAGESTORE_2";
+
+    private static File download(final String geocode, final String url, final String content) {
+        final File file = ImageStore.getDownloadFile(geocode, url);
+        assertThat(FileUtils.saveToFile(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), file)).isTrue();
+        return file;
+    }
+
+    private static void saveHeader(final File file, final String name, final String value) {
+        assertThat(FileUtils.saveToFile(new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8)), new File(file.getAbsolutePath() + "-" + name))).isTrue();
+    }
+
+    @Test
+    public void testSameContentIsStoredOnce() {
+        final String banner = "https://img.example.com/banner.png";
+        try {
+            final File stored1 = ImageStore.put(GEOCODE_1, banner, download(GEOCODE_1, banner, "banner"));
+            final File stored2 = ImageStore.put(GEOCODE_2, banner, download(GEOCODE_2, banner, "banner"));
+            final File other = ImageStore.put(GEOCODE_2, "https://img.example.com/spoiler.jpg", download(GEOCODE_2, "https://img.example.com/spoiler.jpg", "spoiler"));
+
+            assertThat(stored1).isNotNull();
+            assertThat(stored1).isEqualTo(stored2);
+            assertThat(stored1.getName()).endsWith(".png");
+            assertThat(other).isNotEqualTo(stored1);
+            assertThat(ImageStore.getDownloadFile(GEOCODE_2, banner)).doesNotExist();
+
+            assertThat(ImageStore.getFile(GEOCODE_1, banner)).isEqualTo(stored1);
+            assertThat(ImageStore.getFile(GEOCODE_2, banner)).isEqualTo(stored1);
+            assertThat(ImageStore.getFile(GEOCODE_1, "https://img.example.com/spoiler.jpg")).isNull();
+        } finally {
+            DataStore.removeCaches(new HashSet<>(Arrays.asList(GEOCODE_1, GEOCODE_2)), LoadFlags.REMOVE_ALL);
+        }
+        assertThat(ImageStore.getFile(GEOCODE_1, banner)).isNull();
+    }
+
+    @Test
+    public void testValidatorsAreKeptPerReference() {
+        final String url1 = "https://img.example.com/one.png";
+        final String url2 = "https://other.example.com/two.png";
+        try {
+            final File download1 = download(GEOCODE_1, url1, "same");
+            saveHeader(download1, FileUtils.HEADER_ETAG, "\"one\"");
+            final File stored1 = ImageStore.put(GEOCODE_1, url1, download1);
+            final File download2 = download(GEOCODE_1, url2, "same");
+            saveHeader(download2, FileUtils.HEADER_LAST_MODIFIED, "Mon, 05 Oct 2026 10:00:00 GMT");
+            final File stored2 = ImageStore.put(GEOCODE_1, url2, download2);
+
+            assertThat(stored1).isEqualTo(stored2);
+            assertThat(ImageStore.getValidationHeaders(GEOCODE_1, url1)).containsExactly(new ImmutablePair<>("If-None-Match", "\"one\""));
+            assertThat(ImageStore.getValidationHeaders(GEOCODE_1, url2)).containsExactly(new ImmutablePair<>("If-Modified-Since", "Mon, 05 Oct 2026 10:00:00 GMT"));
+            assertThat(ImageStore.getValidationHeaders(GEOCODE_2, url1)).isNull();
+            assertThat(new File(download1.getAbsolutePath() + "-" + FileUtils.HEADER_ETAG)).doesNotExist();
+        } finally {
+            DataStore.removeCaches(new HashSet<>(Arrays.asList(GEOCODE_1)), LoadFlags.REMOVE_ALL);
+        }
+    }
+
+    @Test
+    public void testLegacyImageIsMovedOnAccess() {
+        final String url = "https://img.example.com/legacy.gif";
+        try {
+            final File legacy = LocalStorage.getGeocacheDataFile(GEOCODE_1, url, true, true);
+            assertThat(FileUtils.saveToFile(new ByteArrayInputStream("legacy".getBytes(StandardCharsets.UTF_8)), legacy)).isTrue();
+
+            final File stored = ImageStore.getFile(GEOCODE_1, url);
+            assertThat(stored).isNotNull();
+            assertThat(stored).isNotEqualTo(legacy);
+            assertThat(legacy).doesNotExist();
+            assertThat(ImageStore.getStatistics()).contains("lookups");
+        } finally {
+            DataStore.removeCaches(new HashSet<>(Arrays.asList(GEOCODE_1)), LoadFlags.REMOVE_ALL);
+        }
+    }
+}
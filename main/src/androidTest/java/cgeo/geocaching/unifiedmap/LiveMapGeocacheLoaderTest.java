@@ -0,0 +1,80 @@
+package cgeo.geocaching.unifiedmap;
+
+import cgeo.geocaching.SearchResult;
+import cgeo.geocaching.connector.IConnector;
+import cgeo.geocaching.filters.core.GeocacheFilter;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class LiveMapGeocacheLoaderTest {
+
+    private static final Viewport MUNICH = new Viewport(new Geopoint(48.14, 11.58), 0.05, 0.05);
+    private static final Viewport HAMBURG = new Viewport(new Geopoint(53.55, 9.99), 0.05, 0.05);
+
+    private final AtomicInteger searches = new AtomicInteger();
+    private final CountDownLatch searchStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseSearch = new CountDownLatch(1);
+    private final BlockingQueue<LiveMapGeocacheLoader.LoadState> states = new LinkedBlockingQueue<>();
+
+    /** online search blocking until released, delivering no caches */
+    private void search(final Viewport viewport, final GeocacheFilter filter, final BiConsumer<IConnector, SearchResult> callback) {
+        searches.incrementAndGet();
+        searchStarted.countDown();
+        try {
+            releaseSearch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private LiveMapGeocacheLoader startRequest() throws InterruptedException {
+        final LiveMapGeocacheLoader loader = new LiveMapGeocacheLoader(this::search, state -> states.add(state.loadState), caches -> { });
+        loader.requestUpdate(MUNICH, null, true);
+        assertThat(searchStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        return loader;
+    }
+
+    @Test
+    public void cancelWhileRunningStartsNoFurtherRequest() throws InterruptedException {
+        final LiveMapGeocacheLoader loader = startRequest();
+        try {
+            // map is moved elsewhere while the request is running, then live mode is switched off
+            loader.requestUpdate(HAMBURG, null, true);
+            loader.cancelRequest();
+            states.clear();
+            releaseSearch.countDown();
+
+            assertThat(states.poll(10, TimeUnit.SECONDS)).isEqualTo(LiveMapGeocacheLoader.LoadState.STOPPED);
+            assertThat(searches.get()).isEqualTo(1);
+        } finally {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    public void requestWhileRunningIsStartedAfterwards() throws InterruptedException {
+        final LiveMapGeocacheLoader loader = startRequest();
+        try {
+            loader.requestUpdate(HAMBURG, null, true);
+            states.clear();
+            releaseSearch.countDown();
+
+            assertThat(states.poll(10, TimeUnit.SECONDS)).isEqualTo(LiveMapGeocacheLoader.LoadState.REQUESTED);
+            assertThat(states.poll(10, TimeUnit.SECONDS)).isEqualTo(LiveMapGeocacheLoader.LoadState.RUNNING);
+            assertThat(states.poll(10, TimeUnit.SECONDS)).isEqualTo(LiveMapGeocacheLoader.LoadState.STOPPED);
+            assertThat(searches.get()).isEqualTo(2);
+        } finally {
+            loader.destroy();
+        }
+    }
+}
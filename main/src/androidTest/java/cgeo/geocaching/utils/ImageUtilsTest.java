@@ -30,6 +30,14 @@ public class ImageUtilsTest {
         assertThat(decodedImage).as("decoded base64 image").isEqualTo(originalImage);
     }
 
+    @Test
+    public void calculateSampleSize() {
+        assertThat(ImageUtils.calculateSampleSize(4000, 3000, 1055, 1895)).isEqualTo(2);
+        assertThat(ImageUtils.calculateSampleSize(4000, 3000, 450, 450)).isEqualTo(8);
+        assertThat(ImageUtils.calculateSampleSize(100, 100, 450, 450)).isEqualTo(1);
+        assertThat(ImageUtils.calculateSampleSize(4000, 3000, 0, 450)).isEqualTo(1);
+    }
+
     @Test
     public void forEachImageUrl() {
         assertThat(getImageUrls(null)).isEmpty();
@@ -66,6 +66,7 @@ import cgeo.geocaching.sensors.GeoData;
 import cgeo.geocaching.sensors.GeoDirHandler;
 import cgeo.geocaching.sensors.LocationDataProvider;
 import cgeo.geocaching.service.GeocacheChangedBroadcastReceiver;
+import cgeo.geocaching.service.ImagePrefetcher;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.speech.SpeechService;
 import cgeo.geocaching.storage.DataStore;
@@ -329,6 +330,11 @@ public class CacheDetailActivity extends TabbedViewPagerActivity
         // If we open this cache from a search, let's properly initialize the title bar, even if we don't have cache details
         setCacheTitleBar(geocode, name, null);
 
+        if (geocode != null) {
+            // images still to be downloaded for this cache are needed now
+            ImagePrefetcher.prioritize(geocode);
+        }
+
         final LoadCacheHandler loadCacheHandler = new LoadCacheHandler(this, progress);
 
         if (forceEditPersonalNote) {
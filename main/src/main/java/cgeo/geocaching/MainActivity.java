@@ -26,6 +26,8 @@ import cgeo.geocaching.sensors.GeoDirHandler;
 import cgeo.geocaching.sensors.GnssStatusProvider;
 import cgeo.geocaching.sensors.GnssStatusProvider.Status;
 import cgeo.geocaching.sensors.LocationDataProvider;
+import cgeo.geocaching.service.CacheDownloaderService;
+import cgeo.geocaching.service.ImagePrefetcher;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.settings.SettingsActivity;
 import cgeo.geocaching.storage.DataStore;
@@ -360,6 +362,8 @@ public class MainActivity extends AbstractNavigationBarActivity {
         updateCacheCounter();
         prepareQuickLaunchItems();
         checkPendingDownloads();
+        CacheDownloaderService.resumePendingDownloads(this);
+        ImagePrefetcher.resumePendingDownloads();
         binding.locationStatus.setShowAddress(Settings.isShowAddress());
     }
 
@@ -206,6 +206,18 @@ public final class ConnectorFactory {
         return activeConnectors;
     }
 
+    /** returns a key identifying the set of currently active connectors which are used for live map searches */
+    @NonNull
+    public static String getActiveSearchByViewportConnectorsKey() {
+        final StringBuilder key = new StringBuilder();
+        for (final ISearchByViewPort conn : searchByViewPortConns) {
+            if (conn.isActive()) {
+                key.append(conn.getName()).append(';');
+            }
+        }
+        return key.toString();
+    }
+
     public static boolean anyConnectorActive() {
         for (final IConnector conn : CONNECTORS) {
             if (conn.isActive()) {
@@ -0,0 +1,222 @@
+package cgeo.geocaching.connector.gc;
+
+import cgeo.geocaching.utils.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Index of a cache details page, built by a single pass over the page.
+ * <br>
+ * Every pattern used for parsing the page is registered as {@link Field} together with a fixed text (anchor) each of its
+ * matches contains. While scanning the page once, the first occurrence of all anchors is recorded. Afterwards a pattern whose
+ * anchor does not occur on the page is not evaluated at all, and a pattern whose matches start with their anchor is only
+ * evaluated from the first occurrence of the anchor on. The results are the same as searching the whole page with the pattern.
+ */
+final class GCCachePageIndex {
+
+    /**
+     * patterns of the cache details page together with their anchor
+     */
+    enum Field {
+        PREMIUMMEMBERS(GCConstants.PATTERN_PREMIUMMEMBERS, "<p class=\"Warning NoBottomSpacing\"", true, false),
+        IS_FAVORITE(GCConstants.PATTERN_IS_FAVORITE, "<div id=\"pnlFavoriteCache\">", true, false),
+        GEOCODE(GCConstants.PATTERN_GEOCODE, "class=\"CoordInfoCode\">", true, false),
+        GUID(GCConstants.PATTERN_GUID, "&wid=", true, false),
+        WATCHLIST_COUNT(GCConstants.PATTERN_WATCHLIST_COUNT, "data-watchcount=\"", true, false),
+        OWNER_USERID(GCConstants.PATTERN_OWNER_USERID, "<a href=\"/play/search?owner[0]=", true, false),
+        TERRAIN(GCConstants.PATTERN_TERRAIN, "<span id=\"ctl00_ContentBody_Localize", true, true),
+        DIFFICULTY(GCConstants.PATTERN_DIFFICULTY, "<span id=\"ctl00_ContentBody_uxLegendScale\"", true, true),
+        OWNER_DISPLAYNAME(GCConstants.PATTERN_OWNER_DISPLAYNAME, "<div id=\"ctl00_ContentBody_mcd1\">", true, true),
+        OWNER_GUID(GCConstants.PATTERN_OWNER_GUID, "/?guid=", false, true),
+        HIDDEN(GCConstants.PATTERN_HIDDEN, "ctl00_ContentBody_mcd2", true, true),
+        HIDDENEVENT(GCConstants.PATTERN_HIDDENEVENT, "<div id=\"calLinks\">", false, true),
+        EVENTTIMES(GCConstants.PATTERN_EVENTTIMES, "<div id=\"mcd3\">", true, true),
+        FAVORITECOUNT(GCConstants.PATTERN_FAVORITECOUNT, "<span class=\"favorite-value\">", true, true),
+        SIZE(GCConstants.PATTERN_SIZE, "/icons/container/", true, true),
+        FOUND(GCConstants.PATTERN_FOUND, "id=\"ctl00_ContentBody_GeoNav_logTypeImage\"", false, false),
+        DNF(GCConstants.PATTERN_DNF, "id=\"ctl00_ContentBody_GeoNav_logTypeImage\"", false, false),
+        // the '.' in "cache-types.svg" is not escaped in the pattern, so the anchor ends before it
+        TYPE(GCConstants.PATTERN_TYPE, "<use xlink:href=\"/app/ui-icons/sprites/cache-types", true, false),
+        WATCHLIST(GCConstants.PATTERN_WATCHLIST, "data-cacheonwatchlist=\"True\"", true, false),
+        LATLON(GCConstants.PATTERN_LATLON, "<span id=\"uxLatLon\"", true, false),
+        LOCATION(GCConstants.PATTERN_LOCATION, "<span id=\"ctl00_ContentBody_Location\">In ", true, false),
+        HINT(GCConstants.PATTERN_HINT, "<div id=\"div_hint\"", true, false),
+        SHORTDESC(GCConstants.PATTERN_SHORTDESC, "<span id=\"ctl00_ContentBody_ShortDescription\">", true, false),
+        DESC(GCConstants.PATTERN_DESC, "<span id=\"ctl00_ContentBody_LongDescription\">", true, false),
+        RELATED_WEB_PAGE(GCConstants.PATTERN_RELATED_WEB_PAGE, "ctl00_ContentBody_uxCacheUrl", true, false),
+        ATTRIBUTES(GCConstants.PATTERN_ATTRIBUTES, "<img src=\"/images/attributes", true, false),
+        BACKGROUND_IMAGE(GCConstants.PATTERN_BACKGROUND_IMAGE, "<body background=\"", true, false),
+        INVENTORY(GCConstants.PATTERN_INVENTORY, "ctl00_ContentBody_uxTravelBugList_uxInventoryLabel\">", true, false),
+        COUNTLOGS(GCConstants.PATTERN_COUNTLOGS, "<span id=\"ctl00_ContentBody_lblFindCounts\"><ul", true, false),
+        LATLON_ORIG(GCConstants.PATTERN_LATLON_ORIG, "{\"isUserDefined\":true", true, false);
+
+        @NonNull
+        final Pattern pattern;
+        @NonNull
+        final String anchor;
+        /** whether every match of the pattern starts with the anchor (otherwise it only contains it) */
+        final boolean anchorIsPrefix;
+        /** whether the pattern is searched only in the cache details part of the page */
+        final boolean inCacheDetails;
+
+        Field(@NonNull final Pattern pattern, @NonNull final String anchor, final boolean anchorIsPrefix, final boolean inCacheDetails) {
+            this.pattern = pattern;
+            this.anchor = anchor;
+            this.anchorIsPrefix = anchorIsPrefix;
+            this.inCacheDetails = inCacheDetails;
+        }
+    }
+
+    /**
+     * fixed texts which are looked up directly, in addition to the anchors of the fields
+     */
+    private static final String[] TEXTS = {
+            GCConstants.STRING_CACHEDETAILS,
+            GCConstants.STRING_WAYPOINTS,
+            GCConstants.STRING_STATUS_DISABLED,
+            GCConstants.STRING_STATUS_ARCHIVED,
+            GCConstants.STRING_STATUS_LOCKED,
+            GCConstants.PATTERN_GC_CHECKER
+    };
+
+    private static final String[] ANCHORS;
+    private static final Map<String, Integer> ANCHOR_IDS = new LinkedHashMap<>();
+    /** ids of the anchors starting with a given (ASCII) character */
+    private static final int[][] ANCHORS_BY_FIRST_CHAR = new int[128][];
+
+    static {
+        for (final String text : TEXTS) {
+            registerAnchor(text);
+        }
+        for (final Field field : Field.values()) {
+            registerAnchor(field.anchor);
+        }
+        ANCHORS = ANCHOR_IDS.keySet().toArray(new String[0]);
+
+        final List<List<Integer>> byFirstChar = new ArrayList<>();
+        for (int c = 0; c < ANCHORS_BY_FIRST_CHAR.length; c++) {
+            byFirstChar.add(new ArrayList<>());
+        }
+        for (int id = 0; id < ANCHORS.length; id++) {
+            byFirstChar.get(ANCHORS[id].charAt(0)).add(id);
+        }
+        for (int c = 0; c < ANCHORS_BY_FIRST_CHAR.length; c++) {
+            final List<Integer> ids = byFirstChar.get(c);
+            if (!ids.isEmpty()) {
+                ANCHORS_BY_FIRST_CHAR[c] = new int[ids.size()];
+                for (int i = 0; i < ids.size(); i++) {
+                    ANCHORS_BY_FIRST_CHAR[c][i] = ids.get(i);
+                }
+            }
+        }
+    }
+
+    @NonNull
+    private final String page;
+    /** first position of each anchor on the page, or -1 */
+    @NonNull
+    private final int[] positions;
+    private final int cacheDetailsStart;
+
+    GCCachePageIndex(@NonNull final String page) {
+        this.page = page;
+        this.positions = findAnchors(page);
+        this.cacheDetailsStart = indexOf(GCConstants.STRING_CACHEDETAILS);
+    }
+
+    private static void registerAnchor(@NonNull final String anchor) {
+        if (anchor.isEmpty() || anchor.charAt(0) >= ANCHORS_BY_FIRST_CHAR.length) {
+            throw new IllegalStateException("Anchor must start with an ASCII character: " + anchor);
+        }
+        if (!ANCHOR_IDS.containsKey(anchor)) {
+            ANCHOR_IDS.put(anchor, ANCHOR_IDS.size());
+        }
+    }
+
+    /**
+     * single pass over the page, recording the first position of every anchor
+     */
+    @NonNull
+    private static int[] findAnchors(@NonNull final String page) {
+        final int[] positions = new int[ANCHORS.length];
+        Arrays.fill(positions, -1);
+        int missing = positions.length;
+        final int length = page.length();
+        for (int i = 0; i < length && missing > 0; i++) {
+            final char c = page.charAt(i);
+            if (c >= ANCHORS_BY_FIRST_CHAR.length || ANCHORS_BY_FIRST_CHAR[c] == null) {
+                continue;
+            }
+            for (final int id : ANCHORS_BY_FIRST_CHAR[c]) {
+                if (positions[id] < 0 && page.startsWith(ANCHORS[id], i)) {
+                    positions[id] = i;
+                    missing--;
+                }
+            }
+        }
+        return positions;
+    }
+
+    @NonNull
+    String getPage() {
+        return page;
+    }
+
+    /**
+     * @return first position of the given fixed text on the page, or -1. Only texts known to the index can be looked up.
+     */
+    int indexOf(@NonNull final String text) {
+        final Integer id = ANCHOR_IDS.get(text);
+        if (id == null) {
+            throw new IllegalArgumentException("Text is not indexed: " + text);
+        }
+        return positions[id];
+    }
+
+    boolean contains(@NonNull final String text) {
+        return indexOf(text) >= 0;
+    }
+
+    /**
+     * @return position to start searching the pattern of the field at, or -1 if the pattern cannot match
+     */
+    int getSearchStart(@NonNull final Field field) {
+        final int anchorPosition = indexOf(field.anchor);
+        if (anchorPosition < 0) {
+            return -1;
+        }
+        final int start = field.anchorIsPrefix ? anchorPosition : 0;
+        if (field.inCacheDetails) {
+            return cacheDetailsStart < 0 ? -1 : Math.max(start, cacheDetailsStart);
+        }
+        return start;
+    }
+
+    boolean matches(@NonNull final Field field) {
+        final int start = getSearchStart(field);
+        return start >= 0 && field.pattern.matcher(page).find(start);
+    }
+
+    /**
+     * Same as {@link TextUtils#getMatch(String, Pattern, boolean, int, String, boolean)} for the pattern of the field on the whole page
+     * (or on the cache details part).
+     */
+    @Nullable
+    String getMatch(@NonNull final Field field, final boolean trim, final int group, @Nullable final String defaultValue) {
+        final int start = getSearchStart(field);
+        return start < 0 ? defaultValue : TextUtils.getMatch(page, field.pattern, start, trim, group, defaultValue, false);
+    }
+
+    @Nullable
+    String getMatch(@NonNull final Field field, final boolean trim, @Nullable final String defaultValue) {
+        return getMatch(field, trim, 1, defaultValue);
+    }
+}
@@ -5,6 +5,7 @@ import cgeo.geocaching.R;
 import cgeo.geocaching.SearchResult;
 import cgeo.geocaching.connector.ConnectorFactory;
 import cgeo.geocaching.connector.IConnector;
+import cgeo.geocaching.connector.gc.GCCachePageIndex.Field;
 import cgeo.geocaching.connector.trackable.TrackableBrand;
 import cgeo.geocaching.enumerations.CacheSize;
 import cgeo.geocaching.enumerations.CacheType;
@@ -247,112 +248,109 @@ public final class GCParser {
         personalNoteWithLineBreaks = StringEscapeUtils.unescapeHtml4(personalNoteWithLineBreaks);
 
         final String page = TextUtils.replaceWhitespace(pageIn);
+        // locate all anchors in one pass, so that the patterns below need not scan the whole page
+        final GCCachePageIndex index = new GCCachePageIndex(page);
 
         final Geocache cache = new Geocache();
-        cache.setDisabled(page.contains(GCConstants.STRING_STATUS_DISABLED));
-        cache.setArchived(page.contains(GCConstants.STRING_STATUS_ARCHIVED)
-                || page.contains(GCConstants.STRING_STATUS_LOCKED));
+        cache.setDisabled(index.contains(GCConstants.STRING_STATUS_DISABLED));
+        cache.setArchived(index.contains(GCConstants.STRING_STATUS_ARCHIVED)
+                || index.contains(GCConstants.STRING_STATUS_LOCKED));
 
-        cache.setPremiumMembersOnly(TextUtils.matches(page, GCConstants.PATTERN_PREMIUMMEMBERS));
+        cache.setPremiumMembersOnly(index.matches(Field.PREMIUMMEMBERS));
 
-        cache.setFavorite(TextUtils.matches(page, GCConstants.PATTERN_IS_FAVORITE));
+        cache.setFavorite(index.matches(Field.IS_FAVORITE));
 
         // cache geocode
-        cache.setGeocode(TextUtils.getMatch(page, GCConstants.PATTERN_GEOCODE, true, cache.getGeocode()));
+        cache.setGeocode(index.getMatch(Field.GEOCODE, true, cache.getGeocode()));
 
         // cache id
         cache.setCacheId(String.valueOf(GCUtils.gcLikeCodeToGcLikeId(cache.getGeocode())));
 
         // cache guid
-        cache.setGuid(TextUtils.getMatch(page, GCConstants.PATTERN_GUID, true, cache.getGuid()));
+        cache.setGuid(index.getMatch(Field.GUID, true, cache.getGuid()));
 
         // cache watchlistcount
-        cache.setWatchlistCount(getWatchListCount(page));
+        cache.setWatchlistCount(parseWatchListCount(index.getMatch(Field.WATCHLIST_COUNT, true, null)));
 
         // name
         cache.setName(cacheName);
 
         // owner real name
-        cache.setOwnerUserId(Network.decode(TextUtils.getMatch(page, GCConstants.PATTERN_OWNER_USERID, true, cache.getOwnerUserId())));
+        cache.setOwnerUserId(Network.decode(index.getMatch(Field.OWNER_USERID, true, cache.getOwnerUserId())));
 
         cache.setUserModifiedCoords(false);
 
-        String tableInside = page;
-
-        final int pos = tableInside.indexOf(GCConstants.STRING_CACHEDETAILS);
+        // the cache details are searched in the part of the page starting at "cacheDetails"
+        final int pos = index.indexOf(GCConstants.STRING_CACHEDETAILS);
         if (pos == -1) {
             Log.e("GCParser.parseCache: ID \"cacheDetails\" not found on page");
             return UNKNOWN_PARSE_ERROR;
         }
 
-        tableInside = tableInside.substring(pos);
-
-        if (StringUtils.isNotBlank(tableInside)) {
-            // cache terrain
-            String result = TextUtils.getMatch(tableInside, GCConstants.PATTERN_TERRAIN, true, null);
-            if (result != null) {
-                try {
-                    cache.setTerrain(Float.parseFloat(StringUtils.replaceChars(result, '_', '.')));
-                } catch (final NumberFormatException e) {
-                    Log.e("Error parsing terrain value", e);
-                }
+        // cache terrain
+        String stars = index.getMatch(Field.TERRAIN, true, null);
+        if (stars != null) {
+            try {
+                cache.setTerrain(Float.parseFloat(StringUtils.replaceChars(stars, '_', '.')));
+            } catch (final NumberFormatException e) {
+                Log.e("Error parsing terrain value", e);
             }
+        }
 
-            // cache difficulty
-            result = TextUtils.getMatch(tableInside, GCConstants.PATTERN_DIFFICULTY, true, null);
-            if (result != null) {
-                try {
-                    cache.setDifficulty(Float.parseFloat(StringUtils.replaceChars(result, '_', '.')));
-                } catch (final NumberFormatException e) {
-                    Log.e("Error parsing difficulty value", e);
-                }
+        // cache difficulty
+        stars = index.getMatch(Field.DIFFICULTY, true, null);
+        if (stars != null) {
+            try {
+                cache.setDifficulty(Float.parseFloat(StringUtils.replaceChars(stars, '_', '.')));
+            } catch (final NumberFormatException e) {
+                Log.e("Error parsing difficulty value", e);
             }
+        }
 
-            // owner
-            cache.setOwnerDisplayName(StringEscapeUtils.unescapeHtml4(TextUtils.getMatch(tableInside, GCConstants.PATTERN_OWNER_DISPLAYNAME, true, cache.getOwnerDisplayName())));
-            cache.setOwnerGuid(TextUtils.getMatch(tableInside, GCConstants.PATTERN_OWNER_GUID, true, 2, cache.getOwnerGuid(), false));
+        // owner
+        cache.setOwnerDisplayName(StringEscapeUtils.unescapeHtml4(index.getMatch(Field.OWNER_DISPLAYNAME, true, cache.getOwnerDisplayName())));
+        cache.setOwnerGuid(index.getMatch(Field.OWNER_GUID, true, 2, cache.getOwnerGuid()));
 
-            // hidden
-            try {
-                String hiddenString = TextUtils.getMatch(tableInside, GCConstants.PATTERN_HIDDEN, true, null);
+        // hidden
+        try {
+            String hiddenString = index.getMatch(Field.HIDDEN, true, null);
+            if (StringUtils.isNotBlank(hiddenString)) {
+                cache.setHidden(GCLogin.parseGcCustomDate(hiddenString));
+            }
+            if (cache.getHiddenDate() == null) {
+                // event date
+                hiddenString = index.getMatch(Field.HIDDENEVENT, true, null);
                 if (StringUtils.isNotBlank(hiddenString)) {
                     cache.setHidden(GCLogin.parseGcCustomDate(hiddenString));
                 }
-                if (cache.getHiddenDate() == null) {
-                    // event date
-                    hiddenString = TextUtils.getMatch(tableInside, GCConstants.PATTERN_HIDDENEVENT, true, null);
-                    if (StringUtils.isNotBlank(hiddenString)) {
-                        cache.setHidden(GCLogin.parseGcCustomDate(hiddenString));
-                    }
-                }
-            } catch (final ParseException e) {
-                // failed to parse cache hidden date
-                Log.w("GCParser.parseCache: Failed to parse cache hidden (event) date", e);
-            }
-
-            // favorite
-            try {
-                cache.setFavoritePoints(Integer.parseInt(TextUtils.getMatch(tableInside, GCConstants.PATTERN_FAVORITECOUNT, true, "0")));
-            } catch (final NumberFormatException e) {
-                Log.e("Error parsing favorite count", e);
             }
+        } catch (final ParseException e) {
+            // failed to parse cache hidden date
+            Log.w("GCParser.parseCache: Failed to parse cache hidden (event) date", e);
+        }
 
-            // cache size
-            cache.setSize(CacheSize.getById(TextUtils.getMatch(tableInside, GCConstants.PATTERN_SIZE, true, CacheSize.NOT_CHOSEN.id)));
+        // favorite
+        try {
+            cache.setFavoritePoints(Integer.parseInt(index.getMatch(Field.FAVORITECOUNT, true, "0")));
+        } catch (final NumberFormatException e) {
+            Log.e("Error parsing favorite count", e);
         }
 
+        // cache size
+        cache.setSize(CacheSize.getById(index.getMatch(Field.SIZE, true, CacheSize.NOT_CHOSEN.id)));
+
         // cache found / DNF
-        cache.setFound(TextUtils.matches(page, GCConstants.PATTERN_FOUND));
-        cache.setDNF(TextUtils.matches(page, GCConstants.PATTERN_DNF));
+        cache.setFound(index.matches(Field.FOUND));
+        cache.setDNF(index.matches(Field.DNF));
 
         // cache type
-        cache.setType(CacheType.getByWaypointType(TextUtils.getMatch(page, GCConstants.PATTERN_TYPE, true, cache.getType().id)));
+        cache.setType(CacheType.getByWaypointType(index.getMatch(Field.TYPE, true, cache.getType().id)));
 
         // on watchlist
-        cache.setOnWatchlist(TextUtils.matches(page, GCConstants.PATTERN_WATCHLIST));
+        cache.setOnWatchlist(index.matches(Field.WATCHLIST));
 
         // latitude and longitude. Can only be retrieved if user is logged in
-        String latlon = TextUtils.getMatch(page, GCConstants.PATTERN_LATLON, true, "");
+        String latlon = index.getMatch(Field.LATLON, true, "");
         if (StringUtils.isNotEmpty(latlon)) {
             try {
                 cache.setCoords(new Geopoint(latlon));
@@ -362,10 +360,10 @@ public final class GCParser {
         }
 
         // cache location
-        cache.setLocation(TextUtils.getMatch(page, GCConstants.PATTERN_LOCATION, true, ""));
+        cache.setLocation(index.getMatch(Field.LOCATION, true, ""));
 
         // cache hint
-        final String result = TextUtils.getMatch(page, GCConstants.PATTERN_HINT, false, null);
+        final String result = index.getMatch(Field.HINT, false, null);
         if (result != null) {
             // replace linebreak and paragraph tags
             final String hint = GCConstants.PATTERN_LINEBREAK.matcher(result).replaceAll("\n");
@@ -382,30 +380,29 @@ public final class GCParser {
         if (cache.isEventCache()) {
             try {
                 // add event start / end info to beginning of listing
-                final MatcherWrapper eventTimesMatcher = new MatcherWrapper(GCConstants.PATTERN_EVENTTIMES, tableInside);
-                if (eventTimesMatcher.find()) {
+                if (index.matches(Field.EVENTTIMES)) {
                     sDesc.append("<b>")
                             .append(new SimpleDateFormat("dd MMMM yyyy", Locale.getDefault()).format(cache.getHiddenDate()))
                             .append(", ")
-                            .append(Formatter.formatGCEventTime(tableInside))
+                            .append(Formatter.formatGCEventTime(page.substring(pos)))
                             .append("</b>");
                 }
             } catch (Exception e) {
                 Log.w("GCParser.parseCache: Failed to parse event time", e);
             }
         } else {
-            sDesc.append(TextUtils.getMatch(page, GCConstants.PATTERN_SHORTDESC, true, ""));
+            sDesc.append(index.getMatch(Field.SHORTDESC, true, ""));
         }
         cache.setShortDescription(sDesc.toString());
 
         // cache description
-        final String longDescription = TextUtils.getMatch(page, GCConstants.PATTERN_DESC, true, "");
-        String relatedWebPage = TextUtils.getMatch(page, GCConstants.PATTERN_RELATED_WEB_PAGE, true, "");
+        final String longDescription = index.getMatch(Field.DESC, true, "");
+        String relatedWebPage = index.getMatch(Field.RELATED_WEB_PAGE, true, "");
         if (StringUtils.isNotEmpty(relatedWebPage)) {
             relatedWebPage = String.format("<br/><br/><a href=\"%s\"><b>%s</b></a>", relatedWebPage, relatedWebPage);
         }
         String gcChecker = StringUtils.EMPTY;
-        if (page.contains(GCConstants.PATTERN_GC_CHECKER)) {
+        if (index.contains(GCConstants.PATTERN_GC_CHECKER)) {
             gcChecker = "<!--" + CgeoApplication.getInstance().getString(R.string.link_gc_checker) + "-->";
         }
         cache.setDescription(longDescription + relatedWebPage + gcChecker);
@@ -413,7 +410,7 @@ public final class GCParser {
         // cache attributes
         try {
             final List<String> attributes = new ArrayList<>();
-            final String attributesPre = TextUtils.getMatch(page, GCConstants.PATTERN_ATTRIBUTES, true, null);
+            final String attributesPre = index.getMatch(Field.ATTRIBUTES, true, null);
             if (attributesPre != null) {
                 final MatcherWrapper matcherAttributesInside = new MatcherWrapper(GCConstants.PATTERN_ATTRIBUTESINSIDE, attributesPre);
 
@@ -457,8 +454,9 @@ public final class GCParser {
         }
 
         // background image, to be added only if the image is not already present in the cache listing
+        final int backgroundImageStart = index.getSearchStart(Field.BACKGROUND_IMAGE);
         final MatcherWrapper matcherBackgroundImage = new MatcherWrapper(GCConstants.PATTERN_BACKGROUND_IMAGE, page);
-        if (matcherBackgroundImage.find()) {
+        if (backgroundImageStart >= 0 && matcherBackgroundImage.find(backgroundImageStart)) {
             final String url = matcherBackgroundImage.group(1);
             boolean present = false;
             for (final Image image : cache.getSpoilers()) {
@@ -474,14 +472,14 @@ public final class GCParser {
         cache.setSpoilers(cacheSpoilers);
 
         // cache inventory
-        final List<Trackable> inventory = parseInventory(page);
+        final List<Trackable> inventory = parseInventory(page, index.getSearchStart(Field.INVENTORY));
         if (inventory != null) {
             cache.mergeInventory(inventory, EnumSet.of(TrackableBrand.TRAVELBUG));
         }
 
         // cache logs counts
         try {
-            final String countlogs = TextUtils.getMatch(page, GCConstants.PATTERN_COUNTLOGS, true, null);
+            final String countlogs = index.getMatch(Field.COUNTLOGS, true, null);
             if (countlogs != null) {
                 final MatcherWrapper matcherLog = new MatcherWrapper(GCConstants.PATTERN_COUNTLOG, countlogs);
 
@@ -509,7 +507,7 @@ public final class GCParser {
 
         // add waypoint for original coordinates in case of user-modified listing-coordinates
         try {
-            final String originalCoords = TextUtils.getMatch(page, GCConstants.PATTERN_LATLON_ORIG, false, null);
+            final String originalCoords = index.getMatch(Field.LATLON_ORIG, false, null);
 
             if (originalCoords != null) {
                 cache.createOriginalWaypoint(new Geopoint(originalCoords));
@@ -517,7 +515,7 @@ public final class GCParser {
         } catch (final Geopoint.GeopointException ignored) {
         }
 
-        int wpBegin = page.indexOf("id=\"ctl00_ContentBody_Waypoints\">");
+        int wpBegin = index.indexOf(GCConstants.STRING_WAYPOINTS);
         if (wpBegin != -1) { // parse waypoints
             if (DisposableHandler.isDisposed(handler)) {
                 return UNKNOWN_PARSE_ERROR;
@@ -630,9 +628,20 @@ public final class GCParser {
 
     @Nullable
     public static List<Trackable> parseInventory(final String page) {
+        return parseInventory(page, 0);
+    }
+
+    /**
+     * @param start position to start searching the inventory at, -1 if the page has no inventory
+     */
+    @Nullable
+    private static List<Trackable> parseInventory(final String page, final int start) {
+        if (start < 0) {
+            return null;
+        }
         try {
             final MatcherWrapper matcherInventory = new MatcherWrapper(GCConstants.PATTERN_INVENTORY, page);
-            if (matcherInventory.find()) {
+            if (matcherInventory.find(start)) {
                 final String inventoryPre = matcherInventory.group();
 
                 final ArrayList<Trackable> inventory = new ArrayList<>();
@@ -1011,8 +1020,11 @@ public final class GCParser {
      * @return Number of people watching geocache, -1 when error
      */
     static int getWatchListCount(final String page) {
-        final String sCount = TextUtils.getMatch(page, GCConstants.PATTERN_WATCHLIST_COUNT, true, 1, "notFound", false);
-        if ("notFound".equals(sCount)) {
+        return parseWatchListCount(TextUtils.getMatch(page, GCConstants.PATTERN_WATCHLIST_COUNT, true, 1, null, false));
+    }
+
+    private static int parseWatchListCount(@Nullable final String sCount) {
+        if (sCount == null) {
             return -1;
         }
         try {
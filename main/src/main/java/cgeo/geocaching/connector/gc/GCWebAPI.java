@@ -35,10 +35,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -395,6 +398,15 @@ public class GCWebAPI {
 
         @WorkerThread
         MapSearchResultSet execute() {
+            return execute(take, skip);
+        }
+
+        /**
+         * executes this search for the given page of results, regardless of the page set for the search
+         */
+        @WorkerThread
+        @NonNull
+        MapSearchResultSet execute(final int take, final int skip) {
             final Parameters params = new Parameters();
 
             if (box != null) {
@@ -756,92 +768,119 @@ public class GCWebAPI {
         }
     }
 
+    /**
+     * executes the search, fetching larger result sets in concurrent pages (see {@link GCWebApiPager})
+     */
     @WorkerThread
     static SearchResult searchCaches(final IConnector con, final WebApiSearch search, final boolean includeGcVote) {
         final SearchResult result = new SearchResult();
+        // pages by their skip value, to keep the sort order of the search
+        final SortedMap<Integer, List<Geocache>> pages = new TreeMap<>();
 
         try {
-
-            final MapSearchResultSet mapSearchResultSet = search.execute();
-            result.setLeftToFetch(con, mapSearchResultSet.total - search.getTake() - search.getSkip());
-            result.setPartialResult(con, search.getTake() > 0 && mapSearchResultSet.results.size() == search.getTake());
-            final List<Geocache> foundCaches = new ArrayList<>();
-
-            if (mapSearchResultSet.results != null) {
-                for (final GCWebAPI.MapSearchResult r : mapSearchResultSet.results) {
-
-                    final Geopoint cacheCoord = r.postedCoordinates == null ? null : new Geopoint(r.postedCoordinates.latitude, r.postedCoordinates.longitude);
-
-                    final Geocache c = new Geocache();
-                    c.setDetailed(false);
-                    c.setGeocode(r.code);
-                    c.setName(r.name);
-                    if (r.userCorrectedCoordinates != null) {
-                        c.setCoords(new Geopoint(r.userCorrectedCoordinates.latitude, r.userCorrectedCoordinates.longitude));
-                        c.setUserModifiedCoords(true);
-                    } else if (cacheCoord != null) {
-                        c.setCoords(cacheCoord);
-                        c.setUserModifiedCoords(false);
-                    } else {
-                        //this can only happen for PREMIUM caches when searched by BASIC members.
-                        //Open issue: what to do with those?
-                        c.setCoords(null);
-                    }
-                    c.setType(CacheType.getByWaypointType(Integer.toString(r.geocacheType)));
-                    c.setDifficulty(r.difficulty);
-                    c.setTerrain(r.terrain);
-                    c.setSize(CacheSize.getByGcId(r.containerType));
-                    c.setPremiumMembersOnly(r.premiumOnly);
-                    c.setHidden(r.placedDate);
-                    c.setLastFound(r.lastFoundDate);
-                    c.setInventoryItems(r.trackableCount);
-                    c.setLocation(r.region + ", " + r.country);
-
-                    //Only set found if the map returns a "found",
-                    //the map API will possibly lag behind and break
-                    //cache merging if "not found" is set
-                    if (r.userFound) {
-                        c.setFound(true);
-                    } else if (r.userDidNotFind) {
-                        c.setDNF(true);
-                    }
-
-                    c.setFavoritePoints(r.favoritePoints);
-                    c.setDisabled(r.cacheStatus == 1);
-                    c.setArchived(r.cacheStatus == 2);
-                    if (r.owner != null) {
-                        c.setOwnerDisplayName(r.owner.username);
-                        c.setOwnerUserId(r.owner.username);
-                    }
-
-                    // parse attributes
-                    final List<String> attributes = new ArrayList<>();
-                    if (r.attributes != null) {
-                        for (Attribute attribute : r.attributes) {
-                            attributes.add(CacheAttribute.getById(attribute.id).getValue(attribute.isApplicable));
-                        }
-                    }
-                    c.setAttributes(attributes);
-
-                    foundCaches.add(c);
+            // searches often run on the network scheduler themselves, so pages must not wait for a slot in it
+            final int total = GCWebApiPager.fetch(search.getTake(), search.getSkip(), search::execute, Schedulers.io(), (skip, resultSet) -> {
+                final List<Geocache> caches = toGeocaches(resultSet);
+                pages.put(skip, caches);
+                // rate this page while the next ones are still being fetched
+                if (includeGcVote) {
+                    GCVote.loadRatings(caches);
+                } else {
+                    GCVote.prefetchRatings(caches);
                 }
-
-            }
+            });
+            final List<Geocache> foundCaches = getFoundCaches(pages);
+            result.setLeftToFetch(con, total - search.getTake() - search.getSkip());
+            result.setPartialResult(con, search.getTake() > 0 && foundCaches.size() == search.getTake());
 
             tryGuessMissingDistances(foundCaches, search);
 
             result.addAndPutInCache(foundCaches);
-            if (includeGcVote) {
-                GCVote.loadRatings(foundCaches);
-            }
         } catch (RuntimeException re) {
             Log.w("GCWebAPI: problem executing search", re);
+            // keep the caches of the pages fetched until then
+            result.addAndPutInCache(getFoundCaches(pages));
             result.setError(GCConnector.getInstance(), StatusCode.COMMUNICATION_ERROR);
         }
 
         return result;
     }
 
+    @NonNull
+    private static List<Geocache> getFoundCaches(@NonNull final SortedMap<Integer, List<Geocache>> pages) {
+        final List<Geocache> foundCaches = new ArrayList<>();
+        for (final List<Geocache> page : pages.values()) {
+            foundCaches.addAll(page);
+        }
+        return foundCaches;
+    }
+
+    @NonNull
+    private static List<Geocache> toGeocaches(@NonNull final MapSearchResultSet resultSet) {
+        final List<Geocache> foundCaches = new ArrayList<>();
+        if (resultSet.results == null) {
+            return foundCaches;
+        }
+        for (final GCWebAPI.MapSearchResult r : resultSet.results) {
+
+            final Geopoint cacheCoord = r.postedCoordinates == null ? null : new Geopoint(r.postedCoordinates.latitude, r.postedCoordinates.longitude);
+
+            final Geocache c = new Geocache();
+            c.setDetailed(false);
+            c.setGeocode(r.code);
+            c.setName(r.name);
+            if (r.userCorrectedCoordinates != null) {
+                c.setCoords(new Geopoint(r.userCorrectedCoordinates.latitude, r.userCorrectedCoordinates.longitude));
+                c.setUserModifiedCoords(true);
+            } else if (cacheCoord != null) {
+                c.setCoords(cacheCoord);
+                c.setUserModifiedCoords(false);
+            } else {
+                //this can only happen for PREMIUM caches when searched by BASIC members.
+                //Open issue: what to do with those?
+                c.setCoords(null);
+            }
+            c.setType(CacheType.getByWaypointType(Integer.toString(r.geocacheType)));
+            c.setDifficulty(r.difficulty);
+            c.setTerrain(r.terrain);
+            c.setSize(CacheSize.getByGcId(r.containerType));
+            c.setPremiumMembersOnly(r.premiumOnly);
+            c.setHidden(r.placedDate);
+            c.setLastFound(r.lastFoundDate);
+            c.setInventoryItems(r.trackableCount);
+            c.setLocation(r.region + ", " + r.country);
+
+            //Only set found if the map returns a "found",
+            //the map API will possibly lag behind and break
+            //cache merging if "not found" is set
+            if (r.userFound) {
+                c.setFound(true);
+            } else if (r.userDidNotFind) {
+                c.setDNF(true);
+            }
+
+            c.setFavoritePoints(r.favoritePoints);
+            c.setDisabled(r.cacheStatus == 1);
+            c.setArchived(r.cacheStatus == 2);
+            if (r.owner != null) {
+                c.setOwnerDisplayName(r.owner.username);
+                c.setOwnerUserId(r.owner.username);
+            }
+
+            // parse attributes
+            final List<String> attributes = new ArrayList<>();
+            if (r.attributes != null) {
+                for (Attribute attribute : r.attributes) {
+                    attributes.add(CacheAttribute.getById(attribute.id).getValue(attribute.isApplicable));
+                }
+            }
+            c.setAttributes(attributes);
+
+            foundCaches.add(c);
+        }
+        return foundCaches;
+    }
+
     /**
      * For BASIC members, PREMIUM caches don't contain coordinates. This helper methods guesses distances for those caches
      */
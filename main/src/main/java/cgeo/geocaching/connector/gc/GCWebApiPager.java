@@ -0,0 +1,85 @@
+package cgeo.geocaching.connector.gc;
+
+import cgeo.geocaching.utils.Log;
+import cgeo.geocaching.utils.functions.Action2;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Scheduler;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
+/**
+ * Fetches the results of a web API search. Searches for up to {@link #PAGE_SIZE} results (e.g. the next page of a list)
+ * are done in a single request, larger ones (e.g. live map and filter searches) in pages of {@link #PAGE_SIZE}.
+ * <br>
+ * The first page is requested alone, as it tells the total number of results. The remaining pages are then requested
+ * concurrently, at most {@link #MAX_CONCURRENT_PAGES} at a time, and handed to the consumer in the order they arrive.
+ * The consumer is always called on the calling thread, so it may do further (blocking) work while pages are still being fetched.
+ */
+final class GCWebApiPager {
+
+    /** number of results requested at once from the web API */
+    static final int PAGE_SIZE = 100;
+    /** be polite towards gc.com */
+    static final int MAX_CONCURRENT_PAGES = 3;
+
+    interface PageLoader {
+        @NonNull
+        GCWebAPI.MapSearchResultSet load(int take, int skip);
+    }
+
+    private GCWebApiPager() {
+        // utility class
+    }
+
+    /**
+     * fetches the results from {@code skip} to {@code skip + take}
+     *
+     * @param pageConsumer called with the skip value and the content of each page
+     * @return total number of results of the search
+     * @throws RuntimeException if loading one of the pages failed. Pages arrived before were passed to the consumer.
+     */
+    @WorkerThread
+    static int fetch(final int take, final int skip, @NonNull final PageLoader loader, @NonNull final Scheduler scheduler,
+                     @NonNull final Action2<Integer, GCWebAPI.MapSearchResultSet> pageConsumer) {
+        final long start = System.currentTimeMillis();
+        final int firstTake = take <= 0 ? take : Math.min(take, PAGE_SIZE);
+        final GCWebAPI.MapSearchResultSet first = loader.load(firstTake, skip);
+        final long firstPageTime = System.currentTimeMillis() - start;
+        pageConsumer.call(skip, first);
+
+        final List<Integer> skips = getRemainingPages(take, skip, first);
+        if (skips.isEmpty()) {
+            return first.total;
+        }
+        final int end = Math.min(skip + take, first.total);
+        Observable.fromIterable(skips)
+                .flatMap(pageSkip -> Observable.fromCallable(() -> ImmutablePair.of(pageSkip, loader.load(Math.min(PAGE_SIZE, end - pageSkip), pageSkip)))
+                        .subscribeOn(scheduler), MAX_CONCURRENT_PAGES)
+                .blockingForEach(page -> pageConsumer.call(page.left, page.right));
+        Log.d("GCWebApiPager: " + (skips.size() + 1) + " pages of " + first.total + " results, first page after " + firstPageTime
+                + "ms, complete after " + (System.currentTimeMillis() - start) + "ms");
+        return first.total;
+    }
+
+    /**
+     * @return skip values of the pages still to be loaded after the first one
+     */
+    @NonNull
+    static List<Integer> getRemainingPages(final int take, final int skip, @NonNull final GCWebAPI.MapSearchResultSet first) {
+        final List<Integer> skips = new ArrayList<>();
+        if (take <= PAGE_SIZE || first.results == null || first.results.size() < PAGE_SIZE) {
+            return skips;
+        }
+        final int end = Math.min(skip + take, first.total);
+        for (int pageSkip = skip + PAGE_SIZE; pageSkip < end; pageSkip += PAGE_SIZE) {
+            skips.add(pageSkip);
+        }
+        return skips;
+    }
+}
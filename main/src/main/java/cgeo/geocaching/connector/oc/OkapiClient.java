@@ -55,6 +55,7 @@ import cgeo.geocaching.utils.CollectionStream;
 import cgeo.geocaching.utils.JsonUtils;
 import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.SynchronizedDateFormat;
+import cgeo.geocaching.utils.functions.Func1;
 import static cgeo.geocaching.connector.capability.ILogin.UNKNOWN_FINDS;
 
 import android.annotation.SuppressLint;
@@ -209,6 +210,9 @@ final class OkapiClient {
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final String DEFAULT_RADIUS = "200";
 
+    /** number of caches of a search result saved together */
+    private static final int SAVE_BATCH_SIZE = 50;
+
     private OkapiClient() {
         // utility class
     }
@@ -559,13 +563,10 @@ final class OkapiClient {
         }
         addRetrieveParams(params, connector);
 
-        final ObjectNode data = getRequest(connector, OkapiService.SERVICE_SEARCH_AND_RETRIEVE, params).data;
-
-        if (data == null) {
+        return request(connector, OkapiService.SERVICE_SEARCH_AND_RETRIEVE, "GET", params, OkapiClient::parseCaches, errorMessage -> {
+            Log.w("OkapiClient.requestCaches: " + errorMessage);
             return new Pair(Collections.emptyList(), false);
-        }
-
-        return parseCaches(data);
+        });
     }
 
     /**
@@ -737,37 +738,42 @@ final class OkapiClient {
 
     /**
      * returns list of parsed geocaches (left) and a floag indicating whether there are more results on serer (right)
+     * <br>
+     * The response is decoded while streaming, caches are parsed one by one and saved in batches of {@link #SAVE_BATCH_SIZE}.
      */
     @NonNull
-    private static Pair<List<Geocache>, Boolean> parseCaches(final ObjectNode response) {
+    private static Pair<List<Geocache>, Boolean> parseCaches(@NonNull final Response response) {
         try {
-            final JsonNode moreNode = response.path("more");
-            final boolean more = moreNode != null && moreNode.isBoolean() && moreNode.asBoolean();
-
-            // Check for empty result
-            final JsonNode results = response.path("results");
-            if (!results.isObject()) {
-                return new Pair(Collections.emptyList(), more);
-            }
-
-            // Get and iterate result list
-            final List<Geocache> caches = new ArrayList<>(results.size());
-            for (final JsonNode cache : results) {
-                caches.add(parseSmallCache((ObjectNode) cache));
+            if (!response.isSuccessful()) {
+                return new Pair(Collections.emptyList(), false);
             }
+            final List<Geocache> caches = new ArrayList<>();
+            final List<Geocache> batch = new ArrayList<>(SAVE_BATCH_SIZE);
+            final boolean more = OkapiResultsParser.parse(response.body().byteStream(), cacheNode -> {
+                final Geocache cache = parseSmallCache(cacheNode);
+                caches.add(cache);
+                batch.add(cache);
+                if (batch.size() >= SAVE_BATCH_SIZE) {
+                    DataStore.saveCaches(batch, EnumSet.of(SaveFlag.CACHE));
+                    batch.clear();
+                }
+            });
+            DataStore.saveCaches(batch, EnumSet.of(SaveFlag.CACHE));
             return new Pair(caches, more);
-        } catch (ClassCastException | NullPointerException e) {
+        } catch (IOException | ClassCastException | NullPointerException e) {
             Log.e("OkapiClient.parseCachesResult", e);
+        } finally {
+            response.close();
         }
         return new Pair(Collections.emptyList(), false);
     }
 
+    /** parses the core properties of a cache, saving the cache is left to the caller */
     @NonNull
     private static Geocache parseSmallCache(final ObjectNode response) {
         final Geocache cache = new Geocache();
         try {
             parseCoreCache(response, cache);
-            DataStore.saveCache(cache, EnumSet.of(SaveFlag.CACHE));
         } catch (final NullPointerException e) {
             // FIXME: here we may return a partially filled cache
             Log.e("OkapiClient.parseSmallCache", e);
@@ -782,6 +788,7 @@ final class OkapiClient {
         try {
 
             parseCoreCache(response, cache);
+            DataStore.saveCache(cache, EnumSet.of(SaveFlag.CACHE));
 
             // not used: url
             // not used: req_password
@@ -909,8 +916,6 @@ final class OkapiClient {
         cache.setUserModifiedCoords(false);
 
         cache.setAttributes(parseAttributes((ArrayNode) response.path(CACHE_ATTRNAMES), (ArrayNode) response.get(CACHE_ATTR_ACODES)));
-
-        DataStore.saveCache(cache, EnumSet.of(SaveFlag.CACHE));
     }
 
     private static String absoluteUrl(final String url, final String geocode) {
@@ -1240,9 +1245,19 @@ final class OkapiClient {
     @NonNull
     @WorkerThread
     private static JSONResult request(@NonNull final OCApiConnector connector, @NonNull final OkapiService service, @NonNull final String method, @NonNull final Parameters params) {
+        return request(connector, service, method, params, JSONResult::new, JSONResult::new);
+    }
+
+    /**
+     * executes the request and passes the response (which has to be closed by the handler) or an error message to the given handlers
+     */
+    @NonNull
+    @WorkerThread
+    private static <T> T request(@NonNull final OCApiConnector connector, @NonNull final OkapiService service, @NonNull final String method, @NonNull final Parameters params,
+                                 @NonNull final Func1<Response, T> responseHandler, @NonNull final Func1<String, T> errorHandler) {
         final String host = connector.getHost();
         if (StringUtils.isBlank(host)) {
-            return new JSONResult("unknown OKAPI connector host");
+            return errorHandler.call("unknown OKAPI connector host");
         }
 
         params.add("langpref", getPreferredLanguage());
@@ -1251,7 +1266,7 @@ final class OkapiClient {
             case Level3: {
                 final OAuthTokens tokens = new OAuthTokens(connector);
                 if (!tokens.isValid()) {
-                    return new JSONResult("invalid oauth tokens");
+                    return errorHandler.call("invalid oauth tokens");
                 }
                 OAuth.signOAuth(host, service.methodName, method, connector.isHttps(), params, tokens, connector.getCK(), connector.getCS());
                 break;
@@ -1266,14 +1281,13 @@ final class OkapiClient {
         }
 
         final String uri = connector.getHostUrl() + service.methodName;
+        final Response response;
         try {
-            if ("GET".equals(method)) {
-                return new JSONResult(Network.getRequest(uri, params).blockingGet());
-            }
-            return new JSONResult(Network.postRequest(uri, params).blockingGet());
+            response = "GET".equals(method) ? Network.getRequest(uri, params).blockingGet() : Network.postRequest(uri, params).blockingGet();
         } catch (final Exception e) {
-            return new JSONResult("connection error");
+            return errorHandler.call("connection error");
         }
+        return responseHandler.call(response);
     }
 
     @NonNull
@@ -0,0 +1,70 @@
+package cgeo.geocaching.connector.oc;
+
+import cgeo.geocaching.utils.JsonUtils;
+import cgeo.geocaching.utils.functions.Action1;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Streaming decoder for wrapped OKAPI search-and-retrieve responses of the form
+ * {@code {"results": {"OC1234": {...}, ...}, "more": true}}.
+ * <br>
+ * Instead of building the tree of the whole response, only the object of one cache at a time is materialized
+ * and handed to the consumer, so caches can be processed while the response is still being read.
+ */
+final class OkapiResultsParser {
+
+    private static final String FIELD_RESULTS = "results";
+    private static final String FIELD_MORE = "more";
+
+    private OkapiResultsParser() {
+        // utility class
+    }
+
+    /**
+     * reads the response from given stream and passes the object of each cache to the consumer
+     *
+     * @return whether the server has more results (value of "more")
+     * @throws IOException if the stream cannot be read or is no valid JSON object
+     */
+    static boolean parse(@NonNull final InputStream in, @NonNull final Action1<ObjectNode> cacheConsumer) throws IOException {
+        boolean more = false;
+        try (JsonParser parser = JsonUtils.mapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("OKAPI response is no JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (FIELD_RESULTS.equals(field) && value == JsonToken.START_OBJECT) {
+                    parseResults(parser, cacheConsumer);
+                } else if (FIELD_MORE.equals(field)) {
+                    more = value == JsonToken.VALUE_TRUE;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return more;
+    }
+
+    private static void parseResults(@NonNull final JsonParser parser, @NonNull final Action1<ObjectNode> cacheConsumer) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                final JsonNode cache = JsonUtils.mapper.readTree(parser);
+                cacheConsumer.call((ObjectNode) cache);
+            } else {
+                // e.g. null for unknown cache codes
+                parser.skipChildren();
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 
 import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -65,6 +66,16 @@ public class GPXTrackOrRouteImporter {
     // splitting up that method would not help improve readability
     @SuppressWarnings({"PMD.NPathComplexity", "PMD.ExcessiveMethodLength"})
     private static IGeoItemSupplier doInBackground(final Context context, final Uri uri) {
+        // use preparsed version of trackfiles if available
+        final File trackfile = PreparsedTrackStore.getTrackfile(uri);
+        if (trackfile != null) {
+            final Route preparsed = PreparsedTrackStore.load(trackfile);
+            if (preparsed != null && preparsed.hasData()) {
+                Log.d("[RouteTrackDebug] Using preparsed version of " + trackfile.getName());
+                return preparsed;
+            }
+        }
+
         try {
             // default: import properly formatted routes or tracks
             Route route = parse(new GPXTrackOrRouteParser("http://www.topografix.com/GPX/1/1", "1.1"), uri);
@@ -84,6 +95,9 @@ public class GPXTrackOrRouteImporter {
             }
             if (null != route) {
                 route.calculateNavigationRoute();
+                if (trackfile != null) {
+                    PreparsedTrackStore.store(trackfile, route);
+                }
             }
             if (null == route) {
                 return parseAsGeoJson(context, uri);
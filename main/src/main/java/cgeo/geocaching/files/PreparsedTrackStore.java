@@ -0,0 +1,297 @@
+package cgeo.geocaching.files;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.models.Route;
+import cgeo.geocaching.models.RouteItem;
+import cgeo.geocaching.models.RouteSegment;
+import cgeo.geocaching.storage.LocalStorage;
+import cgeo.geocaching.utils.FileUtils;
+import cgeo.geocaching.utils.Log;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Stores parsed track files in a compact binary form, so they don't need to be parsed again on every map start.
+ * <br>
+ * Each preparsed file contains a header identifying the source file (size, modification time and content hash)
+ * followed by the track name and all segments with delta-encoded E6 coordinates and elevations.
+ * A preparsed file is only used if it still matches its source file. If only the modification time differs
+ * (e.g. after restoring a backup), the content hash decides.
+ * <br>
+ * Only non-routeable routes are stored, since routeable ones depend on the routing data available at load time.
+ */
+public final class PreparsedTrackStore {
+
+    private static final int MAGIC = 0x43475452; // "CGTR"
+    private static final int VERSION = 2;
+    private static final String FILE_SUFFIX = ".bin";
+    private static final String HASH_ALGORITHM = "MD5";
+
+    private PreparsedTrackStore() {
+        // utility class
+    }
+
+    /** Header identifying the source file a preparsed track was created from */
+    static final class SourceInfo {
+        final long size;
+        final long lastModified;
+        @NonNull final byte[] hash;
+
+        SourceInfo(final long size, final long lastModified, @NonNull final byte[] hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    /** Returns the file for given uri if it is a trackfile eligible for preparsing, null otherwise */
+    @Nullable
+    public static File getTrackfile(@NonNull final Uri uri) {
+        if (!"file".equals(uri.getScheme()) || uri.getPath() == null) {
+            return null;
+        }
+        final File file = new File(uri.getPath());
+        return LocalStorage.getTrackfilesDir().equals(file.getParentFile()) ? file : null;
+    }
+
+    /** Returns the preparsed track for given source file, or null if there is none or it is outdated */
+    @Nullable
+    public static Route load(@NonNull final File source) {
+        final File preparsed = getPreparsedFile(source);
+        if (!preparsed.isFile() || !source.isFile()) {
+            return null;
+        }
+        try (FileInputStream fis = new FileInputStream(preparsed); FileChannel channel = fis.getChannel()) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final SourceInfo info = readHeader(buffer);
+            if (info == null || !matches(info, source)) {
+                Log.d("[PreparsedTrackStore] outdated preparsed file for " + source.getName());
+                return null;
+            }
+            return readRoute(buffer);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Log.w("[PreparsedTrackStore] problem reading preparsed file for " + source.getName(), e);
+            return null;
+        }
+    }
+
+    /** Stores given route as preparsed version of given source file. Routeable routes are ignored */
+    public static void store(@NonNull final File source, @NonNull final Route route) {
+        if (route.isRouteable() || !source.isFile()) {
+            return;
+        }
+        final File preparsed = getPreparsedFile(source);
+        try {
+            final SourceInfo info = new SourceInfo(source.length(), source.lastModified(), calculateHash(source));
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(preparsed))) {
+                write(os, info, route);
+            }
+        } catch (IOException e) {
+            Log.w("[PreparsedTrackStore] problem writing preparsed file for " + source.getName(), e);
+            FileUtils.delete(preparsed);
+        }
+    }
+
+    /** removes preparsed version of given source file (if any) */
+    public static void remove(@NonNull final File source) {
+        final File preparsed = getPreparsedFile(source);
+        if (preparsed.exists()) {
+            FileUtils.delete(preparsed);
+        }
+    }
+
+    @NonNull
+    private static File getPreparsedFile(@NonNull final File source) {
+        return new File(LocalStorage.getTrackfilesPreparsedDir(), source.getName() + FILE_SUFFIX);
+    }
+
+    private static boolean matches(@NonNull final SourceInfo info, @NonNull final File source) throws IOException {
+        if (info.size != source.length()) {
+            return false;
+        }
+        return info.lastModified == source.lastModified() || Arrays.equals(info.hash, calculateHash(source));
+    }
+
+    @NonNull
+    static byte[] calculateHash(@NonNull final File file) throws IOException {
+        try (InputStream is = new FileInputStream(file)) {
+            final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = is.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("Hash algorithm not available: " + HASH_ALGORITHM, e);
+        }
+    }
+
+    // binary format
+
+    static void write(@NonNull final OutputStream os, @NonNull final SourceInfo info, @NonNull final Route route) throws IOException {
+        final DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(info.size);
+        out.writeLong(info.lastModified);
+        out.writeByte(info.hash.length);
+        out.write(info.hash);
+
+        out.writeBoolean(route.getName() != null);
+        if (route.getName() != null) {
+            final byte[] name = route.getName().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(name.length);
+            out.write(name);
+        }
+
+        final RouteSegment[] segments = route.getSegments();
+        out.writeInt(segments == null ? 0 : segments.length);
+        if (segments != null) {
+            final ByteArrayOutputStream packed = new ByteArrayOutputStream();
+            for (RouteSegment segment : segments) {
+                final ArrayList<Geopoint> points = segment.getPoints();
+                final ArrayList<Float> elevation = segment.getElevation();
+                out.writeBoolean(segment.getLinkToPreviousSegment());
+                out.writeInt(points.size());
+                packed.reset();
+                int lastLat = 0;
+                int lastLon = 0;
+                for (Geopoint gp : points) {
+                    writeVarInt(packed, gp.getLatitudeE6() - lastLat);
+                    writeVarInt(packed, gp.getLongitudeE6() - lastLon);
+                    lastLat = gp.getLatitudeE6();
+                    lastLon = gp.getLongitudeE6();
+                }
+                out.writeInt(packed.size());
+                packed.writeTo(out);
+                out.writeInt(elevation == null ? -1 : elevation.size());
+                if (elevation != null) {
+                    // missing values are marked separately, so they are not mixed up with NaN values
+                    final boolean hasMissing = elevation.contains(null);
+                    out.writeBoolean(hasMissing);
+                    for (Float ele : elevation) {
+                        if (hasMissing) {
+                            out.writeBoolean(ele != null);
+                        }
+                        out.writeFloat(ele == null ? Float.NaN : ele);
+                    }
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /** reads header from given buffer. Returns null if buffer does not contain a preparsed track of current version */
+    @Nullable
+    static SourceInfo readHeader(@NonNull final ByteBuffer buffer) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        final long size = buffer.getLong();
+        final long lastModified = buffer.getLong();
+        final byte[] hash = new byte[buffer.get()];
+        buffer.get(hash);
+        return new SourceInfo(size, lastModified, hash);
+    }
+
+    /** reads route from given buffer. Header must have been read before */
+    @NonNull
+    static Route readRoute(@NonNull final ByteBuffer buffer) {
+        final Route route = new Route(false);
+        if (buffer.get() != 0) {
+            final byte[] name = new byte[buffer.getInt()];
+            buffer.get(name);
+            route.setName(new String(name, StandardCharsets.UTF_8));
+        } else {
+            route.setName(null);
+        }
+
+        final int segmentCount = buffer.getInt();
+        for (int s = 0; s < segmentCount; s++) {
+            final boolean linkToPrevious = buffer.get() != 0;
+            final int pointCount = buffer.getInt();
+            final int packedSize = buffer.getInt();
+            final int packedEnd = buffer.position() + packedSize;
+            final ArrayList<Geopoint> points = new ArrayList<>(pointCount);
+            int lat = 0;
+            int lon = 0;
+            for (int i = 0; i < pointCount; i++) {
+                lat += readVarInt(buffer);
+                lon += readVarInt(buffer);
+                points.add(Geopoint.forE6(lat, lon));
+            }
+            if (buffer.position() != packedEnd) {
+                throw new IllegalArgumentException("Corrupt preparsed track: unexpected coordinate block size");
+            }
+            final int elevationCount = buffer.getInt();
+            ArrayList<Float> elevation = null;
+            if (elevationCount >= 0) {
+                elevation = new ArrayList<>(elevationCount);
+                final boolean hasMissing = buffer.get() != 0;
+                for (int i = 0; i < elevationCount; i++) {
+                    final boolean present = !hasMissing || buffer.get() != 0;
+                    final float ele = buffer.getFloat();
+                    elevation.add(present ? ele : null);
+                }
+            }
+            if (!points.isEmpty()) {
+                route.add(new RouteSegment(new RouteItem(points.get(points.size() - 1)), points, elevation, linkToPrevious));
+            }
+        }
+        return route;
+    }
+
+    /** writes a signed int as zigzag-encoded variable length int */
+    private static void writeVarInt(@NonNull final ByteArrayOutputStream out, final int value) {
+        int v = (value << 1) ^ (value >> 31);
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    private static int readVarInt(@NonNull final ByteBuffer buffer) {
+        int result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            result |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (result >>> 1) ^ -(result & 1);
+    }
+
+    /** for tests: reads a complete preparsed track from given stream */
+    @Nullable
+    static Route read(@NonNull final InputStream is) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(IOUtils.toByteArray(is));
+        return readHeader(buffer) == null ? null : readRoute(buffer);
+    }
+
+}
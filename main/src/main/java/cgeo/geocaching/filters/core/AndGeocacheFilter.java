@@ -3,6 +3,8 @@ package cgeo.geocaching.filters.core;
 import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.SqlBuilder;
 
+import androidx.annotation.NonNull;
+
 public class AndGeocacheFilter extends LogicalGeocacheFilter {
 
     @Override
@@ -24,6 +26,12 @@ public class AndGeocacheFilter extends LogicalGeocacheFilter {
         return isInconclusive ? null : true;
     }
 
+    @NonNull
+    @Override
+    public CompiledGeocacheFilter.Node compile() {
+        return CompiledGeocacheFilter.logical(true, false, getChildren());
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         if (!getChildren().isEmpty()) {
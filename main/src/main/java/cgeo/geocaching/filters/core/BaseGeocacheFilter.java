@@ -35,6 +35,20 @@ public abstract class BaseGeocacheFilter implements IGeocacheFilter {
         return null;
     }
 
+    /**
+     * Relative cost estimate to evaluate this filter for one cache, used to order checks in {@link CompiledGeocacheFilter}.
+     * To be overwritten by subclasses which are particularly cheap or expensive
+     */
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_DEFAULT;
+    }
+
+    @NonNull
+    @Override
+    public CompiledGeocacheFilter.Node compile() {
+        return CompiledGeocacheFilter.fromFilter(this, getEvaluationCost());
+    }
+
     @Override
     public String toUserDisplayableString(final int level) {
         if (!isFiltering()) {
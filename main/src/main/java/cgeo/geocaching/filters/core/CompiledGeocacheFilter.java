@@ -0,0 +1,230 @@
+package cgeo.geocaching.filters.core;
+
+import cgeo.geocaching.models.Geocache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link GeocacheFilter} compiled for fast evaluation against many caches in memory (e.g. in {@link GeocacheFilter#filterList(Collection)}).
+ * <br>
+ * Compilation turns the filter tree into a tree of {@link Node}s where
+ * <ul>
+ *     <li>results are passed as primitive tri-state values instead of boxed Booleans</li>
+ *     <li>nested logical nodes of same kind are flattened into one node</li>
+ *     <li>children of logical nodes are evaluated cheap and selective ones first. Order is initially based on
+ *     a cost estimate per filter and is adapted once after some evaluations based on how often each child decided the result</li>
+ *     <li>leaf filters may precompute their evaluation data (e.g. lower-cased search texts, sets of accepted values),
+ *     see {@link IGeocacheFilter#compile()}</li>
+ * </ul>
+ * A compiled filter is a snapshot: changes to the filter after compilation are not reflected. It is not thread-safe.
+ */
+public class CompiledGeocacheFilter {
+
+    public static final int RESULT_FALSE = 0;
+    public static final int RESULT_TRUE = 1;
+    public static final int RESULT_INCONCLUSIVE = 2;
+
+    /** cost for filters checking simple cache properties */
+    public static final int COST_CHEAP = 1;
+    /** cost for filters doing some calculation (e.g. distances, iterating small collections) */
+    public static final int COST_DEFAULT = 5;
+    /** cost for filters working on long texts, logs or other potentially lazy-loaded data */
+    public static final int COST_EXPENSIVE = 50;
+
+    /** number of evaluations after which a logical node reorders its children based on observed results */
+    private static final int ADAPT_AFTER_EVALUATIONS = 256;
+
+    private static final Node ALWAYS_TRUE = leaf(0, cache -> RESULT_TRUE);
+
+    private final Node root;
+    private final boolean includeInconclusive;
+
+    /** One compiled (sub-)filter */
+    public interface Node {
+
+        /** returns {@link #RESULT_TRUE}, {@link #RESULT_FALSE} or {@link #RESULT_INCONCLUSIVE} for given cache */
+        int test(@NonNull Geocache cache);
+
+        /** relative estimated cost to evaluate this node, see COST-constants */
+        int getCost();
+    }
+
+    /** A test on one cache, used to create leaf nodes */
+    public interface Test {
+        int test(@NonNull Geocache cache);
+    }
+
+    private static final class LeafNode implements Node {
+        private final int cost;
+        private final Test test;
+
+        LeafNode(final int cost, final Test test) {
+            this.cost = cost;
+            this.test = test;
+        }
+
+        @Override
+        public int test(@NonNull final Geocache cache) {
+            return test.test(cache);
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+
+    /**
+     * Logical node. For AND, a child returning FALSE decides the result, for OR a child returning TRUE does.
+     * Kleene logic used by the filters is commutative and associative, so children may be reordered and nested nodes flattened
+     */
+    private static final class LogicalNode implements Node {
+        private final boolean isAnd;
+        private final boolean negate;
+        private Node[] children;
+        private final int cost;
+
+        private int evaluations = 0;
+        private final int[] decided;
+
+        LogicalNode(final boolean isAnd, final boolean negate, final List<Node> children) {
+            this.isAnd = isAnd;
+            this.negate = negate;
+            final List<Node> sorted = new ArrayList<>(children);
+            Collections.sort(sorted, (n1, n2) -> Integer.compare(n1.getCost(), n2.getCost()));
+            this.children = sorted.toArray(new Node[0]);
+            this.decided = new int[this.children.length];
+            int c = 0;
+            for (Node child : this.children) {
+                c += child.getCost();
+            }
+            this.cost = c;
+        }
+
+        @Override
+        public int test(@NonNull final Geocache cache) {
+            final int result = negate ? negate(testInternal(cache)) : testInternal(cache);
+            if (evaluations < ADAPT_AFTER_EVALUATIONS && ++evaluations == ADAPT_AFTER_EVALUATIONS) {
+                reorderChildren();
+            }
+            return result;
+        }
+
+        private int testInternal(@NonNull final Geocache cache) {
+            final int decidingResult = isAnd ? RESULT_FALSE : RESULT_TRUE;
+            boolean isInconclusive = false;
+            final Node[] c = children;
+            for (int i = 0; i < c.length; i++) {
+                final int childResult = c[i].test(cache);
+                if (childResult == decidingResult) {
+                    if (evaluations < ADAPT_AFTER_EVALUATIONS) {
+                        decided[i]++;
+                    }
+                    return decidingResult;
+                }
+                if (childResult == RESULT_INCONCLUSIVE) {
+                    isInconclusive = true;
+                }
+            }
+            return isInconclusive ? RESULT_INCONCLUSIVE : (isAnd ? RESULT_TRUE : RESULT_FALSE);
+        }
+
+        /** orders children by cost per decided result, so that cheap and selective children are evaluated first */
+        private void reorderChildren() {
+            final List<Integer> idx = new ArrayList<>();
+            for (int i = 0; i < children.length; i++) {
+                idx.add(i);
+            }
+            Collections.sort(idx, (i1, i2) -> Double.compare(getCostPerDecision(i1), getCostPerDecision(i2)));
+            final Node[] newChildren = new Node[children.length];
+            for (int i = 0; i < newChildren.length; i++) {
+                newChildren[i] = children[idx.get(i)];
+            }
+            children = newChildren;
+        }
+
+        private double getCostPerDecision(final int i) {
+            return children[i].getCost() / ((decided[i] + 1d) / ADAPT_AFTER_EVALUATIONS);
+        }
+
+        @Override
+        public int getCost() {
+            return cost;
+        }
+    }
+
+    CompiledGeocacheFilter(@Nullable final Node root, final boolean includeInconclusive) {
+        this.root = root == null ? ALWAYS_TRUE : root;
+        this.includeInconclusive = includeInconclusive;
+    }
+
+    /** same semantics as {@link GeocacheFilter#filter(Geocache)} */
+    public boolean filter(@NonNull final Geocache cache) {
+        final int result = root.test(cache);
+        return result == RESULT_INCONCLUSIVE ? includeInconclusive : result == RESULT_TRUE;
+    }
+
+    /** same semantics as {@link GeocacheFilter#filterList(Collection)} */
+    public void filterList(@NonNull final Collection<Geocache> list) {
+        final List<Geocache> itemsToKeep = new ArrayList<>();
+        for (final Geocache item : list) {
+            if (filter(item)) {
+                itemsToKeep.add(item);
+            }
+        }
+
+        list.clear();
+        //note that since both "list" and "itemsToKeep" are ArrayLists, the addAll-operation is very fast (two arraycopies of the references)
+        list.addAll(itemsToKeep);
+    }
+
+    /** creates a leaf node evaluating given test */
+    @NonNull
+    public static Node leaf(final int cost, @NonNull final Test test) {
+        return new LeafNode(cost, test);
+    }
+
+    /** creates a leaf node evaluating {@link IGeocacheFilter#filter(Geocache)} of given filter */
+    @NonNull
+    public static Node fromFilter(@NonNull final IGeocacheFilter filter, final int cost) {
+        return leaf(cost, cache -> toResult(filter.filter(cache)));
+    }
+
+    public static int toResult(@Nullable final Boolean result) {
+        return result == null ? RESULT_INCONCLUSIVE : (result ? RESULT_TRUE : RESULT_FALSE);
+    }
+
+    private static int negate(final int result) {
+        return result == RESULT_INCONCLUSIVE ? RESULT_INCONCLUSIVE : (result == RESULT_TRUE ? RESULT_FALSE : RESULT_TRUE);
+    }
+
+    /** compiles children of a logical filter and creates the logical node, see {@link AndGeocacheFilter#filter(Geocache)} and {@link OrGeocacheFilter#filter(Geocache)} */
+    @NonNull
+    static Node logical(final boolean isAnd, final boolean negate, @NonNull final List<IGeocacheFilter> filterChildren) {
+        final List<Node> children = new ArrayList<>();
+        for (IGeocacheFilter child : filterChildren) {
+            final Node node = child.compile();
+            //flatten nested non-negated nodes of same kind. Empty OR nodes are not flattened since they evaluate to TRUE
+            if (node instanceof LogicalNode && ((LogicalNode) node).isAnd == isAnd && !((LogicalNode) node).negate
+                    && (isAnd || ((LogicalNode) node).children.length > 0)) {
+                Collections.addAll(children, ((LogicalNode) node).children);
+            } else {
+                children.add(node);
+            }
+        }
+        if (children.isEmpty()) {
+            return negate ? leaf(0, cache -> RESULT_FALSE) : ALWAYS_TRUE;
+        }
+        if (children.size() == 1 && !negate) {
+            return children.get(0);
+        }
+        return new LogicalNode(isAnd, negate, children);
+    }
+
+}
@@ -196,6 +196,9 @@ public class DateFilter {
                 sqlBuilder.addWhere("date(" + valueExpression + "/1000, 'unixepoch') <= '" + DAY_DATE_FORMAT_SQL.format(getMaxDate()) + "'");
             }
             sqlBuilder.closeWhere();
+        } else if (getMinDate() != null || getMaxDate() != null) {
+            //filter can't be expressed in SQL -> must not exclude anything, also when inside a NOT
+            sqlBuilder.addWhereAlwaysInclude();
         } else {
             sqlBuilder.addWhereTrue();
         }
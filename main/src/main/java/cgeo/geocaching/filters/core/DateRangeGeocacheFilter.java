@@ -79,6 +79,12 @@ public abstract class DateRangeGeocacheFilter extends BaseGeocacheFilter {
         return dateFilter.isFilled();
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        //relative dates depend on current date
+        return !dateFilter.isRelative();
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         addToSql(sqlBuilder, getSqlColumnName() == null ? null : sqlBuilder.getMainTableId() + "." + getSqlColumnName());
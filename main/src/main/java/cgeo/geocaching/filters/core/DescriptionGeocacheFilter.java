@@ -13,4 +13,8 @@ public class DescriptionGeocacheFilter extends StringGeocacheFilter {
         return "description";
     }
 
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_EXPENSIVE;
+    }
 }
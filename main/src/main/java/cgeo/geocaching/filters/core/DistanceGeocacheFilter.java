@@ -107,6 +107,11 @@ public class DistanceGeocacheFilter extends NumberRangeGeocacheFilter<Float> {
         addRangeToSqlBuilder(sqlBuilder, sql, v -> v * v);
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        return !useCurrentPosition;
+    }
+
     @Override
     public boolean isFiltering() {
         return super.isFiltering() || !useCurrentPosition;
@@ -117,5 +122,8 @@ public class DistanceGeocacheFilter extends NumberRangeGeocacheFilter<Float> {
         return GeopointFormatter.format(GeopointFormatter.Format.LAT_LON_DECMINUTE_SHORT, getEffectiveCoordinate()) + "(" + super.getUserDisplayableConfig() + ")";
     }
 
-
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_DEFAULT;
+    }
 }
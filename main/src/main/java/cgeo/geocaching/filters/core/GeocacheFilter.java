@@ -190,6 +190,23 @@ public class GeocacheFilter implements Cloneable {
             JsonConfigurationUtils.equals(getTree(), other.getTree());
     }
 
+    /**
+     * returns a key which is equal for two filters exactly if they would filter same results (see {@link #filtersSame(GeocacheFilter)}).
+     * Name and display settings of filter are not part of the key.
+     */
+    @NonNull
+    public String getFilterKey() {
+        if (!isFiltering()) {
+            return "";
+        }
+        return (isIncludeInconclusive() ? "i:" : "e:") + JsonConfigurationUtils.toJsonConfigString(getTree());
+    }
+
+    @NonNull
+    public static String getFilterKey(@Nullable final GeocacheFilter filter) {
+        return filter == null ? "" : filter.getFilterKey();
+    }
+
     public static boolean filtersSame(@Nullable final GeocacheFilter filter1, @Nullable final GeocacheFilter filter2) {
         if (filter1 == filter2) {
             return true;
@@ -214,18 +231,25 @@ public class GeocacheFilter implements Cloneable {
         return result == null ? this.includeInconclusive : result;
     }
 
-    public void filterList(final Collection<Geocache> list) {
+    /** whether results of this filter may be cached, see {@link IGeocacheFilter#isResultCacheable()} */
+    public boolean isResultCacheable() {
+        return tree == null || tree.isResultCacheable();
+    }
 
-        final List<Geocache> itemsToKeep = new ArrayList<>();
-        for (final Geocache item : list) {
-            if (filter(item)) {
-                itemsToKeep.add(item);
-            }
-        }
+    /**
+     * Compiles this filter for fast evaluation of many caches. Compiled filter reflects the state of this filter at time of compilation.
+     * Use this when filtering many caches in a loop, see {@link CompiledGeocacheFilter}
+     */
+    @NonNull
+    public CompiledGeocacheFilter compile() {
+        return new CompiledGeocacheFilter(tree == null ? null : tree.compile(), includeInconclusive);
+    }
 
-        list.clear();
-        //note that since both "list" and "itemsToKeep" are ArrayLists, the addAll-operation is very fast (two arraycopies of the references)
-        list.addAll(itemsToKeep);
+    public void filterList(final Collection<Geocache> list) {
+        if (tree == null) {
+            return;
+        }
+        compile().filterList(list);
     }
 
     @Override
@@ -0,0 +1,113 @@
+package cgeo.geocaching.filters.core;
+
+import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.storage.CacheModificationTracker;
+import cgeo.geocaching.utils.LeastRecentlyUsedMap;
+import cgeo.geocaching.utils.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Caches results of {@link GeocacheFilter}s applied to a fixed list of caches (the "scope", e.g. the content of a cache list).
+ * <br>
+ * Results are stored per filter (keyed by {@link GeocacheFilter#getFilterKey()}) as bitsets over the scope's indexes.
+ * When a result is reused, only caches modified since its calculation (see {@link CacheModificationTracker}) are evaluated again.
+ * This makes switching back to a previously used filter (or toggling between filters) cheap also for large lists.
+ * <br>
+ * Filters which are not {@link GeocacheFilter#isResultCacheable()} are always evaluated completely. Not thread-safe.
+ */
+public class GeocacheFilterResultCache {
+
+    private static final int MAX_CACHED_RESULTS = 10;
+
+    private final LeastRecentlyUsedMap<String, Result> results = new LeastRecentlyUsedMap.LruCache<>(MAX_CACHED_RESULTS);
+    private List<Geocache> scope = null;
+
+    private static final class Result {
+        private final BitSet matches;
+        private long modificationCounter;
+
+        Result(final BitSet matches, final long modificationCounter) {
+            this.matches = matches;
+            this.modificationCounter = modificationCounter;
+        }
+    }
+
+    /**
+     * Applies given filter to the caches in scope and returns the caches passing the filter (in scope order).
+     * If scope is not the same list instance as in previous calls, all cached results are discarded.
+     *
+     * @param scope list of caches to filter. Must not be changed by caller as long as it is used as scope with this cache
+     * @param filter filter to apply
+     * @param forceRecalculation if true then a cached result is not reused but recalculated (and stored)
+     */
+    @NonNull
+    public List<Geocache> filter(@NonNull final List<Geocache> scope, @NonNull final GeocacheFilter filter, final boolean forceRecalculation) {
+        if (this.scope != scope) {
+            results.clear();
+            this.scope = scope;
+        }
+
+        final boolean cacheable = filter.isResultCacheable();
+        final String key = cacheable ? filter.getFilterKey() : null;
+        final Result cached = key == null || forceRecalculation ? null : results.get(key);
+
+        final BitSet matches;
+        if (cached != null) {
+            updateResult(cached, filter);
+            matches = cached.matches;
+        } else {
+            final long modificationCounter = CacheModificationTracker.getModificationCounter();
+            matches = new BitSet(scope.size());
+            final CompiledGeocacheFilter compiled = filter.compile();
+            for (int i = 0; i < scope.size(); i++) {
+                if (compiled.filter(scope.get(i))) {
+                    matches.set(i);
+                }
+            }
+            if (key != null) {
+                results.put(key, new Result(matches, modificationCounter));
+            }
+        }
+
+        final List<Geocache> filtered = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            filtered.add(scope.get(i));
+        }
+        return filtered;
+    }
+
+    /** re-evaluates filter for all caches in scope modified since calculation of given result */
+    private void updateResult(@NonNull final Result result, @NonNull final GeocacheFilter filter) {
+        final long modificationCounter = CacheModificationTracker.getModificationCounter();
+        if (modificationCounter == result.modificationCounter) {
+            return;
+        }
+        final Set<String> modified = CacheModificationTracker.getModifiedSince(result.modificationCounter);
+        if (modified == null || !modified.isEmpty()) {
+            final CompiledGeocacheFilter compiled = filter.compile();
+            int updated = 0;
+            for (int i = 0; i < scope.size(); i++) {
+                final Geocache cache = scope.get(i);
+                if (modified == null || modified.contains(cache.getGeocode())) {
+                    result.matches.set(i, compiled.filter(cache));
+                    updated++;
+                }
+            }
+            Log.d("GeocacheFilterResultCache: re-evaluated " + updated + " of " + scope.size() + " caches");
+        }
+        result.modificationCounter = modificationCounter;
+    }
+
+    /** discards all cached results */
+    public void clear() {
+        results.clear();
+        scope = null;
+    }
+
+}
@@ -4,6 +4,7 @@ import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.SqlBuilder;
 import cgeo.geocaching.utils.config.IJsonConfigurable;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 /**
@@ -45,6 +46,24 @@ public interface IGeocacheFilter extends IJsonConfigurable<IGeocacheFilter> {
         sqlBuilder.addWhereAlwaysInclude();
     }
 
+    /**
+     * Creates a compiled form of this filter for fast evaluation of many caches, see {@link CompiledGeocacheFilter}.
+     * Filters may override this to precompute data needed for evaluation. Result must have same semantics as {@link #filter(Geocache)}
+     */
+    @NonNull
+    default CompiledGeocacheFilter.Node compile() {
+        return CompiledGeocacheFilter.fromFilter(this, CompiledGeocacheFilter.COST_DEFAULT);
+    }
+
+    /**
+     * Whether results of this filter depend only on its configuration and the stored data of the filtered cache.
+     * If true, results may be cached and reused until a cache is modified, see {@link GeocacheFilterResultCache}.
+     * Filters depending on e.g. current position, current date or other (modifiable) filters must return false
+     */
+    default boolean isResultCacheable() {
+        return true;
+    }
+
     /**
      * The way this filter is displayed to the user in a textual fashion. Might return null to signal that filter shall not displayed to user
      */
@@ -15,6 +15,12 @@ public class IndividualRouteGeocacheFilter extends BooleanGeocacheFilter {
         return routeItems.stream().anyMatch(item -> cache.getGeocode().equals(item.getGeocode())) == value;
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        //route is changed independently of caches
+        return false;
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder, final boolean value) {
         final String routeTableId = sqlBuilder.getNewTableId();
@@ -149,4 +149,9 @@ public class LogEntryGeocacheFilter extends BaseGeocacheFilter {
                 (logTextFilter.isFilled() ? logTextFilter.getTextValue() : "") +
                 (inverse ? ")" : "");
     }
+
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_EXPENSIVE;
+    }
 }
@@ -47,6 +47,16 @@ public abstract class LogicalGeocacheFilter extends BaseGeocacheFilter {
         return children;
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        for (IGeocacheFilter child : children) {
+            if (!child.isResultCacheable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String toUserDisplayableString(final int level) {
         final int filteringChildrenCnt = getFilteringChildrenCount();
@@ -126,4 +126,8 @@ public class LogsCountGeocacheFilter extends NumberRangeGeocacheFilter<Integer>
         return (logType == null ? "" : logType.getL10n() + ": ") + super.getUserDisplayableConfig();
     }
 
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_EXPENSIVE;
+    }
 }
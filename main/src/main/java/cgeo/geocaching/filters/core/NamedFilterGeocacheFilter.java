@@ -53,6 +53,12 @@ public class NamedFilterGeocacheFilter extends BaseGeocacheFilter {
         }
     }
 
+    @Override
+    public boolean isResultCacheable() {
+        //referenced named filter may be changed without change to this filter's config
+        return false;
+    }
+
     @Override
     public boolean isFiltering() {
         try {
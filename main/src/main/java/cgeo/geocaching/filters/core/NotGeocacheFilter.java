@@ -5,6 +5,8 @@ import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.SqlBuilder;
 import cgeo.geocaching.utils.LocalizationUtils;
 
+import androidx.annotation.NonNull;
+
 public class NotGeocacheFilter extends AndGeocacheFilter {
 
     @Override
@@ -18,6 +20,12 @@ public class NotGeocacheFilter extends AndGeocacheFilter {
         return superResult == null ? null : !superResult;
     }
 
+    @NonNull
+    @Override
+    public CompiledGeocacheFilter.Node compile() {
+        return CompiledGeocacheFilter.logical(true, true, getChildren());
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         sqlBuilder.openWhere(SqlBuilder.WhereType.NOT);
@@ -150,7 +150,11 @@ public class NumberRangeFilter<T extends Number & Comparable<T>> {
         final boolean hasSpecial = specialNumber != null && includeSpecialNumber != null;
         final boolean hasMinMax = minRangeValue != null || maxRangeValue != null;
 
-        if (valueExpression == null || (!hasSpecial && !hasMinMax)) {
+        if (!hasSpecial && !hasMinMax) {
+            //range filters nothing, same as in-memory filter
+            sqlBuilder.addWhereTrue();
+        } else if (valueExpression == null) {
+            //filter can't be expressed in SQL -> must not exclude anything, also when inside a NOT
             sqlBuilder.addWhereAlwaysInclude();
         } else {
             if (hasSpecial) {
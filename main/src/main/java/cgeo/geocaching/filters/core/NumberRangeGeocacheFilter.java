@@ -39,6 +39,11 @@ public abstract class NumberRangeGeocacheFilter<T extends Number & Comparable<T>
         return getSqlColumnName() == null ? null : sqlBuilder.getMainTableId() + "." + getSqlColumnName();
     }
 
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_CHEAP;
+    }
+
     @Override
     public Boolean filter(final Geocache cache) {
         if (cache == null) {
@@ -23,4 +23,9 @@ public class OfflineLogGeocacheFilter extends StringGeocacheFilter {
                 "SELECT " + DataStore.dbField_Geocode + " FROM " + DataStore.dbTableLogsOffline + " " + logTableId + " WHERE " + logTableId + "." + DataStore.dbField_Geocode + " = " + sqlBuilder.getMainTableId() + "." + DataStore.dbField_Geocode,
                 true, logTableId + "." + DataStore.dbFieldLogsOffline_log);
     }
+
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_EXPENSIVE;
+    }
 }
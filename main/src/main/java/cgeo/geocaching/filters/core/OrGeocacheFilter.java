@@ -3,6 +3,8 @@ package cgeo.geocaching.filters.core;
 import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.SqlBuilder;
 
+import androidx.annotation.NonNull;
+
 public class OrGeocacheFilter extends LogicalGeocacheFilter {
 
     @Override
@@ -27,6 +29,12 @@ public class OrGeocacheFilter extends LogicalGeocacheFilter {
         return isInconclusive ? null : false;
     }
 
+    @NonNull
+    @Override
+    public CompiledGeocacheFilter.Node compile() {
+        return CompiledGeocacheFilter.logical(false, false, getChildren());
+    }
+
     @Override
     public void addToSql(final SqlBuilder sqlBuilder) {
         if (!getChildren().isEmpty()) {
@@ -46,4 +46,8 @@ public class OriginGeocacheFilter extends ValueGroupGeocacheFilter<IConnector, I
         return !isFiltering() || getValues().contains(connector);
     }
 
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_DEFAULT;
+    }
 }
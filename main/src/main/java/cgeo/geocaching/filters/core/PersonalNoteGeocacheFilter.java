@@ -12,4 +12,8 @@ public class PersonalNoteGeocacheFilter extends StringGeocacheFilter {
         return "personal_note";
     }
 
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_EXPENSIVE;
+    }
 }
@@ -7,11 +7,13 @@ import cgeo.geocaching.utils.LocalizationUtils;
 import cgeo.geocaching.utils.TextUtils;
 
 import androidx.annotation.StringRes;
+import androidx.core.util.Predicate;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -144,6 +146,46 @@ public class StringFilter {
         }
     }
 
+    /**
+     * Creates a matcher with same semantics as {@link #matches(String)} which precomputes
+     * case-adjusted search text and pattern once instead of for every value. Changes to this filter
+     * after creation are not reflected in the matcher
+     */
+    public Predicate<String> createMatcher() {
+        if (!isFilled()) {
+            return value -> true;
+        }
+        if (filterType == StringFilterType.IS_NOT_PRESENT) {
+            return StringUtils::isEmpty;
+        }
+        if (filterType == StringFilterType.IS_PRESENT) {
+            return value -> !StringUtils.isEmpty(value);
+        }
+
+        final boolean mc = this.matchCase;
+        final String matchTextValue = mc ? this.textValue : StringUtils.lowerCase(this.textValue);
+        switch (this.filterType) {
+            case CONTAINS:
+                return value -> (mc ? value : StringUtils.lowerCase(value)).contains(matchTextValue);
+            case DOES_NOT_CONTAIN:
+                return value -> !(mc ? value : StringUtils.lowerCase(value)).contains(matchTextValue);
+            case STARTS_WITH:
+                return value -> (mc ? value : StringUtils.lowerCase(value)).startsWith(matchTextValue);
+            case ENDS_WITH:
+                return value -> (mc ? value : StringUtils.lowerCase(value)).endsWith(matchTextValue);
+            case PATTERN:
+                try {
+                    final Pattern pattern = Pattern.compile(matchTextValue.replace('?', '.').replaceAll("\\*", ".*"));
+                    return value -> pattern.matcher(mc ? value : StringUtils.lowerCase(value)).matches();
+                } catch (PatternSyntaxException pse) {
+                    //keep behaviour of uncompiled filter
+                    return this::matches;
+                }
+            default:
+                return this::matches;
+        }
+    }
+
     public void addToSql(final SqlBuilder sqlBuilder, final String columnExpression) {
         if (!isFilled()) {
             sqlBuilder.addWhereTrue();
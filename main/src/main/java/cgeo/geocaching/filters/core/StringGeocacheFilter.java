@@ -6,6 +6,7 @@ import cgeo.geocaching.utils.config.LegacyFilterConfig;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.util.Predicate;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
@@ -37,6 +38,24 @@ public abstract class StringGeocacheFilter extends BaseGeocacheFilter {
         return stringFilter.matches(gcValue);
     }
 
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_CHEAP;
+    }
+
+    @NonNull
+    @Override
+    public CompiledGeocacheFilter.Node compile() {
+        final Predicate<String> matcher = stringFilter.createMatcher();
+        return CompiledGeocacheFilter.leaf(getEvaluationCost(), cache -> {
+            final String gcValue = getValue(cache);
+            if (gcValue == null) {
+                return CompiledGeocacheFilter.RESULT_INCONCLUSIVE;
+            }
+            return matcher.test(gcValue) ? CompiledGeocacheFilter.RESULT_TRUE : CompiledGeocacheFilter.RESULT_FALSE;
+        });
+    }
+
     @Override
     public void setConfig(final LegacyFilterConfig config) {
         stringFilter.setConfig(config.get(null));
@@ -70,6 +89,9 @@ public abstract class StringGeocacheFilter extends BaseGeocacheFilter {
         final String colName = getSqlColumnName();
         if (colName != null) {
             stringFilter.addToSql(sqlBuilder, sqlBuilder.getMainTableId() + "." + colName);
+        } else if (stringFilter.isFilled()) {
+            //filter can't be expressed in SQL -> must not exclude anything, also when inside a NOT
+            sqlBuilder.addWhereAlwaysInclude();
         } else {
             sqlBuilder.addWhereTrue();
         }
@@ -96,6 +96,40 @@ public abstract class ValueGroupGeocacheFilter<G, T> extends BaseGeocacheFilter
         return values.contains(cacheValue);
     }
 
+    @Override
+    protected int getEvaluationCost() {
+        return CompiledGeocacheFilter.COST_CHEAP;
+    }
+
+    /** compiled form checks raw cache values directly against precomputed set of raw values mapping to a filtered display value */
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompiledGeocacheFilter.Node compile() {
+        if (values.isEmpty()) {
+            return CompiledGeocacheFilter.leaf(0, cache -> CompiledGeocacheFilter.RESULT_TRUE);
+        }
+        final Set<T> acceptedRawValues = new HashSet<>();
+        for (Map.Entry<T, G> entry : valueToDisplayMap.entrySet()) {
+            if (values.contains(entry.getValue())) {
+                acceptedRawValues.add(entry.getKey());
+            }
+        }
+        for (G value : values) {
+            //raw values without display mapping are used as display values themselves, see rawToDisplay
+            if (!valueToDisplayMap.containsKey((T) value)) {
+                acceptedRawValues.add((T) value);
+            }
+        }
+        return CompiledGeocacheFilter.leaf(getEvaluationCost(), cache -> {
+            final T rawValue = getRawCacheValue(cache);
+            if (rawValue == null) {
+                return CompiledGeocacheFilter.RESULT_INCONCLUSIVE;
+            }
+            return acceptedRawValues.contains(rawValue) ? CompiledGeocacheFilter.RESULT_TRUE : CompiledGeocacheFilter.RESULT_FALSE;
+        });
+    }
+
     public G getCacheValue(final Geocache cache) {
         final T cacheValue = getRawCacheValue(cache);
         if (cacheValue == null) {
@@ -220,6 +254,9 @@ public abstract class ValueGroupGeocacheFilter<G, T> extends BaseGeocacheFilter
                 sqlBuilder.closeWhere();
             }
 
+        } else if (!getValues().isEmpty()) {
+            //filter can't be expressed in SQL -> must not exclude anything, also when inside a NOT
+            sqlBuilder.addWhereAlwaysInclude();
         } else {
             sqlBuilder.addWhereTrue();
         }
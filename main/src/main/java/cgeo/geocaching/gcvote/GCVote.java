@@ -10,6 +10,8 @@ import cgeo.geocaching.network.Network;
 import cgeo.geocaching.network.Parameters;
 import cgeo.geocaching.settings.Credentials;
 import cgeo.geocaching.settings.Settings;
+import cgeo.geocaching.storage.extension.GCVoteRatings;
+import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.LeastRecentlyUsedMap;
 import cgeo.geocaching.utils.Log;
 
@@ -24,9 +26,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
@@ -43,7 +50,17 @@ public final class GCVote implements ICredentials {
     // https://ssl.webpack.de/gcvote.com
 
     private static final int MAX_CACHED_RATINGS = 1000;
-    private static final LeastRecentlyUsedMap<String, GCVoteRating> RATINGS_CACHE = new LeastRecentlyUsedMap.LruCache<>(MAX_CACHED_RATINGS);
+    /** ratings are also loaded in the background, see {@link #prefetchRatings(Collection)} */
+    private static final Map<String, GCVoteRating> RATINGS_CACHE = Collections.synchronizedMap(new LeastRecentlyUsedMap.LruCache<>(MAX_CACHED_RATINGS));
+
+    /** stored ratings older than this are fetched again */
+    private static final long RATING_MAX_AGE = TimeUnit.DAYS.toMillis(3);
+    /** maximum number of geocodes requested from gcvote.com at once */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /** caches waiting for background loading of their rating, by geocode */
+    private static final Map<String, Geocache> PREFETCH_QUEUE = new LinkedHashMap<>();
+    private static boolean prefetchRunning;
 
     private GCVote() {
         // utility class
@@ -62,11 +79,16 @@ public final class GCVote implements ICredentials {
     @WorkerThread
     public static GCVoteRating getRating(final String guid, final String geocode) {
         if (StringUtils.isNotBlank(guid) && RATINGS_CACHE.containsKey(guid)) {
-            return RATINGS_CACHE.get(guid);
+            return withoutNoRating(RATINGS_CACHE.get(guid));
         }
 
         final Map<String, GCVoteRating> ratings = getRating(singletonOrNull(guid), singletonOrNull(geocode));
-        return MapUtils.isNotEmpty(ratings) ? ratings.values().iterator().next() : null;
+        return MapUtils.isNotEmpty(ratings) ? withoutNoRating(ratings.values().iterator().next()) : null;
+    }
+
+    @Nullable
+    private static GCVoteRating withoutNoRating(@Nullable final GCVoteRating rating) {
+        return rating == null || rating.isNoRating() ? null : rating;
     }
 
     @Nullable
@@ -101,15 +123,76 @@ public final class GCVote implements ICredentials {
         if (response == null) {
             return Collections.emptyMap();
         }
+        final Map<String, GCVoteRating> ratings;
         try {
-            return getRatingsFromXMLResponse(response, requestByGuids);
+            ratings = getRatingsFromXMLResponse(response, requestByGuids);
         } finally {
             IOUtils.closeQuietly(response);
         }
+        if (ratings == null) {
+            return Collections.emptyMap();
+        }
+        if (!requestByGuids) {
+            // remember geocodes unknown to gcvote.com as well, to not ask for them again and again
+            final Map<String, GCVoteRating> stored = new HashMap<>(ratings);
+            for (final String geocode : geocodes) {
+                if (!stored.containsKey(geocode)) {
+                    stored.put(geocode, GCVoteRating.NO_RATING);
+                    RATINGS_CACHE.put(geocode, GCVoteRating.NO_RATING);
+                }
+            }
+            GCVoteRatings.setRatings(stored, System.currentTimeMillis());
+        } else if (requestByGuids && geocodes != null && geocodes.size() == 1 && ratings.size() == 1) {
+            GCVoteRatings.setRatings(Collections.singletonMap(geocodes.get(0), ratings.values().iterator().next()), System.currentTimeMillis());
+        }
+        return ratings;
     }
 
+    /**
+     * Get user ratings for the given geocodes. Ratings are taken from memory or from the rating store, only
+     * missing or stale ratings are requested from gcvote.com (in batches of at most {@link #MAX_BATCH_SIZE}).
+     */
     @NonNull
     @WorkerThread
+    private static Map<String, GCVoteRating> getRatings(@NonNull final List<String> geocodes) {
+        final Map<String, GCVoteRating> ratings = new HashMap<>();
+        final List<String> notInMemory = new ArrayList<>();
+        for (final String geocode : geocodes) {
+            final GCVoteRating rating = RATINGS_CACHE.get(geocode);
+            if (rating != null) {
+                ratings.put(geocode, rating);
+            } else {
+                notInMemory.add(geocode);
+            }
+        }
+        if (notInMemory.isEmpty()) {
+            return ratings;
+        }
+
+        final Map<String, GCVoteRating> stored = GCVoteRatings.getRatings(notInMemory, System.currentTimeMillis() - RATING_MAX_AGE);
+        RATINGS_CACHE.putAll(stored);
+        ratings.putAll(stored);
+
+        final List<String> missing = new ArrayList<>();
+        for (final String geocode : notInMemory) {
+            if (!stored.containsKey(geocode)) {
+                missing.add(geocode);
+            }
+        }
+        for (int start = 0; start < missing.size(); start += MAX_BATCH_SIZE) {
+            ratings.putAll(getRating(null, missing.subList(start, Math.min(missing.size(), start + MAX_BATCH_SIZE))));
+        }
+        if (!missing.isEmpty()) {
+            Log.d("GCVote: " + (geocodes.size() - missing.size()) + " ratings known, " + missing.size() + " requested");
+        }
+        return ratings;
+    }
+
+    /**
+     * @return ratings contained in the response, or null if the response could not be parsed
+     */
+    @Nullable
+    @WorkerThread
     static Map<String, GCVoteRating> getRatingsFromXMLResponse(@NonNull final InputStream response, final boolean requestByGuids) {
         try {
             final XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
@@ -138,7 +221,7 @@ public final class GCVote implements ICredentials {
             return ratings;
         } catch (final NumberFormatException | XmlPullParserException | IOException e) {
             Log.e("Cannot parse GCVote result", e);
-            return Collections.emptyMap();
+            return null;
 
         }
     }
@@ -182,6 +265,11 @@ public final class GCVote implements ICredentials {
             Log.e("GCVote.setRating: could not post rating, answer was " + result);
             return false;
         }
+        // cached votes would not contain the new rating
+        Network.evictCachedResponses("https://ssl.webpack.de/gcvote.com/getVotes.php");
+        RATINGS_CACHE.remove(cache.getGuid());
+        RATINGS_CACHE.remove(cache.getGeocode());
+        GCVoteRatings.remove(cache.getGeocode());
         return true;
     }
 
@@ -197,20 +285,73 @@ public final class GCVote implements ICredentials {
         }
 
         try {
-            final Map<String, GCVoteRating> ratings = getRating(null, geocodes);
+            setRatings(caches, getRatings(geocodes));
+        } catch (final Exception e) {
+            Log.e("GCVote.loadRatings", e);
+        }
+    }
 
-            // save found cache coordinates
+    /**
+     * Queue the caches for loading their ratings in the background, e.g. when they become visible. Caches already
+     * waiting are queued only once, and the queue is processed in batches of at most {@link #MAX_BATCH_SIZE} caches.
+     */
+    public static void prefetchRatings(@NonNull final Collection<Geocache> caches) {
+        if (!Settings.isRatingWanted()) {
+            return;
+        }
+        final Set<String> geocodes = new HashSet<>(getVotableGeocodes(caches));
+        if (geocodes.isEmpty()) {
+            return;
+        }
+        synchronized (PREFETCH_QUEUE) {
             for (final Geocache cache : caches) {
-                if (ratings.containsKey(cache.getGeocode())) {
-                    final GCVoteRating rating = ratings.get(cache.getGeocode());
+                if (geocodes.contains(cache.getGeocode())) {
+                    PREFETCH_QUEUE.put(cache.getGeocode(), cache);
+                }
+            }
+            if (prefetchRunning) {
+                return;
+            }
+            prefetchRunning = true;
+        }
+        AndroidRxUtils.networkScheduler.scheduleDirect(GCVote::processPrefetchQueue);
+    }
 
-                    cache.setRating(rating.getRating());
-                    cache.setVotes(rating.getVotes());
-                    cache.setMyVote(rating.getMyVote());
+    @WorkerThread
+    private static void processPrefetchQueue() {
+        while (true) {
+            final List<Geocache> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            synchronized (PREFETCH_QUEUE) {
+                if (PREFETCH_QUEUE.isEmpty()) {
+                    prefetchRunning = false;
+                    return;
+                }
+                final Iterator<Geocache> queued = PREFETCH_QUEUE.values().iterator();
+                while (queued.hasNext() && batch.size() < MAX_BATCH_SIZE) {
+                    batch.add(queued.next());
+                    queued.remove();
                 }
             }
-        } catch (final Exception e) {
-            Log.e("GCVote.loadRatings", e);
+            try {
+                final List<String> geocodes = new ArrayList<>(batch.size());
+                for (final Geocache cache : batch) {
+                    geocodes.add(cache.getGeocode());
+                }
+                setRatings(batch, getRatings(geocodes));
+            } catch (final Exception e) {
+                Log.e("GCVote.processPrefetchQueue", e);
+            }
+        }
+    }
+
+    private static void setRatings(@NonNull final Collection<Geocache> caches, @NonNull final Map<String, GCVoteRating> ratings) {
+        for (final Geocache cache : caches) {
+            final GCVoteRating rating = ratings.get(cache.getGeocode());
+            if (rating != null && !rating.isNoRating()) {
+                cache.setRating(rating.getRating());
+                cache.setVotes(rating.getVotes());
+                cache.setMyVote(rating.getMyVote());
+            }
         }
     }
 
@@ -1,6 +1,13 @@
 package cgeo.geocaching.gcvote;
 
 public final class GCVoteRating {
+
+    /**
+     * marks a cache unknown to gcvote.com, to not request its rating again and again.
+     * Must not be copied onto caches, see {@link #isNoRating()}.
+     */
+    public static final GCVoteRating NO_RATING = new GCVoteRating(0, 0, 0);
+
     private final float rating;
     private final int votes;
     private final float myVote;
@@ -22,4 +29,9 @@ public final class GCVoteRating {
     public float getMyVote() {
         return myVote;
     }
+
+    /** returns true if this is the marker for a cache without rating on gcvote.com */
+    public boolean isNoRating() {
+        return this == NO_RATING;
+    }
 }
@@ -1,6 +1,7 @@
 package cgeo.geocaching.location;
 
 import cgeo.geocaching.utils.CollectionStream;
+import cgeo.geocaching.utils.LeastRecentlyUsedMap;
 import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.MatcherWrapper;
 
@@ -12,6 +13,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -28,6 +30,14 @@ public class GeopointParser {
 
     private static final List<AbstractParser> parsers = Arrays.asList(new MinDecParser(), new MinParser(), new DegParser(), new DMSParser(), new ShortDMSParser(), new DegDecParser(), new ShortDegDecParser(), new UTMParser(), new DegDecCommaParser());
 
+    private static final int RESULT_CACHE_SIZE = 200;
+    /**
+     * Results of recently parsed texts. Parsing is deterministic, so repeated inputs (e.g. stored filter configs) are served from here
+     */
+    private static final Map<String, Geopoint> PARSED_GEOPOINTS = new LeastRecentlyUsedMap.LruCache<>(RESULT_CACHE_SIZE);
+    private static final Map<String, Double> PARSED_LATITUDES = new LeastRecentlyUsedMap.LruCache<>(RESULT_CACHE_SIZE);
+    private static final Map<String, Double> PARSED_LONGITUDES = new LeastRecentlyUsedMap.LruCache<>(RESULT_CACHE_SIZE);
+
     private GeopointParser() {
         // utility class
     }
@@ -596,6 +606,29 @@ public class GeopointParser {
      */
     @NonNull
     public static Geopoint parse(@NonNull final String text) {
+        synchronized (PARSED_GEOPOINTS) {
+            final Geopoint cached = PARSED_GEOPOINTS.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Geopoint result = parseDecimalDegrees(text);
+        if (result == null) {
+            result = parseWithParsers(text);
+        }
+        synchronized (PARSED_GEOPOINTS) {
+            PARSED_GEOPOINTS.put(text, result);
+        }
+        return result;
+    }
+
+    /**
+     * Parses a pair of coordinates using the regular expression based parsers (no fast path, no result cache)
+     *
+     * @throws Geopoint.ParseException if coordinates could not be parsed
+     */
+    @NonNull
+    static Geopoint parseWithParsers(@NonNull final String text) {
         final Set<String> inputs = getParseInputs(text.trim());
         GeopointWrapper best = null;
         for (final AbstractParser parser : parsers) {
@@ -671,9 +704,9 @@ public class GeopointParser {
      */
     public static double parseLatitude(@Nullable final String text) {
         if (text != null) {
-            final ResultWrapper wrapper = parseHelper(text, Geopoint.LatLon.LAT);
-            if (wrapper != null) {
-                return wrapper.result;
+            final Double result = parseLatLon(text, Geopoint.LatLon.LAT, PARSED_LATITUDES);
+            if (result != null) {
+                return result;
             }
         }
 
@@ -692,12 +725,121 @@ public class GeopointParser {
      */
     public static double parseLongitude(@Nullable final String text) {
         if (text != null) {
-            final ResultWrapper wrapper = parseHelper(text, Geopoint.LatLon.LON);
-            if (wrapper != null) {
-                return wrapper.result;
+            final Double result = parseLatLon(text, Geopoint.LatLon.LON, PARSED_LONGITUDES);
+            if (result != null) {
+                return result;
             }
         }
 
         throw new Geopoint.ParseException("Cannot parse longitude", Geopoint.LatLon.LON);
     }
+
+    @Nullable
+    private static Double parseLatLon(@NonNull final String text, @NonNull final Geopoint.LatLon latlon, @NonNull final Map<String, Double> resultCache) {
+        synchronized (resultCache) {
+            final Double cached = resultCache.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Double result = parseDecimalDegree(text);
+        if (result == null) {
+            result = parseLatLonWithParsers(text, latlon);
+        }
+        if (result != null) {
+            synchronized (resultCache) {
+                resultCache.put(text, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses latitude or longitude using the regular expression based parsers (no fast path, no result cache)
+     *
+     * @return the parsed value, or null if parsing failed
+     */
+    @Nullable
+    static Double parseLatLonWithParsers(@NonNull final String text, @NonNull final Geopoint.LatLon latlon) {
+        final ResultWrapper wrapper = parseHelper(text, latlon);
+        return wrapper == null ? null : wrapper.result;
+    }
+
+    /**
+     * Fast path for a latitude or longitude given in plain decimal degrees (e.g. "-48.123456"), bypassing the regular expressions.
+     * Yields the same result as {@link DegDecParser}, which is the first parser matching such a text completely.
+     *
+     * @return the parsed value, or null if the text is not in plain decimal degrees format
+     */
+    @Nullable
+    static Double parseDecimalDegree(@NonNull final String text) {
+        final String trimmed = text.trim();
+        if (scanDecimalDegree(trimmed, 0) != trimmed.length()) {
+            return null;
+        }
+        // same calculation as in createCoordinate, which e.g. turns -0.0 into 0.0
+        return Double.parseDouble(trimmed) + 0.0;
+    }
+
+    /**
+     * Fast path for a pair of coordinates given in plain decimal degrees separated by blanks and/or a comma (e.g. "48.1234 -11.5678"),
+     * bypassing the regular expressions. In this case the match of {@link DegDecParser} covers the complete text, so it is the best
+     * match of all parsers, and it is used if it is valid.
+     *
+     * @return the parsed coordinates, or null if the text is not of this format or the coordinates are not valid
+     */
+    @Nullable
+    static Geopoint parseDecimalDegrees(@NonNull final String text) {
+        final String trimmed = text.trim();
+        final int latEnd = scanDecimalDegree(trimmed, 0);
+        if (latEnd < 0) {
+            return null;
+        }
+        int lonStart = latEnd;
+        while (lonStart < trimmed.length() && isDecimalDegreesSeparator(trimmed.charAt(lonStart))) {
+            lonStart++;
+        }
+        if (lonStart == latEnd || scanDecimalDegree(trimmed, lonStart) != trimmed.length()) {
+            return null;
+        }
+        final double lat = Double.parseDouble(trimmed.substring(0, latEnd)) + 0.0;
+        final double lon = Double.parseDouble(trimmed.substring(lonStart)) + 0.0;
+        if (!Geopoint.isValidLatitude(lat) || !Geopoint.isValidLongitude(lon)) {
+            return null;
+        }
+        return new Geopoint(lat, lon);
+    }
+
+    private static boolean isDecimalDegreesSeparator(final char c) {
+        return c == ' ' || c == ',' || c == '\t';
+    }
+
+    /**
+     * Scans a number of the form -?DIGITS.DIGITS starting at given position.
+     *
+     * @return the position after the number, or -1 if there is no such number at the position
+     */
+    private static int scanDecimalDegree(@NonNull final String text, final int start) {
+        int pos = start;
+        if (pos < text.length() && text.charAt(pos) == '-') {
+            pos++;
+        }
+        final int intStart = pos;
+        while (pos < text.length() && isAsciiDigit(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos == intStart || pos >= text.length() || text.charAt(pos) != '.') {
+            return -1;
+        }
+        pos++;
+        final int fractionStart = pos;
+        while (pos < text.length() && isAsciiDigit(text.charAt(pos))) {
+            pos++;
+        }
+        return pos == fractionStart ? -1 : pos;
+    }
+
+    private static boolean isAsciiDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
 }
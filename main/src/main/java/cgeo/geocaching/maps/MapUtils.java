@@ -12,6 +12,7 @@ import cgeo.geocaching.downloader.DownloaderUtils;
 import cgeo.geocaching.downloader.HillshadingTileDownloader;
 import cgeo.geocaching.enumerations.LoadFlags;
 import cgeo.geocaching.enumerations.WaypointType;
+import cgeo.geocaching.filters.core.CompiledGeocacheFilter;
 import cgeo.geocaching.filters.core.GeocacheFilter;
 import cgeo.geocaching.filters.core.GeocacheFilterContext;
 import cgeo.geocaching.location.Geopoint;
@@ -124,13 +125,14 @@ public class MapUtils {
         final boolean excludeWpOriginal = Settings.isExcludeWpOriginal();
         final boolean excludeWpParking = Settings.isExcludeWpParking();
         final boolean excludeWpVisited = Settings.isExcludeWpVisited();
+        final CompiledGeocacheFilter compiledFilter = filter == null ? null : filter.compile();
 
         final List<Waypoint> removeList = new ArrayList<>();
         for (final Waypoint wp : waypoints) {
             final Geocache cache = DataStore.loadCache(wp.getGeocode(), LoadFlags.LOAD_CACHE_OR_DB);
             final WaypointType wpt = wp.getWaypointType();
             if (cache == null ||
-                    (filter != null && !filter.filter(cache)) ||
+                    (compiledFilter != null && !compiledFilter.filter(cache)) ||
                     (excludeWpOriginal && wpt == WaypointType.ORIGINAL) ||
                     (excludeWpParking && wpt == WaypointType.PARKING) ||
                     (excludeWpVisited && wp.isVisited())) {
@@ -2,7 +2,6 @@ package cgeo.geocaching.models;
 
 import cgeo.geocaching.enumerations.LoadFlags;
 import cgeo.geocaching.storage.DataStore;
-import cgeo.geocaching.utils.formulas.FormulaUtils;
 import cgeo.geocaching.utils.formulas.VariableList;
 
 import androidx.annotation.NonNull;
@@ -28,6 +27,8 @@ public class CacheVariableList extends VariableList {
     public CacheVariableList(@NonNull final String geocode) {
         this.geocode = geocode;
         loadState();
+        //stored waypoints were calculated with the stored variable values
+        resetChangedVariables();
     }
 
     public String getGeocode() {
@@ -60,6 +61,7 @@ public class CacheVariableList extends VariableList {
 
         this.loadState();
         this.recalculateWaypoints();
+        this.resetChangedVariables();
         this.callCallbacks();
     }
 
@@ -71,6 +73,7 @@ public class CacheVariableList extends VariableList {
         DataStore.upsertVariables(this.geocode, rows);
 
         this.recalculateWaypoints();
+        this.resetChangedVariables();
         this.resetModified();
         this.callCallbacks();
     }
@@ -89,20 +92,17 @@ public class CacheVariableList extends VariableList {
         final Geocache cache = DataStore.loadCache(this.geocode, LoadFlags.LOAD_CACHE_OR_DB);
         if (cache != null) {
             for (Waypoint wp : cache.getWaypoints()) {
-                if (wp.isCalculated()) {
-                    final CalculatedCoordinate cc = CalculatedCoordinate.createFromConfig(wp.getCalcStateConfig());
-                    neededVars.addAll(cc.getNeededVars());
-                }
-                if (wp.hasProjection()) {
-                    FormulaUtils.addNeededVariables(neededVars, wp.getProjectionFormula1());
-                    FormulaUtils.addNeededVariables(neededVars, wp.getProjectionFormula2());
-                }
+                neededVars.addAll(wp.getNeededVariables());
             }
         }
     }
 
+    /** recalculates those waypoints which depend on variables changed since last recalculation */
     private boolean recalculateWaypoints() {
+        if (this.getChangedVariables().isEmpty()) {
+            return false;
+        }
         final Geocache cache = DataStore.loadCache(this.geocode, LoadFlags.LOAD_CACHE_OR_DB);
-        return cache != null && cache.recalculateWaypoints(this);
+        return cache != null && cache.recalculateWaypoints(this, this.getChangedVariables());
     }
 }
@@ -37,11 +37,12 @@ import cgeo.geocaching.log.ReportProblemType;
 import cgeo.geocaching.maps.mapsforge.v6.caches.GeoitemRef;
 import cgeo.geocaching.models.bettercacher.Category;
 import cgeo.geocaching.models.bettercacher.Tier;
-import cgeo.geocaching.network.HtmlImage;
 import cgeo.geocaching.service.GeocacheChangedBroadcastReceiver;
+import cgeo.geocaching.service.ImagePrefetcher;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.storage.ContentStorage;
 import cgeo.geocaching.storage.DataStore;
+import cgeo.geocaching.storage.DataStore.DBImageIndex.ImageSource;
 import cgeo.geocaching.storage.DataStore.StorageLocation;
 import cgeo.geocaching.storage.Folder;
 import cgeo.geocaching.storage.PersistableFolder;
@@ -70,7 +71,6 @@ import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
-import androidx.core.text.HtmlCompat;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -1888,8 +1888,19 @@ public class Geocache implements INamedGeoCoordinate {
     }
 
     public boolean recalculateWaypoints(final CacheVariableList variableList) {
+        return recalculateWaypoints(variableList, null);
+    }
+
+    /**
+     * Recalculates variable-dependent values of waypoints.
+     * If changedVariables is given, then only waypoints depending on at least one of those variables are recalculated
+     */
+    public boolean recalculateWaypoints(final CacheVariableList variableList, @Nullable final Collection<String> changedVariables) {
         boolean hasCalculatedWp = false;
         for (Waypoint wp : getWaypoints()) {
+            if (changedVariables != null && Collections.disjoint(wp.getNeededVariables(), changedVariables)) {
+                continue;
+            }
             hasCalculatedWp |= wp.recalculateVariableDependentValues(variableList);
         }
         if (hasCalculatedWp) {
@@ -2087,7 +2098,7 @@ public class Geocache implements INamedGeoCoordinate {
     }
 
     /**
-     * Download and store a cache synchronous
+     * Download and store a cache synchronous. Its images are queued for download in the background, see {@link ImagePrefetcher}.
      *
      * @param origCache       the cache which should be refreshed, can be null
      * @param geocode         the geocode of the cache which should be downloaded
@@ -2135,46 +2146,24 @@ public class Geocache implements INamedGeoCoordinate {
                 return false;
             }
 
-            final HtmlImage imgGetter = new HtmlImage(cache.getGeocode(), false, true, forceRedownload);
-
-            // store images from description
-            if (StringUtils.isNotBlank(cache.getDescription())) {
-                HtmlCompat.fromHtml(cache.getDescription(), HtmlCompat.FROM_HTML_MODE_LEGACY, imgGetter, null);
-            }
-
-            if (DisposableHandler.isDisposed(handler)) {
-                return false;
-            }
-
-            // store spoilers
+            // images from description, spoilers and logs are downloaded in the background after the cache is stored
+            final List<String> imageUrls = new ArrayList<>();
+            ImageUtils.forEachImageUrlInHtml(imageUrls::add, cache.getDescription());
             if (CollectionUtils.isNotEmpty(cache.getSpoilers())) {
                 for (final Image oneSpoiler : cache.getSpoilers()) {
-                    imgGetter.getDrawable(oneSpoiler.getUrl());
+                    imageUrls.add(oneSpoiler.getUrl());
                 }
             }
-
-            if (DisposableHandler.isDisposed(handler)) {
-                return false;
-            }
-
-            // store images from logs
             if (Settings.isStoreLogImages()) {
                 for (final LogEntry log : cache.getLogs()) {
                     if (log.hasLogImages()) {
                         for (final Image oneLogImg : log.logImages) {
-                            imgGetter.getDrawable(oneLogImg.getUrl());
+                            imageUrls.add(oneLogImg.getUrl());
                         }
                     }
                 }
             }
 
-            if (DisposableHandler.isDisposed(handler)) {
-                return false;
-            }
-
-            // Need to wait for images loading since HtmlImage.getDrawable is non-blocking here
-            imgGetter.waitForEndCompletable(null).blockingAwait();
-
             cache.setLists(lists);
 
             DataStore.saveCache(cache, EnumSet.of(SaveFlag.DB));
@@ -2183,6 +2172,9 @@ public class Geocache implements INamedGeoCoordinate {
                 return false;
             }
 
+            cache.updateImageIndex();
+            ImagePrefetcher.enqueue(cache.getGeocode(), imageUrls, forceRedownload);
+
             if (handler != null) {
                 handler.sendEmptyMessage(DisposableHandler.DONE);
             }
@@ -2261,26 +2253,73 @@ public class Geocache implements INamedGeoCoordinate {
 
     @NonNull
     public Collection<Image> getImages() {
-        final List<Image> result = new LinkedList<>(getSpoilers());
+        final Map<ImageSource, List<Image>> indexedImages = getIndexedImages();
+        final List<Image> result = new LinkedList<>(indexedImages.get(ImageSource.SPOILER));
         ImageUtils.addImagesFromText(result, getPersonalNote());
-        ImageUtils.addImagesFromHtml(result, geocode, getShortDescription(), getDescription());
-        for (final LogEntry log : getLogs()) {
-            result.addAll(log.logImages);
+        final Set<String> urls = new HashSet<>();
+        for (final Image image : result) {
+            urls.add(ImageUtils.imageUrlForSpoilerCompare(image.getUrl()));
+        }
+        for (final Image image : indexedImages.get(ImageSource.DESCRIPTION)) {
+            if (!urls.contains(ImageUtils.imageUrlForSpoilerCompare(image.getUrl()))) {
+                result.add(image);
+            }
         }
+        result.addAll(indexedImages.get(ImageSource.LOG));
         addLocalSpoilersTo(result);
 
         // Deduplicate images and return them in requested size
         final List<Image> uniqueImages = new LinkedList<>();
-        final List<String> uniqueUrls = new ArrayList<>();
+        final Set<String> uniqueUrls = new HashSet<>();
         for (final Image img : result) {
-            if (!uniqueUrls.contains(img.getUrl())) {
-                uniqueUrls.add(img.getUrl());
+            if (uniqueUrls.add(img.getUrl())) {
                 uniqueImages.add(img.buildUpon().setUrl(img.getUrl()).build());
             }
         }
         return uniqueImages;
     }
 
+    /**
+     * Images from spoilers, description and logs, taken from the image index of stored caches. If the index is outdated,
+     * the images are collected from the cache data and the index is rebuilt in the background.
+     */
+    @NonNull
+    private Map<ImageSource, List<Image>> getIndexedImages() {
+        if (!isOffline()) {
+            return collectIndexedImages();
+        }
+        final Map<ImageSource, List<Image>> indexedImages = DataStore.DBImageIndex.load(geocode);
+        if (indexedImages != null) {
+            return indexedImages;
+        }
+        final Map<ImageSource, List<Image>> images = collectIndexedImages();
+        Schedulers.io().scheduleDirect(() -> DataStore.DBImageIndex.replace(geocode, images));
+        return images;
+    }
+
+    /**
+     * rebuilds the image index of this cache from its data
+     */
+    @WorkerThread
+    public void updateImageIndex() {
+        DataStore.DBImageIndex.replace(geocode, collectIndexedImages());
+    }
+
+    @NonNull
+    private Map<ImageSource, List<Image>> collectIndexedImages() {
+        final Map<ImageSource, List<Image>> images = new EnumMap<>(ImageSource.class);
+        images.put(ImageSource.SPOILER, new ArrayList<>(getSpoilers()));
+        final List<Image> descriptionImages = new ArrayList<>();
+        ImageUtils.addImagesFromHtml(descriptionImages, geocode, getShortDescription(), getDescription());
+        images.put(ImageSource.DESCRIPTION, descriptionImages);
+        final List<Image> logImages = new ArrayList<>();
+        for (final LogEntry log : getLogs()) {
+            logImages.addAll(log.logImages);
+        }
+        images.put(ImageSource.LOG, logImages);
+        return images;
+    }
+
     @NonNull
     public List<Image> getNonStaticImages() {
         final ArrayList<Image> result = new ArrayList<>();
@@ -54,6 +54,10 @@ public class Route implements IGeoItemSupplier, Parcelable {
         return name;
     }
 
+    public boolean isRouteable() {
+        return routeable;
+    }
+
     public void add(final RouteSegment segment) {
         if (null == segments) {
             segments = new ArrayList<>();
@@ -86,8 +90,11 @@ public class Route implements IGeoItemSupplier, Parcelable {
     @Override
     public Viewport getViewport() {
         final Viewport.ContainingViewportBuilder cvb = new Viewport.ContainingViewportBuilder();
-        for (RouteSegment rs : getSegments()) {
-            cvb.add(rs.getPoints());
+        final RouteSegment[] routeSegments = getSegments();
+        if (routeSegments != null) {
+            for (RouteSegment rs : routeSegments) {
+                cvb.add(rs.getPoints());
+            }
         }
         return cvb.getViewport();
     }
@@ -15,6 +15,7 @@ import cgeo.geocaching.utils.ClipboardUtils;
 import cgeo.geocaching.utils.MatcherWrapper;
 import cgeo.geocaching.utils.TextParser;
 import cgeo.geocaching.utils.formulas.Formula;
+import cgeo.geocaching.utils.formulas.FormulaUtils;
 import cgeo.geocaching.utils.formulas.Value;
 import cgeo.geocaching.utils.formulas.VariableList;
 import static cgeo.geocaching.utils.Formatter.generateShortGeocode;
@@ -379,6 +380,22 @@ public class Waypoint implements INamedGeoCoordinate {
         return projectionType != ProjectionType.NO_PROJECTION;
     }
 
+    /**
+     * Returns all variables which values in this waypoint (calculated coordinates, projection) depend on
+     */
+    @NonNull
+    public Set<String> getNeededVariables() {
+        final Set<String> neededVars = new HashSet<>();
+        if (isCalculated()) {
+            neededVars.addAll(getCalculated().getNeededVars());
+        }
+        if (hasProjection()) {
+            FormulaUtils.addNeededVariables(neededVars, getProjectionFormula1());
+            FormulaUtils.addNeededVariables(neededVars, getProjectionFormula2());
+        }
+        return neededVars;
+    }
+
     /**
      * Recalculates all values in this waypoint which are depending on variable list.
      * Returns whether a recalculation was actually done
@@ -0,0 +1,335 @@
+package cgeo.geocaching.models.geoitem;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Level-of-detail (LOD) representation of a GeoItem for drawing on a map.
+ * <br>
+ * All polylines contained in the source item are simplified ONCE using the Douglas-Peucker algorithm. For each
+ * point the tolerance up to which it survives simplification is remembered, so the simplified line for any
+ * zoom band can afterwards be extracted in linear time without running the algorithm again.
+ * <br>
+ * For a given viewport, {@link #forViewport(Viewport)} returns an item where polylines are reduced to the
+ * zoom band matching the viewport and clipped to (an enlarged version of) the viewport. The number of points
+ * handed out is limited to {@link #MAX_POINTS_PER_VIEWPORT}. All other primitives (markers, polygons, circles)
+ * are passed through unchanged.
+ * <br>
+ * If several items are drawn together (e.g. on one map layer), {@link #getZoomBandWithinBudget(Collection, Viewport, int)}
+ * finds one zoom band for all of them, so the point budget applies to all items together.
+ */
+public class GeoItemLevelOfDetail {
+
+    /** highest zoom band. Bands correspond to tile zoom levels of map providers. Highest band means "no simplification" */
+    public static final int MAX_ZOOM_BAND = 21;
+
+    /** maximum number of polyline points (summed over all contained polylines or items) to hand out for one viewport */
+    public static final int MAX_POINTS_PER_VIEWPORT = 4000;
+
+    /** polylines with less points than this are never simplified */
+    private static final int MIN_POINTS_FOR_SIMPLIFICATION = 64;
+
+    /** assumed screen width in pixels, used to derive a zoom band from a viewport */
+    private static final int ASSUMED_VIEWPORT_WIDTH_PX = 1024;
+
+    /** clipping is done against an enlarged viewport so small pans don't require a recalculation */
+    private static final double CLIP_VIEWPORT_FACTOR = 3.0;
+
+    @NonNull private final GeoItem source;
+    @NonNull private final List<GeoPrimitive> fixedPrimitives = new ArrayList<>();
+    @NonNull private final List<SimplifiedLine> lines = new ArrayList<>();
+    private final int sourcePointCount;
+
+    //cached last result
+    private int lastZoomBand = -1;
+    private Viewport lastClipViewport = null;
+    private GeoItem lastResult = null;
+
+    /** A polyline together with the precalculated simplification tolerances for each of its points */
+    private static final class SimplifiedLine {
+
+        @NonNull private final GeoPrimitive source;
+        @NonNull private final float[] tolerances;
+        @NonNull private final int[][] bandIndexes = new int[MAX_ZOOM_BAND + 1][];
+
+        SimplifiedLine(@NonNull final GeoPrimitive source) {
+            this.source = source;
+            this.tolerances = calculateTolerances(source.getPoints());
+        }
+
+        /** returns the indexes of the points which survive simplification in the given zoom band */
+        @NonNull
+        int[] getIndexes(final int zoomBand) {
+            if (bandIndexes[zoomBand] == null) {
+                final float tolerance = zoomBand >= MAX_ZOOM_BAND ? 0f : (float) getToleranceForZoomBand(zoomBand);
+                int count = 0;
+                for (float t : tolerances) {
+                    if (t >= tolerance) {
+                        count++;
+                    }
+                }
+                final int[] indexes = new int[count];
+                int idx = 0;
+                for (int i = 0; i < tolerances.length; i++) {
+                    if (tolerances[i] >= tolerance) {
+                        indexes[idx++] = i;
+                    }
+                }
+                bandIndexes[zoomBand] = indexes;
+            }
+            return bandIndexes[zoomBand];
+        }
+
+        /**
+         * adds the (simplified and optionally clipped) parts of this line to the given list, returns the number of added points.
+         * If no list is given, the points are only counted
+         */
+        int addParts(final int zoomBand, @Nullable final Viewport clip, @Nullable final List<GeoPrimitive> result) {
+            final List<Geopoint> points = source.getPoints();
+            final int[] indexes = getIndexes(zoomBand);
+            int pointCount = 0;
+            List<Geopoint> part = new ArrayList<>();
+            for (int i = 1; i < indexes.length; i++) {
+                final Geopoint from = points.get(indexes[i - 1]);
+                final Geopoint to = points.get(indexes[i]);
+                if (clip == null || intersects(clip, from, to)) {
+                    if (part.isEmpty()) {
+                        part.add(from);
+                    }
+                    part.add(to);
+                } else if (!part.isEmpty()) {
+                    pointCount += addPart(part, result);
+                    part = new ArrayList<>();
+                }
+            }
+            if (!part.isEmpty()) {
+                pointCount += addPart(part, result);
+            }
+            return pointCount;
+        }
+
+        private int addPart(final List<Geopoint> part, @Nullable final List<GeoPrimitive> result) {
+            if (part.size() < 2) {
+                return 0;
+            }
+            if (result == null) {
+                return part.size();
+            }
+            result.add(GeoPrimitive.builder().setType(GeoItem.GeoType.POLYLINE).addPoints(part)
+                    .setStyle(source.getStyle()).setZLevel(source.getZLevel()).build());
+            return part.size();
+        }
+    }
+
+    public GeoItemLevelOfDetail(@NonNull final GeoItem source) {
+        this.source = source;
+        final int[] count = new int[]{0};
+        GeoGroup.forAllPrimitives(source, p -> {
+            if (p.getType() == GeoItem.GeoType.POLYLINE && p.getPoints().size() >= MIN_POINTS_FOR_SIMPLIFICATION) {
+                lines.add(new SimplifiedLine(p));
+                count[0] += p.getPoints().size();
+            } else {
+                fixedPrimitives.add(p);
+            }
+        });
+        this.sourcePointCount = count[0];
+    }
+
+    @NonNull
+    public GeoItem getSource() {
+        return source;
+    }
+
+    /** number of polyline points in source which are subject to simplification */
+    public int getSourcePointCount() {
+        return sourcePointCount;
+    }
+
+    /**
+     * Returns a representation of the source item suitable for drawing the given viewport, limited to {@link #MAX_POINTS_PER_VIEWPORT}.
+     * If the returned item would not differ from the last call, the very same instance is returned again.
+     * If viewport is not valid, a simplified but unclipped representation is returned.
+     */
+    @NonNull
+    public GeoItem forViewport(@Nullable final Viewport viewport) {
+        return forViewport(viewport, getZoomBandWithinBudget(Collections.singleton(this), viewport, MAX_POINTS_PER_VIEWPORT));
+    }
+
+    /**
+     * Returns a representation of the source item for the given viewport, simplified to the given zoom band.
+     * If the returned item would not differ from the last call, the very same instance is returned again.
+     * If viewport is not valid, the representation is not clipped.
+     */
+    @NonNull
+    public synchronized GeoItem forViewport(@Nullable final Viewport viewport, final int zoomBand) {
+        if (lines.isEmpty()) {
+            return source;
+        }
+        final boolean validViewport = Viewport.isValid(viewport);
+        if (lastResult != null && zoomBand == lastZoomBand &&
+                (validViewport ? lastClipViewport != null && lastClipViewport.includes(viewport) : lastClipViewport == null)) {
+            return lastResult;
+        }
+
+        final Viewport clip = getClipViewport(viewport);
+        final List<GeoPrimitive> parts = new ArrayList<>(fixedPrimitives);
+        for (SimplifiedLine line : lines) {
+            line.addParts(zoomBand, clip, parts);
+        }
+
+        lastZoomBand = zoomBand;
+        lastClipViewport = clip;
+        lastResult = GeoGroup.create(parts);
+        return lastResult;
+    }
+
+    /** number of polyline points handed out for the given viewport and zoom band */
+    private synchronized int getPointCount(@Nullable final Viewport viewport, final int zoomBand) {
+        final Viewport clip = getClipViewport(viewport);
+        int pointCount = 0;
+        for (SimplifiedLine line : lines) {
+            pointCount += line.addParts(zoomBand, clip, null);
+        }
+        return pointCount;
+    }
+
+    /**
+     * returns the highest zoom band up to the one fitting the given viewport, for which the given items together
+     * hand out at most maxPoints polyline points. If even zoom band 0 exceeds the budget, 0 is returned
+     */
+    public static int getZoomBandWithinBudget(@NonNull final Collection<GeoItemLevelOfDetail> items, @Nullable final Viewport viewport, final int maxPoints) {
+        int band = Viewport.isValid(viewport) ? getZoomBand(viewport) : MAX_ZOOM_BAND;
+        while (band > 0) {
+            int pointCount = 0;
+            for (GeoItemLevelOfDetail item : items) {
+                pointCount += item.getPointCount(viewport, band);
+                if (pointCount > maxPoints) {
+                    break;
+                }
+            }
+            if (pointCount <= maxPoints) {
+                break;
+            }
+            band--;
+        }
+        return band;
+    }
+
+    @Nullable
+    private static Viewport getClipViewport(@Nullable final Viewport viewport) {
+        return Viewport.isValid(viewport) ? viewport.resize(CLIP_VIEWPORT_FACTOR) : null;
+    }
+
+    /** returns the zoom band fitting to the given viewport */
+    public static int getZoomBand(@NonNull final Viewport viewport) {
+        final double degreesPerPixel = Math.max(viewport.getLongitudeSpan(), viewport.getLatitudeSpan()) / ASSUMED_VIEWPORT_WIDTH_PX;
+        if (degreesPerPixel <= 0) {
+            return MAX_ZOOM_BAND;
+        }
+        final int band = (int) Math.floor(Math.log(360d / 256d / degreesPerPixel) / Math.log(2));
+        return Math.max(0, Math.min(MAX_ZOOM_BAND, band));
+    }
+
+    /** simplification tolerance (in degrees) for a zoom band. Corresponds to the size of one pixel at equator */
+    public static double getToleranceForZoomBand(final int zoomBand) {
+        return 360d / 256d / (1L << zoomBand);
+    }
+
+    /**
+     * Runs Douglas-Peucker on the given points and returns for each point the maximum tolerance (in degrees)
+     * up to which this point is retained. First and last point are always retained.
+     * <br>
+     * Tolerance of a point is capped by the tolerance of the point which caused its segment to be split,
+     * thus filtering points by "tolerance >= x" yields exactly the Douglas-Peucker result for tolerance x.
+     */
+    @NonNull
+    static float[] calculateTolerances(@NonNull final List<Geopoint> points) {
+        final int size = points.size();
+        final float[] tolerances = new float[size];
+        if (size == 0) {
+            return tolerances;
+        }
+
+        //project to a locally equidistant plane (longitude scaled by cos of mean latitude)
+        double latSum = 0;
+        for (Geopoint gp : points) {
+            latSum += gp.getLatitude();
+        }
+        final double lonFactor = Math.cos(Math.toRadians(latSum / size));
+        final double[] xs = new double[size];
+        final double[] ys = new double[size];
+        for (int i = 0; i < size; i++) {
+            final Geopoint gp = points.get(i);
+            xs[i] = gp.getLongitude() * lonFactor;
+            ys[i] = gp.getLatitude();
+        }
+
+        tolerances[0] = Float.MAX_VALUE;
+        tolerances[size - 1] = Float.MAX_VALUE;
+
+        //iterative instead of recursive to prevent stack overflows on large tracks
+        final int[] stackStart = new int[size];
+        final int[] stackEnd = new int[size];
+        final float[] stackTolerance = new float[size];
+        int stackSize = 0;
+        stackStart[stackSize] = 0;
+        stackEnd[stackSize] = size - 1;
+        stackTolerance[stackSize++] = Float.MAX_VALUE;
+        while (stackSize > 0) {
+            stackSize--;
+            final int start = stackStart[stackSize];
+            final int end = stackEnd[stackSize];
+            final float parentTolerance = stackTolerance[stackSize];
+            if (end - start < 2) {
+                continue;
+            }
+            double maxDist = -1;
+            int maxIdx = start + 1;
+            for (int i = start + 1; i < end; i++) {
+                final double dist = segmentDistance(xs[i], ys[i], xs[start], ys[start], xs[end], ys[end]);
+                if (dist > maxDist) {
+                    maxDist = dist;
+                    maxIdx = i;
+                }
+            }
+            final float tolerance = Math.min(parentTolerance, (float) maxDist);
+            tolerances[maxIdx] = tolerance;
+            stackStart[stackSize] = start;
+            stackEnd[stackSize] = maxIdx;
+            stackTolerance[stackSize++] = tolerance;
+            stackStart[stackSize] = maxIdx;
+            stackEnd[stackSize] = end;
+            stackTolerance[stackSize++] = tolerance;
+        }
+        return tolerances;
+    }
+
+    /** distance of point p to the line segment a-b */
+    private static double segmentDistance(final double px, final double py, final double ax, final double ay, final double bx, final double by) {
+        final double dx = bx - ax;
+        final double dy = by - ay;
+        final double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((px - ax) * dx + (py - ay) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        final double ex = px - (ax + t * dx);
+        final double ey = py - (ay + t * dy);
+        return Math.sqrt(ex * ex + ey * ey);
+    }
+
+    /** checks whether the bounding box of segment from-to intersects the given viewport */
+    private static boolean intersects(@NonNull final Viewport vp, @NonNull final Geopoint from, @NonNull final Geopoint to) {
+        return Math.max(from.getLatitudeE6(), to.getLatitudeE6()) >= vp.bottomLeft.getLatitudeE6() &&
+                Math.min(from.getLatitudeE6(), to.getLatitudeE6()) <= vp.topRight.getLatitudeE6() &&
+                Math.max(from.getLongitudeE6(), to.getLongitudeE6()) >= vp.bottomLeft.getLongitudeE6() &&
+                Math.min(from.getLongitudeE6(), to.getLongitudeE6()) <= vp.topRight.getLongitudeE6();
+    }
+
+}
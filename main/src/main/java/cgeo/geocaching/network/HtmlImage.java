@@ -3,8 +3,9 @@ package cgeo.geocaching.network;
 import cgeo.geocaching.CgeoApplication;
 import cgeo.geocaching.connector.ConnectorFactory;
 import cgeo.geocaching.storage.ContentStorage;
-import cgeo.geocaching.storage.LocalStorage;
+import cgeo.geocaching.storage.ImageStore;
 import cgeo.geocaching.utils.AndroidRxUtils;
+import cgeo.geocaching.utils.BitmapPool;
 import cgeo.geocaching.utils.DisplayUtils;
 import cgeo.geocaching.utils.DisposableHandler;
 import cgeo.geocaching.utils.FileUtils;
@@ -27,9 +28,13 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
@@ -91,6 +96,7 @@ public class HtmlImage implements Html.ImageGetter {
     private final Resources resources;
     final WeakReference<TextView> viewRef;
     private boolean loadMetadata = false;
+    private int thumbnailSize = 0;
 
     private final Map<String, BitmapDrawable> cache = new HashMap<>();
 
@@ -251,7 +257,7 @@ public class HtmlImage implements Html.ImageGetter {
             return Observable.defer(() -> {
                 final ImmutableTriple<Bitmap, Metadata, Boolean> data = loadCachedImage(FileUtils.urlToFile(url), true);
                 return data != null && data.left != null ?
-                    Observable.just(new ImageData(ImageUtils.scaleBitmapToDisplay(data.left), data.middle, Uri.parse(url))) :
+                    Observable.just(new ImageData(scaleImage(data.left), data.middle, Uri.parse(url))) :
                         Observable.just(IMAGE_ERROR_DATA);
             }).subscribeOn(AndroidRxUtils.computationScheduler);
         }
@@ -263,12 +269,12 @@ public class HtmlImage implements Html.ImageGetter {
 
                 final ImmutableTriple<Bitmap, Metadata, Boolean> data = loadCachedImage(uri, true, -1);
                 return data != null && data.left != null ?
-                    Observable.just(new ImageData(ImageUtils.scaleBitmapToDisplay(data.left), data.middle, uri)) :
+                    Observable.just(new ImageData(scaleImage(data.left), data.middle, uri)) :
                         Observable.just(IMAGE_ERROR_DATA);
             }).subscribeOn(AndroidRxUtils.computationScheduler);
         }
 
-        final boolean shared = url.contains("/images/icons/icon_");
+        final boolean shared = isShared(url);
         final String pseudoGeocode = shared ? SHARED : geocode;
 
         return Observable.create(new ObservableOnSubscribe<ImageData>() {
@@ -303,7 +309,7 @@ public class HtmlImage implements Html.ImageGetter {
             }
 
             private void downloadAndSave(final ObservableEmitter<ImageData> emitter, final Disposable disposable) {
-                final File file = LocalStorage.getGeocacheDataFile(pseudoGeocode, url, true, true);
+                final File file = ImageStore.getDownloadFile(pseudoGeocode, url);
                 if (url.startsWith("data:image/")) {
                     if (url.contains(";base64,")) {
                         ImageUtils.decodeBase64ToFile(StringUtils.substringAfter(url, ";base64,"), file);
@@ -312,11 +318,14 @@ public class HtmlImage implements Html.ImageGetter {
                         emitter.onComplete();
                         return;
                     }
-                } else if (disposable.isDisposed() || downloadOrRefreshCopy(url, file)) {
+                } else if (disposable.isDisposed() || downloadOrRefreshCopy(url, pseudoGeocode, file)) {
                     // The existing copy was fresh enough or we were unsubscribed earlier.
                     emitter.onComplete();
                     return;
                 }
+                if (file.isFile()) {
+                    ImageStore.put(pseudoGeocode, url, file);
+                }
                 if (onlySave) {
                     emitter.onComplete();
                     return;
@@ -335,6 +344,22 @@ public class HtmlImage implements Html.ImageGetter {
         });
     }
 
+    private static boolean isShared(@NonNull final String url) {
+        return url.contains("/images/icons/icon_");
+    }
+
+    /**
+     * @return whether the image of the given URL can be shown without downloading it, i.e. it is stored for the geocode
+     * (or as shared image) or it is not downloaded at all (local, blocked or empty URL)
+     */
+    @WorkerThread
+    public static boolean isAvailableOffline(@NonNull final String geocode, @Nullable final String url) {
+        if (StringUtils.isBlank(url) || ImageUtils.containsPattern(url, BLOCKED) || FileUtils.isFileUrl(url) || UriUtils.isContentUri(Uri.parse(url))) {
+            return true;
+        }
+        return ImageStore.getFile(isShared(url) ? SHARED : geocode, url) != null;
+    }
+
     private BitmapDrawable getErrorImage() {
         return getErrorImage(resources, returnErrorImage);
     }
@@ -347,7 +372,18 @@ public class HtmlImage implements Html.ImageGetter {
     }
 
     protected BitmapDrawable scaleImage(final Bitmap bitmap) {
-        return bitmap != null ? ImageUtils.scaleBitmapToDisplay(bitmap) : null;
+        if (bitmap == null) {
+            return null;
+        }
+        if (thumbnailSize > 0) {
+            // already scaled while loading
+            return new BitmapDrawable(resources, bitmap);
+        }
+        final BitmapDrawable drawable = ImageUtils.scaleBitmapToDisplay(bitmap);
+        if (drawable.getBitmap() != bitmap) {
+            BitmapPool.put(bitmap);
+        }
+        return drawable;
     }
 
     public Completable waitForEndCompletable(@Nullable final DisposableHandler handler) {
@@ -363,23 +399,34 @@ public class HtmlImage implements Html.ImageGetter {
     }
 
     /**
-     * Download or refresh the copy of {@code url} in {@code file}.
+     * Load images as thumbnails fitting into a square of the given size (in pixels) instead of fitting them to the display.
+     * Thumbnails of stored images are kept on disk next to the images.
+     */
+    public void setThumbnailSize(final int thumbnailSize) {
+        this.thumbnailSize = thumbnailSize;
+    }
+
+    /**
+     * Download the document at {@code url} to {@code file}, or refresh the copy stored for {@code pseudoGeocode}.
      *
-     * @param url  the url of the document
-     * @param file the file to save the document in
+     * @param url           the url of the document
+     * @param pseudoGeocode the geocode or the shared name the document is stored for
+     * @param file          the file to save the document in
      * @return {@code true} if the existing file was up-to-date, {@code false} otherwise
      */
-    private boolean downloadOrRefreshCopy(@NonNull final String url, final File file) {
+    private boolean downloadOrRefreshCopy(@NonNull final String url, @NonNull final String pseudoGeocode, final File file) {
         final String absoluteURL = makeAbsoluteURL(url);
 
         if (absoluteURL != null) {
             try {
-                final Response httpResponse = Network.getRequest(absoluteURL, null, file).blockingGet();
+                final File storedFile = ImageStore.getFile(pseudoGeocode, url);
+                final Parameters validationHeaders = storedFile == null ? null : ImageStore.getValidationHeaders(pseudoGeocode, url);
+                final Response httpResponse = Network.getRequest(absoluteURL, null, validationHeaders).blockingGet();
                 if (httpResponse.isSuccessful()) {
                     FileUtils.saveEntityToFile(httpResponse, file);
-                } else if (httpResponse.code() == 304) {
-                    if (!file.setLastModified(System.currentTimeMillis())) {
-                        makeFreshCopy(file);
+                } else if (httpResponse.code() == 304 && storedFile != null) {
+                    if (!storedFile.setLastModified(System.currentTimeMillis())) {
+                        makeFreshCopy(storedFile);
                     }
                     return true;
                 }
@@ -420,10 +467,12 @@ public class HtmlImage implements Html.ImageGetter {
     @NonNull
     private InternalImageData loadImageFromStorage(final String url, @NonNull final String pseudoGeocode, final boolean forceKeep) {
         try {
-            final File file = LocalStorage.getGeocacheDataFile(pseudoGeocode, url, true, false);
-            final ImmutableTriple<Bitmap, Metadata, Boolean> image = loadCachedImage(file, forceKeep);
-            if (image.right || image.left != null) {
-                return new InternalImageData(image.left, null, image.middle, Uri.fromFile(file), image.right);
+            final File file = ImageStore.getFile(pseudoGeocode, url);
+            if (file != null) {
+                final ImmutableTriple<Bitmap, Metadata, Boolean> image = loadCachedImage(file, forceKeep);
+                if (image.right || image.left != null) {
+                    return new InternalImageData(image.left, null, image.middle, Uri.fromFile(file), image.right);
+                }
             }
         } catch (final Exception e) {
             Log.w("HtmlImage.loadImageFromStorage", e);
@@ -472,13 +521,21 @@ public class HtmlImage implements Html.ImageGetter {
     @NonNull
     private ImmutableTriple<Bitmap, Metadata, Boolean> loadCachedImage(final File file, final boolean forceKeep) {
         if (file.isFile()) {
-            return loadCachedImage(Uri.fromFile(file), forceKeep, file.lastModified());
+            return loadCachedImage(Uri.fromFile(file), forceKeep, file.lastModified(), thumbnailSize > 0 ? ImageStore.getThumbnailFile(file, thumbnailSize) : null);
         }
         return ImmutableTriple.of(null, null, false);
     }
 
     @NonNull
     private ImmutableTriple<Bitmap, Metadata, Boolean> loadCachedImage(final Uri uri, final boolean forceKeep, final long lastModified) {
+        return loadCachedImage(uri, forceKeep, lastModified, null);
+    }
+
+    /**
+     * @param thumbnailFile file keeping the thumbnail of the image, or {@code null} if the thumbnail is not to be kept
+     */
+    @NonNull
+    private ImmutableTriple<Bitmap, Metadata, Boolean> loadCachedImage(final Uri uri, final boolean forceKeep, final long lastModified, @Nullable final File thumbnailFile) {
 
         // An image is considered fresh enough if the image exists and one of those conditions is true:
         //  - forceKeep is true and the image has not been modified in the last 24 hours, to avoid reloading shared images;
@@ -491,11 +548,13 @@ public class HtmlImage implements Html.ImageGetter {
         if (freshEnough && onlySave) {
             return ImmutableTriple.of(null, null, true);
         }
-        final BitmapFactory.Options bfOptions = new BitmapFactory.Options();
-        bfOptions.inTempStorage = new byte[16 * 1024];
-        bfOptions.inPreferredConfig = Bitmap.Config.RGB_565;
-        setSampleSize(uri, bfOptions);
-        final Bitmap image = ImageUtils.readImageFromStream(() -> ContentStorage.get().openForRead(uri), bfOptions, uri);
+        Bitmap image = thumbnailFile != null && thumbnailFile.isFile() ? decodeImage(Uri.fromFile(thumbnailFile)) : null;
+        if (image == null) {
+            image = decodeImage(uri);
+            if (image != null && thumbnailSize > 0) {
+                image = createThumbnail(image, thumbnailFile);
+            }
+        }
         if (image == null) {
             return ImmutableTriple.of(null, null, false);
         }
@@ -511,6 +570,50 @@ public class HtmlImage implements Html.ImageGetter {
         return ImmutableTriple.of(image, metadata, freshEnough);
     }
 
+    /**
+     * Decode the image, downsampled to the display or thumbnail size, into a pooled bitmap if possible.
+     */
+    @Nullable
+    private Bitmap decodeImage(final Uri uri) {
+        final BitmapFactory.Options bfOptions = new BitmapFactory.Options();
+        bfOptions.inTempStorage = new byte[16 * 1024];
+        bfOptions.inPreferredConfig = Bitmap.Config.RGB_565;
+        setSampleSize(uri, bfOptions);
+        Bitmap image = ImageUtils.readImageFromStream(() -> ContentStorage.get().openForRead(uri), bfOptions, uri);
+        if (image == null && BitmapPool.clearReuse(bfOptions)) {
+            // the pooled bitmap could not be used for this image
+            image = ImageUtils.readImageFromStream(() -> ContentStorage.get().openForRead(uri), bfOptions, uri);
+        }
+        return image;
+    }
+
+    /**
+     * Scale the image to the thumbnail size and save the thumbnail, if a file is given.
+     */
+    @NonNull
+    private Bitmap createThumbnail(@NonNull final Bitmap image, @Nullable final File thumbnailFile) {
+        Bitmap thumbnail = image;
+        final ImmutableTriple<Integer, Integer, Boolean> size = ImageUtils.calculateScaledImageSizes(image.getWidth(), image.getHeight(), thumbnailSize, thumbnailSize);
+        if (size.right) {
+            thumbnail = Bitmap.createScaledBitmap(image, size.left, size.middle, true);
+            if (thumbnail != image) {
+                BitmapPool.put(image);
+            }
+        }
+        if (thumbnailFile != null) {
+            final File tempFile = new File(thumbnailFile.getPath() + "-temp");
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                thumbnail.compress(thumbnail.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG, 85, out);
+            } catch (final IOException e) {
+                Log.w("HtmlImage.createThumbnail: cannot write " + thumbnailFile, e);
+            }
+            if (!tempFile.renameTo(thumbnailFile)) {
+                FileUtils.deleteIgnoringFailure(tempFile);
+            }
+        }
+        return thumbnail;
+    }
+
     private void setSampleSize(final Uri uri, final BitmapFactory.Options bfOptions) {
         //Decode image size only
         final BitmapFactory.Options options = new BitmapFactory.Options();
@@ -530,11 +633,10 @@ public class HtmlImage implements Html.ImageGetter {
             IOUtils.closeQuietly(stream);
         }
 
-        int scale = 1;
-        if (options.outHeight > maxHeight || options.outWidth > maxWidth) {
-            scale = Math.max(options.outHeight / maxHeight, options.outWidth / maxWidth);
-        }
+        final int scale = thumbnailSize > 0 ? ImageUtils.calculateSampleSize(options.outWidth, options.outHeight, thumbnailSize, thumbnailSize)
+                : ImageUtils.calculateSampleSize(options.outWidth, options.outHeight, maxWidth, maxHeight);
         bfOptions.inSampleSize = scale;
+        BitmapPool.prepareDecode(bfOptions, (options.outWidth + scale - 1) / scale, (options.outHeight + scale - 1) / scale);
     }
 
     private static void delayForTest() {
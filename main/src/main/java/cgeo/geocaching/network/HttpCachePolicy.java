@@ -0,0 +1,82 @@
+package cgeo.geocaching.network;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Caching policy for endpoints whose responses may be reused from the HTTP disk cache although the server
+ * does not send any caching information.
+ * <br>
+ * Policies only apply to successful GET responses without Cache-Control and Expires headers. Whatever a server
+ * states explicitly (including validators like ETag) is honored by the cache as is.
+ */
+final class HttpCachePolicy {
+
+    private static final List<HttpCachePolicy> POLICIES = Arrays.asList(
+            // images are stored under unique names and never change
+            new HttpCachePolicy("img.geocaching.com", "/", TimeUnit.DAYS.toSeconds(7)),
+            new HttpCachePolicy("geocaching.com", "/images/", TimeUnit.DAYS.toSeconds(1)),
+            // votes change rarely, but the own vote is evicted after voting (see GCVote)
+            new HttpCachePolicy("ssl.webpack.de", "/gcvote.com/getVotes.php", TimeUnit.MINUTES.toSeconds(5)),
+            new HttpCachePolicy("gcvote.com", "/getVotes.php", TimeUnit.MINUTES.toSeconds(5))
+    );
+
+    private final String hostSuffix;
+    private final String pathPrefix;
+    private final long maxAgeSeconds;
+
+    private HttpCachePolicy(@NonNull final String hostSuffix, @NonNull final String pathPrefix, final long maxAgeSeconds) {
+        this.hostSuffix = hostSuffix;
+        this.pathPrefix = pathPrefix;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    private boolean matches(@NonNull final HttpUrl url) {
+        final String host = url.host();
+        return (host.equals(hostSuffix) || host.endsWith("." + hostSuffix)) && url.encodedPath().startsWith(pathPrefix);
+    }
+
+    @Nullable
+    static HttpCachePolicy find(@NonNull final HttpUrl url) {
+        for (HttpCachePolicy policy : POLICIES) {
+            if (policy.matches(url)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    /** network interceptor adding the max-age of the matching policy to responses without caching information */
+    static class PolicyInterceptor implements Interceptor {
+
+        @Override
+        @NonNull
+        public Response intercept(final Interceptor.Chain chain) throws IOException {
+            final Request request = chain.request();
+            final Response response = chain.proceed(request);
+            if (!"GET".equals(request.method()) || response.code() != 200
+                    || StringUtils.isNotBlank(response.header("Cache-Control")) || StringUtils.isNotBlank(response.header("Expires"))) {
+                return response;
+            }
+            final HttpCachePolicy policy = find(request.url());
+            if (policy == null) {
+                return response;
+            }
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "max-age=" + policy.maxAgeSeconds)
+                    .build();
+        }
+    }
+}
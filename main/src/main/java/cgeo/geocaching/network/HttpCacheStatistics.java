@@ -0,0 +1,72 @@
+package cgeo.geocaching.network;
+
+import cgeo.geocaching.utils.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Response;
+
+/**
+ * Counters for the HTTP disk cache and the coalescing of identical requests, logged regularly.
+ */
+final class HttpCacheStatistics {
+
+    /** statistics are logged after this many responses */
+    private static final int LOG_INTERVAL = 100;
+
+    private static final AtomicLong REQUESTS = new AtomicLong();
+    private static final AtomicLong CACHE_HITS = new AtomicLong();
+    private static final AtomicLong CONDITIONAL_HITS = new AtomicLong();
+    private static final AtomicLong COALESCED = new AtomicLong();
+    private static final AtomicLong BYTES_SAVED = new AtomicLong();
+
+    private HttpCacheStatistics() {
+        // utility class
+    }
+
+    /** registers a response passed to the caller of a request */
+    static void onResponse(@NonNull final Response response) {
+        final Response cacheResponse = response.cacheResponse();
+        final Response networkResponse = response.networkResponse();
+        if (cacheResponse != null && (networkResponse == null || networkResponse.code() == 304)) {
+            (networkResponse == null ? CACHE_HITS : CONDITIONAL_HITS).incrementAndGet();
+            addBytesSaved(response);
+        }
+        countRequest();
+    }
+
+    /** registers a response shared with the caller of an identical request in flight */
+    static void onCoalesced(final long bytes) {
+        COALESCED.incrementAndGet();
+        BYTES_SAVED.addAndGet(bytes);
+        countRequest();
+    }
+
+    private static void addBytesSaved(@NonNull final Response response) {
+        final String contentLength = response.header("Content-Length");
+        if (contentLength != null) {
+            try {
+                BYTES_SAVED.addAndGet(Long.parseLong(contentLength));
+            } catch (NumberFormatException ignored) {
+                // unknown size
+            }
+        }
+    }
+
+    private static void countRequest() {
+        if (REQUESTS.incrementAndGet() % LOG_INTERVAL == 0) {
+            Log.d("HTTP-CACHE: " + getSummary());
+        }
+    }
+
+    @NonNull
+    static String getSummary() {
+        final long requests = REQUESTS.get();
+        final long hits = CACHE_HITS.get() + CONDITIONAL_HITS.get();
+        return "requests=" + requests + ", hits=" + CACHE_HITS.get() + ", conditional hits=" + CONDITIONAL_HITS.get()
+                + ", hit rate=" + (requests == 0 ? 0 : hits * 100 / requests) + "%, coalesced=" + COALESCED.get()
+                + ", bytes saved=" + BYTES_SAVED.get();
+    }
+}
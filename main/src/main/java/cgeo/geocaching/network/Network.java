@@ -2,12 +2,14 @@ package cgeo.geocaching.network;
 
 import cgeo.geocaching.BuildConfig;
 import cgeo.geocaching.CgeoApplication;
+import cgeo.geocaching.storage.LocalStorage;
 import cgeo.geocaching.utils.CollectionStream;
 import cgeo.geocaching.utils.FileUtils;
 import cgeo.geocaching.utils.JsonUtils;
 import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.RxOkHttpUtils;
 import cgeo.geocaching.utils.TextUtils;
+import cgeo.geocaching.utils.functions.Func0;
 
 import android.content.Context;
 import android.net.ConnectivityManager;
@@ -28,6 +30,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
@@ -45,6 +48,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.functions.Function;
+import okhttp3.Cache;
 import okhttp3.ConnectionSpec;
 import okhttp3.FormBody;
 import okhttp3.Headers;
@@ -75,6 +79,12 @@ public final class Network {
 
     private static final ObjectMapper mapper = new ObjectMapper();
 
+    /** size of the HTTP response disk cache */
+    private static final long HTTP_CACHE_SIZE = 20 * 1024 * 1024;
+
+    @Nullable
+    private static final Cache HTTP_CACHE = createHttpCache();
+
     protected static final OkHttpClient OK_HTTP_CLIENT = getNewHttpClient();
 
     protected static final MediaType MEDIA_TYPE_APPLICATION_JSON = MediaType.parse("application/json; charset=utf-8");
@@ -88,12 +98,46 @@ public final class Network {
                 .followRedirects(true)
                 .followSslRedirects(true)
                 .cookieJar(Cookies.cookieJar)
+                .cache(HTTP_CACHE)
                 .addInterceptor(new HeadersInterceptor())
-                .addInterceptor(new LoggingInterceptor());
+                .addInterceptor(new ThrottlingInterceptor())
+                .addInterceptor(new RequestCoalescer())
+                .addInterceptor(new LoggingInterceptor())
+                .addNetworkInterceptor(new HttpCachePolicy.PolicyInterceptor());
 
         return enableTls12OnPreLollipop(client).build();
     }
 
+    @Nullable
+    private static Cache createHttpCache() {
+        try {
+            return new Cache(new File(LocalStorage.getInternalCgeoCacheDirectory(), "http"), HTTP_CACHE_SIZE);
+        } catch (final RuntimeException e) {
+            // no application context available, e.g. in unit tests
+            Log.w("Network: HTTP cache not available", e);
+            return null;
+        }
+    }
+
+    /**
+     * Removes all responses whose URL starts with given prefix from the HTTP cache, e.g. after changing data on the server.
+     */
+    public static void evictCachedResponses(@NonNull final String urlPrefix) {
+        if (HTTP_CACHE == null) {
+            return;
+        }
+        try {
+            final Iterator<String> urls = HTTP_CACHE.urls();
+            while (urls.hasNext()) {
+                if (urls.next().startsWith(urlPrefix)) {
+                    urls.remove();
+                }
+            }
+        } catch (final IOException e) {
+            Log.w("Network: could not evict cached responses for " + urlPrefix, e);
+        }
+    }
+
     private static OkHttpClient.Builder enableTls12OnPreLollipop(final OkHttpClient.Builder builder) {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP_MR1) {
             try {
@@ -234,14 +278,14 @@ public final class Network {
         final Builder request = new Builder().url(uri).post(RequestBody.create(MEDIA_TYPE_APPLICATION_JSON,
                 mapper.writeValueAsString(jsonObject)));
         addHeaders(request, headers, null);
-        return RxOkHttpUtils.request(OK_HTTP_CLIENT, request.build());
+        return newCall(request.build());
     }
 
     @NonNull
     public static <T> Single<T> postJsonRequest(final String uri, final Class<T> clazz, final Object jsonObject) throws JsonProcessingException {
         final Builder request = new Builder().url(uri).post(RequestBody.create(MEDIA_TYPE_APPLICATION_JSON,
                 mapper.writeValueAsString(jsonObject)));
-        final Single<Response> response = RxOkHttpUtils.request(OK_HTTP_CLIENT, request.build());
+        final Single<Response> response = newCall(request.build());
 
         return response.flatMap(getResponseData).map(js -> mapper.readValue(js, clazz));
     }
@@ -257,7 +301,7 @@ public final class Network {
     public static Single<Response> deleteJsonRequest(final String uri, final ObjectNode json) {
         final Request request = new Request.Builder().url(uri).delete(RequestBody.create(MEDIA_TYPE_APPLICATION_JSON,
                 json.toString())).build();
-        return RxOkHttpUtils.request(OK_HTTP_CLIENT, request);
+        return newCall(request);
     }
 
     /**
@@ -271,7 +315,7 @@ public final class Network {
     public static Single<Response> postJsonRequest(final String uri, final ObjectNode json) {
         final Request request = new Request.Builder().url(uri).post(RequestBody.create(MEDIA_TYPE_APPLICATION_JSON,
                 json.toString())).build();
-        return RxOkHttpUtils.request(OK_HTTP_CLIENT, request);
+        return newCall(request);
     }
 
     /**
@@ -285,7 +329,7 @@ public final class Network {
     public static Single<Response> putJsonRequest(final String uri, final BaseJsonNode json) {
         final Request request = new Request.Builder().url(uri).put(RequestBody.create(MEDIA_TYPE_APPLICATION_JSON,
                 json.toString())).build();
-        return RxOkHttpUtils.request(OK_HTTP_CLIENT, request);
+        return newCall(request);
     }
 
     /**
@@ -301,7 +345,7 @@ public final class Network {
         final Builder request = new Request.Builder().url(uri).put(RequestBody.create(MEDIA_TYPE_APPLICATION_JSON,
                 json.toString()));
         addHeaders(request, headers, null);
-        return RxOkHttpUtils.request(OK_HTTP_CLIENT, request.build());
+        return newCall(request.build());
     }
 
     /**
@@ -326,7 +370,7 @@ public final class Network {
                 RequestBody.create(MediaType.parse(fileContentType), file));
         final Builder request = new Request.Builder().url(uri).post(entity.build());
         addHeaders(request, headers, null);
-        return RxOkHttpUtils.request(OK_HTTP_CLIENT, request.build());
+        return newCall(request.build());
     }
 
     /**
@@ -371,7 +415,7 @@ public final class Network {
         if (Log.isDebug()) {
             Log.d("HTTP-" + request.method() + ": " + request.url());
         }
-        return RxOkHttpUtils.request(OK_HTTP_CLIENT, builder.build());
+        return newCall(builder.build());
     }
 
     /**
@@ -402,6 +446,58 @@ public final class Network {
         }
     }
 
+    /**
+     * Tells whether the server asked to slow down (HTTP 429) in one of the requests issued by a piece of work, see {@link #call(Func0)}.
+     * Only requests started through this class on the calling thread are observed, so work running concurrently on other threads
+     * does not influence the result.
+     */
+    public static final class ThrottlingMonitor {
+
+        private static final ThreadLocal<ThrottlingMonitor> CURRENT = new ThreadLocal<>();
+
+        private volatile boolean throttled = false;
+
+        /** runs given function on the calling thread and observes the requests it issues */
+        public <T> T call(@NonNull final Func0<T> function) {
+            final ThrottlingMonitor outer = CURRENT.get();
+            CURRENT.set(this);
+            try {
+                return function.call();
+            } finally {
+                CURRENT.set(outer);
+                if (outer != null && throttled) {
+                    outer.throttled = true;
+                }
+            }
+        }
+
+        public boolean isThrottled() {
+            return throttled;
+        }
+    }
+
+    /** issues given request, attributing a throttled response to the {@link ThrottlingMonitor} of the calling thread */
+    @NonNull
+    private static Single<Response> newCall(@NonNull final Request request) {
+        final ThrottlingMonitor monitor = ThrottlingMonitor.CURRENT.get();
+        return RxOkHttpUtils.request(OK_HTTP_CLIENT, monitor == null ? request : request.newBuilder().tag(ThrottlingMonitor.class, monitor).build());
+    }
+
+    /** reports throttled responses to the {@link ThrottlingMonitor} of the request, before identical requests get coalesced */
+    private static class ThrottlingInterceptor implements Interceptor {
+
+        @Override
+        @NonNull
+        public Response intercept(final Interceptor.Chain chain) throws IOException {
+            final Response response = chain.proceed(chain.request());
+            final ThrottlingMonitor monitor = chain.request().tag(ThrottlingMonitor.class);
+            if (monitor != null && response.code() == 429) {
+                monitor.throttled = true;
+            }
+            return response;
+        }
+    }
+
     private static class LoggingInterceptor implements Interceptor {
 
         @Override
@@ -415,6 +511,7 @@ public final class Network {
             final long before = System.currentTimeMillis();
             try {
                 final Response response = chain.proceed(request);
+                HttpCacheStatistics.onResponse(response);
                 final String protocol = " (" + response.protocol() + ')';
                 final String redirect = request.url().equals(response.request().url()) ? "" : " (=> " + response.request().url() + ")";
                 if (response.isSuccessful()) {
@@ -459,15 +556,22 @@ public final class Network {
         if (cacheFile == null || !cacheFile.exists()) {
             return null;
         }
+        return validationHeaders(FileUtils.getSavedHeader(cacheFile, FileUtils.HEADER_ETAG), FileUtils.getSavedHeader(cacheFile, FileUtils.HEADER_LAST_MODIFIED));
+    }
 
-        final String etag = FileUtils.getSavedHeader(cacheFile, FileUtils.HEADER_ETAG);
+    /**
+     * @param etag         ETag header received with the stored copy of a resource, or {@code null}
+     * @param lastModified Last-Modified header received with the stored copy of a resource, or {@code null}
+     * @return headers for a conditional request for the resource, or {@code null} if there is no validator
+     */
+    @Nullable
+    public static Parameters validationHeaders(@Nullable final String etag, @Nullable final String lastModified) {
         if (etag != null) {
             // The ETag is a more robust check than a timestamp. If we have an ETag, it is enough
             // to identify the right version of the resource.
             return new Parameters("If-None-Match", etag);
         }
 
-        final String lastModified = FileUtils.getSavedHeader(cacheFile, FileUtils.HEADER_LAST_MODIFIED);
         if (lastModified != null) {
             return new Parameters("If-Modified-Since", lastModified);
         }
@@ -749,12 +853,25 @@ public final class Network {
      * @return {@code true} if the device is connected to the network.
      */
     public static boolean isConnected() {
+        final NetworkInfo activeNetworkInfo = getConnectivityManager().getActiveNetworkInfo();
+        return activeNetworkInfo != null && activeNetworkInfo.isConnected();
+    }
+
+    /**
+     * Checks if the network connection of the device is metered (e.g. mobile data), so optional downloads should be deferred.
+     *
+     * @return {@code true} if the active network is metered.
+     */
+    public static boolean isMetered() {
+        return getConnectivityManager().isActiveNetworkMetered();
+    }
+
+    private static ConnectivityManager getConnectivityManager() {
         if (connectivityManager == null) {
             // Concurrent assignment would not hurt as this request is idempotent
             connectivityManager = (ConnectivityManager) CgeoApplication.getInstance().getApplicationContext().getSystemService(Context.CONNECTIVITY_SERVICE);
         }
-        final NetworkInfo activeNetworkInfo = connectivityManager.getActiveNetworkInfo();
-        return activeNetworkInfo != null && activeNetworkInfo.isConnected();
+        return connectivityManager;
     }
 
 }
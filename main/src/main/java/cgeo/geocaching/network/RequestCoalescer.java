@@ -0,0 +1,139 @@
+package cgeo.geocaching.network;
+
+import cgeo.geocaching.utils.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Lets identical GET requests which are executed at the same time share one response.
+ * <br>
+ * The first request is executed as usual. Identical requests arriving meanwhile wait for it. If any are waiting when the response
+ * arrives, its body is buffered (up to {@link #MAX_SHARED_BODY_SIZE}) and handed to them as well. If the first request fails or
+ * the body is too large, the waiting requests are executed on their own.
+ */
+class RequestCoalescer implements Interceptor {
+
+    static final long MAX_SHARED_BODY_SIZE = 2 * 1024 * 1024;
+
+    private final Map<String, InFlightCall> inFlight = new HashMap<>();
+
+    private static final class InFlightCall {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private int followers = 0;
+        @Nullable
+        private Response response;
+        @Nullable
+        private byte[] body;
+        @Nullable
+        private MediaType mediaType;
+    }
+
+    @Override
+    @NonNull
+    public Response intercept(final Interceptor.Chain chain) throws IOException {
+        final Request request = chain.request();
+        final String key = getKey(request);
+        if (key == null) {
+            return chain.proceed(request);
+        }
+
+        final InFlightCall call;
+        final boolean isLeader;
+        synchronized (inFlight) {
+            final InFlightCall existing = inFlight.get(key);
+            isLeader = existing == null;
+            call = isLeader ? new InFlightCall() : existing;
+            if (isLeader) {
+                inFlight.put(key, call);
+            } else {
+                call.followers++;
+            }
+        }
+
+        if (!isLeader) {
+            return awaitShared(chain, call);
+        }
+
+        try {
+            final Response response = chain.proceed(request);
+            final int followers;
+            synchronized (inFlight) {
+                inFlight.remove(key);
+                followers = call.followers;
+            }
+            if (followers > 0) {
+                share(call, response);
+            }
+            return response;
+        } finally {
+            synchronized (inFlight) {
+                inFlight.remove(key);
+            }
+            call.done.countDown();
+        }
+    }
+
+    @NonNull
+    private static Response awaitShared(final Interceptor.Chain chain, final InFlightCall call) throws IOException {
+        final Request request = chain.request();
+        try {
+            final long timeout = (long) chain.connectTimeoutMillis() + chain.readTimeoutMillis();
+            if (call.done.await(timeout, TimeUnit.MILLISECONDS) && call.response != null && call.body != null) {
+                if (Log.isDebug()) {
+                    Log.d("HTTP-COALESCED: " + request.method() + " " + request.url().host() + request.url().encodedPath());
+                }
+                HttpCacheStatistics.onCoalesced(call.body.length);
+                return call.response.newBuilder()
+                        .request(request)
+                        .body(ResponseBody.create(call.mediaType, call.body))
+                        .build();
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("interrupted while waiting for identical request");
+        }
+        return chain.proceed(request);
+    }
+
+    /** buffers the body of given response for the requests waiting for it, keeping the response itself readable */
+    private static void share(final InFlightCall call, final Response response) {
+        final ResponseBody responseBody = response.body();
+        if (!response.isSuccessful() || responseBody == null || responseBody.contentLength() > MAX_SHARED_BODY_SIZE) {
+            return;
+        }
+        try {
+            final byte[] body = response.peekBody(MAX_SHARED_BODY_SIZE + 1).bytes();
+            if (body.length <= MAX_SHARED_BODY_SIZE) {
+                call.mediaType = responseBody.contentType();
+                call.body = body;
+                call.response = response;
+            }
+        } catch (IOException e) {
+            Log.w("RequestCoalescer: could not buffer response of " + response.request().url(), e);
+        }
+    }
+
+    /** key identifying identical requests, or null if given request must not be shared */
+    @Nullable
+    private static String getKey(final Request request) {
+        if (!"GET".equals(request.method()) || request.header("Range") != null
+                || request.header("If-None-Match") != null || request.header("If-Modified-Since") != null) {
+            return null;
+        }
+        final String authorization = request.header("Authorization");
+        return authorization == null ? request.url().toString() : request.url() + "|" + authorization;
+    }
+}
@@ -0,0 +1,65 @@
+package cgeo.geocaching.service;
+
+/**
+ * Limit for concurrent downloads from one connector, adapted to the observed behavior of the remote service
+ * (additive increase, multiplicative decrease).
+ * <br>
+ * Fast successful downloads increase the limit by one per limit-many downloads, slow downloads lower it slightly,
+ * failures halve it and throttling (HTTP 429) drops it to the minimum.
+ */
+class AdaptiveConcurrencyLimit {
+
+    private static final double SLOW_DECREASE_FACTOR = 0.9;
+    private static final double FAILURE_DECREASE_FACTOR = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyMs;
+
+    private double limit;
+    private int inFlight = 0;
+
+    AdaptiveConcurrencyLimit(final int minLimit, final int initialLimit, final int maxLimit, final long targetLatencyMs) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyMs = targetLatencyMs;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /** reserves a slot for a download, returns false if the limit is currently reached */
+    synchronized boolean tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        inFlight++;
+        return true;
+    }
+
+    /** frees the slot of a finished download and adapts the limit to its outcome */
+    synchronized void release(final DownloadEngine.Result result, final long latencyMs) {
+        inFlight--;
+        switch (result) {
+            case SUCCESS:
+                if (latencyMs <= targetLatencyMs) {
+                    limit = Math.min(maxLimit, limit + 1.0 / limit);
+                } else {
+                    limit = Math.max(minLimit, limit * SLOW_DECREASE_FACTOR);
+                }
+                break;
+            case THROTTLED:
+                limit = minLimit;
+                break;
+            default:
+                limit = Math.max(minLimit, limit * FAILURE_DECREASE_FACTOR);
+                break;
+        }
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -2,26 +2,30 @@ package cgeo.geocaching.service;
 
 import cgeo.geocaching.R;
 import cgeo.geocaching.activity.ActivityMixin;
+import cgeo.geocaching.connector.ConnectorFactory;
 import cgeo.geocaching.enumerations.LoadFlags;
 import cgeo.geocaching.list.StoredList;
 import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.network.Network;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.storage.DataStore;
+import cgeo.geocaching.storage.extension.PendingCacheDownload;
 import cgeo.geocaching.ui.ViewUtils;
 import cgeo.geocaching.ui.dialog.Dialogs;
 import cgeo.geocaching.ui.notifications.NotificationChannels;
 import cgeo.geocaching.ui.notifications.Notifications;
-import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.ProcessUtils;
 
 import android.app.Activity;
 import android.app.PendingIntent;
+import android.content.Context;
 import android.content.Intent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.RadioGroup;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
@@ -30,14 +34,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import io.reactivex.rxjava3.core.Observable;
-import io.reactivex.rxjava3.core.ObservableOnSubscribe;
-import io.reactivex.rxjava3.functions.Function;
-
 public class CacheDownloaderService extends AbstractForegroundIntentService {
     static {
         logTag = "CacheDownloaderService";
@@ -47,6 +48,8 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
 
     private static volatile boolean shouldStop = false;
     private static final Map<String, DownloadTaskProperties> downloadQuery = new HashMap<>();
+    @Nullable
+    private static volatile DownloadEngine engine = null;
 
     final AtomicInteger cachesDownloaded = new AtomicInteger();
 
@@ -127,7 +130,7 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
         final ArrayList<String> newGeocodes = new ArrayList<>();
 
         for (String geocode : geocodes) {
-            final DownloadTaskProperties properties = new DownloadTaskProperties(listIds, keepExistingLists, forceRedownload);
+            final DownloadTaskProperties properties = new DownloadTaskProperties(listIds, keepExistingLists, forceRedownload, System.currentTimeMillis());
             final boolean isNewGeocode;
             synchronized (downloadQuery) {
                 isNewGeocode = downloadQuery.get(geocode) == null;
@@ -153,8 +156,23 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
         }
     }
 
+    /** restarts downloads which were interrupted because the app got killed */
+    public static void resumePendingDownloads(final Context context) {
+        if (engine != null || !downloadQuery.isEmpty() || PendingCacheDownload.getAll().isEmpty()) {
+            return;
+        }
+        Log.i("Resuming interrupted cache downloads");
+        final Intent intent = new Intent(context, CacheDownloaderService.class);
+        intent.putStringArrayListExtra(EXTRA_GEOCODES, new ArrayList<>());
+        ContextCompat.startForegroundService(context, intent);
+    }
+
     public static void requestStopService() {
         shouldStop = true;
+        final DownloadEngine currentEngine = engine;
+        if (currentEngine != null) {
+            currentEngine.stop();
+        }
     }
 
     @Override
@@ -180,29 +198,81 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
             return;
         }
 
-        // schedule download on multiple threads...
-
         Log.d("Download task started");
 
-        final Observable<String> geocodes = Observable.fromIterable(intent.getStringArrayListExtra(EXTRA_GEOCODES));
-        geocodes.flatMap((Function<String, Observable<String>>) geocode -> Observable.create((ObservableOnSubscribe<String>) emitter -> {
-            handleDownload(geocode);
-            emitter.onComplete();
-        }).subscribeOn(AndroidRxUtils.refreshScheduler)).blockingSubscribe();
+        final DownloadEngine downloadEngine = new DownloadEngine(this::handleDownload, CacheDownloaderService::getConnectorName, new DownloadEngine.Listener() {
+            @Override
+            public void onAttemptStarted(@NonNull final String key, final int attempts) {
+                persistAttempt(key, attempts);
+            }
 
-        Log.d("Download task completed");
-    }
+            @Override
+            public void onAttemptFinished(@NonNull final String key, @NonNull final DownloadEngine.Result result, final int attempts, final boolean willRetry) {
+                CacheDownloaderService.this.onAttemptFinished(key, willRetry);
+            }
+        });
+        engine = downloadEngine;
+        if (shouldStop) {
+            downloadEngine.stop();
+        }
 
-    private void handleDownload(final String geocode) {
-        try {
-            if (shouldStop) {
-                Log.i("download canceled");
-                return;
+        // persist the queue, so that downloads can be resumed if the service gets killed
+        final ArrayList<String> geocodes = intent.getStringArrayListExtra(EXTRA_GEOCODES);
+        if (geocodes != null) {
+            final List<PendingCacheDownload> pendingDownloads = new ArrayList<>(geocodes.size());
+            final List<String> queuedGeocodes = new ArrayList<>(geocodes.size());
+            for (String geocode : geocodes) {
+                final DownloadTaskProperties properties;
+                synchronized (downloadQuery) {
+                    properties = downloadQuery.get(geocode);
+                }
+                if (properties != null) {
+                    pendingDownloads.add(properties.toPendingDownload(geocode, 0));
+                    queuedGeocodes.add(geocode);
+                }
+            }
+            PendingCacheDownload.addAll(pendingDownloads);
+            for (String geocode : queuedGeocodes) {
+                downloadEngine.add(geocode, 0);
+            }
+        }
+
+        // resume downloads of a previous run of the service
+        for (PendingCacheDownload pending : PendingCacheDownload.getAll()) {
+            final String geocode = pending.getGeocode();
+            if (pending.getAttempts() >= DownloadEngine.MAX_ATTEMPTS) {
+                // the last attempt got interrupted, e.g. because the download killed the app
+                Log.w("Giving up download of " + geocode + " after " + pending.getAttempts() + " attempts");
+                PendingCacheDownload.remove(geocode);
+                continue;
+            }
+            synchronized (downloadQuery) {
+                if (downloadQuery.containsKey(geocode)) {
+                    continue;
+                }
+                downloadQuery.put(geocode, new DownloadTaskProperties(pending.getListIds(), pending.isKeepExistingLists(), pending.isForceDownload(), pending.getQueuedDate()));
             }
+            Log.d("Resuming download of " + geocode + " queued at " + pending.getQueuedDate());
+            downloadEngine.add(geocode, pending.getAttempts());
+        }
+
+        downloadEngine.run();
+        engine = null;
+
+        Log.d("Download task completed: " + downloadEngine.getStatistics());
+    }
+
+    @NonNull
+    private static String getConnectorName(@NonNull final String geocode) {
+        return ConnectorFactory.getConnector(geocode).getName();
+    }
 
+    @NonNull
+    private DownloadEngine.Result handleDownload(@NonNull final String geocode) {
+        DownloadTaskProperties properties = null;
+        try {
             Log.d("Download #" + cachesDownloaded.get() + " " + geocode + " started");
 
-            final DownloadTaskProperties properties;
             synchronized (downloadQuery) {
                 properties = downloadQuery.put(geocode, null); // set the properties to null, to point out that the download is currently ongoing
 
@@ -212,9 +282,7 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
             }
 
             // update foreground service notification
-            notification.setProgress(downloadQuery.size() + cachesDownloaded.get(), cachesDownloaded.get(), false);
-            notification.setContentText(cachesDownloaded.get() + "/" + (downloadQuery.size() + cachesDownloaded.get()));
-            updateForegroundNotification();
+            updateProgressNotification();
 
             // merge current lists and additional lists
             final Set<Integer> combinedListIds = new HashSet<>(properties.listIds);
@@ -227,7 +295,9 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
             }
 
             // download...
-            if (Geocache.storeCache(null, geocode, combinedListIds, properties.forceDownload, null)) {
+            final Network.ThrottlingMonitor throttling = new Network.ThrottlingMonitor();
+            final boolean forceDownload = properties.forceDownload;
+            if (throttling.call(() -> Geocache.storeCache(null, geocode, combinedListIds, forceDownload, null))) {
                 // send a broadcast so that foreground activities know that they might need to update their content
                 GeocacheChangedBroadcastReceiver.sendBroadcast(this, geocode);
                 // check whether the download properties are still null,
@@ -239,16 +309,62 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
                 }
                 Log.d("Download #" + cachesDownloaded.get() + " " + geocode + " completed");
                 cachesDownloaded.incrementAndGet();
-            } else {
-                Log.d("Download #" + cachesDownloaded.get() + " " + geocode + " failed");
+                return DownloadEngine.Result.SUCCESS;
             }
+            Log.d("Download #" + cachesDownloaded.get() + " " + geocode + " failed");
+            restoreProperties(geocode, properties);
+            return throttling.isThrottled() ? DownloadEngine.Result.THROTTLED : DownloadEngine.Result.FAILED;
         } catch (Exception ex) {
             Log.e("exception while background download", ex);
+            restoreProperties(geocode, properties);
+            return DownloadEngine.Result.FAILED;
+        }
+    }
+
+    /** puts the properties of a failed download back into the download query, so that it can be retried */
+    private static void restoreProperties(@NonNull final String geocode, @Nullable final DownloadTaskProperties properties) {
+        if (properties != null) {
+            synchronized (downloadQuery) {
+                downloadQuery.put(geocode, properties.merge(downloadQuery.get(geocode)));
+            }
         }
     }
 
+    /** persists the attempt before it starts, so that downloads interrupted by the app getting killed are not retried forever */
+    private static void persistAttempt(@NonNull final String geocode, final int attempts) {
+        final DownloadTaskProperties properties;
+        synchronized (downloadQuery) {
+            properties = downloadQuery.get(geocode);
+        }
+        if (properties != null) {
+            PendingCacheDownload.addAll(Collections.singletonList(properties.toPendingDownload(geocode, attempts)));
+        }
+    }
+
+    private void onAttemptFinished(@NonNull final String geocode, final boolean willRetry) {
+        if (!willRetry) {
+            // succeeded, or failed on the last attempt
+            PendingCacheDownload.remove(geocode);
+        }
+        updateProgressNotification();
+    }
+
+    private void updateProgressNotification() {
+        final int downloaded = cachesDownloaded.get();
+        final int total = downloadQuery.size() + downloaded;
+        final DownloadEngine currentEngine = engine;
+        final int cachesPerMinute = currentEngine == null ? 0 : currentEngine.getStatistics().getJobsPerMinute();
+        notification.setProgress(total, downloaded, false);
+        notification.setContentText(getString(R.string.caches_store_background_progress, downloaded, total, cachesPerMinute));
+        updateForegroundNotification();
+    }
+
     @Override
     public void onDestroy() {
+        if (shouldStop) {
+            // canceled by the user, thus don't resume later
+            PendingCacheDownload.removeAll();
+        }
         if (!downloadQuery.isEmpty()) {
             showEndNotification(getString(shouldStop ? R.string.caches_store_background_result_canceled : R.string.caches_store_background_result_failed,
                     cachesDownloaded.get(), cachesDownloaded.get() + downloadQuery.size()));
@@ -269,13 +385,16 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
         final Set<Integer> listIds = new HashSet<>();
         boolean forceDownload;
         boolean keepExistingLists;
+        /** time the download was requested first */
+        long queuedDate;
 
-        private DownloadTaskProperties(@Nullable final Set<Integer> listIds, final boolean keepExistingLists, final boolean forceDownload) {
+        private DownloadTaskProperties(@Nullable final Set<Integer> listIds, final boolean keepExistingLists, final boolean forceDownload, final long queuedDate) {
             if (listIds != null) {
                 this.listIds.addAll(listIds);
             }
             this.keepExistingLists = keepExistingLists;
             this.forceDownload = forceDownload;
+            this.queuedDate = queuedDate;
         }
 
         public DownloadTaskProperties merge(@Nullable final DownloadTaskProperties additionalProperties) {
@@ -283,8 +402,14 @@ public class CacheDownloaderService extends AbstractForegroundIntentService {
                 this.listIds.addAll(additionalProperties.listIds);
                 this.keepExistingLists |= additionalProperties.keepExistingLists;
                 this.forceDownload |= additionalProperties.forceDownload;
+                this.queuedDate = Math.min(this.queuedDate, additionalProperties.queuedDate);
             }
             return this;
         }
+
+        @NonNull
+        public PendingCacheDownload toPendingDownload(@NonNull final String geocode, final int attempts) {
+            return new PendingCacheDownload(geocode, listIds, keepExistingLists, forceDownload, queuedDate, attempts);
+        }
     }
 }
@@ -0,0 +1,364 @@
+package cgeo.geocaching.service;
+
+import cgeo.geocaching.utils.Log;
+import cgeo.geocaching.utils.functions.Func1;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Downloads a queue of jobs (e.g. caches or images) with a concurrency adapted per limit group (e.g. connector or host).
+ * <br>
+ * Jobs are identified by a key. Each limit group gets its own {@link AdaptiveConcurrencyLimit}, so a slow or throttling
+ * service does not hold back downloads from other services. Failed downloads are retried with exponential backoff up to a
+ * maximum number of attempts. The engine itself does not know how a job is downloaded or how the queue is persisted,
+ * see {@link Downloader} and {@link Listener}.
+ */
+class DownloadEngine {
+
+    static final int MIN_CONCURRENCY = 1;
+    static final int INITIAL_CONCURRENCY = 2;
+    static final int MAX_CONCURRENCY = 6;
+    static final long TARGET_LATENCY_MS = 10000;
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long BASE_BACKOFF_MS = 2000;
+
+    /** downloads of all limit groups together never use more threads than this */
+    private static final int MAX_THREADS = 8;
+    /** upper bound for waiting on a free slot or a due retry, to check the stop flag regularly */
+    private static final long MAX_WAIT_MS = 500;
+
+    enum Result {
+        SUCCESS,
+        FAILED,
+        /** the service asked to slow down (HTTP 429) */
+        THROTTLED
+    }
+
+    interface Downloader {
+        /** downloads the job with the given key, called on a worker thread */
+        @NonNull
+        Result download(@NonNull String key);
+    }
+
+    interface Listener {
+        /**
+         * called before each download attempt, e.g. to persist the attempt, so that a download killing the process
+         * is not retried without limit
+         *
+         * @param attempts number of attempts including the one starting now
+         */
+        default void onAttemptStarted(@NonNull final String key, final int attempts) {
+            // nothing to do by default
+        }
+
+        /**
+         * called after each download attempt
+         *
+         * @param willRetry true if the download failed and is scheduled again
+         */
+        void onAttemptFinished(@NonNull String key, @NonNull Result result, int attempts, boolean willRetry);
+    }
+
+    private static final class Job {
+        private final String key;
+        private final String limitGroup;
+        private int attempts;
+        private long notBefore = 0;
+
+        Job(final String key, final String limitGroup, final int attempts) {
+            this.key = key;
+            this.limitGroup = limitGroup;
+            this.attempts = attempts;
+        }
+    }
+
+    /** snapshot of the download statistics */
+    static final class Statistics {
+        final int succeeded;
+        final int failed;
+        final int retries;
+        final int throttled;
+        final int pending;
+        final long elapsedMs;
+
+        Statistics(final int succeeded, final int failed, final int retries, final int throttled, final int pending, final long elapsedMs) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.retries = retries;
+            this.throttled = throttled;
+            this.pending = pending;
+            this.elapsedMs = elapsedMs;
+        }
+
+        int getJobsPerMinute() {
+            return elapsedMs <= 0 ? 0 : (int) (succeeded * 60000L / elapsedMs);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "succeeded=" + succeeded + ", failed=" + failed + ", retries=" + retries + ", throttled=" + throttled
+                    + ", pending=" + pending + ", jobs/min=" + getJobsPerMinute();
+        }
+    }
+
+    private final Downloader downloader;
+    private final Func1<String, String> limitGroupOf;
+    @Nullable
+    private final Listener listener;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+
+    private final Object lock = new Object();
+    private final LinkedList<Job> queue = new LinkedList<>();
+    private final Set<String> queuedKeys = new HashSet<>();
+    private final Map<String, AdaptiveConcurrencyLimit> limits = new HashMap<>();
+    private int running = 0;
+    private volatile boolean stopped = false;
+
+    private long startTime = 0;
+    private int succeeded = 0;
+    private int failed = 0;
+    private int retries = 0;
+    private int throttled = 0;
+
+    /**
+     * @param limitGroupOf returns the group of a job key sharing one concurrency limit
+     */
+    DownloadEngine(@NonNull final Downloader downloader, @NonNull final Func1<String, String> limitGroupOf, @Nullable final Listener listener) {
+        this(downloader, limitGroupOf, listener, MAX_ATTEMPTS, BASE_BACKOFF_MS);
+    }
+
+    DownloadEngine(@NonNull final Downloader downloader, @NonNull final Func1<String, String> limitGroupOf, @Nullable final Listener listener,
+                   final int maxAttempts, final long baseBackoffMs) {
+        this.downloader = downloader;
+        this.limitGroupOf = limitGroupOf;
+        this.listener = listener;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+    }
+
+    /**
+     * adds a job to the queue, unless it is queued or running already
+     *
+     * @param attempts number of attempts already made (e.g. before the queue was persisted)
+     */
+    void add(@NonNull final String key, final int attempts) {
+        synchronized (lock) {
+            if (queuedKeys.add(key)) {
+                queue.add(new Job(key, limitGroupOf.call(key), attempts));
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * moves the queued jobs matching the given filter to the front of the queue, keeping their order and backoff
+     *
+     * @return number of jobs moved
+     */
+    int prioritize(@NonNull final Func1<String, Boolean> filter) {
+        synchronized (lock) {
+            final LinkedList<Job> prioritized = new LinkedList<>();
+            final Iterator<Job> it = queue.iterator();
+            while (it.hasNext()) {
+                final Job job = it.next();
+                if (filter.call(job.key)) {
+                    it.remove();
+                    prioritized.add(job);
+                }
+            }
+            queue.addAll(0, prioritized);
+            if (!prioritized.isEmpty()) {
+                lock.notifyAll();
+            }
+            return prioritized.size();
+        }
+    }
+
+    /**
+     * removes the queued jobs matching the given filter, e.g. to defer them. Running downloads are not affected.
+     * Removed jobs are not reported to the listener and can be added again later.
+     *
+     * @return number of jobs removed
+     */
+    int remove(@NonNull final Func1<String, Boolean> filter) {
+        synchronized (lock) {
+            int removed = 0;
+            final Iterator<Job> it = queue.iterator();
+            while (it.hasNext()) {
+                final Job job = it.next();
+                if (filter.call(job.key)) {
+                    it.remove();
+                    queuedKeys.remove(job.key);
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                lock.notifyAll();
+            }
+            return removed;
+        }
+    }
+
+    /** stops scheduling further downloads, running downloads are finished */
+    void stop() {
+        stopped = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /** downloads the queued jobs, blocks until the queue is processed or the engine is stopped */
+    void run() {
+        final ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS);
+        try {
+            synchronized (lock) {
+                startTime = System.currentTimeMillis();
+                while (!stopped && (!queue.isEmpty() || running > 0)) {
+                    final Job job = running < MAX_THREADS ? nextJob() : null;
+                    if (job == null) {
+                        lock.wait(getWaitTime());
+                        continue;
+                    }
+                    running++;
+                    executor.execute(() -> execute(job));
+                }
+                // let running downloads finish, so their results are reported
+                while (running > 0) {
+                    lock.wait(MAX_WAIT_MS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.w("DownloadEngine: interrupted", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        Log.d("DownloadEngine: finished, " + getStatistics());
+    }
+
+    /** returns the first due job whose limit group has a free slot and removes it from the queue. Must be called with the lock held */
+    @Nullable
+    private Job nextJob() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Job> it = queue.iterator();
+        while (it.hasNext()) {
+            final Job job = it.next();
+            if (job.notBefore <= now && getLimit(job.limitGroup).tryAcquire()) {
+                it.remove();
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * time to wait for a retry becoming due. Jobs which are due already but wait for a free slot are woken up
+     * when a download finishes. Must be called with the lock held
+     */
+    private long getWaitTime() {
+        final long now = System.currentTimeMillis();
+        long wait = MAX_WAIT_MS;
+        for (Job job : queue) {
+            if (job.notBefore > now) {
+                wait = Math.min(wait, job.notBefore - now);
+            }
+        }
+        return wait;
+    }
+
+    /** Must be called with the lock held */
+    @NonNull
+    private AdaptiveConcurrencyLimit getLimit(@NonNull final String limitGroup) {
+        AdaptiveConcurrencyLimit limit = limits.get(limitGroup);
+        if (limit == null) {
+            limit = new AdaptiveConcurrencyLimit(MIN_CONCURRENCY, INITIAL_CONCURRENCY, MAX_CONCURRENCY, TARGET_LATENCY_MS);
+            limits.put(limitGroup, limit);
+        }
+        return limit;
+    }
+
+    private void execute(final Job job) {
+        final long start = System.currentTimeMillis();
+        Result result;
+        try {
+            if (listener != null) {
+                listener.onAttemptStarted(job.key, job.attempts + 1);
+            }
+            result = downloader.download(job.key);
+        } catch (RuntimeException e) {
+            Log.e("DownloadEngine: download of " + job.key + " failed", e);
+            result = Result.FAILED;
+        }
+        final long latency = System.currentTimeMillis() - start;
+
+        final boolean willRetry;
+        synchronized (lock) {
+            getLimit(job.limitGroup).release(result, latency);
+            job.attempts++;
+            if (result == Result.THROTTLED) {
+                throttled++;
+            }
+            if (result == Result.SUCCESS) {
+                succeeded++;
+                willRetry = false;
+            } else if (job.attempts < maxAttempts && !stopped) {
+                retries++;
+                willRetry = true;
+                job.notBefore = System.currentTimeMillis() + getBackoff(job.attempts, result);
+                queue.add(job);
+            } else {
+                failed++;
+                willRetry = false;
+            }
+            if (!willRetry) {
+                queuedKeys.remove(job.key);
+            }
+        }
+        Log.d("DownloadEngine: " + job.key + " " + result + " after " + latency + "ms (attempt " + job.attempts + (willRetry ? ", will retry)" : ")"));
+        try {
+            if (listener != null) {
+                listener.onAttemptFinished(job.key, result, job.attempts, willRetry);
+            }
+        } finally {
+            // count the job as running until it is reported, so run() does not return before
+            synchronized (lock) {
+                running--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /** exponential backoff, doubled once more if the service asked to slow down */
+    long getBackoff(final int attempts, @NonNull final Result result) {
+        final long backoff = baseBackoffMs << Math.min(attempts - 1, 10);
+        return result == Result.THROTTLED ? backoff * 2 : backoff;
+    }
+
+    /** current concurrency limit for given limit group, mainly for testing */
+    int getConcurrencyLimit(@NonNull final String limitGroup) {
+        synchronized (lock) {
+            return getLimit(limitGroup).getLimit();
+        }
+    }
+
+    @NonNull
+    Statistics getStatistics() {
+        synchronized (lock) {
+            return new Statistics(succeeded, failed, retries, throttled, queue.size() + running,
+                    startTime == 0 ? 0 : System.currentTimeMillis() - startTime);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package cgeo.geocaching.service;
+
+import cgeo.geocaching.CgeoApplication;
+import cgeo.geocaching.R;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.network.HtmlImage;
+import cgeo.geocaching.network.Network;
+import cgeo.geocaching.settings.Settings;
+import cgeo.geocaching.storage.DataStore;
+import cgeo.geocaching.storage.ImageStore;
+import cgeo.geocaching.storage.extension.PendingImageDownload;
+import cgeo.geocaching.ui.notifications.NotificationChannels;
+import cgeo.geocaching.ui.notifications.Notifications;
+import cgeo.geocaching.utils.Log;
+import cgeo.geocaching.utils.MetadataUtils;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Uri;
+import android.os.PowerManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Downloads the images of stored caches in the background, so storing a cache does not wait for its images.
+ * <br>
+ * The queue is persisted (see {@link PendingImageDownload}) and resumed on the next start of the app. Downloads are run by a
+ * {@link DownloadEngine} with one concurrency limit per image host, so a slow host does not hold back the others.
+ * Images of a cache the user opens are downloaded first. In battery saver mode, and on a metered network unless the user
+ * allowed it in the settings, only those images are downloaded. The others are paused while images are queued and
+ * continued as soon as the restriction ends.
+ * <br>
+ * EXIF coordinates of downloaded images are recorded in the image index of the cache (see {@link DataStore.DBImageIndex}).
+ */
+public final class ImagePrefetcher {
+
+    private static final char KEY_SEPARATOR = '\n';
+    private static final long NOTIFICATION_INTERVAL_MS = 1000;
+
+    private static final Object LOCK = new Object();
+    /** queued images by job key, in the order they were queued */
+    private static final Map<String, PendingImageDownload> QUEUE = new LinkedHashMap<>();
+    /** caches opened by the user, whose images are downloaded first and regardless of network and battery state */
+    private static final Set<String> PRIORITY_GEOCODES = new HashSet<>();
+    @Nullable
+    private static DownloadEngine engine;
+    /** listens for changes of network and battery saver mode while images are queued */
+    @Nullable
+    private static BroadcastReceiver constraintsReceiver;
+    private static boolean resumed;
+    private static int finished;
+    private static long lastNotification;
+
+    private ImagePrefetcher() {
+        // utility class
+    }
+
+    /**
+     * queues the images of the given (stored) cache for download
+     *
+     * @param forceRedownload whether stored images are to be checked for updates even if they are recent
+     */
+    @WorkerThread
+    public static void enqueue(@NonNull final String geocode, @NonNull final Collection<String> urls, final boolean forceRedownload) {
+        synchronized (LOCK) {
+            for (final String url : new LinkedHashSet<>(urls)) {
+                if (StringUtils.isBlank(url)) {
+                    continue;
+                }
+                final String key = getJobKey(geocode, url);
+                final PendingImageDownload queued = QUEUE.get(key);
+                if (queued == null || (forceRedownload && !queued.isForceDownload())) {
+                    QUEUE.put(key, PendingImageDownload.add(geocode, url, forceRedownload, 0));
+                }
+            }
+            dispatch();
+        }
+    }
+
+    /**
+     * downloads the queued images of the given cache before all others
+     */
+    public static void prioritize(@NonNull final String geocode) {
+        Schedulers.io().scheduleDirect(() -> {
+            synchronized (LOCK) {
+                PRIORITY_GEOCODES.add(geocode);
+                final String prefix = geocode + KEY_SEPARATOR;
+                for (final String key : QUEUE.keySet()) {
+                    if (key.startsWith(prefix)) {
+                        dispatch();
+                        if (engine != null) {
+                            engine.prioritize(jobKey -> jobKey.startsWith(prefix));
+                        }
+                        return;
+                    }
+                }
+            }
+        });
+    }
+
+    /** restarts image downloads which were interrupted because the app got killed or which were deferred */
+    public static void resumePendingDownloads() {
+        Schedulers.io().scheduleDirect(() -> {
+            synchronized (LOCK) {
+                if (!resumed) {
+                    resumed = true;
+                    for (final PendingImageDownload pending : PendingImageDownload.getAll()) {
+                        final String key = getJobKey(pending.getGeocode(), pending.getUrl());
+                        if (!QUEUE.containsKey(key)) {
+                            QUEUE.put(key, pending);
+                        }
+                    }
+                    if (!QUEUE.isEmpty()) {
+                        Log.i("ImagePrefetcher: resuming " + QUEUE.size() + " image downloads");
+                    }
+                }
+                dispatch();
+            }
+        });
+    }
+
+    /**
+     * hands the queued images to the engine, starting it if necessary. If downloads are restricted, images which are
+     * not prioritized are taken back from the engine. Must be called with the lock held
+     */
+    private static void dispatch() {
+        updateConstraintsReceiver();
+        final boolean constrained = isConstrained();
+        if (constrained && engine != null) {
+            final int paused = engine.remove(key -> !isPrioritized(key));
+            if (paused > 0) {
+                Log.i("ImagePrefetcher: pausing " + paused + " image downloads on metered network or in battery saver mode");
+            }
+        }
+        final List<String> keys = new ArrayList<>();
+        for (final String key : QUEUE.keySet()) {
+            if (!constrained || isPrioritized(key)) {
+                keys.add(key);
+            }
+        }
+        if (keys.isEmpty()) {
+            updateNotification(true);
+            return;
+        }
+        if (engine == null) {
+            final DownloadEngine newEngine = new DownloadEngine(ImagePrefetcher::download, ImagePrefetcher::getHost, ImagePrefetcher::onAttemptFinished);
+            engine = newEngine;
+            Schedulers.io().scheduleDirect(() -> run(newEngine));
+        }
+        for (final String key : keys) {
+            final PendingImageDownload pending = QUEUE.get(key);
+            engine.add(key, pending == null ? 0 : pending.getAttempts());
+        }
+        updateNotification(true);
+    }
+
+    private static void run(@NonNull final DownloadEngine runningEngine) {
+        runningEngine.run();
+        synchronized (LOCK) {
+            if (engine == runningEngine) {
+                engine = null;
+            }
+            // images queued while the engine finished are started by a new engine
+            dispatch();
+        }
+    }
+
+    /** registers the constraints receiver while images are queued, and removes it afterwards. Must be called with the lock held */
+    private static void updateConstraintsReceiver() {
+        final Context context = CgeoApplication.getInstance().getApplicationContext();
+        if (QUEUE.isEmpty()) {
+            if (constraintsReceiver != null) {
+                context.unregisterReceiver(constraintsReceiver);
+                constraintsReceiver = null;
+            }
+            return;
+        }
+        if (constraintsReceiver == null) {
+            constraintsReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(final Context context, final Intent intent) {
+                    // continues deferred images once the restriction ends, and pauses the others when it starts
+                    Schedulers.io().scheduleDirect(() -> {
+                        synchronized (LOCK) {
+                            dispatch();
+                        }
+                    });
+                }
+            };
+            final IntentFilter filter = new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION);
+            filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+            context.registerReceiver(constraintsReceiver, filter);
+        }
+    }
+
+    /** Must be called with the lock held */
+    private static boolean isPrioritized(@NonNull final String key) {
+        return PRIORITY_GEOCODES.contains(StringUtils.substringBefore(key, String.valueOf(KEY_SEPARATOR)));
+    }
+
+    /** battery saver mode or metered network (unless allowed by the user), download only the images needed right now */
+    private static boolean isConstrained() {
+        final PowerManager powerManager = (PowerManager) CgeoApplication.getInstance().getSystemService(Context.POWER_SERVICE);
+        return (Network.isMetered() && !Settings.isPrefetchImagesOnMeteredNetwork()) || (powerManager != null && powerManager.isPowerSaveMode());
+    }
+
+    @NonNull
+    private static DownloadEngine.Result download(@NonNull final String key) {
+        final PendingImageDownload pending;
+        synchronized (LOCK) {
+            pending = QUEUE.get(key);
+        }
+        if (pending == null) {
+            return DownloadEngine.Result.SUCCESS;
+        }
+        final String geocode = pending.getGeocode();
+        if (!DataStore.isOffline(geocode, null)) {
+            // the cache got removed meanwhile
+            return DownloadEngine.Result.SUCCESS;
+        }
+        final String url = pending.getUrl();
+        new HtmlImage(geocode, false, true, pending.isForceDownload()).fetchDrawable(url).ignoreElements().onErrorComplete().blockingAwait();
+        if (!HtmlImage.isAvailableOffline(geocode, url)) {
+            return DownloadEngine.Result.FAILED;
+        }
+        indexCoordinates(geocode, url);
+        return DownloadEngine.Result.SUCCESS;
+    }
+
+    /** records the EXIF coordinates of the downloaded image in the image index of the cache */
+    private static void indexCoordinates(@NonNull final String geocode, @NonNull final String url) {
+        final File file = ImageStore.getFile(geocode, url);
+        if (file == null) {
+            return;
+        }
+        Geopoint coords = null;
+        try {
+            coords = MetadataUtils.getFirstGeopoint(MetadataUtils.readImageMetadata("[ImagePrefetcher]" + url, new FileInputStream(file), true));
+        } catch (final FileNotFoundException e) {
+            Log.w("ImagePrefetcher.indexCoordinates: cannot read " + file, e);
+        }
+        if (coords != null) {
+            DataStore.DBImageIndex.setCoordinates(geocode, url, coords);
+        }
+    }
+
+    private static void onAttemptFinished(@NonNull final String key, @NonNull final DownloadEngine.Result result, final int attempts, final boolean willRetry) {
+        synchronized (LOCK) {
+            final PendingImageDownload pending = QUEUE.get(key);
+            if (pending != null) {
+                if (willRetry) {
+                    QUEUE.put(key, PendingImageDownload.add(pending.getGeocode(), pending.getUrl(), pending.isForceDownload(), attempts));
+                    if (engine != null && !isPrioritized(key) && isConstrained()) {
+                        // the restriction started while downloading, do not retry before it ends
+                        engine.remove(key::equals);
+                    }
+                } else {
+                    QUEUE.remove(key);
+                    PendingImageDownload.remove(pending.getGeocode(), pending.getUrl());
+                    finished++;
+                }
+            }
+            updateNotification(false);
+        }
+    }
+
+    /** shows the download progress, or removes the notification if all downloads are done. Must be called with the lock held */
+    private static void updateNotification(final boolean force) {
+        final Context context = CgeoApplication.getInstance();
+        if (engine == null || QUEUE.isEmpty()) {
+            Notifications.cancel(context, Notifications.ID_IMAGE_PREFETCH_NOTIFICATION);
+            if (QUEUE.isEmpty()) {
+                finished = 0;
+            }
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        if (!force && now - lastNotification < NOTIFICATION_INTERVAL_MS) {
+            return;
+        }
+        lastNotification = now;
+        final int total = finished + QUEUE.size();
+        final String text = context.getString(isConstrained() ? R.string.images_store_background_deferred : R.string.images_store_background_progress, finished, total);
+        Notifications.send(context, Notifications.ID_IMAGE_PREFETCH_NOTIFICATION, NotificationChannels.DOWNLOAD_PROGRESS_NOTIFICATION, builder -> builder
+                .setContentTitle(context.getString(R.string.images_store_background_title))
+                .setContentText(text)
+                .setProgress(total, finished, false)
+                .setOnlyAlertOnce(true)
+                .setSilent(true));
+    }
+
+    @NonNull
+    private static String getJobKey(@NonNull final String geocode, @NonNull final String url) {
+        return geocode + KEY_SEPARATOR + url;
+    }
+
+    /** images are limited per host they are downloaded from */
+    @NonNull
+    private static String getHost(@NonNull final String key) {
+        return StringUtils.defaultString(Uri.parse(StringUtils.substringAfter(key, String.valueOf(KEY_SEPARATOR))).getHost());
+    }
+}
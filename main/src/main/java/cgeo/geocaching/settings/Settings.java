@@ -971,6 +971,10 @@ public class Settings {
         return getBoolean(R.string.pref_logimages, false);
     }
 
+    public static boolean isPrefetchImagesOnMeteredNetwork() {
+        return getBoolean(R.string.pref_prefetch_images_metered, false);
+    }
+
     public static boolean isRatingWanted() {
         return getBoolean(R.string.pref_ratingwanted, false);
     }
@@ -3,8 +3,12 @@ package cgeo.geocaching.sorting;
 import cgeo.geocaching.connector.gc.GCUtils;
 import cgeo.geocaching.models.Geocache;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -36,6 +40,94 @@ abstract class AbstractCacheComparator implements CacheComparator {
         return comparePrefix;
     }
 
+    /** sort key of a cache, mirrors the logic of {@link #compare(Geocache, Geocache)} */
+    private static final class SortKey {
+        /** key value for comparable caches, null otherwise */
+        private final Comparable<Object> value;
+        private final boolean canCompare;
+        /** geocode information for caches which can't be compared */
+        private final String geocodePrefix;
+        private final long gcLikeId;
+
+        SortKey(final Comparable<Object> value, final boolean canCompare, final String geocodePrefix, final long gcLikeId) {
+            this.value = value;
+            this.canCompare = canCompare;
+            this.geocodePrefix = geocodePrefix;
+            this.gcLikeId = gcLikeId;
+        }
+    }
+
+    /** sort keys based on the key values of {@link #getSortKeyFunction()} */
+    private final class ValueSortKeys implements SortKeys {
+        private final Function<Geocache, Comparable<?>> keyFunction;
+        private final boolean descending;
+
+        ValueSortKeys(final Function<Geocache, Comparable<?>> keyFunction, final boolean descending) {
+            this.keyFunction = keyFunction;
+            this.descending = descending;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object create(@NonNull final Geocache cache) {
+            if (canCompare(cache)) {
+                return new SortKey((Comparable<Object>) keyFunction.apply(cache), true, null, 0);
+            }
+            return new SortKey(null, false, StringUtils.substring(cache.getGeocode(), 0, 2), GCUtils.gcLikeCodeToGcLikeId(cache.getGeocode()));
+        }
+
+        @Override
+        public int compare(final Object key1, final Object key2) {
+            final SortKey sk1 = (SortKey) key1;
+            final SortKey sk2 = (SortKey) key2;
+            if (!sk1.canCompare) {
+                if (sk2.canCompare) {
+                    return 1;
+                }
+                final int comparePrefix = StringUtils.compareIgnoreCase(sk1.geocodePrefix, sk2.geocodePrefix);
+                if (comparePrefix == 0 && sk1.gcLikeId != sk2.gcLikeId) {
+                    return sk1.gcLikeId > sk2.gcLikeId ? 1 : -1;
+                }
+                return comparePrefix;
+            }
+            if (!sk2.canCompare) {
+                return -1;
+            }
+            // null values (e.g. unknown distance) are placed last
+            if (sk1.value == null) {
+                return sk2.value == null ? 0 : 1;
+            }
+            if (sk2.value == null) {
+                return -1;
+            }
+            return descending ? sk2.value.compareTo(sk1.value) : sk1.value.compareTo(sk2.value);
+        }
+    }
+
+    @Override
+    @Nullable
+    public final SortKeys getSortKeys() {
+        final Function<Geocache, Comparable<?>> keyFunction = getSortKeyFunction();
+        return keyFunction == null ? null : new ValueSortKeys(keyFunction, isSortKeyDescending());
+    }
+
+    /**
+     * Returns the function creating the key value of a cache (which passed {@link #canCompare(Geocache)}) for sorting,
+     * e.g. a boxed number or a collation key. Returns null if this comparator does not support sort keys (which is the default).
+     * <br>
+     * Comparing the values of two caches (respecting {@link #isSortKeyDescending()}) must yield the same result as
+     * {@link #compareCaches(Geocache, Geocache)}. A null value is placed after all other values.
+     */
+    @Nullable
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return null;
+    }
+
+    /** Returns true if values of {@link #getSortKeyFunction()} are to be sorted in descending order */
+    protected boolean isSortKeyDescending() {
+        return false;
+    }
+
     /**
      * Check necessary preconditions (like missing fields) before running the comparison itself.
      * Caches not filling the conditions will be placed last, sorted by Geocode.
@@ -79,7 +171,12 @@ abstract class AbstractCacheComparator implements CacheComparator {
      */
     public void sort(final List<Geocache> list) {
         beforeSort(list);
-        Collections.sort(list, this);
+        final SortKeys sortKeys = getSortKeys();
+        if (sortKeys != null) {
+            SortKeySorter.sort(list, sortKeys);
+        } else {
+            Collections.sort(list, this);
+        }
         afterSort(list);
     }
 
@@ -8,6 +8,7 @@ import cgeo.geocaching.utils.CalendarUtils;
 import androidx.annotation.NonNull;
 
 import java.util.Date;
+import java.util.function.Function;
 
 /**
  * compares caches by hidden date
@@ -44,6 +45,55 @@ abstract class AbstractDateCacheComparator extends AbstractCacheComparator {
         return d1.compareTo(d2);
     }
 
+    /**
+     * Sort key of a cache for ordering caches with same date. Comparing the keys must yield the same result as {@link #sortSameDate(Geocache, Geocache)}.
+     */
+    protected Comparable<?> getSameDateSortKey(final Geocache cache) {
+        final Geopoint gps = LocationDataProvider.getInstance().currentGeo().getCoords();
+        return gps.distanceTo(cache.getCoords());
+    }
+
+    /**
+     * sort key consisting of the date and the key for sorting caches with same date.
+     * The latter (e.g. a distance) is only calculated if the key is compared to a key with the same date.
+     */
+    private final class DateSortKey implements Comparable<DateSortKey> {
+        private final long time;
+        private final Geocache cache;
+        private Comparable<Object> sameDateKey;
+        private boolean sameDateKeyCalculated;
+
+        DateSortKey(final long time, final Geocache cache) {
+            this.time = time;
+            this.cache = cache;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Comparable<Object> getSameDateKey() {
+            // no synchronization needed: SortKeySorter compares a key only in one thread at a time
+            if (!sameDateKeyCalculated) {
+                sameDateKey = (Comparable<Object>) getSameDateSortKey(cache);
+                sameDateKeyCalculated = true;
+            }
+            return sameDateKey;
+        }
+
+        @Override
+        public int compareTo(final DateSortKey other) {
+            final int dateDifference = Long.compare(time, other.time);
+            return dateDifference == 0 ? getSameDateKey().compareTo(other.getSameDateKey()) : dateDifference;
+        }
+    }
+
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> {
+            final Date date = getCacheDate(cache);
+            // caches without date are placed last
+            return date == null ? null : new DateSortKey(date.getTime(), cache);
+        };
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return CalendarUtils.yearMonth(getCacheDate(cache));
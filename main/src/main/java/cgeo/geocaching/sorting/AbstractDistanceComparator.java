@@ -9,6 +9,7 @@ import cgeo.geocaching.storage.SqlBuilder;
 import androidx.annotation.NonNull;
 
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * sorts caches by distance to given position
@@ -38,6 +39,11 @@ public abstract class AbstractDistanceComparator extends AbstractCacheComparator
         return distance2 == null ? -1 : Float.compare(distance1, distance2);
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getDistance();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return Units.getDistanceFromKilometers(cache.getDistance());
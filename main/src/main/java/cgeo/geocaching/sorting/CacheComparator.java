@@ -4,6 +4,7 @@ import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.SqlBuilder;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.Comparator;
 import java.util.List;
@@ -19,5 +20,26 @@ public interface CacheComparator extends Comparator<Geocache> {
         //do nothing by default
     }
 
+    /**
+     * Returns the sort keys of this comparator, or null if it does not support sort keys (which is the default).
+     * Sorting on keys avoids recalculating derived values (e.g. normalized names) in every single comparison.
+     */
+    @Nullable
+    default SortKeys getSortKeys() {
+        return null;
+    }
+
+    /** creates and compares sort keys of caches, see {@link #getSortKeys()} */
+    interface SortKeys {
+
+        /** Creates a sort key for given cache. Might not be thread-safe. */
+        Object create(@NonNull Geocache cache);
+
+        /**
+         * Compares two keys created by {@link #create(Geocache)}. Must be thread-safe and yield the same result
+         * as comparing the caches via {@link CacheComparator#compare(Object, Object)}.
+         */
+        int compare(Object key1, Object key2);
+    }
 
 }
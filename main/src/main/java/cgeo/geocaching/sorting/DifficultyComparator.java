@@ -6,6 +6,7 @@ import cgeo.geocaching.storage.SqlBuilder;
 import androidx.annotation.NonNull;
 
 import java.util.Locale;
+import java.util.function.Function;
 
 /**
  * sorts caches by difficulty
@@ -22,6 +23,11 @@ class DifficultyComparator extends AbstractCacheComparator {
         return Float.compare(cache1.getDifficulty(), cache2.getDifficulty());
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getDifficulty();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%.1f", cache.getDifficulty());
@@ -14,6 +14,11 @@ public class EventDateComparator extends HiddenDateComparator {
         return compare(left.getEventStartTimeInMinutes(), right.getEventStartTimeInMinutes());
     }
 
+    @Override
+    protected Comparable<?> getSameDateSortKey(final Geocache cache) {
+        return cache.getEventStartTimeInMinutes();
+    }
+
     /**
      * copy of {@link Integer#compare(int, int)}, as that is not available on lower API levels
      */
@@ -5,6 +5,7 @@ import cgeo.geocaching.models.Geocache;
 import androidx.annotation.NonNull;
 
 import java.util.Locale;
+import java.util.function.Function;
 
 class FindsComparator extends AbstractCacheComparator {
 
@@ -20,6 +21,16 @@ class FindsComparator extends AbstractCacheComparator {
         return finds2 - finds1;
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getFindsCount();
+    }
+
+    @Override
+    protected boolean isSortKeyDescending() {
+        return true;
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%d", cache.getFindsCount());
@@ -5,6 +5,8 @@ import cgeo.geocaching.storage.SqlBuilder;
 
 import androidx.annotation.NonNull;
 
+import java.util.function.Function;
+
 /**
  * sorts caches by geo code, therefore effectively sorting by cache age
  */
@@ -21,6 +23,12 @@ public class GeocodeComparator extends AbstractCacheComparator {
         throw new IllegalStateException("should never be called");
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        // keys consist of geocode information only (see canCompare), so there is no value to extract
+        return cache -> null;
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return cache.getGeocode();
@@ -0,0 +1,126 @@
+package cgeo.geocaching.sorting;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.models.Geocache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps a list of caches sorted by distance while the position changes.
+ * <br>
+ * Between two position updates the order of a distance-sorted list changes only a little. Thus instead of sorting the list from
+ * scratch, the distances to the new position are calculated in bulk using a cheap equirectangular approximation and the order
+ * is repaired with an insertion sort pass. If the order changed a lot (e.g. after a big jump of the position), the list is sorted
+ * completely instead. The approximate distances are used for ordering only, the distances stored in the caches
+ * (see {@link Geocache#getDistance()}) are not changed.
+ */
+public final class IncrementalDistanceSorter {
+
+    /** mean earth radius in kilometers */
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /** if insertion sort needs more than this many shifts per cache, the list is sorted completely */
+    private static final int MAX_SHIFTS_PER_CACHE = 8;
+
+    private IncrementalDistanceSorter() {
+        // utility class
+    }
+
+    /**
+     * Repairs the order of a (previously sorted) list by distance to the given position.
+     * Caches without coordinates are placed last, or first if sorted descending (like the distance comparators do).
+     *
+     * @param descending true if the list is sorted by descending distance
+     * @return index range {from, to} (to exclusive) of list positions whose cache changed, or null if the order did not change
+     */
+    @Nullable
+    public static int[] resort(@NonNull final List<Geocache> list, @NonNull final Geopoint position, final boolean descending) {
+        final Geocache[] caches = list.toArray(new Geocache[0]);
+        final float[] distances = getApproximateDistances(caches, position);
+
+        final long maxShifts = (long) caches.length * MAX_SHIFTS_PER_CACHE;
+        long shifts = 0;
+        int changedFrom = Integer.MAX_VALUE;
+        int changedTo = -1;
+        for (int i = 1; i < caches.length; i++) {
+            final Geocache cache = caches[i];
+            final float distance = distances[i];
+            int j = i - 1;
+            while (j >= 0 && compare(distances[j], distance, descending) > 0) {
+                caches[j + 1] = caches[j];
+                distances[j + 1] = distances[j];
+                j--;
+            }
+            if (j + 1 != i) {
+                caches[j + 1] = cache;
+                distances[j + 1] = distance;
+                shifts += i - j - 1;
+                changedFrom = Math.min(changedFrom, j + 1);
+                changedTo = i + 1;
+                if (shifts > maxShifts) {
+                    sortCompletely(list, caches, distances, descending);
+                    return new int[]{0, list.size()};
+                }
+            }
+        }
+        if (changedTo < 0) {
+            return null;
+        }
+        for (int i = changedFrom; i < changedTo; i++) {
+            list.set(i, caches[i]);
+        }
+        return new int[]{changedFrom, changedTo};
+    }
+
+    /** returns the approximate distances of the caches to given position, NaN for caches without coordinates */
+    @NonNull
+    private static float[] getApproximateDistances(@NonNull final Geocache[] caches, @NonNull final Geopoint position) {
+        final double lat = Math.toRadians(position.getLatitude());
+        final double lon = Math.toRadians(position.getLongitude());
+        final float[] distances = new float[caches.length];
+        for (int i = 0; i < caches.length; i++) {
+            final Geopoint coords = caches[i].getCoords();
+            distances[i] = coords == null ? Float.NaN : approximateDistance(lat, lon, coords);
+        }
+        return distances;
+    }
+
+    /** sorts the list by the given distances of the caches (stable) */
+    private static void sortCompletely(@NonNull final List<Geocache> list, @NonNull final Geocache[] caches, @NonNull final float[] distances, final boolean descending) {
+        final Integer[] order = new Integer[caches.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> compare(distances[i1], distances[i2], descending));
+        for (int i = 0; i < order.length; i++) {
+            list.set(i, caches[order[i]]);
+        }
+    }
+
+    /** compares distances, NaN (unknown distance) is greater than all other values */
+    private static int compare(final float distance1, final float distance2, final boolean descending) {
+        return descending ? Float.compare(distance2, distance1) : Float.compare(distance1, distance2);
+    }
+
+    /**
+     * Equirectangular approximation of the distance (in kilometers) between a position (given in radians) and given coordinates.
+     * Sufficiently precise for ordering caches near each other, and much cheaper than {@link Geopoint#distanceTo}.
+     */
+    static float approximateDistance(final double lat, final double lon, @NonNull final Geopoint coords) {
+        final double lat2 = Math.toRadians(coords.getLatitude());
+        double deltaLon = Math.toRadians(coords.getLongitude()) - lon;
+        if (deltaLon > Math.PI) {
+            deltaLon -= 2 * Math.PI;
+        } else if (deltaLon < -Math.PI) {
+            deltaLon += 2 * Math.PI;
+        }
+        final double x = deltaLon * Math.cos((lat + lat2) / 2);
+        final double y = lat2 - lat;
+        return (float) (EARTH_RADIUS_KM * Math.sqrt(x * x + y * y));
+    }
+
+}
@@ -6,6 +6,7 @@ import cgeo.geocaching.storage.SqlBuilder;
 import androidx.annotation.NonNull;
 
 import java.util.Locale;
+import java.util.function.Function;
 
 /**
  * sorts caches by number of items in inventory
@@ -17,6 +18,16 @@ class InventoryComparator extends AbstractCacheComparator {
         return cache2.getInventoryItems() - cache1.getInventoryItems();
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getInventoryItems();
+    }
+
+    @Override
+    protected boolean isSortKeyDescending() {
+        return true;
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%d", cache.getInventoryItems());
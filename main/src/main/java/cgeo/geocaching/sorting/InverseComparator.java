@@ -4,6 +4,7 @@ import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.SqlBuilder;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.Collections;
 import java.util.List;
@@ -29,9 +30,34 @@ public class InverseComparator implements CacheComparator {
         return originalComparator.getSortableSection(cache);
     }
 
+    @Override
+    @Nullable
+    public SortKeys getSortKeys() {
+        final SortKeys sortKeys = originalComparator.getSortKeys();
+        if (sortKeys == null) {
+            return null;
+        }
+        return new SortKeys() {
+            @Override
+            public Object create(@NonNull final Geocache cache) {
+                return sortKeys.create(cache);
+            }
+
+            @Override
+            public int compare(final Object key1, final Object key2) {
+                return sortKeys.compare(key2, key1);
+            }
+        };
+    }
+
     @Override
     public void sort(final List<Geocache> list) {
-        Collections.sort(list, this);
+        final SortKeys sortKeys = getSortKeys();
+        if (sortKeys != null) {
+            SortKeySorter.sort(list, sortKeys);
+        } else {
+            Collections.sort(list, this);
+        }
     }
 
     @Override
@@ -4,6 +4,7 @@ import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.storage.SqlBuilder;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -41,9 +42,50 @@ public class MultiComparator implements CacheComparator {
         return comparators.isEmpty() ? "" : comparators.get(0).getSortableSection(cache);
     }
 
+    @Override
+    @Nullable
+    public SortKeys getSortKeys() {
+        final SortKeys[] sortKeys = new SortKeys[comparators.size()];
+        for (int i = 0; i < sortKeys.length; i++) {
+            sortKeys[i] = comparators.get(i).getSortKeys();
+            if (sortKeys[i] == null) {
+                return null;
+            }
+        }
+        return new SortKeys() {
+            @Override
+            public Object create(@NonNull final Geocache cache) {
+                final Object[] keys = new Object[sortKeys.length];
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = sortKeys[i].create(cache);
+                }
+                return keys;
+            }
+
+            @Override
+            public int compare(final Object key1, final Object key2) {
+                final Object[] keys1 = (Object[]) key1;
+                final Object[] keys2 = (Object[]) key2;
+                for (int i = 0; i < keys1.length; i++) {
+                    // same argument order as in MultiComparator.compare()
+                    final int c = sortKeys[i].compare(keys2[i], keys1[i]);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+
     @Override
     public void sort(final List<Geocache> list) {
-        Collections.sort(list, this);
+        final SortKeys sortKeys = getSortKeys();
+        if (sortKeys != null) {
+            SortKeySorter.sort(list, sortKeys);
+        } else {
+            Collections.sort(list, this);
+        }
     }
 
     @Override
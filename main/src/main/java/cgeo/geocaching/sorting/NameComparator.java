@@ -6,6 +6,8 @@ import cgeo.geocaching.utils.TextUtils;
 
 import androidx.annotation.NonNull;
 
+import java.util.function.Function;
+
 import org.apache.commons.lang3.StringUtils;
 
 /**
@@ -25,6 +27,11 @@ public class NameComparator extends AbstractCacheComparator {
         return TextUtils.COLLATOR.compare(cache1.getNameForSorting(), cache2.getNameForSorting());
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> TextUtils.COLLATOR.getCollationKey(cache.getNameForSorting());
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return StringUtils.upperCase(StringUtils.substring(cache.getNameForSorting(), 0, 2));
@@ -6,6 +6,7 @@ import cgeo.geocaching.storage.SqlBuilder;
 import androidx.annotation.NonNull;
 
 import java.util.Locale;
+import java.util.function.Function;
 
 /**
  * sorts caches by popularity (favorite count)
@@ -17,6 +18,16 @@ class PopularityComparator extends AbstractCacheComparator {
         return cache2.getFavoritePoints() - cache1.getFavoritePoints();
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getFavoritePoints();
+    }
+
+    @Override
+    protected boolean isSortKeyDescending() {
+        return true;
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%d", cache.getFavoritePoints());
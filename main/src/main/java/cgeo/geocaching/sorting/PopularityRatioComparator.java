@@ -6,6 +6,7 @@ import cgeo.geocaching.storage.SqlBuilder;
 import androidx.annotation.NonNull;
 
 import java.util.Locale;
+import java.util.function.Function;
 
 /**
  * sorts caches by popularity ratio (favorites per find in %).
@@ -14,19 +15,22 @@ class PopularityRatioComparator extends AbstractCacheComparator {
 
     @Override
     protected int compareCaches(final Geocache cache1, final Geocache cache2) {
-        final int finds1 = cache1.getFindsCount();
-        final int finds2 = cache2.getFindsCount();
-
-        float ratio1 = 0.0f;
-        if (finds1 != 0) {
-            ratio1 = (float) cache1.getFavoritePoints() / (float) finds1;
-        }
-        float ratio2 = 0.0f;
-        if (finds2 != 0) {
-            ratio2 = (float) cache2.getFavoritePoints() / (float) finds2;
-        }
-
-        return Float.compare(ratio2, ratio1);
+        return Float.compare(getRatio(cache2), getRatio(cache1));
+    }
+
+    private static float getRatio(final Geocache cache) {
+        final int finds = cache.getFindsCount();
+        return finds == 0 ? 0.0f : (float) cache.getFavoritePoints() / (float) finds;
+    }
+
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> getRatio(cache);
+    }
+
+    @Override
+    protected boolean isSortKeyDescending() {
+        return true;
     }
 
     @Override
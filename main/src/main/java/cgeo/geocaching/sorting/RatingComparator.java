@@ -6,6 +6,7 @@ import cgeo.geocaching.storage.SqlBuilder;
 import androidx.annotation.NonNull;
 
 import java.util.Locale;
+import java.util.function.Function;
 
 /**
  * sorts caches by gcvote.com rating
@@ -24,6 +25,16 @@ class RatingComparator extends AbstractCacheComparator {
         return Float.compare(getWeightedArithmeticMean(cache2), getWeightedArithmeticMean(cache1));
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> getWeightedArithmeticMean(cache);
+    }
+
+    @Override
+    protected boolean isSortKeyDescending() {
+        return true;
+    }
+
     /**
      * Add some artificial average ratings to weight caches with few ratings towards the average rating.
      */
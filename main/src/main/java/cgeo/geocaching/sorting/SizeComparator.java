@@ -5,6 +5,8 @@ import cgeo.geocaching.storage.SqlBuilder;
 
 import androidx.annotation.NonNull;
 
+import java.util.function.Function;
+
 /**
  * sorts caches by size
  */
@@ -15,6 +17,16 @@ class SizeComparator extends AbstractCacheComparator {
         return cache2.getSize().comparable - cache1.getSize().comparable;
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getSize().comparable;
+    }
+
+    @Override
+    protected boolean isSortKeyDescending() {
+        return true;
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return cache.getSize().toString();
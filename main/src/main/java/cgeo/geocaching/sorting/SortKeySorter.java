@@ -0,0 +1,172 @@
+package cgeo.geocaching.sorting;
+
+import cgeo.geocaching.models.Geocache;
+import cgeo.geocaching.utils.Log;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/**
+ * Sorts lists of caches using the sort keys of a {@link CacheComparator} (see {@link CacheComparator#getSortKeys()}).
+ * <br>
+ * Keys are created once per cache (sequentially, since key creation might not be thread-safe, e.g. for collation keys).
+ * Large lists are then sorted in parallel chunks on the computation scheduler which are merged afterwards. Sorting is stable and yields the same
+ * order as sorting the list via {@link java.util.Collections#sort(List, Comparator)} with the comparator itself.
+ */
+final class SortKeySorter {
+
+    /** minimum list size for sorting in parallel */
+    static final int PARALLEL_THRESHOLD = 20000;
+
+    private static final int MAX_THREADS = 4;
+
+    private static final class Entry {
+        private final Geocache cache;
+        private final Object key;
+
+        Entry(final Geocache cache, final Object key) {
+            this.cache = cache;
+            this.key = key;
+        }
+    }
+
+    private SortKeySorter() {
+        // utility class
+    }
+
+    static void sort(final List<Geocache> list, final CacheComparator.SortKeys sortKeys) {
+        final int size = list.size();
+        if (size < 2) {
+            return;
+        }
+        final Entry[] entries = new Entry[size];
+        int idx = 0;
+        for (Geocache cache : list) {
+            entries[idx++] = new Entry(cache, sortKeys.create(cache));
+        }
+
+        final Comparator<Entry> entryComparator = (e1, e2) -> sortKeys.compare(e1.key, e2.key);
+        final int threads = Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors());
+        if (size < PARALLEL_THRESHOLD || threads < 2 || !sortParallel(entries, entryComparator, threads)) {
+            Arrays.sort(entries, entryComparator);
+        }
+
+        final ListIterator<Geocache> it = list.listIterator();
+        for (Entry entry : entries) {
+            it.next();
+            it.set(entry.cache);
+        }
+    }
+
+    /** sorts chunks of given array in parallel and merges them. Returns false if parallel sorting failed */
+    private static boolean sortParallel(final Entry[] entries, final Comparator<Entry> entryComparator, final int threads) {
+        final int[] bounds = new int[threads + 1];
+        for (int t = 0; t <= threads; t++) {
+            bounds[t] = (int) ((long) entries.length * t / threads);
+        }
+
+        // Chunks are sorted by the computation scheduler (same as AndroidRxUtils.computationScheduler). The calling thread
+        // sorts all chunks not yet started by the scheduler itself, so sorting can't block if the scheduler is busy
+        // (or if the caller itself is running on it).
+        final CountDownLatch finished = new CountDownLatch(threads);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final Runnable[] chunkSorters = new Runnable[threads];
+        for (int t = 0; t < threads; t++) {
+            final int from = bounds[t];
+            final int to = bounds[t + 1];
+            final AtomicBoolean chunkStarted = new AtomicBoolean(false);
+            chunkSorters[t] = () -> {
+                if (!chunkStarted.compareAndSet(false, true)) {
+                    return;
+                }
+                try {
+                    Arrays.sort(entries, from, to, entryComparator);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    finished.countDown();
+                }
+            };
+        }
+        for (int t = 1; t < threads; t++) {
+            Schedulers.computation().scheduleDirect(chunkSorters[t]);
+        }
+        for (Runnable chunkSorter : chunkSorters) {
+            chunkSorter.run();
+        }
+        awaitUninterruptibly(finished);
+        if (failure.get() != null) {
+            Log.w("SortKeySorter: parallel sort failed, falling back to sequential sort", failure.get());
+            return false;
+        }
+
+        // merge neighbouring chunks pairwise until only one is left
+        Entry[] src = entries;
+        Entry[] dest = new Entry[entries.length];
+        int[] chunkBounds = bounds;
+        while (chunkBounds.length > 2) {
+            final int chunks = chunkBounds.length - 1;
+            final int[] merged = new int[(chunks + 1) / 2 + 1];
+            int m = 0;
+            for (int c = 0; c < chunks; c += 2) {
+                merged[m++] = chunkBounds[c];
+                if (c + 1 < chunks) {
+                    merge(src, chunkBounds[c], chunkBounds[c + 1], chunkBounds[c + 2], dest, entryComparator);
+                } else {
+                    System.arraycopy(src, chunkBounds[c], dest, chunkBounds[c], chunkBounds[c + 1] - chunkBounds[c]);
+                }
+            }
+            merged[m] = entries.length;
+            chunkBounds = merged;
+            final Entry[] tmp = src;
+            src = dest;
+            dest = tmp;
+        }
+        if (src != entries) {
+            System.arraycopy(src, 0, entries, 0, entries.length);
+        }
+        return true;
+    }
+
+    /** waits for all chunks, since the entries must not be accessed while chunks are still sorted */
+    private static void awaitUninterruptibly(final CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** stable merge of sorted ranges [from, mid) and [mid, to) of src into same range of dest */
+    private static void merge(final Entry[] src, final int from, final int mid, final int to, final Entry[] dest, final Comparator<Entry> entryComparator) {
+        int left = from;
+        int right = mid;
+        int pos = from;
+        while (left < mid && right < to) {
+            // on equal keys, the entry of the left chunk comes first to keep sorting stable
+            if (entryComparator.compare(src[right], src[left]) < 0) {
+                dest[pos++] = src[right++];
+            } else {
+                dest[pos++] = src[left++];
+            }
+        }
+        System.arraycopy(src, left, dest, pos, mid - left);
+        pos += mid - left;
+        System.arraycopy(src, right, dest, pos, to - right);
+    }
+
+}
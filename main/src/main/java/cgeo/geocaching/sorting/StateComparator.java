@@ -6,6 +6,8 @@ import cgeo.geocaching.models.Geocache;
 
 import androidx.annotation.NonNull;
 
+import java.util.function.Function;
+
 /**
  * sort caches by state (normal, disabled, archived)
  */
@@ -19,6 +21,11 @@ class StateComparator extends AbstractCacheComparator {
         return getState(cache1) - getState(cache2);
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> getState(cache);
+    }
+
     private static int getState(final Geocache cache) {
         if (cache.isDisabled()) {
             return 1;
@@ -6,6 +6,8 @@ import cgeo.geocaching.utils.CalendarUtils;
 
 import androidx.annotation.NonNull;
 
+import java.util.function.Function;
+
 class StorageTimeComparator extends AbstractCacheComparator {
 
     @Override
@@ -15,6 +17,11 @@ class StorageTimeComparator extends AbstractCacheComparator {
         return Long.compare(cache1.getUpdated(), cache2.getUpdated());
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getUpdated();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return CalendarUtils.yearMonth(cache.getUpdated());
@@ -6,6 +6,7 @@ import cgeo.geocaching.storage.SqlBuilder;
 import androidx.annotation.NonNull;
 
 import java.util.Locale;
+import java.util.function.Function;
 
 /**
  * sorts caches by terrain rating
@@ -22,6 +23,11 @@ class TerrainComparator extends AbstractCacheComparator {
         return Float.compare(cache1.getTerrain(), cache2.getTerrain());
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getTerrain();
+    }
+
     @Override
     public String getSortableSection(@NonNull final Geocache cache) {
         return String.format(Locale.getDefault(), "%.1f", cache.getTerrain());
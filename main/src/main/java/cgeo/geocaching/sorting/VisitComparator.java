@@ -6,6 +6,8 @@ import cgeo.geocaching.utils.CalendarUtils;
 
 import androidx.annotation.NonNull;
 
+import java.util.function.Function;
+
 /**
  * sorts caches by last visited date
  */
@@ -18,6 +20,16 @@ public class VisitComparator extends AbstractCacheComparator {
         return compare(cache2.getVisitedDate(), cache1.getVisitedDate());
     }
 
+    @Override
+    protected Function<Geocache, Comparable<?>> getSortKeyFunction() {
+        return cache -> cache.getVisitedDate();
+    }
+
+    @Override
+    protected boolean isSortKeyDescending() {
+        return true;
+    }
+
     /**
      * copy of Long#compare to avoid boxing
      */
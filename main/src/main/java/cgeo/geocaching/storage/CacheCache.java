@@ -28,6 +28,7 @@ public class CacheCache {
 
     public synchronized void removeAllFromCache() {
         cachesCache.clear();
+        CacheModificationTracker.markAllModified();
     }
 
     /**
@@ -40,6 +41,7 @@ public class CacheCache {
         synchronized (this) {
             cachesCache.remove(geocode);
         }
+        CacheModificationTracker.markModified(geocode);
     }
 
     /**
@@ -0,0 +1,122 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.models.Geocache;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks modifications of caches done via {@link DataStore} (saving, removing, changing list membership etc.)
+ * using a modification counter which is increased on every modification.
+ * <br>
+ * Users of data derived from caches (e.g. filter results) can remember the counter value at time of calculation
+ * and later ask which caches were modified since then.
+ * <br>
+ * At most {@link #MAX_TRACKED_CACHES} caches are tracked individually. If more caches are modified, the oldest
+ * modifications are dropped and regarded as a modification of all caches for counter values older than those.
+ */
+public final class CacheModificationTracker {
+
+    static final int MAX_TRACKED_CACHES = 5000;
+
+    private static long modificationCounter = 0;
+    /** counter value of last modification which affected all caches (or up to which per-cache modifications were dropped) */
+    private static long lastGlobalModification = 0;
+    private static final Map<String, Long> LAST_MODIFICATIONS = new HashMap<>();
+
+    private CacheModificationTracker() {
+        //no instance
+    }
+
+    public static synchronized long getModificationCounter() {
+        return modificationCounter;
+    }
+
+    static synchronized void markModified(@Nullable final String geocode) {
+        if (geocode != null) {
+            LAST_MODIFICATIONS.put(geocode, ++modificationCounter);
+            pruneIfNeeded();
+        }
+    }
+
+    static synchronized void markModified(@Nullable final Collection<Geocache> caches) {
+        if (caches == null || caches.isEmpty()) {
+            return;
+        }
+        final long counter = ++modificationCounter;
+        for (Geocache cache : caches) {
+            if (cache != null && cache.getGeocode() != null) {
+                LAST_MODIFICATIONS.put(cache.getGeocode(), counter);
+            }
+        }
+        pruneIfNeeded();
+    }
+
+    static synchronized void markModifiedGeocodes(@Nullable final Collection<String> geocodes) {
+        if (geocodes == null || geocodes.isEmpty()) {
+            return;
+        }
+        final long counter = ++modificationCounter;
+        for (String geocode : geocodes) {
+            if (geocode != null) {
+                LAST_MODIFICATIONS.put(geocode, counter);
+            }
+        }
+        pruneIfNeeded();
+    }
+
+    /** marks all caches as modified, e.g. after database was replaced */
+    static synchronized void markAllModified() {
+        LAST_MODIFICATIONS.clear();
+        lastGlobalModification = ++modificationCounter;
+    }
+
+    /** drops the older half of the tracked modifications once more than {@link #MAX_TRACKED_CACHES} caches are tracked */
+    private static void pruneIfNeeded() {
+        if (LAST_MODIFICATIONS.size() <= MAX_TRACKED_CACHES) {
+            return;
+        }
+        final long[] counters = new long[LAST_MODIFICATIONS.size()];
+        int idx = 0;
+        for (Long counter : LAST_MODIFICATIONS.values()) {
+            counters[idx++] = counter;
+        }
+        Arrays.sort(counters);
+        final long threshold = counters[counters.length / 2];
+        LAST_MODIFICATIONS.values().removeIf(counter -> counter <= threshold);
+        lastGlobalModification = Math.max(lastGlobalModification, threshold);
+    }
+
+    /** returns number of caches whose modification is currently tracked individually */
+    static synchronized int getTrackedCount() {
+        return LAST_MODIFICATIONS.size();
+    }
+
+    /**
+     * Returns geocodes of caches modified after the given counter value (as returned by {@link #getModificationCounter()}).
+     *
+     * @return set of modified geocodes, or null if all caches have to be regarded as modified
+     */
+    @Nullable
+    public static synchronized Set<String> getModifiedSince(final long counter) {
+        if (lastGlobalModification > counter) {
+            return null;
+        }
+        final Set<String> result = new HashSet<>();
+        if (counter >= modificationCounter) {
+            return result;
+        }
+        for (Map.Entry<String, Long> entry : LAST_MODIFICATIONS.entrySet()) {
+            if (entry.getValue() > counter) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+}
@@ -45,6 +45,7 @@ import cgeo.geocaching.search.GeocacheSearchSuggestionCursor;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.sorting.CacheComparator;
 import cgeo.geocaching.storage.extension.DBDowngradeableVersions;
+import cgeo.geocaching.storage.extension.GCVoteRatings;
 import cgeo.geocaching.ui.TextParam;
 import cgeo.geocaching.ui.dialog.SimpleDialog;
 import cgeo.geocaching.utils.AndroidRxUtils;
@@ -89,6 +90,7 @@ import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
+import androidx.annotation.WorkerThread;
 import androidx.core.util.Supplier;
 
 import java.io.File;
@@ -121,9 +123,11 @@ import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.ArrayUtils;
+import org.apache.commons.lang3.EnumUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
 
 public class DataStore {
 
@@ -163,7 +167,10 @@ public class DataStore {
         DBEXTENSION_EMOJILRU(5),
         DBEXTENSION_POCKETQUERY_HISTORY(6),
         DBEXTENSION_TRACKFILES(7),
-        DBEXTENSION_LAST_TRACKABLE_ACTION(8);
+        DBEXTENSION_LAST_TRACKABLE_ACTION(8),
+        DBEXTENSION_CACHE_DOWNLOAD_QUEUE(9),
+        DBEXTENSION_GCVOTE_RATING(10),
+        DBEXTENSION_IMAGE_PREFETCH_QUEUE(11);
 
         public final int id;
         private static final EnumValueMapper<Integer, DBExtensionType> mapper = new EnumValueMapper<>();
@@ -256,7 +263,7 @@ public class DataStore {
     private static final CacheCache cacheCache = new CacheCache();
     private static volatile SQLiteDatabase database = null;
     private static final ReentrantReadWriteLock databaseLock = new ReentrantReadWriteLock();
-    private static final int dbVersion = 105;
+    private static final int dbVersion = 108;
     public static final int customListIdOffset = 10;
 
     /**
@@ -297,7 +304,9 @@ public class DataStore {
             102, // add projection attributes to waypoints
             103, // add more projection attributes to waypoints
             104,  // add geofence radius for lab stages
-            105  // Migrate UDC geocodes from ZZ1000-based numbers to random ones
+            105, // Migrate UDC geocodes from ZZ1000-based numbers to random ones
+            107, // add table for the image index
+            108  // add HTTP validators to image references
     ));
 
     @NonNull private static final String dbTableCaches = "cg_caches";
@@ -344,6 +353,9 @@ public class DataStore {
         @NonNull public static final String dbFieldRoute_id = "id";
     @NonNull private static final String dbTableExtension = "cg_extension";
     @NonNull private static final String dbTableFilters = "cg_filters";
+    @NonNull private static final String dbTableImageBlobs = "cg_image_blobs";
+    @NonNull private static final String dbTableImageRefs = "cg_image_refs";
+    @NonNull private static final String dbTableImageIndex = "cg_image_index";
 
     @NonNull private static final String[] dbAll = new String[]{
             dbTableCaches, dbTableLists, dbTableCachesLists, dbTableAttributes, dbTableWaypoints,
@@ -351,7 +363,7 @@ public class DataStore {
             dbTableLogImages, dbTableLogsOffline, dbTableLogsOfflineImages,
             dbTableLogsOfflineTrackables, dbTableTrackables,
             dbTableSearchDestinationHistory, dbTableTrailHistory, dbTableRoute,
-            dbTableExtension, dbTableFilters
+            dbTableExtension, dbTableFilters, dbTableImageBlobs, dbTableImageRefs, dbTableImageIndex
     };
 
     @NonNull private static final String dbTableSequences = "sqlite_sequence";
@@ -620,6 +632,40 @@ public class DataStore {
             + "treeconfig TEXT"
             + "); ";
 
+    private static final String dbCreateImageBlobs
+            = "CREATE TABLE IF NOT EXISTS " + dbTableImageBlobs + " ("
+            + "hash TEXT PRIMARY KEY, "
+            + "filename TEXT NOT NULL, "
+            + "size INTEGER NOT NULL DEFAULT 0, "
+            + "lastaccess INTEGER NOT NULL DEFAULT 0"
+            + "); ";
+
+    private static final String dbCreateImageRefs
+            = "CREATE TABLE IF NOT EXISTS " + dbTableImageRefs + " ("
+            + "geocode TEXT NOT NULL, "
+            + "urlkey TEXT NOT NULL, "
+            + "hash TEXT NOT NULL, "
+            + "etag TEXT, "
+            + "lastmodified TEXT, "
+            + "PRIMARY KEY (geocode, urlkey)"
+            + "); ";
+
+    private static final String dbCreateImageIndex
+            = "CREATE TABLE IF NOT EXISTS " + dbTableImageIndex + " ("
+            + "geocode TEXT NOT NULL, "
+            + "position INTEGER NOT NULL, "
+            + "source INTEGER NOT NULL, "
+            + "url TEXT NOT NULL, "
+            + "title TEXT, "
+            + "description TEXT, "
+            + "context TEXT, "
+            + "category TEXT, "
+            + "service_image_id TEXT, "
+            + "latitude DOUBLE, "
+            + "longitude DOUBLE, "
+            + "PRIMARY KEY (geocode, position)"
+            + "); ";
+
     // reminder to myself: when adding a new CREATE TABLE statement:
     // make sure to add it to both onUpgrade() and onCreate()
 
@@ -648,6 +694,9 @@ public class DataStore {
 
     public static class DBExtension {
 
+        /** stays below the limit of 999 host parameters per SQLite statement */
+        private static final int MAX_KEYS_PER_QUERY = 500;
+
         // reflect actual database schema (+ type param)
         protected long id;
         protected String key;
@@ -756,6 +805,90 @@ public class DataStore {
             });
         }
 
+        /**
+         * get a list of all entries for any of the given keys (compared exactly, not by LIKE), queried in chunks
+         */
+        @NonNull
+        protected static ArrayList<DBExtension> getAllByKeys(final DBExtensionType type, @NonNull final Collection<String> keys) {
+            return withAccessLock(() -> {
+                final ArrayList<DBExtension> result = new ArrayList<>();
+                if (keys.isEmpty() || !init(false)) {
+                    return result;
+                }
+                checkState(type, null, true);
+                final List<String> keyList = new ArrayList<>(keys);
+                for (int start = 0; start < keyList.size(); start += MAX_KEYS_PER_QUERY) {
+                    final List<String> chunk = keyList.subList(start, Math.min(keyList.size(), start + MAX_KEYS_PER_QUERY));
+                    final String[] args = new String[chunk.size() + 1];
+                    args[0] = String.valueOf(type.id);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        args[i + 1] = chunk.get(i);
+                    }
+                    try (Cursor cursor = database.query(dbTableExtension,
+                            new String[]{"_id", "_key", "long1", "long2", "long3", "long4", "string1", "string2", "string3", "string4"},
+                            "_type = ? AND _key IN (" + StringUtils.repeat("?", ",", chunk.size()) + ")",
+                            args,
+                            null, null, "_id", null)) {
+                        while (cursor.moveToNext()) {
+                            result.add(new DBExtension(cursor.getLong(0), cursor.getString(1), cursor.getLong(2), cursor.getLong(3), cursor.getLong(4), cursor.getLong(5), cursor.getString(6), cursor.getString(7), cursor.getString(8), cursor.getString(9)));
+                        }
+                    }
+                }
+                return result;
+            });
+        }
+
+        /**
+         * replaces the entries with the keys of the given entries by those entries, in a single transaction
+         */
+        protected static void replaceAll(final DBExtensionType type, @NonNull final Collection<DBExtension> entries) {
+            withAccessLock(() -> {
+                if (entries.isEmpty() || !init(false)) {
+                    return;
+                }
+                database.beginTransaction();
+                try {
+                    for (final DBExtension entry : entries) {
+                        checkState(type, entry.key, false);
+                        database.delete(dbTableExtension, "_type = ? AND _key = ?", new String[]{String.valueOf(type.id), entry.key});
+                        database.insert(dbTableExtension, null, toValues(type, entry.key, entry.long1, entry.long2, entry.long3, entry.long4, entry.string1, entry.string2, entry.string3, entry.string4));
+                    }
+                    database.setTransactionSuccessful();
+                } catch (final Exception e) {
+                    Log.e("DBExtension.replaceAll failed", e);
+                } finally {
+                    database.endTransaction();
+                }
+            });
+        }
+
+        /**
+         * removes all elements with this key and exactly this string1 value (unlike {@link #removeAll(DBExtensionType, String)},
+         * no pattern matching is done)
+         */
+        protected static void removeAll(final DBExtensionType type, @NonNull final String key, @NonNull final String string1) {
+            withAccessLock(() -> {
+                if (!init(false)) {
+                    return;
+                }
+                checkState(type, key, false);
+                database.delete(dbTableExtension, "_type = ? AND _key = ? AND string1 = ?", new String[]{String.valueOf(type.id), key, string1});
+            });
+        }
+
+        /**
+         * removes all elements of this type whose long1 value (usually a timestamp) is smaller than the given value
+         */
+        protected static void removeAllWithLong1Before(final DBExtensionType type, final long long1) {
+            withAccessLock(() -> {
+                if (!init(false)) {
+                    return;
+                }
+                checkState(type, null, true);
+                database.delete(dbTableExtension, "_type = ? AND long1 < ?", new String[]{String.valueOf(type.id), String.valueOf(long1)});
+            });
+        }
+
         /**
          * adds a new entry to database
          */
@@ -895,6 +1028,373 @@ public class DataStore {
 
     }
 
+    /**
+     * Index of the content-addressed image store, see {@link ImageStore}.
+     * <br>
+     * Each image content (blob) is stored once under the hash of its content. A reference maps the URL of an image
+     * used by a geocode (represented by the name the image had in the per-geocode storage) to a blob.
+     */
+    public static class DBImageStore {
+
+        /** last access of blobs is only updated if older than this, to avoid a write on every read */
+        private static final long ACCESS_UPDATE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+        private DBImageStore() {
+            // utility class
+        }
+
+        /**
+         * @return file name of the blob referenced by the given geocode and URL key, or {@code null} if there is none
+         */
+        @Nullable
+        public static String getFileName(@NonNull final String geocode, @NonNull final String urlKey) {
+            return withAccessLock(() -> {
+                init();
+                try (Cursor cursor = database.rawQuery("SELECT b.hash, b.filename, b.lastaccess FROM " + dbTableImageRefs + " r JOIN " + dbTableImageBlobs
+                        + " b ON r.hash = b.hash WHERE r.geocode = ? AND r.urlkey = ?", new String[]{geocode, urlKey})) {
+                    if (!cursor.moveToFirst()) {
+                        return null;
+                    }
+                    final long now = System.currentTimeMillis();
+                    if (cursor.getLong(2) < now - ACCESS_UPDATE_INTERVAL) {
+                        final ContentValues values = new ContentValues();
+                        values.put("lastaccess", now);
+                        database.update(dbTableImageBlobs, values, "hash = ?", new String[]{cursor.getString(0)});
+                    }
+                    return cursor.getString(1);
+                }
+            });
+        }
+
+        /**
+         * @return file name of the blob with the given hash, or {@code null} if there is none
+         */
+        @Nullable
+        public static String getBlobFileName(@NonNull final String hash) {
+            return withAccessLock(() -> {
+                init();
+                try (Cursor cursor = database.query(dbTableImageBlobs, new String[]{"filename"}, "hash = ?", new String[]{hash}, null, null, null)) {
+                    return cursor.moveToFirst() ? cursor.getString(0) : null;
+                }
+            });
+        }
+
+        /**
+         * @return ETag and Last-Modified header received when the image of the given geocode and URL key was downloaded,
+         * or {@code null} if there is no such image
+         */
+        @Nullable
+        public static ImmutablePair<String, String> getValidators(@NonNull final String geocode, @NonNull final String urlKey) {
+            return withAccessLock(() -> {
+                init();
+                try (Cursor cursor = database.query(dbTableImageRefs, new String[]{"etag", "lastmodified"}, "geocode = ? AND urlkey = ?", new String[]{geocode, urlKey}, null, null, null)) {
+                    return cursor.moveToFirst() ? new ImmutablePair<>(cursor.getString(0), cursor.getString(1)) : null;
+                }
+            });
+        }
+
+        /**
+         * adds the blob (if not yet known) and lets the given geocode and URL key reference it. The HTTP validators are kept
+         * per reference, as the same content may be served under several URLs with different validators.
+         */
+        public static void addReference(@NonNull final String geocode, @NonNull final String urlKey, @NonNull final String hash, @NonNull final String fileName, final long size,
+                                        @Nullable final String etag, @Nullable final String lastModified) {
+            withAccessLock(() -> {
+                init();
+                database.beginTransaction();
+                try {
+                    final ContentValues blob = new ContentValues();
+                    blob.put("hash", hash);
+                    blob.put("filename", fileName);
+                    blob.put("size", size);
+                    blob.put("lastaccess", System.currentTimeMillis());
+                    database.insertWithOnConflict(dbTableImageBlobs, null, blob, SQLiteDatabase.CONFLICT_REPLACE);
+
+                    final ContentValues ref = new ContentValues();
+                    ref.put("geocode", geocode);
+                    ref.put("urlkey", urlKey);
+                    ref.put("hash", hash);
+                    ref.put("etag", etag);
+                    ref.put("lastmodified", lastModified);
+                    database.insertWithOnConflict(dbTableImageRefs, null, ref, SQLiteDatabase.CONFLICT_REPLACE);
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
+            });
+        }
+
+        /**
+         * @return hash, file name and size of all blobs not referenced by any geocode, least recently used first
+         */
+        @NonNull
+        public static List<ImmutableTriple<String, String, Long>> getUnreferencedBlobs() {
+            return queryToColl(dbTableImageBlobs, new String[]{"hash", "filename", "size"},
+                    "hash NOT IN (SELECT hash FROM " + dbTableImageRefs + ")", null, "lastaccess", null, new ArrayList<>(),
+                    c -> new ImmutableTriple<>(c.getString(0), c.getString(1), c.getLong(2)));
+        }
+
+        /**
+         * removes the blob with the given hash, unless it is referenced by any geocode
+         *
+         * @return true if the blob was removed
+         */
+        public static boolean removeBlobIfUnreferenced(@NonNull final String hash) {
+            return withAccessLock(() -> {
+                init();
+                return database.delete(dbTableImageBlobs, "hash = ? AND hash NOT IN (SELECT hash FROM " + dbTableImageRefs + " WHERE hash = ?)", new String[]{hash, hash}) > 0;
+            });
+        }
+
+        /**
+         * @return size of all blobs
+         */
+        public static long getStoredSize() {
+            return withAccessLock(() -> {
+                init();
+                return database.compileStatement("SELECT IFNULL(SUM(size), 0) FROM " + dbTableImageBlobs).simpleQueryForLong();
+            });
+        }
+
+        /**
+         * @return size all referenced images would take if each reference had its own copy
+         */
+        public static long getReferencedSize() {
+            return withAccessLock(() -> {
+                init();
+                return database.compileStatement("SELECT IFNULL(SUM(b.size), 0) FROM " + dbTableImageRefs + " r JOIN " + dbTableImageBlobs + " b ON r.hash = b.hash").simpleQueryForLong();
+            });
+        }
+
+        public static long getBlobCount() {
+            return withAccessLock(() -> {
+                init();
+                return database.compileStatement("SELECT COUNT(*) FROM " + dbTableImageBlobs).simpleQueryForLong();
+            });
+        }
+    }
+
+    /**
+     * Index of the images of a stored cache (spoilers, images in the description and log images), built when the cache is
+     * stored, so showing the images of a cache needs neither to scan the description nor to load all logs.
+     * <br>
+     * For downloaded images the index also keeps their EXIF coordinates. The downloaded image itself is found in
+     * {@link DBImageStore} by geocode and URL. Saving a cache with changed description, spoilers or log images marks its
+     * index as outdated, until it is rebuilt by {@link #replace(String, Map)}.
+     */
+    public static class DBImageIndex {
+
+        /** position of the row marking the index of a geocode as up to date, it does not represent an image */
+        private static final int POSITION_MARKER = -1;
+
+        public enum ImageSource {
+            SPOILER(0),
+            DESCRIPTION(1),
+            LOG(2);
+
+            public final int id;
+
+            ImageSource(final int id) {
+                this.id = id;
+            }
+
+            @Nullable
+            private static ImageSource getById(final int id) {
+                for (final ImageSource source : values()) {
+                    if (source.id == id) {
+                        return source;
+                    }
+                }
+                return null;
+            }
+        }
+
+        private DBImageIndex() {
+            // utility class
+        }
+
+        /**
+         * @return the indexed images of the given geocode by source, or {@code null} if the index is missing or outdated
+         */
+        @Nullable
+        public static Map<ImageSource, List<Image>> load(@NonNull final String geocode) {
+            return withAccessLock(() -> {
+                init();
+                try (Cursor cursor = database.query(dbTableImageIndex, new String[]{"position", "source", "url", "title", "description", "context", "category", "service_image_id"},
+                        "geocode = ?", new String[]{geocode}, null, null, "position")) {
+                    if (!cursor.moveToFirst() || cursor.getInt(0) != POSITION_MARKER) {
+                        return null;
+                    }
+                    final Map<ImageSource, List<Image>> images = new EnumMap<>(ImageSource.class);
+                    for (final ImageSource source : ImageSource.values()) {
+                        images.put(source, new ArrayList<>());
+                    }
+                    while (cursor.moveToNext()) {
+                        final ImageSource source = ImageSource.getById(cursor.getInt(1));
+                        if (source == null) {
+                            continue;
+                        }
+                        images.get(source).add(new Image.Builder()
+                                .setUrl(cursor.getString(2))
+                                .setTitle(cursor.getString(3))
+                                .setDescription(cursor.getString(4))
+                                .setContextInformation(cursor.getString(5))
+                                .setCategory(EnumUtils.getEnum(Image.ImageCategory.class, cursor.getString(6), Image.ImageCategory.UNCATEGORIZED))
+                                .setServiceImageId(cursor.getString(7))
+                                .build());
+                    }
+                    return images;
+                }
+            });
+        }
+
+        /**
+         * replaces the indexed images of the given geocode, keeping coordinates of images already known
+         */
+        public static void replace(@NonNull final String geocode, @NonNull final Map<ImageSource, List<Image>> images) {
+            withAccessLock(() -> {
+                init();
+                database.beginTransaction();
+                try {
+                    final Map<String, ContentValues> knownCoordinates = new HashMap<>();
+                    try (Cursor cursor = database.query(dbTableImageIndex, new String[]{"url", "latitude", "longitude"},
+                            "geocode = ? AND latitude IS NOT NULL AND longitude IS NOT NULL", new String[]{geocode}, null, null, null)) {
+                        while (cursor.moveToNext()) {
+                            final ContentValues coords = new ContentValues();
+                            coords.put("latitude", cursor.getDouble(1));
+                            coords.put("longitude", cursor.getDouble(2));
+                            knownCoordinates.put(cursor.getString(0), coords);
+                        }
+                    }
+                    database.delete(dbTableImageIndex, "geocode = ?", new String[]{geocode});
+
+                    final ContentValues marker = new ContentValues();
+                    marker.put("geocode", geocode);
+                    marker.put("position", POSITION_MARKER);
+                    marker.put("source", POSITION_MARKER);
+                    marker.put("url", "");
+                    database.insert(dbTableImageIndex, null, marker);
+
+                    int position = 0;
+                    for (final ImageSource source : ImageSource.values()) {
+                        final List<Image> sourceImages = images.get(source);
+                        if (sourceImages == null) {
+                            continue;
+                        }
+                        for (final Image image : sourceImages) {
+                            final ContentValues values = new ContentValues();
+                            values.put("geocode", geocode);
+                            values.put("position", position++);
+                            values.put("source", source.id);
+                            values.put("url", image.getUrl());
+                            values.put("title", image.title);
+                            values.put("description", image.getDescription());
+                            values.put("context", image.contextInformation);
+                            values.put("category", image.category.name());
+                            values.put("service_image_id", image.serviceImageId);
+                            final ContentValues coords = knownCoordinates.get(image.getUrl());
+                            if (coords != null) {
+                                values.putAll(coords);
+                            }
+                            database.insert(dbTableImageIndex, null, values);
+                        }
+                    }
+                    database.setTransactionSuccessful();
+                } finally {
+                    database.endTransaction();
+                }
+            });
+        }
+
+        /**
+         * sets the EXIF coordinates of a downloaded image of the given geocode
+         */
+        public static void setCoordinates(@NonNull final String geocode, @NonNull final String url, @NonNull final Geopoint coords) {
+            withAccessLock(() -> {
+                init();
+                final ContentValues values = new ContentValues();
+                values.put("latitude", coords.getLatitude());
+                values.put("longitude", coords.getLongitude());
+                database.update(dbTableImageIndex, values, "geocode = ? AND url = ?", new String[]{geocode, url});
+            });
+        }
+
+        /**
+         * @return EXIF coordinates of the indexed images of the given geocode, by URL
+         */
+        @NonNull
+        @WorkerThread
+        public static Map<String, Geopoint> getCoordinates(@NonNull final String geocode) {
+            return withAccessLock(() -> {
+                init();
+                final Map<String, Geopoint> coords = new HashMap<>();
+                try (Cursor cursor = database.query(dbTableImageIndex, new String[]{"url", "latitude", "longitude"},
+                        "geocode = ? AND latitude IS NOT NULL AND longitude IS NOT NULL", new String[]{geocode}, null, null, null)) {
+                    while (cursor.moveToNext()) {
+                        coords.put(cursor.getString(0), new Geopoint(cursor.getDouble(1), cursor.getDouble(2)));
+                    }
+                }
+                return coords;
+            });
+        }
+
+        /** marks the index of the given geocode as outdated. Must be called within a transaction */
+        private static void invalidateWithoutTransaction(@NonNull final String geocode) {
+            database.delete(dbTableImageIndex, "geocode = ? AND position = " + POSITION_MARKER, new String[]{geocode});
+        }
+
+        /**
+         * whether description or spoilers of the given cache differ from the stored ones, so its index needs to be rebuilt.
+         * Must be called within a transaction, before the cache is saved
+         */
+        private static boolean hasChangedImagesWithoutTransaction(@NonNull final Geocache cache) {
+            final String geocode = cache.getGeocode();
+            try (Cursor cursor = database.query(dbTableCaches, new String[]{"shortdesc", "description"}, "geocode = ?", new String[]{geocode}, null, null, null)) {
+                if (!cursor.moveToFirst()) {
+                    return true;
+                }
+                if (!StringUtils.equals(StringUtils.defaultString(cursor.getString(0)), StringUtils.defaultString(cache.getShortDescription()))
+                        || !StringUtils.equals(StringUtils.defaultString(cursor.getString(1)), StringUtils.defaultString(cache.getDescription()))) {
+                    return true;
+                }
+            }
+            if (!cache.hasSpoilersSet()) {
+                return false;
+            }
+            final List<String> storedSpoilers = new ArrayList<>();
+            try (Cursor cursor = database.query(dbTableSpoilers, new String[]{"url", "title", "description"}, "geocode = ?", new String[]{geocode}, null, null, "_id")) {
+                while (cursor.moveToNext()) {
+                    storedSpoilers.add(getImageKey(cursor.getString(0), cursor.getString(1), cursor.getString(2)));
+                }
+            }
+            final List<String> spoilers = new ArrayList<>();
+            for (final Image spoiler : cache.getSpoilers()) {
+                spoilers.add(getImageKey(spoiler.getUrl(), spoiler.title, spoiler.getDescription()));
+            }
+            return !storedSpoilers.equals(spoilers);
+        }
+
+        /** URL, title and description of the stored log images of the given geocode, sorted. Must be called within a transaction */
+        @NonNull
+        private static List<String> getLogImageKeysWithoutTransaction(@NonNull final String geocode) {
+            final List<String> keys = new ArrayList<>();
+            try (Cursor cursor = database.rawQuery("SELECT url, title, description FROM " + dbTableLogImages
+                    + " WHERE log_id IN (SELECT _id FROM " + dbTableLogs + " WHERE geocode = ?)", new String[]{geocode})) {
+                while (cursor.moveToNext()) {
+                    keys.add(getImageKey(cursor.getString(0), cursor.getString(1), cursor.getString(2)));
+                }
+            }
+            Collections.sort(keys);
+            return keys;
+        }
+
+        /** blank title and description are stored as empty string or null, they are not to be distinguished */
+        @NonNull
+        private static String getImageKey(@Nullable final String url, @Nullable final String title, @Nullable final String description) {
+            return StringUtils.defaultString(url) + '\n' + StringUtils.defaultIfBlank(title, "") + '\n' + StringUtils.defaultIfBlank(description, "");
+        }
+    }
+
     private DataStore() {
         // utility class
     }
@@ -1183,6 +1683,9 @@ public class DataStore {
             db.execSQL(dbCreateRoute);
             db.execSQL(dbCreateExtension);
             db.execSQL(dbCreateFilters);
+            db.execSQL(dbCreateImageBlobs);
+            db.execSQL(dbCreateImageRefs);
+            db.execSQL(dbCreateImageIndex);
 
             createIndices(db, dbVersion);
 
@@ -1228,6 +1731,13 @@ public class DataStore {
             if (currentVersion >= 100) {
                 db.execSQL("CREATE INDEX IF NOT EXISTS in_cats_geo ON " + dbTableCategories + " (geocode)");
             }
+            if (currentVersion >= 106) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS in_imagerefs_hash ON " + dbTableImageRefs + " (hash)");
+                db.execSQL("CREATE INDEX IF NOT EXISTS in_imageblobs_access ON " + dbTableImageBlobs + " (lastaccess)");
+            }
+            if (currentVersion >= 107) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS in_imageindex_url ON " + dbTableImageIndex + " (geocode, url)");
+            }
         }
 
         @Override
@@ -1919,6 +2429,37 @@ public class DataStore {
                         }
                     }
 
+                    // Add tables for the content-addressed image store
+                    if (oldVersion < 106) {
+                        try {
+                            db.execSQL(dbCreateImageBlobs);
+                            db.execSQL(dbCreateImageRefs);
+                            createIndices(db, 106);
+                        } catch (final SQLException e) {
+                            onUpgradeError(e, 106);
+                        }
+                    }
+
+                    // Add table for the image index
+                    if (oldVersion < 107) {
+                        try {
+                            db.execSQL(dbCreateImageIndex);
+                            createIndices(db, 107);
+                        } catch (final SQLException e) {
+                            onUpgradeError(e, 107);
+                        }
+                    }
+
+                    // Add HTTP validators to image references
+                    if (oldVersion < 108) {
+                        try {
+                            createColumnIfNotExists(db, dbTableImageRefs, "etag TEXT");
+                            createColumnIfNotExists(db, dbTableImageRefs, "lastmodified TEXT");
+                        } catch (final SQLException e) {
+                            onUpgradeError(e, 108);
+                        }
+                    }
+
                 }
 
                 //at the very end of onUpgrade: rewrite downgradeable versions in database
@@ -2026,6 +2567,9 @@ public class DataStore {
             db.execSQL("DROP TABLE IF EXISTS " + dbTableRoute);
             db.execSQL("DROP TABLE IF EXISTS " + dbTableExtension);
             db.execSQL("DROP TABLE IF EXISTS " + dbTableFilters);
+            db.execSQL("DROP TABLE IF EXISTS " + dbTableImageBlobs);
+            db.execSQL("DROP TABLE IF EXISTS " + dbTableImageRefs);
+            db.execSQL("DROP TABLE IF EXISTS " + dbTableImageIndex);
             // also delete tables which have old table names
             db.execSQL("DROP TABLE IF EXISTS cg_table_route");
             db.execSQL("DROP TABLE IF EXISTS cg_table_extension");
@@ -2320,6 +2864,7 @@ public class DataStore {
         if (CollectionUtils.isEmpty(caches)) {
             return;
         }
+        CacheModificationTracker.markModified(caches);
 
         withAccessLock(() -> {
 
@@ -2415,6 +2960,7 @@ public class DataStore {
     }
 
     public static boolean storeIntoDatabase(final Geocache cache) {
+        CacheModificationTracker.markModified(cache.getGeocode());
         return withAccessLock(() -> {
             cache.addStorageLocation(StorageLocation.DATABASE);
             cacheCache.putCacheInCache(cache);
@@ -2486,6 +3032,9 @@ public class DataStore {
                 saveAttributesWithoutTransaction(cache);
                 saveCategoriesWithoutTransaction(cache);
                 saveWaypointsWithoutTransaction(cache);
+                if (DBImageIndex.hasChangedImagesWithoutTransaction(cache)) {
+                    DBImageIndex.invalidateWithoutTransaction(cache.getGeocode());
+                }
                 saveSpoilersWithoutTransaction(cache);
                 saveLogCountsWithoutTransaction(cache);
                 saveInventoryWithoutTransaction(cache.getGeocode(), cache.getInventory());
@@ -2779,6 +3328,7 @@ public class DataStore {
     }
 
     public static void saveLogs(final String geocode, final Iterable<LogEntry> logs, final boolean removeAllExistingLogs) {
+        CacheModificationTracker.markModified(geocode);
         withAccessLock(() -> {
 
             database.beginTransaction();
@@ -2797,6 +3347,7 @@ public class DataStore {
                 return;
             }
             // TODO delete logimages referring these logs
+            final List<String> logImagesBefore = DBImageIndex.getLogImageKeysWithoutTransaction(geocode);
             if (removeAllExistingLogs) {
                 database.delete(dbTableLogs, "geocode = ?", new String[]{geocode});
             } else {
@@ -2853,6 +3404,9 @@ public class DataStore {
                     }
                 }
             }
+            if (!logImagesBefore.equals(DBImageIndex.getLogImageKeysWithoutTransaction(geocode))) {
+                DBImageIndex.invalidateWithoutTransaction(geocode);
+            }
             cLog.add("logs:%d, imgs:%d", logCnt, imgCnt);
         }
     }
@@ -4073,7 +4627,9 @@ public class DataStore {
             Log.d("SQL: [" + sqlBuilder.getSql() + "]");
             cLog.add("Sel:" + sqlBuilder.getSql());
 
-            return cursorToColl(database.rawQuery(sqlBuilder.getSql(), sqlBuilder.getSqlWhereArgsArray()), new HashSet<>(), GET_STRING_0);
+            final Set<String> result = cursorToColl(database.rawQuery(sqlBuilder.getSql(), sqlBuilder.getSqlWhereArgsArray()), new HashSet<>(), GET_STRING_0);
+            cLog.add("Res:" + result.size());
+            return result;
         } catch (final Exception e) {
             Log.e("DataStore.loadBatchOfStoredGeocodes[SQL:" + (sqlBuilder == null ? "-" : sqlBuilder.getSql()) + "]", e);
             return Collections.emptySet();
@@ -4182,6 +4738,9 @@ public class DataStore {
                     // check for UDC cleanup every time this method is called
                     deleteOrphanedUDC();
 
+                    // move images of older versions into the image store (only done once)
+                    ImageStore.migrateLegacyImages();
+
                     // reindex if needed
                     if (Settings.dbNeedsReindex()) {
                         Settings.setDbReindexLastCheck(false);
@@ -4211,6 +4770,7 @@ public class DataStore {
 
                             deleteOrphanedRecords();
                             makeWaypointPrefixesUnique();
+                            ImageStore.trimToQuota();
 
                             // Remove the obsolete "_others" directory where the user avatar used to be stored.
                             FileUtils.deleteDirectory(LocalStorage.getGeocacheDataDirectory("_others"));
@@ -4265,6 +4825,9 @@ public class DataStore {
         Log.d("Database clean: removing non-existing logs from logimages");
         database.delete(dbTableLogImages, "log_id NOT IN (SELECT _id FROM " + dbTableLogs + ")", null);
 
+        Log.d("Database clean: removing non-existing caches from image index");
+        database.delete(dbTableImageIndex, "geocode NOT IN (SELECT geocode FROM " + dbTableCaches + ")", null);
+
         Log.d("Database clean: remove non-existing extension values");
         final DBExtensionType[] extensionValues = DBExtensionType.values();
         if (extensionValues.length > 0) {
@@ -4275,6 +4838,9 @@ public class DataStore {
             database.delete(dbTableExtension, "_type NOT IN (" + type + ")", null);
         }
         database.delete(dbTableExtension, "_type=" + DBEXTENSION_INVALID.id, null);
+
+        Log.d("Database clean: removing old GCVote ratings");
+        GCVoteRatings.removeFetchedBefore(System.currentTimeMillis() - DAYS_AFTER_CACHE_IS_DELETED);
     }
 
     private static void deleteOrphanedUDC() {
@@ -4423,6 +4989,9 @@ public class DataStore {
                     database.delete(dbTableVariables, baseWhereClause, null);
                     database.delete(dbTableCategories, baseWhereClause, null);
                     database.delete(dbTableTrackables, baseWhereClause, null);
+                    // the images themselves stay in the image store until they are evicted
+                    database.delete(dbTableImageRefs, baseWhereClause, null);
+                    database.delete(dbTableImageIndex, baseWhereClause, null);
                     database.setTransactionSuccessful();
                 } finally {
                     database.endTransaction();
@@ -4432,11 +5001,13 @@ public class DataStore {
                 for (final String geocode : geocodes) {
                     FileUtils.deleteDirectory(LocalStorage.getGeocacheDataDirectory(geocode));
                 }
+                Schedulers.io().scheduleDirect(ImageStore::trimToQuota);
             }
         });
     }
 
     public static boolean saveLogOffline(final String geocode, final OfflineLogEntry entry) {
+        CacheModificationTracker.markModified(geocode);
         return DBLogOfflineUtils.save(geocode, entry);
     }
 
@@ -4446,15 +5017,18 @@ public class DataStore {
     }
 
     public static boolean clearLogOffline(final String geocode) {
+        CacheModificationTracker.markModified(geocode);
         return DBLogOfflineUtils.remove(geocode);
     }
 
     public static void clearLogsOffline(final Collection<Geocache> caches) {
+        CacheModificationTracker.markModified(caches);
         DBLogOfflineUtils.remove(caches);
         CollectionStream.of(caches).forEach(c -> c.setHasLogOffline(false));
     }
 
     private static void setVisitDate(final Collection<String> geocodes, final long visitedDate) {
+        CacheModificationTracker.markModifiedGeocodes(geocodes);
         if (geocodes.isEmpty()) {
             return;
         }
@@ -4732,6 +5306,7 @@ public class DataStore {
     }
 
     public static void moveToList(final Collection<Geocache> caches, final int oldListId, final int newListId) {
+        CacheModificationTracker.markModified(caches);
         if (caches.isEmpty()) {
             return;
         }
@@ -4772,6 +5347,7 @@ public class DataStore {
     }
 
     public static void removeFromList(final Collection<Geocache> caches, final int oldListId) {
+        CacheModificationTracker.markModified(caches);
         withAccessLock(() -> {
 
             init();
@@ -4794,6 +5370,7 @@ public class DataStore {
     }
 
     public static void addToList(final Collection<Geocache> caches, final int listId) {
+        CacheModificationTracker.markModified(caches);
         if (caches.isEmpty()) {
             return;
         }
@@ -4828,6 +5405,7 @@ public class DataStore {
     }
 
     public static void saveLists(final Collection<Geocache> caches, final Set<Integer> listIds) {
+        CacheModificationTracker.markModified(caches);
         if (caches.isEmpty()) {
             return;
         }
@@ -4868,6 +5446,7 @@ public class DataStore {
     }
 
     public static void addToLists(final Collection<Geocache> caches, final Map<String, Set<Integer>> cachesLists) {
+        CacheModificationTracker.markModified(caches);
         if (caches.isEmpty() || cachesLists.isEmpty()) {
             return;
         }
@@ -4900,6 +5479,7 @@ public class DataStore {
     }
 
     public static void setCacheIcons(final Collection<Geocache> caches, final int newCacheIcon) {
+        CacheModificationTracker.markModified(caches);
         if (caches.isEmpty()) {
             return;
         }
@@ -4928,6 +5508,7 @@ public class DataStore {
      * Missing entries are reset to default value (0).
      */
     public static void setCacheIcons(final Collection<Geocache> caches, final HashMap<String, Integer> undo) {
+        CacheModificationTracker.markModified(caches);
         if (caches.isEmpty()) {
             return;
         }
@@ -5185,6 +5766,7 @@ public class DataStore {
     }
 
     public static Map<String, Set<Integer>> markDropped(final Collection<Geocache> caches) {
+        CacheModificationTracker.markModified(caches);
         return withAccessLock(() -> {
 
             final SQLiteStatement remove = PreparedStatement.REMOVE_FROM_ALL_LISTS.getStatement();
@@ -0,0 +1,313 @@
+package cgeo.geocaching.storage;
+
+import cgeo.geocaching.network.Network;
+import cgeo.geocaching.network.Parameters;
+import cgeo.geocaching.storage.DataStore.DBImageStore;
+import cgeo.geocaching.utils.CryptUtils;
+import cgeo.geocaching.utils.FileUtils;
+import cgeo.geocaching.utils.Formatter;
+import cgeo.geocaching.utils.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.ImmutableTriple;
+
+/**
+ * Offline store for downloaded images, keyed by the hash of their content.
+ * <br>
+ * An image used by several caches (owner banners, attribute graphics, images of a series) is stored only once. The
+ * index in {@link DBImageStore} maps each image URL of a geocode to the stored content and keeps the HTTP validators
+ * received for that URL. Removing a cache only removes its references, the content is kept until the store grows beyond
+ * {@link #MAX_SIZE} and it was not used for the longest time.
+ * <br>
+ * Images are downloaded into the per-geocode data directory first (as done before the store existed) and then moved into
+ * the store. Images of this layout left from older versions are moved into the store on first access or by
+ * {@link #migrateLegacyImages()}.
+ */
+public final class ImageStore {
+
+    /** size of all stored images, above which unreferenced images are removed */
+    private static final long MAX_SIZE = 300L * 1024 * 1024;
+
+    /** name of image files in the per-geocode data directory: md5 of the URL and its extension */
+    private static final Pattern LEGACY_IMAGE_NAME = Pattern.compile("^[0-9a-f]{1,32}(\\.[a-zA-Z0-9]{1,4})?$");
+    private static final Pattern EXTENSION = Pattern.compile("^\\.[a-zA-Z0-9]{1,4}$");
+    private static final String MIGRATED_MARKER = ".migrated";
+
+    /** guards adding references to stored images against removing unreferenced images, see {@link #trimToQuota()} */
+    private static final Object BLOB_LOCK = new Object();
+    private static final AtomicBoolean TRIM_RUNNING = new AtomicBoolean(false);
+
+    private static final AtomicLong LOOKUPS = new AtomicLong();
+    private static final AtomicLong LOOKUP_NANOS = new AtomicLong();
+
+    private ImageStore() {
+        // utility class
+    }
+
+    /**
+     * @return key of the given URL in the index, which is also the name the image has in the per-geocode data directory
+     */
+    @NonNull
+    public static String getUrlKey(@NonNull final String url) {
+        return CryptUtils.md5(url) + FileUtils.getExtension(url);
+    }
+
+    /**
+     * @return the file to download the image of the given URL to, before putting it into the store by {@link #put(String, String, File)}
+     */
+    @NonNull
+    public static File getDownloadFile(@NonNull final String geocode, @NonNull final String url) {
+        return LocalStorage.getGeocacheDataFile(geocode, url, true, true);
+    }
+
+    /**
+     * @return the stored image of the given URL for the given geocode, or {@code null} if it is not stored
+     */
+    @Nullable
+    @WorkerThread
+    public static File getFile(@NonNull final String geocode, @NonNull final String url) {
+        final long start = System.nanoTime();
+        final String urlKey = getUrlKey(url);
+        File file = null;
+        final String fileName = DBImageStore.getFileName(geocode, urlKey);
+        if (fileName != null) {
+            file = getBlobFile(fileName);
+            if (!file.isFile()) {
+                file = null;
+            }
+        }
+        if (file == null) {
+            final File legacyFile = new File(LocalStorage.getGeocacheDataDirectory(geocode), urlKey);
+            if (legacyFile.isFile()) {
+                file = putByKey(geocode, urlKey, legacyFile);
+            }
+        }
+        LOOKUPS.incrementAndGet();
+        LOOKUP_NANOS.addAndGet(System.nanoTime() - start);
+        return file;
+    }
+
+    /**
+     * @return headers for a conditional request refreshing the stored image of the given URL for the given geocode,
+     * or {@code null} if no validators were received with it
+     */
+    @Nullable
+    @WorkerThread
+    public static Parameters getValidationHeaders(@NonNull final String geocode, @NonNull final String url) {
+        final ImmutablePair<String, String> validators = DBImageStore.getValidators(geocode, getUrlKey(url));
+        return validators == null ? null : Network.validationHeaders(validators.left, validators.right);
+    }
+
+    /**
+     * Moves the given image file into the store, as image of the given URL for the given geocode. The HTTP headers saved
+     * along with the file are kept with the reference.
+     *
+     * @return the stored image, or {@code null} if the image could not be stored
+     */
+    @Nullable
+    @WorkerThread
+    public static File put(@NonNull final String geocode, @NonNull final String url, @NonNull final File file) {
+        return putByKey(geocode, getUrlKey(url), file);
+    }
+
+    @Nullable
+    private static File putByKey(@NonNull final String geocode, @NonNull final String urlKey, @NonNull final File file) {
+        final String hash = hash(file);
+        if (hash == null) {
+            return null;
+        }
+        synchronized (BLOB_LOCK) {
+            return putByHash(geocode, urlKey, file, hash);
+        }
+    }
+
+    @Nullable
+    private static File putByHash(@NonNull final String geocode, @NonNull final String urlKey, @NonNull final File file, @NonNull final String hash) {
+        final String etag = FileUtils.getSavedHeader(file, FileUtils.HEADER_ETAG);
+        final String lastModified = FileUtils.getSavedHeader(file, FileUtils.HEADER_LAST_MODIFIED);
+        final String storedName = DBImageStore.getBlobFileName(hash);
+        final File blob;
+        if (storedName != null && getBlobFile(storedName).isFile()) {
+            // same content is already stored
+            blob = getBlobFile(storedName);
+            if (file.lastModified() > blob.lastModified() && !blob.setLastModified(file.lastModified())) {
+                Log.w("ImageStore: could not update timestamp of " + blob);
+            }
+            FileUtils.deleteIgnoringFailure(file);
+        } else {
+            final int dot = urlKey.lastIndexOf('.');
+            final String extension = dot < 0 ? "" : urlKey.substring(dot);
+            blob = getBlobFile(hash + (EXTENSION.matcher(extension).matches() ? extension : ""));
+            FileUtils.mkdirs(blob.getParentFile());
+            if (!file.renameTo(blob)) {
+                if (!FileUtils.copy(file, blob)) {
+                    return null;
+                }
+                FileUtils.deleteIgnoringFailure(file);
+            }
+        }
+        deleteHeaders(file);
+        DBImageStore.addReference(geocode, urlKey, hash, blob.getName(), blob.length(), etag, lastModified);
+        return blob;
+    }
+
+    @NonNull
+    private static File getBlobFile(@NonNull final String fileName) {
+        // spread the images over subdirectories, to keep directories small
+        return new File(new File(LocalStorage.getImageStoreDirectory(), fileName.substring(0, 2)), fileName);
+    }
+
+    /**
+     * @return file to keep a thumbnail of the given size of the given stored image in, or {@code null} if the image
+     * is not part of the store
+     */
+    @Nullable
+    public static File getThumbnailFile(@NonNull final File image, final int size) {
+        final File dir = image.getParentFile();
+        if (dir == null || !LocalStorage.getImageStoreDirectory().equals(dir.getParentFile())) {
+            return null;
+        }
+        return new File(dir, image.getName() + "-thumb" + size);
+    }
+
+    private static void deleteHeaders(@NonNull final File file) {
+        for (final String header : new String[]{FileUtils.HEADER_ETAG, FileUtils.HEADER_LAST_MODIFIED}) {
+            FileUtils.deleteIgnoringFailure(new File(file.getAbsolutePath() + "-" + header));
+        }
+    }
+
+    /**
+     * @return SHA-1 hash of the file content, or {@code null} if it cannot be read
+     */
+    @Nullable
+    private static String hash(@NonNull final File file) {
+        try (InputStream stream = new FileInputStream(file)) {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            final byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+            return String.format(Locale.US, "%040x", new BigInteger(1, digest.digest()));
+        } catch (final IOException | NoSuchAlgorithmException e) {
+            Log.w("ImageStore.hash: cannot hash " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Removes images not referenced by any geocode, least recently used first, until the store is not larger than {@link #MAX_SIZE}.
+     * Does nothing if trimming is running already.
+     */
+    @WorkerThread
+    public static void trimToQuota() {
+        if (!TRIM_RUNNING.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long size = DBImageStore.getStoredSize();
+            if (size <= MAX_SIZE) {
+                return;
+            }
+            final long before = size;
+            int removed = 0;
+            for (final ImmutableTriple<String, String, Long> blob : DBImageStore.getUnreferencedBlobs()) {
+                if (size <= MAX_SIZE) {
+                    break;
+                }
+                // the image might have been referenced again since the query, so check again while no reference can be added
+                synchronized (BLOB_LOCK) {
+                    if (!DBImageStore.removeBlobIfUnreferenced(blob.left)) {
+                        continue;
+                    }
+                    deleteWithSidecars(getBlobFile(blob.middle));
+                }
+                size -= blob.right;
+                removed++;
+            }
+            Log.i("ImageStore: removed " + removed + " unused images, size " + Formatter.formatBytes(before) + " -> " + Formatter.formatBytes(size));
+        } finally {
+            TRIM_RUNNING.set(false);
+        }
+    }
+
+    /**
+     * Deletes the given stored image together with its saved HTTP headers and thumbnails.
+     */
+    private static void deleteWithSidecars(@NonNull final File file) {
+        FileUtils.deleteIgnoringFailure(file);
+        final String prefix = file.getName() + "-";
+        final File[] sidecars = file.getParentFile() == null ? null : file.getParentFile().listFiles((dir, name) -> name.startsWith(prefix));
+        if (sidecars != null) {
+            for (final File sidecar : sidecars) {
+                FileUtils.deleteIgnoringFailure(sidecar);
+            }
+        }
+    }
+
+    /**
+     * Moves the images of the per-geocode data directories into the store. This is done once, images stored in the
+     * old layout later on are moved on access.
+     */
+    @WorkerThread
+    public static void migrateLegacyImages() {
+        final File marker = new File(LocalStorage.getImageStoreDirectory(), MIGRATED_MARKER);
+        if (marker.exists()) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        int migrated = 0;
+        final File[] geocodeDirs = LocalStorage.getGeocacheDataDirectory().listFiles();
+        if (geocodeDirs != null) {
+            for (final File geocodeDir : geocodeDirs) {
+                final File[] files = geocodeDir.isDirectory() ? geocodeDir.listFiles() : null;
+                if (files == null) {
+                    continue;
+                }
+                for (final File file : files) {
+                    if (file.isFile() && LEGACY_IMAGE_NAME.matcher(file.getName()).matches() && putByKey(geocodeDir.getName(), file.getName(), file) != null) {
+                        migrated++;
+                    }
+                }
+            }
+        }
+        FileUtils.mkdirs(marker.getParentFile());
+        try {
+            if (!marker.createNewFile()) {
+                Log.w("ImageStore: migration marker already exists");
+            }
+        } catch (final IOException e) {
+            Log.w("ImageStore: cannot create migration marker", e);
+        }
+        Log.iForce("ImageStore: migrated " + migrated + " images in " + (System.currentTimeMillis() - start) + "ms, " + getStatistics());
+    }
+
+    /**
+     * @return number and size of the stored images, disk space saved by storing each image only once and the average lookup time
+     */
+    @NonNull
+    @WorkerThread
+    public static String getStatistics() {
+        final long stored = DBImageStore.getStoredSize();
+        final long saved = Math.max(0, DBImageStore.getReferencedSize() - stored);
+        final long lookups = LOOKUPS.get();
+        return DBImageStore.getBlobCount() + " images, " + Formatter.formatBytes(stored) + ", " + Formatter.formatBytes(saved) + " saved"
+                + (lookups == 0 ? "" : String.format(Locale.US, ", %d lookups at %.2fms", lookups, LOOKUP_NANOS.get() / 1e6 / lookups));
+    }
+}
@@ -45,10 +45,12 @@ public final class LocalStorage {
     private static final String FILE_SYSTEM_TABLE_PATH = "/system/etc/vold.fstab";
     private static final String DATABASES_DIRNAME = "databases";
     private static final String GEOCACHE_DATA_DIR_NAME = "GeocacheData";
+    private static final String IMAGE_STORE_DIR_NAME = "ImageStore";
     private static final String OFFLINE_LOG_IMAGES_DIR_NAME = "OfflineLogImages";
     private static final String MAP_THEME_INTERNAL_DIR_NAME = "MapThemeData";
     private static final String MAPSFORGE_SVG_CACHE_DIR_NAME = "mapsforge-svg-cache";
     private static final String TRACKFILE_CACHE_DIR_NAME = "trackfiles";
+    private static final String TRACKFILE_PREPARSED_DIR_NAME = "trackfiles-preparsed";
 
     private static final String WHERIGO_DIRNAME = "wherigo";
     private static final long LOW_DISKSPACE_THRESHOLD = 1024 * 1024 * 100; // 100 MB in bytes
@@ -227,6 +229,14 @@ public final class LocalStorage {
         return dir;
     }
 
+    /** directory for preparsed binary versions of trackfiles. Content can be recreated from trackfiles at any time */
+    @NonNull
+    public static File getTrackfilesPreparsedDir() {
+        final File dir = new File(getInternalCgeoCacheDirectory(), TRACKFILE_PREPARSED_DIR_NAME);
+        dir.mkdirs();
+        return dir;
+    }
+
     /**
      * Get the primary file corresponding to a geocode and a file name or an url. If it is an url, an appropriate
      * filename will be built by hashing it. The directory structure will be created if needed.
@@ -351,6 +361,14 @@ public final class LocalStorage {
         return new File(getExternalPrivateCgeoDirectory(), GEOCACHE_DATA_DIR_NAME);
     }
 
+    /**
+     * Directory of the content-addressed image store, see {@link ImageStore}
+     */
+    @NonNull
+    public static File getImageStoreDirectory() {
+        return new File(getExternalPrivateCgeoDirectory(), IMAGE_STORE_DIR_NAME);
+    }
+
     public static void changeExternalPrivateCgeoDir(final SettingsActivity fromActivity, final String newExtDir) {
         final Progress progress = new Progress();
         progress.show(fromActivity, fromActivity.getString(R.string.init_datadirmove_datadirmove), fromActivity.getString(R.string.init_datadirmove_running), ProgressDialog.STYLE_HORIZONTAL, null);
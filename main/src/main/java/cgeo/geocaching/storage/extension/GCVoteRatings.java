@@ -0,0 +1,77 @@
+package cgeo.geocaching.storage.extension;
+
+import cgeo.geocaching.gcvote.GCVoteRating;
+import cgeo.geocaching.storage.DataStore;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent store of ratings fetched from gcvote.com
+ */
+public class GCVoteRatings extends DataStore.DBExtension {
+
+    /**
+     * key = geocode
+     * long1 = date/time the rating was fetched (to detect stale ratings and for age-driven cleanup)
+     * long2 = number of votes, or NO_RATING_VOTES for caches unknown to gcvote.com (see {@link GCVoteRating#NO_RATING})
+     * long3 = average rating (as float bits)
+     * long4 = own vote (as float bits)
+     */
+
+    private static final DataStore.DBExtensionType type = DataStore.DBExtensionType.DBEXTENSION_GCVOTE_RATING;
+
+    private static final long NO_RATING_VOTES = -1;
+
+    private GCVoteRatings(final String geocode, final long timestamp, @NonNull final GCVoteRating rating) {
+        super(0, geocode, timestamp, rating.isNoRating() ? NO_RATING_VOTES : rating.getVotes(), Float.floatToIntBits(rating.getRating()), Float.floatToIntBits(rating.getMyVote()), "", "", "", "");
+    }
+
+    /**
+     * @return stored ratings of the given geocodes which were fetched at or after the given time, by geocode.
+     * Geocodes unknown to gcvote.com are mapped to {@link GCVoteRating#NO_RATING}.
+     */
+    @NonNull
+    public static Map<String, GCVoteRating> getRatings(@NonNull final Collection<String> geocodes, final long fetchedAfter) {
+        final Map<String, GCVoteRating> ratings = new HashMap<>();
+        for (final DataStore.DBExtension entry : getAllByKeys(type, geocodes)) {
+            if (entry.getLong1() < fetchedAfter) {
+                continue;
+            }
+            if (entry.getLong2() == NO_RATING_VOTES) {
+                ratings.put(entry.getKey(), GCVoteRating.NO_RATING);
+            } else {
+                ratings.put(entry.getKey(), new GCVoteRating(Float.intBitsToFloat((int) entry.getLong3()), (int) entry.getLong2(), Float.intBitsToFloat((int) entry.getLong4())));
+            }
+        }
+        return ratings;
+    }
+
+    /**
+     * stores the given ratings (by geocode) as fetched at the given time, replacing ratings stored before
+     */
+    public static void setRatings(@NonNull final Map<String, GCVoteRating> ratings, final long timestamp) {
+        final List<DataStore.DBExtension> entries = new ArrayList<>(ratings.size());
+        for (final Map.Entry<String, GCVoteRating> rating : ratings.entrySet()) {
+            entries.add(new GCVoteRatings(rating.getKey(), timestamp, rating.getValue()));
+        }
+        replaceAll(type, entries);
+    }
+
+    public static void remove(@NonNull final String geocode) {
+        removeAll(type, geocode);
+    }
+
+    /**
+     * removes all ratings fetched before the given time
+     */
+    public static void removeFetchedBefore(final long timestamp) {
+        removeAllWithLong1Before(type, timestamp);
+    }
+
+}
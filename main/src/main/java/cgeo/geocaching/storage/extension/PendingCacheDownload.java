@@ -0,0 +1,94 @@
+package cgeo.geocaching.storage.extension;
+
+import cgeo.geocaching.storage.DataStore;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Persisted entry of the cache download queue (see CacheDownloaderService), used to resume downloads after the service got killed.
+ */
+public class PendingCacheDownload extends DataStore.DBExtension {
+
+    private static final DataStore.DBExtensionType type = DataStore.DBExtensionType.DBEXTENSION_CACHE_DOWNLOAD_QUEUE;
+
+    private static final long FLAG_KEEP_EXISTING_LISTS = 1;
+    private static final long FLAG_FORCE_DOWNLOAD = 2;
+
+    private PendingCacheDownload(final DataStore.DBExtension copyFrom) {
+        super(copyFrom);
+    }
+
+    /**
+     * creates a queue entry for given geocode, to be stored via {@link #addAll(Collection)}
+     *
+     * @param queuedDate time the download was requested first (kept when a failed download is queued again)
+     * @param attempts number of download attempts done so far
+     */
+    public PendingCacheDownload(@NonNull final String geocode, @NonNull final Set<Integer> listIds, final boolean keepExistingLists, final boolean forceDownload, final long queuedDate, final int attempts) {
+        super(0, geocode, (keepExistingLists ? FLAG_KEEP_EXISTING_LISTS : 0) | (forceDownload ? FLAG_FORCE_DOWNLOAD : 0), queuedDate, attempts, 0, StringUtils.join(listIds, ','), "", "", "");
+    }
+
+    public String getGeocode() {
+        return getKey();
+    }
+
+    public Set<Integer> getListIds() {
+        final Set<Integer> listIds = new HashSet<>();
+        for (String listId : StringUtils.split(getString1(), ',')) {
+            try {
+                listIds.add(Integer.parseInt(listId));
+            } catch (NumberFormatException ignored) {
+                // skip invalid entry
+            }
+        }
+        return listIds;
+    }
+
+    public boolean isKeepExistingLists() {
+        return (getLong1() & FLAG_KEEP_EXISTING_LISTS) != 0;
+    }
+
+    public boolean isForceDownload() {
+        return (getLong1() & FLAG_FORCE_DOWNLOAD) != 0;
+    }
+
+    public long getQueuedDate() {
+        return getLong2();
+    }
+
+    public int getAttempts() {
+        return (int) getLong3();
+    }
+
+    @NonNull
+    public static List<PendingCacheDownload> getAll() {
+        final List<PendingCacheDownload> result = new ArrayList<>();
+        for (DataStore.DBExtension item : getAll(type, null)) {
+            result.add(new PendingCacheDownload(item));
+        }
+        return result;
+    }
+
+    /** stores the given entries in a single transaction, replacing entries stored before for the same geocodes */
+    public static void addAll(@NonNull final Collection<PendingCacheDownload> downloads) {
+        replaceAll(type, new ArrayList<>(downloads));
+    }
+
+    public static void remove(@NonNull final String geocode) {
+        removeAll(type, geocode);
+    }
+
+    public static void removeAll() {
+        for (DataStore.DBExtension item : getAll(type, null)) {
+            removeAll(type, item.getKey());
+        }
+    }
+}
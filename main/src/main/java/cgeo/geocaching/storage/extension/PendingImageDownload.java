@@ -0,0 +1,81 @@
+package cgeo.geocaching.storage.extension;
+
+import cgeo.geocaching.storage.DataStore;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persisted entry of the image prefetch queue (see ImagePrefetcher), used to resume image downloads after the app got killed.
+ */
+public class PendingImageDownload extends DataStore.DBExtension {
+
+    /**
+     * key = geocode
+     * string1 = image URL
+     * long1 = flags
+     * long2 = date/time the image was queued
+     * long3 = number of download attempts made
+     */
+
+    private static final DataStore.DBExtensionType type = DataStore.DBExtensionType.DBEXTENSION_IMAGE_PREFETCH_QUEUE;
+
+    private static final long FLAG_FORCE_DOWNLOAD = 1;
+
+    private PendingImageDownload(final DataStore.DBExtension copyFrom) {
+        super(copyFrom);
+    }
+
+    private PendingImageDownload(final String geocode, final String url, final long flags, final long queuedDate, final int attempts) {
+        super(0, geocode, flags, queuedDate, attempts, 0, url, "", "", "");
+    }
+
+    public String getGeocode() {
+        return getKey();
+    }
+
+    public String getUrl() {
+        return getString1();
+    }
+
+    public boolean isForceDownload() {
+        return (getLong1() & FLAG_FORCE_DOWNLOAD) != 0;
+    }
+
+    public long getQueuedDate() {
+        return getLong2();
+    }
+
+    public int getAttempts() {
+        return (int) getLong3();
+    }
+
+    @NonNull
+    public static List<PendingImageDownload> getAll() {
+        final List<PendingImageDownload> result = new ArrayList<>();
+        for (DataStore.DBExtension item : getAll(type, null)) {
+            result.add(new PendingImageDownload(item));
+        }
+        return result;
+    }
+
+    @NonNull
+    public static PendingImageDownload add(@NonNull final String geocode, @NonNull final String url, final boolean forceDownload, final int attempts) {
+        final long flags = forceDownload ? FLAG_FORCE_DOWNLOAD : 0;
+        final long now = System.currentTimeMillis();
+        removeAll(type, geocode, url);
+        final DataStore.DBExtension added = add(type, geocode, flags, now, attempts, 0, url, "", "", "");
+        // keep the entry in memory, even if it could not be persisted
+        return added != null ? new PendingImageDownload(added) : new PendingImageDownload(geocode, url, flags, now, attempts);
+    }
+
+    public static void remove(@NonNull final String geocode, @NonNull final String url) {
+        removeAll(type, geocode, url);
+    }
+
+    public static void remove(@NonNull final String geocode) {
+        removeAll(type, geocode);
+    }
+}
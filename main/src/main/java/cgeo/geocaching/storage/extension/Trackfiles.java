@@ -1,5 +1,6 @@
 package cgeo.geocaching.storage.extension;
 
+import cgeo.geocaching.files.PreparsedTrackStore;
 import cgeo.geocaching.storage.ContentStorage;
 import cgeo.geocaching.storage.DataStore;
 import cgeo.geocaching.storage.LocalStorage;
@@ -104,7 +105,9 @@ public class Trackfiles extends DataStore.DBExtension {
     /** to be called by Tracks only, not intended for direct usage */
     public static void removeTrackfile(@NonNull final String filename) {
         removeAll(type, filename);
-        FileUtils.delete(new File(LocalStorage.getTrackfilesDir(), filename));
+        final File file = new File(LocalStorage.getTrackfilesDir(), filename);
+        PreparsedTrackStore.remove(file);
+        FileUtils.delete(file);
     }
 
     /** to be called by Tracks only, not intended for direct usage */
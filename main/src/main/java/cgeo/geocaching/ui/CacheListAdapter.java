@@ -8,6 +8,7 @@ import cgeo.geocaching.enumerations.CacheAttribute;
 import cgeo.geocaching.enumerations.CacheAttributeCategory;
 import cgeo.geocaching.enumerations.CacheListType;
 import cgeo.geocaching.filters.core.GeocacheFilter;
+import cgeo.geocaching.filters.core.GeocacheFilterResultCache;
 import cgeo.geocaching.list.AbstractList;
 import cgeo.geocaching.location.Geopoint;
 import cgeo.geocaching.models.Geocache;
@@ -17,6 +18,7 @@ import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.sorting.GeocacheSort;
 import cgeo.geocaching.sorting.GeocacheSortContext;
 import cgeo.geocaching.sorting.GlobalGPSDistanceComparator;
+import cgeo.geocaching.sorting.IncrementalDistanceSorter;
 import cgeo.geocaching.ui.dialog.Dialogs;
 import cgeo.geocaching.utils.AngleUtils;
 import cgeo.geocaching.utils.Formatter;
@@ -68,6 +70,7 @@ public class CacheListAdapter extends ArrayAdapter<Geocache> implements SectionI
     private boolean selectMode = false;
     private GeocacheFilter currentGeocacheFilter = null;
     private List<Geocache> originalList = null;
+    private final GeocacheFilterResultCache filterResultCache = new GeocacheFilterResultCache();
     private final boolean isLiveList = Settings.isLiveList();
 
     private final Set<CompassMiniView> compasses = new LinkedHashSet<>();
@@ -199,29 +202,39 @@ public class CacheListAdapter extends ArrayAdapter<Geocache> implements SectionI
         if (!force && currentGeocacheFilter == advancedFilter) {
             return;
         }
-        if (!force && currentGeocacheFilter != null && advancedFilter != null && currentGeocacheFilter.toConfig().equals(advancedFilter.toConfig())) {
+        if (!force && currentGeocacheFilter != null && advancedFilter != null && currentGeocacheFilter.getFilterKey().equals(advancedFilter.getFilterKey())) {
+            currentGeocacheFilter = advancedFilter;
             return;
         }
 
         // If there is already a filter in place, this is a request to change or clear the filter, so we have to
         // replace the original cache list
-        if (hasActiveFilter()) {
+        final boolean restored = hasActiveFilter();
+        if (restored) {
             list.clear();
             list.addAll(originalList);
         }
 
         currentGeocacheFilter = advancedFilter;
 
-        performFiltering();
+        if (performFiltering(force) || restored) {
+            // filter results and the restored list are in the order of the original list, so apply the current sort order again
+            forceSort();
+        }
 
         notifyDataSetChanged();
     }
 
-    private void performFiltering() {
-        // Do the filtering or clear it
+    /** filters the original list into the displayed list. Returns true if the displayed list was replaced */
+    private boolean performFiltering(final boolean force) {
+        // Do the filtering or clear it. Results are cached per filter for the current original list
         if (currentGeocacheFilter != null && currentGeocacheFilter.isFiltering()) {
-            currentGeocacheFilter.filterList(list);
+            final List<Geocache> filtered = filterResultCache.filter(originalList, currentGeocacheFilter, force);
+            list.clear();
+            list.addAll(filtered);
+            return true;
         }
+        return false;
     }
 
     public boolean hasActiveFilter() {
@@ -355,7 +368,11 @@ public class CacheListAdapter extends ArrayAdapter<Geocache> implements SectionI
 
     public void setActualCoordinates(@NonNull final Geopoint coords) {
         this.coords = coords;
-        checkUpdateGlobalGPS(false);
+        if (isSortedByDistance()) {
+            resortByDistance();
+        } else {
+            checkUpdateGlobalGPS(false);
+        }
 
         for (final DistanceView distance : distances) {
             distance.update(coords);
@@ -363,9 +380,26 @@ public class CacheListAdapter extends ArrayAdapter<Geocache> implements SectionI
         for (final CompassMiniView compass : compasses) {
             compass.updateCurrentCoords(coords);
         }
-        if (isSortedByDistance()) {
-            forceSort();
+    }
+
+    /**
+     * repairs the distance order of the list after a position change, redrawing the list only if the order changed
+     */
+    private void resortByDistance() {
+        GlobalGPSDistanceComparator.updateGlobalGps(coords);
+        lastGlobalGPSUpdate = System.currentTimeMillis();
+        if (CollectionUtils.isEmpty(list)) {
+            return;
         }
+
+        final int[] changed = IncrementalDistanceSorter.resort(list, coords, sortContext.getSort().isInverse());
+        if (changed == null) {
+            // order unchanged, visible distances are updated by their views. Only sections need to reflect new distances
+            buildFastScrollIndex();
+            return;
+        }
+        Log.v("CacheListAdapter: distance order changed for positions " + changed[0] + "-" + changed[1] + " of " + list.size());
+        notifyDataSetChanged();
     }
 
     private void checkUpdateGlobalGPS(final boolean force) {
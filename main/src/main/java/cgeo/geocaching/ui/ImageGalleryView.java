@@ -18,6 +18,7 @@ import cgeo.geocaching.ui.dialog.ContextMenuDialog;
 import cgeo.geocaching.ui.dialog.SimpleDialog;
 import cgeo.geocaching.ui.recyclerview.AbstractRecyclerViewHolder;
 import cgeo.geocaching.ui.recyclerview.ManagedListAdapter;
+import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.CategorizedListHelper;
 import cgeo.geocaching.utils.CollectionStream;
 import cgeo.geocaching.utils.ImageLoader;
@@ -53,6 +54,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.apache.commons.lang3.StringUtils;
 
 public class ImageGalleryView extends LinearLayout {
@@ -71,7 +73,7 @@ public class ImageGalleryView extends LinearLayout {
     private boolean activityReenterCalled = false;
 
     private ImageActivityHelper imageHelper = null;
-    private final ImageLoader imageLoader = new ImageLoader();
+    private final ImageLoader imageLoader = new ImageLoader(ViewUtils.dpToPixel(150));
 
     private String geocode;
     private int imageCount = 0;
@@ -274,6 +276,16 @@ public class ImageGalleryView extends LinearLayout {
     public void setup(final String geocode) {
         this.geocode = geocode;
         this.imageLoader.setCode(this.geocode);
+        if (geocode != null) {
+            // coordinates of downloaded images are known before their thumbnails are loaded
+            AndroidRxUtils.andThenOnUi(Schedulers.io(), () -> DataStore.DBImageIndex.getCoordinates(geocode), coords -> {
+                if (geocode.equals(this.geocode)) {
+                    for (final Map.Entry<String, Geopoint> entry : coords.entrySet()) {
+                        imageCoordMap.putIfAbsent(entry.getKey(), entry.getValue());
+                    }
+                }
+            });
+        }
     }
 
     /** gets total number of images currently displayed in this gallery */
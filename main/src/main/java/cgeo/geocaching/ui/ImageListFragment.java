@@ -58,7 +58,7 @@ public class ImageListFragment extends Fragment {
     private Long maxImageUploadSize;
     private Uri ownImageFolderUri;
 
-    private final ImageLoader imageCache = new ImageLoader();
+    private final ImageLoader imageCache = new ImageLoader(ViewUtils.dpToPixel(100));
 
     private static final int SELECT_IMAGE = 101;
 
@@ -21,12 +21,16 @@ import cgeo.geocaching.ui.TextParam;
 import cgeo.geocaching.ui.TextSpinner;
 import cgeo.geocaching.ui.VariableListView;
 import cgeo.geocaching.ui.ViewUtils;
+import cgeo.geocaching.utils.AndroidRxUtils;
 import cgeo.geocaching.utils.ClipboardUtils;
 import cgeo.geocaching.utils.CollectionStream;
 import cgeo.geocaching.utils.LocalizationUtils;
+import cgeo.geocaching.utils.Log;
 import cgeo.geocaching.utils.TextUtils;
 import cgeo.geocaching.utils.formulas.DegreeFormula;
 import cgeo.geocaching.utils.formulas.FormulaUtils;
+import cgeo.geocaching.utils.formulas.RangeSolver;
+import cgeo.geocaching.utils.formulas.Value;
 import cgeo.geocaching.utils.formulas.VariableList;
 import cgeo.geocaching.utils.formulas.VariableMap;
 import static cgeo.geocaching.models.CalculatedCoordinateType.PLAIN;
@@ -51,11 +55,13 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
 
@@ -66,6 +72,9 @@ public class CoordinatesCalculateGlobalDialog extends DialogFragment {
 
     private static final String ARG_INPUT_DATA = "arg_input_data";
 
+    /** maximum number of coordinates generated from variables with ranges */
+    private static final int MAX_GENERATED_COORDINATES = 1000;
+
     private String geocode;
     private CalculatedCoordinate calcCoord = new CalculatedCoordinate();
     private Geopoint geopoint;
@@ -77,6 +86,8 @@ public class CoordinatesCalculateGlobalDialog extends DialogFragment {
 
     private final TextSpinner<CalculatedCoordinateType> displayType = new TextSpinner<>();
 
+    private final CompositeDisposable rangeCoordinatesGeneration = new CompositeDisposable();
+
     private CoordinateInputData createFromDialog() {
         final CoordinateInputData cid = new CoordinateInputData();
         cid.setGeocode(geocode);
@@ -363,29 +374,67 @@ public class CoordinatesCalculateGlobalDialog extends DialogFragment {
         }
     }
 
+    @Override
+    public void onDestroy() {
+        rangeCoordinatesGeneration.dispose();
+        super.onDestroy();
+    }
+
     private void generateRangeCoordinates() {
 
-        final List<String> varsToConsider = new ArrayList<>(varList.getDependentVariables(calcCoord.getNeededVars()));
-        final Iterator<String> it = varsToConsider.iterator();
-        while (it.hasNext()) {
-            final VariableMap.VariableState state = varList.getState(it.next());
-            if (state == null || state.getFormula() == null || state.getFormula().getRangeIndexSize() == 1) {
-                it.remove();
+        //enumerate all combinations of variables with ranges, recalculating the variables depending on them
+        final List<String> varsToConsider = new ArrayList<>();
+        final List<String> formulaVars = new ArrayList<>();
+        for (String var : varList.getDependentVariables(calcCoord.getNeededVars())) {
+            final VariableMap.VariableState state = varList.getState(var);
+            if (state == null || state.getFormula() == null) {
+                continue;
             }
+            (state.getFormula().getRangeIndexSize() > 1 ? varsToConsider : formulaVars).add(var);
         }
         TextUtils.sortListLocaleAware(varsToConsider);
         if (varsToConsider.isEmpty()) {
             ActivityMixin.showShortToast(this.getActivity(), R.string.calccoord_generate_error_novarwithrange);
             return;
         }
+        //range variables are added in display order, so solutions are sorted by their range indexes in this order
+        final RangeSolver solver = new RangeSolver().setScheduler(AndroidRxUtils.computationScheduler).setMaxSolutions(MAX_GENERATED_COORDINATES + 1);
+        for (String var : varsToConsider) {
+            solver.addRangeVariable(var, varList.getState(var).getFormula());
+        }
+        for (String var : formulaVars) {
+            solver.addFormulaVariable(var, varList.getState(var).getFormula());
+        }
+        final CalculatedCoordinate coord = new CalculatedCoordinate();
+        coord.setFrom(calcCoord);
+        solver.addConstraint(RangeSolver.createConstraint(coord.getNeededVars(), vars -> coord.calculateGeopoint(vars) != null));
+
+        rangeCoordinatesGeneration.clear();
+        rangeCoordinatesGeneration.add(solver.solveSorted().map(solutions -> {
+            final List<Pair<String, Geopoint>> gps = new ArrayList<>();
+            for (Map<String, Value> solution : solutions) {
+                final Geopoint gp = coord.calculateGeopoint(solution::get);
+                if (gp != null) {
+                    gps.add(new Pair<>(TextUtils.join(varsToConsider, var -> var + "=" + solution.get(var), ", ").toString(), gp));
+                }
+            }
+            return gps;
+        }).observeOn(AndroidSchedulers.mainThread()).subscribe(this::showRangeCoordinates,
+                e -> Log.w("CoordinatesCalculateGlobalDialog: problem generating coordinates", e)));
+    }
 
-        final List<Pair<String, Geopoint>> gps = new ArrayList<>();
-        generateRangeCoordinatesRecursive(varsToConsider, 0, null, gps);
-
-        if (gps.isEmpty()) {
+    private void showRangeCoordinates(final List<Pair<String, Geopoint>> generated) {
+        if (getActivity() == null) {
+            return;
+        }
+        if (generated.isEmpty()) {
             ActivityMixin.showShortToast(this.getActivity(), R.string.calccoord_generate_error_novalidgeopoints);
             return;
         }
+        final List<Pair<String, Geopoint>> gps = generated.size() > MAX_GENERATED_COORDINATES ? generated.subList(0, MAX_GENERATED_COORDINATES) : generated;
+        if (gps.size() < generated.size()) {
+            ActivityMixin.showShortToast(this.getActivity(), getString(R.string.calccoord_generate_warning_toomanycombinations, MAX_GENERATED_COORDINATES));
+        }
 
         final SimpleDialog.ItemSelectModel<Pair<String, Geopoint>> model = new SimpleDialog.ItemSelectModel<>();
         model
@@ -432,21 +481,4 @@ public class CoordinatesCalculateGlobalDialog extends DialogFragment {
             ActivityMixin.showShortToast(this.getActivity(), getString(R.string.waypoint_added));
         }
     }
-
-    private void generateRangeCoordinatesRecursive(final List<String> vars, final int idx, final String praefix, final List<Pair<String, Geopoint>> result) {
-        if (idx < vars.size()) {
-            final String var = vars.get(idx);
-            final VariableMap.VariableState state = varList.getState(var);
-            for (int i = 0; i < Objects.requireNonNull(Objects.requireNonNull(state).getFormula()).getRangeIndexSize(); i++) {
-                varList.setRangeIndex(var, i);
-                generateRangeCoordinatesRecursive(vars, idx + 1, (praefix == null ? "" : praefix + ", ") + var + "=" + varList.getValue(var), result);
-            }
-            varList.setRangeIndex(var, 0);
-        } else {
-            final Geopoint gp = calcCoord.calculateGeopoint(varList::getValue);
-            if (gp != null) {
-                result.add(new Pair<>(praefix, gp));
-            }
-        }
-    }
 }
@@ -28,6 +28,8 @@ public class Notifications {
     public static final int ID_WHERIGO_SERVICE_NOTIFICATION_ID = 114;
     public static final int ID_WHERIGO_NEW_DIALOG_ID = 115;
 
+    public static final int ID_IMAGE_PREFETCH_NOTIFICATION = 116;
+
     private Notifications() {
         // no instances
     }
@@ -8,17 +8,20 @@ import cgeo.geocaching.utils.Log;
 
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
-import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
+/**
+ * Refreshes map data from database and (if enabled) from live sources on changes of viewport, filter or live state.
+ * Processing is triggered by these changes only, there is no background activity while nothing changes.
+ */
 public class LiveMapDataHandler {
 
     private final Action action;
-    private final Disposable actionDisposable;
 
     private boolean dirty;
+    private boolean processingScheduled;
+    private boolean destroyed;
     private final Parameters params = new Parameters();
 
     private static class Parameters {
@@ -65,16 +68,16 @@ public class LiveMapDataHandler {
         }
 
         @Override
-        public void run() {
+        public synchronized void run() {
             try {
-                //fast abort if there's nothing to do
-                if (!handler.dirty) {
-                    return;
-                }
-
                 //get parameters to work on and reset them
                 final Parameters params;
                 synchronized (this.handler) {
+                    handler.processingScheduled = false;
+                    //fast abort if there's nothing to do
+                    if (!handler.dirty || handler.destroyed) {
+                        return;
+                    }
                     handler.dirty = false;
                     params = handler.params.copy();
                 }
@@ -111,7 +114,15 @@ public class LiveMapDataHandler {
 
     public LiveMapDataHandler(final UnifiedMapViewModel model) {
         this.action = new Action(this, model);
-        this.actionDisposable = Schedulers.newThread().schedulePeriodicallyDirect(action, 0, 250, TimeUnit.MILLISECONDS);
+    }
+
+    /** marks parameters as changed and schedules processing if not already scheduled. Must be called while holding lock */
+    private void markDirty() {
+        this.dirty = true;
+        if (!processingScheduled && !destroyed) {
+            processingScheduled = true;
+            Schedulers.io().scheduleDirect(action);
+        }
     }
 
     public synchronized void setViewport(final Viewport viewport) {
@@ -119,7 +130,7 @@ public class LiveMapDataHandler {
             return;
         }
         this.params.viewport = viewport;
-        this.dirty = true;
+        markDirty();
     }
 
     public synchronized void setFilter(final GeocacheFilter filter) {
@@ -127,17 +138,17 @@ public class LiveMapDataHandler {
             return;
         }
         this.params.filter = filter;
-        this.dirty = true;
+        markDirty();
     }
 
     public synchronized void setLiveEnabled(final boolean enabled) {
         this.params.liveEnabled = enabled;
-        this.dirty = true;
+        markDirty();
     }
 
     public synchronized void setEnabled(final boolean enabled) {
         this.params.enabled = enabled;
-        this.dirty = true;
+        markDirty();
     }
 
     public synchronized  boolean isEnabled() {
@@ -145,7 +156,9 @@ public class LiveMapDataHandler {
     }
 
     public void destroy() {
-        this.actionDisposable.dispose();
+        synchronized (this) {
+            this.destroyed = true;
+        }
         this.action.liveLoader.destroy();
     }
 }
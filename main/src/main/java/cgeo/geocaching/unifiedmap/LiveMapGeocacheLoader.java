@@ -1,6 +1,8 @@
 package cgeo.geocaching.unifiedmap;
 
+import cgeo.geocaching.SearchResult;
 import cgeo.geocaching.connector.ConnectorFactory;
+import cgeo.geocaching.connector.IConnector;
 import cgeo.geocaching.enumerations.LoadFlags;
 import cgeo.geocaching.enumerations.StatusCode;
 import cgeo.geocaching.filters.core.GeocacheFilter;
@@ -10,43 +12,93 @@ import cgeo.geocaching.models.Geocache;
 import cgeo.geocaching.utils.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 
-/** accepts requests to load geocaches online but allows configuring of a maximum update rate */
+/**
+ * Accepts requests to load geocaches online. Requests are debounced with a delay adapting to map movement speed,
+ * superseded requests are dropped. No background work is done as long as no requests come in.
+ * <br>
+ * Results are remembered per map tile and filter (see {@link LiveMapTileCache}). Areas already retrieved are served
+ * from there, only missing tiles are requested online. Remembered results are dropped when the set of active connectors changes.
+ */
 public class LiveMapGeocacheLoader {
 
     private static final String LOGPRAEFIX = "LiveMapGeocacheLoader:";
 
+    /** maximum delay before a requested update is started. Used when map is moved fast */
     public static final long PROCESS_DELAY = 3000; // value is in milliseconds
+    /** minimum delay before a requested update is started. Used after a single map move */
+    private static final long MIN_PROCESS_DELAY = 750; // value is in milliseconds
+    /** minimum time between end of an online request and start of next one */
+    private static final long MIN_REQUEST_INTERVAL = 1000; // value is in milliseconds
+    /** map movement speed (in viewport sizes per second) from which on the maximum delay is used */
+    private static final double VELOCITY_FOR_MAX_DELAY = 1.0;
     private static final long CACHE_EXPIRY = 10 * 60000; // value is in milliseconds
+    /** maximum number of tiles remembered in live result cache */
+    private static final int CACHE_MAX_TILES = LiveMapTileCache.DEFAULT_MAX_TILES;
 
-    private final Disposable actionDisposable;
+    private final Action action;
+    private final OnlineSearch onlineSearch;
 
-    private long dirtyTime = -1;
+    //current request. Each new request increases generation, making older ones obsolete. Generations are never reused
+    private long generation = 0;
+    private long requestTime = -1;
     private Viewport viewport;
     private GeocacheFilter filter;
+    private Disposable scheduled;
+    //whether a request waits for the running one to finish. Cleared if the request is cancelled or served otherwise
+    private boolean requestPending = false;
+    private long pendingDelay = 0;
+    private boolean destroyed = false;
+
+    //currently running request
+    private long runningGeneration = -1;
+    //whether the running request serves the current request (set if a new request was found to be covered by it)
+    private boolean runningServesCurrent = false;
+    private Viewport runningViewport;
+    private GeocacheFilter runningFilter;
+    private long lastRequestEndTs = 0;
+
+    //for calculating map movement speed
+    private Viewport lastRequestViewport;
+    private long lastRequestTs = 0;
 
     public enum LoadState { REQUESTED, RUNNING, STOPPED }
 
+    /** searches caches online, see {@link ConnectorFactory#searchByViewport(Viewport, GeocacheFilter, BiConsumer)} */
+    interface OnlineSearch {
+        void search(@NonNull Viewport viewport, @Nullable GeocacheFilter filter, @NonNull BiConsumer<IConnector, SearchResult> callback);
+    }
+
 
     public static final class LiveDataState {
         public final LoadState loadState;
         public final Viewport cachedViewport;
         public final Map<String, ConnectorState> connectorStates;
         public final Set<String> connectorInError;
+        /** for state REQUESTED: delay in milliseconds until request will be started */
+        public final long requestDelay;
 
         LiveDataState(final LoadState state, final Viewport cachedViewport, final Map<String, ConnectorState> connectorStates) {
+            this(state, cachedViewport, connectorStates, 0);
+        }
+
+        LiveDataState(final LoadState state, final Viewport cachedViewport, final Map<String, ConnectorState> connectorStates, final long requestDelay) {
             this.loadState = state;
+            this.requestDelay = requestDelay;
             this.cachedViewport = cachedViewport;
             this.connectorStates = Collections.unmodifiableMap(connectorStates == null ? Collections.emptyMap() : connectorStates);
             this.connectorInError = this.connectorStates.entrySet().stream()
@@ -112,12 +164,17 @@ public class LiveMapGeocacheLoader {
         }
     }
 
-    private static final class Action implements Runnable {
+    private static final class Action {
 
         private final LiveMapGeocacheLoader loader;
         private final Consumer<LiveDataState> onStateChange;
         private final Consumer<Set<Geocache>> onResult;
 
+        private final LiveMapTileCache tileCache = new LiveMapTileCache(CACHE_MAX_TILES, CACHE_EXPIRY);
+        //active connectors the cached results were retrieved from
+        private String cachedConnectorsKey;
+
+        //last result, used to prevent reloading after a noncomplete result
         private long cachedResultTs;
         private GeocacheFilter cachedResultFilter;
         private Viewport cachedResultAvailableViewport;
@@ -132,75 +189,118 @@ public class LiveMapGeocacheLoader {
             this.loader = loader;
         }
 
-        @Override
-        public void run() {
-            String logParams = "";
-            try {
-                //quick abort if nothing is requested
-                if (this.loader.dirtyTime < 0) {
-                    return;
-                }
+        /** forgets all cached results if the set of active connectors changed since they were retrieved. Must be called while holding loader lock */
+        private void validateCachedConnectors(final String logParams) {
+            final String connectorsKey = ConnectorFactory.getActiveSearchByViewportConnectorsKey();
+            if (connectorsKey.equals(cachedConnectorsKey)) {
+                return;
+            }
+            if (cachedConnectorsKey != null) {
+                Log.iForce(LOGPRAEFIX + "CONNECTORS CHANGED, CLEAR CACHE " + logParams);
+            }
+            tileCache.clear();
+            cachedResultWasComplete = true;
+            cachedResultCenter = null;
+            cachedConnectorsKey = connectorsKey;
+        }
 
-                final Viewport viewport;
-                final GeocacheFilter filter;
-                synchronized (loader) {
-                    //check whether current request was already served with last request
-                    viewport = this.loader.viewport;
-                    filter = this.loader.filter;
-                    logParams = "(vp=" + viewport + ",f=" + filter + ")";
+        /** checks whether request for given viewport/filter is already served by cached result. Must be called while holding loader lock */
+        private boolean isServedByCache(final Viewport viewport, final GeocacheFilter filter, final String logParams) {
+            validateCachedConnectors(logParams);
 
-                    //quick exit on invalid viewport
-                    if (!Viewport.isValid(viewport)) {
-                        Log.iForce(LOGPRAEFIX + "INVALID VIEWPORT " + logParams);
-                        setState(LoadState.STOPPED);
-                        this.loader.dirtyTime = -1;
-                        return;
-                    }
+            //unconditional cache hit: all tiles of viewport were retrieved before
+            if (tileCache.covers(viewport, filter)) {
+                Log.iForce(LOGPRAEFIX + "CACHE HIT " + logParams);
+                return true;
+            }
 
-                    final boolean cacheIsValidForFilter = GeocacheFilter.filtersSame(cachedResultFilter, filter) && (System.currentTimeMillis() - cachedResultTs) < CACHE_EXPIRY;
+            final boolean cacheIsValidForFilter = GeocacheFilter.filtersSame(cachedResultFilter, filter) && (System.currentTimeMillis() - cachedResultTs) < CACHE_EXPIRY;
 
-                    //quick exit on unconditional cache hit
-                    if (cacheIsValidForFilter && cachedResultAvailableViewport != null && cachedResultAvailableViewport.includes(viewport)) {
-                        Log.iForce(LOGPRAEFIX + "CACHE HIT " + logParams);
-                        setState(LoadState.STOPPED);
-                        this.loader.dirtyTime = -1;
-                        return;
-                    }
+            //previous PARTIAL or ERROR result if viewport hasn't moved much
+            if (cacheIsValidForFilter && !cachedResultWasComplete && cachedResultCenter != null) {
+                final float distanceCachedCall = viewport.getCenter().distanceTo(cachedResultCenter);
+                final float distanceCenterCorner = viewport.getCenter().distanceTo(viewport.bottomLeft);
+                if (distanceCachedCall <= distanceCenterCorner * 0.2) {
+                    Log.iForce(LOGPRAEFIX + "NO RELOAD AFTER NONCOMPLETE RESULT AND TOO CLOSE TO PREVIOUS " + logParams);
+                    return true;
+                }
+            }
+            return false;
+        }
 
-                    //quick exit on previous PARTIAL or ERROR result if viewport hasn't moved much
-                    if (cacheIsValidForFilter && !cachedResultWasComplete && cachedResultCenter != null) {
-                        final float distanceCachedCall = viewport.getCenter().distanceTo(cachedResultCenter);
-                        final float distanceCenterCorner = viewport.getCenter().distanceTo(viewport.bottomLeft);
-                        if (distanceCachedCall <= distanceCenterCorner * 0.2) {
-                            Log.iForce(LOGPRAEFIX + "NO RELOAD AFTER NONCOMPLETE RESULT AND TOO CLOSE TO PREVIOUS " + logParams);
-                            setState(LoadState.STOPPED);
-                            this.loader.dirtyTime = -1;
-                            return;
-                        }
-                    }
+        /** delivers caches remembered in tile cache for given viewport (including surrounding area) and filter */
+        private void deliverCached(final Viewport viewport, final GeocacheFilter filter) {
+            final LiveMapTileCache.Lookup lookup = tileCache.lookup(viewport.resize(3.0), filter);
+            deliverCached(lookup, filter);
+        }
 
+        /** delivers the caches retrieved before, filtered again since they might have changed meanwhile (e.g. found) */
+        private void deliverCached(final LiveMapTileCache.Lookup lookup, final GeocacheFilter filter) {
+            if (!lookup.cachedCaches.isEmpty()) {
+                final Set<Geocache> result = new HashSet<>(lookup.cachedCaches);
+                if (filter != null) {
+                    filter.filterList(result);
+                }
+                onResult.accept(result);
+            }
+        }
 
-                    //if request is real check if its time to really request
-                    final long requestAge = System.currentTimeMillis() - this.loader.dirtyTime;
-                    if (requestAge < PROCESS_DELAY) {
-                        setState(LoadState.REQUESTED);
+        private void run(final long generation) {
+            String logParams = "";
+            final Viewport viewport;
+            final GeocacheFilter filter;
+            final long requestTime;
+            final String connectorsKey;
+            boolean cacheHit = false;
+            try {
+                synchronized (loader) {
+                    if (generation != loader.generation) {
+                        //request was superseded or cancelled before it started
                         return;
                     }
-
-                    //if we come here we HAVE to do an online request. Reset dirty state
-                    this.loader.dirtyTime = -1;
+                    loader.scheduled = null;
+                    viewport = loader.viewport;
+                    filter = loader.filter;
+                    requestTime = loader.requestTime;
+                    logParams = "(vp=" + viewport + ",f=" + filter + ")";
+                    //cache might have been filled by a request which finished after scheduling this one
+                    if (isServedByCache(viewport, filter, logParams)) {
+                        cacheHit = true;
+                        connectorsKey = null;
+                    } else {
+                        loader.runningGeneration = generation;
+                        loader.runningViewport = viewport.resize(3.0);
+                        loader.runningFilter = filter;
+                        connectorsKey = cachedConnectorsKey;
+                    }
+                }
+                if (cacheHit) {
+                    deliverCached(viewport, filter);
+                    setState(LoadState.STOPPED);
+                    return;
                 }
 
                 Log.iForce(LOGPRAEFIX + "START" + logParams);
                 setState(LoadState.RUNNING);
 
+                // retrieve live caches for x times the requested size (to fill up cache). Tiles already retrieved are served from cache
+                final Viewport retrievalViewport = viewport.resize(3.0);
+                final LiveMapTileCache.Lookup lookup = tileCache.lookup(retrievalViewport, filter);
+                deliverCached(lookup, filter);
+                final Viewport requestViewport = lookup.missingViewport == null ? retrievalViewport : lookup.missingViewport;
+                Log.iForce(LOGPRAEFIX + "TILE CACHE " + lookup + logParams);
 
                 final Map<String, ConnectorState> stateData = Collections.synchronizedMap(new HashMap<>());
-                // DO ONLINE REQUEST retrieving live caches for x times the requested size (to fill up cache)
-                final Viewport retrievalViewport = viewport.resize(3.0);
+                final Set<Geocache> retrieved = Collections.synchronizedSet(new HashSet<>());
+                // DO ONLINE REQUEST for tiles not in cache
                 final long startTs = System.currentTimeMillis();
                 final boolean[] isOverallComplete = new boolean[] { true };
-                ConnectorFactory.searchByViewport(retrievalViewport, filter, (c, sr) -> {
+                final long[] firstResultLatency = new long[] { -1 };
+                loader.onlineSearch.search(requestViewport, filter, (c, sr) -> {
+                    if (loader.isSuperseded(generation)) {
+                        //don't spend time on loading results nobody waits for anymore
+                        return;
+                    }
                     final long duration = System.currentTimeMillis() - startTs;
                     //handle and send cache results for one connector
                     final int countOriginal = sr.getCount();
@@ -210,7 +310,13 @@ public class LiveMapGeocacheLoader {
                         filter.filterList(result);
                     }
                     final int countFiltered = result.size();
+                    retrieved.addAll(result);
                     onResult.accept(result);
+                    synchronized (firstResultLatency) {
+                        if (firstResultLatency[0] < 0 && countFiltered > 0) {
+                            firstResultLatency[0] = System.currentTimeMillis() - requestTime;
+                        }
+                    }
 
                     //collect caching information
                     final boolean isPartial = !sr.getPartialConnectors().isEmpty();
@@ -223,67 +329,209 @@ public class LiveMapGeocacheLoader {
                        connectorViewport = Viewport.containing(result);
                         isOverallComplete[0] = false;
                     } else {
-                        connectorViewport = retrievalViewport;
+                        connectorViewport = requestViewport;
                     }
                     //set state data
                     stateData.put(c.getName(), new ConnectorState(c.getName(), errorCode, connectorViewport, countOriginal, countInDb, countFiltered, duration, null));
                 });
 
-                //adjust result cache. cachedResultViewportOverall will be null on intersect if one connector failed
-                this.cachedResultAvailableViewport = Viewport.intersect(stateData.values(), sd -> sd.viewport);
-                this.cachedResultFilter = filter;
-                this.cachedResultTs = System.currentTimeMillis();
-                this.cachedResultCenter = viewport.getCenter();
-                this.cachedResultWasComplete = isOverallComplete[0];
+                if (loader.isSuperseded(generation)) {
+                    Log.iForce(LOGPRAEFIX + "SUPERSEDED " + logParams);
+                    return;
+                }
+
+                synchronized (loader) {
+                    //only complete and error-free results may be remembered for their tiles, and only for the connectors they were retrieved from
+                    validateCachedConnectors(logParams);
+                    if (isOverallComplete[0] && connectorsKey.equals(cachedConnectorsKey)) {
+                        tileCache.put(requestViewport, lookup.level, filter, retrieved);
+                    }
+                    //adjust result cache. cachedResultViewportOverall will be null on intersect if one connector failed
+                    this.cachedResultAvailableViewport = isOverallComplete[0] ? retrievalViewport : Viewport.intersect(stateData.values(), sd -> sd.viewport);
+                    this.cachedResultFilter = filter;
+                    this.cachedResultTs = System.currentTimeMillis();
+                    this.cachedResultCenter = viewport.getCenter();
+                    this.cachedResultWasComplete = isOverallComplete[0];
+                }
 
                 //do status update
                 setState(LoadState.STOPPED, stateData);
 
-                Log.iForce(LOGPRAEFIX + "END  " + logParams + ": cachedViewport:" + this.cachedResultAvailableViewport + ", state: " + stateData);
+                Log.iForce(LOGPRAEFIX + "END  " + logParams + ": cachedViewport:" + this.cachedResultAvailableViewport + ", state: " + stateData +
+                    ", latency pan-end->first markers: " + firstResultLatency[0] + "ms, pan-end->complete: " + (System.currentTimeMillis() - requestTime) + "ms");
 
             } catch (Exception e) {
                 Log.e(LOGPRAEFIX + "UNEXPECTED ERROR" + logParams, e);
                 setState(LoadState.STOPPED, Collections.singletonMap("Overall",
                     new ConnectorState("Overall", StatusCode.UNKNOWN_ERROR, null, 0, 0, 0, -1, "Exception: " + e.getMessage())));
-            }
-            //if we have just done an online request, ensure that there's a grace period for the next
-            synchronized (loader) {
-                if (this.loader.dirtyTime > 0) {
-                    this.loader.dirtyTime = System.currentTimeMillis();
-                }
+            } finally {
+                loader.requestFinished(generation);
             }
         }
 
         private void setState(final LoadState newState) {
-            setState(newState, null);
+            setState(newState, null, 0);
         }
 
         private void setState(final LoadState newState, final Map<String, ConnectorState> connStates) {
+            setState(newState, connStates, 0);
+        }
+
+        private void setState(final LoadState newState, final Map<String, ConnectorState> connStates, final long requestDelay) {
             if (connStates != null) {
                 this.lastConnectorStates = connStates;
             }
-            final LiveDataState ldState = new LiveDataState(newState, this.cachedResultAvailableViewport, this.lastConnectorStates);
+            final LiveDataState ldState = new LiveDataState(newState, this.cachedResultAvailableViewport, this.lastConnectorStates, requestDelay);
             Log.iForce(LOGPRAEFIX + "set state to " + ldState);
             onStateChange.accept(ldState);
         }
     }
 
     public LiveMapGeocacheLoader(final Consumer<LiveDataState> onStateChanged, final Consumer<Set<Geocache>> onResult) {
-        this.actionDisposable = Schedulers.newThread().schedulePeriodicallyDirect(new Action(this, onStateChanged, onResult), 0, 250, TimeUnit.MILLISECONDS);
+        this(ConnectorFactory::searchByViewport, onStateChanged, onResult);
+    }
+
+    LiveMapGeocacheLoader(final OnlineSearch onlineSearch, final Consumer<LiveDataState> onStateChanged, final Consumer<Set<Geocache>> onResult) {
+        this.onlineSearch = onlineSearch;
+        this.action = new Action(this, onStateChanged, onResult);
     }
 
+    /**
+     * Requests an online update for given viewport and filter. Request is debounced: it is started after a delay
+     * which adapts to how fast the user is moving the map. Each new request supersedes a pending or running one
+     * unless the running one already covers the new viewport.
+     */
     public synchronized void requestUpdate(final Viewport viewport, final GeocacheFilter filter, final boolean skipDelay) {
+        if (destroyed) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long delay = skipDelay ? 0 : calculateDelay(viewport, now);
+        this.lastRequestViewport = viewport;
+        this.lastRequestTs = now;
+
         this.viewport = viewport;
         this.filter = filter;
-        final long timeMod = skipDelay ? PROCESS_DELAY : 0;
-        this.dirtyTime = this.dirtyTime <= -1 ? System.currentTimeMillis() - timeMod : this.dirtyTime - timeMod;
+        this.requestTime = now;
+
+        final String logParams = "(vp=" + viewport + ",f=" + filter + ")";
+
+        //quick exit on invalid viewport
+        if (!Viewport.isValid(viewport)) {
+            Log.iForce(LOGPRAEFIX + "INVALID VIEWPORT " + logParams);
+            cancelScheduled();
+            requestPending = false;
+            action.setState(LoadState.STOPPED);
+            return;
+        }
+
+        //quick exit if a running request will serve this request. This also revalidates the running request in case it was superseded meanwhile
+        if (runningGeneration >= 0 && GeocacheFilter.filtersSame(runningFilter, filter) && runningViewport != null && runningViewport.includes(viewport)) {
+            Log.iForce(LOGPRAEFIX + "SERVED BY RUNNING REQUEST " + logParams);
+            cancelScheduled();
+            requestPending = false;
+            runningServesCurrent = true;
+            return;
+        }
+
+        //quick exit on cache hit. A running request for another area is not needed any more
+        if (action.isServedByCache(viewport, filter, logParams)) {
+            cancelScheduled();
+            nextGeneration();
+            requestPending = false;
+            pendingDelay = 0;
+            //markers might have been removed meanwhile (e.g. on filter change), so deliver cached result again
+            Schedulers.io().scheduleDirect(() -> action.deliverCached(viewport, filter));
+            if (runningGeneration < 0) {
+                action.setState(LoadState.STOPPED);
+            }
+            return;
+        }
+
+        //supersede pending and running requests, then schedule a new one
+        cancelScheduled();
+        final long gen = nextGeneration();
+        if (runningGeneration < 0) {
+            //ensure grace period between online requests
+            final long effectiveDelay = Math.max(delay, lastRequestEndTs + MIN_REQUEST_INTERVAL - now);
+            requestPending = false;
+            scheduled = Schedulers.io().scheduleDirect(() -> action.run(gen), Math.max(0, effectiveDelay), TimeUnit.MILLISECONDS);
+            action.setState(LoadState.REQUESTED, null, Math.max(0, effectiveDelay));
+        } else {
+            //new request will be started as soon as running one finishes
+            requestPending = true;
+            pendingDelay = delay;
+            action.setState(LoadState.REQUESTED, null, 0);
+        }
     }
 
     public synchronized void cancelRequest() {
-        this.dirtyTime = -1;
+        nextGeneration();
+        cancelScheduled();
+        requestPending = false;
+        if (runningGeneration < 0) {
+            action.setState(LoadState.STOPPED);
+        }
+    }
+
+    /** calculates request delay from the map movement speed (in viewport sizes per second) since last request */
+    private long calculateDelay(final Viewport viewport, final long now) {
+        if (!Viewport.isValid(viewport) || !Viewport.isValid(lastRequestViewport) || now - lastRequestTs >= PROCESS_DELAY) {
+            return MIN_PROCESS_DELAY;
+        }
+        final float viewportSize = viewport.getCenter().distanceTo(viewport.bottomLeft);
+        if (viewportSize <= 0) {
+            return MIN_PROCESS_DELAY;
+        }
+        final double moved = viewport.getCenter().distanceTo(lastRequestViewport.getCenter()) / viewportSize;
+        final double velocity = moved * 1000d / Math.max(1, now - lastRequestTs);
+        final double factor = Math.min(1d, velocity / VELOCITY_FOR_MAX_DELAY);
+        return MIN_PROCESS_DELAY + Math.round((PROCESS_DELAY - MIN_PROCESS_DELAY) * factor);
+    }
+
+    private void cancelScheduled() {
+        if (scheduled != null) {
+            scheduled.dispose();
+            scheduled = null;
+        }
+    }
+
+    /** starts a new generation, superseding all pending and running requests */
+    private long nextGeneration() {
+        runningServesCurrent = false;
+        return ++generation;
+    }
+
+    private synchronized boolean isSuperseded(final long gen) {
+        return gen != generation && !(gen == runningGeneration && runningServesCurrent);
+    }
+
+    private synchronized void requestFinished(final long gen) {
+        if (runningGeneration != gen) {
+            return;
+        }
+        final boolean superseded = isSuperseded(gen);
+        runningGeneration = -1;
+        runningServesCurrent = false;
+        runningViewport = null;
+        runningFilter = null;
+        lastRequestEndTs = System.currentTimeMillis();
+        //if a new request came in while this one was running, start it now. Cancelled requests and those served otherwise are not started
+        if (requestPending && !destroyed && scheduled == null && Viewport.isValid(viewport)) {
+            requestPending = false;
+            final long next = generation;
+            scheduled = Schedulers.io().scheduleDirect(() -> action.run(next), pendingDelay, TimeUnit.MILLISECONDS);
+            action.setState(LoadState.REQUESTED, null, pendingDelay);
+        } else if (superseded && scheduled == null) {
+            //superseded requests end without a state update
+            action.setState(LoadState.STOPPED);
+        }
     }
 
-    public void destroy() {
-        this.actionDisposable.dispose();
+    public synchronized void destroy() {
+        destroyed = true;
+        nextGeneration();
+        cancelScheduled();
+        requestPending = false;
     }
 }
@@ -0,0 +1,353 @@
+package cgeo.geocaching.unifiedmap;
+
+import cgeo.geocaching.filters.core.GeocacheFilter;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.Geocache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers which areas were already completely retrieved by live map requests, and which caches were found there.
+ * <br>
+ * Areas are organized as quadtree tiles on a simple latitude/longitude grid at a few fixed zoom levels. A tile is also
+ * covered by a cached coarser tile containing it (after zooming in) or by cached finer tiles covering it completely
+ * (after zooming out).
+ * Entries are kept per filter (see {@link GeocacheFilter#getFilterKey()}), so changing the filter does not
+ * invalidate results for other filters. Number of tiles and their age are bounded, least recently used tiles
+ * are evicted first.
+ */
+public class LiveMapTileCache {
+
+    /** tile zoom levels used, from coarse to fine. Level z divides the world into 2^z x 2^z tiles */
+    static final int[] TILE_LEVELS = { 6, 8, 10, 12, 14 };
+
+    /** maximum number of tiles to cover a viewport with. Finest level satisfying this is used */
+    static final int MAX_TILES_PER_VIEWPORT = 36;
+
+    public static final int DEFAULT_MAX_TILES = 2000;
+    public static final long DEFAULT_MAX_AGE = 10 * 60000; // value is in milliseconds
+
+    private final int maxTiles;
+    private final long maxAge;
+
+    private final Map<TileKey, Tile> tiles;
+
+    /** identifies one tile for one filter */
+    static final class TileKey {
+        final String filterKey;
+        final int level;
+        final int x;
+        final int y;
+
+        TileKey(@NonNull final String filterKey, final int level, final int x, final int y) {
+            this.filterKey = filterKey;
+            this.level = level;
+            this.x = x;
+            this.y = y;
+        }
+
+        @NonNull
+        Viewport getViewport() {
+            final double lonSize = 360d / (1 << level);
+            final double latSize = 180d / (1 << level);
+            return new Viewport(-90 + y * latSize, -180 + x * lonSize, -90 + (y + 1) * latSize, -180 + (x + 1) * lonSize);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof TileKey)) {
+                return false;
+            }
+            final TileKey other = (TileKey) o;
+            return level == other.level && x == other.x && y == other.y && filterKey.equals(other.filterKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return filterKey.hashCode() ^ (level * 31 + x) * 31 + y;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return level + "/" + x + "/" + y;
+        }
+    }
+
+    private static final class Tile {
+        final long timestamp;
+        final Map<String, Geocache> caches;
+
+        Tile(final long timestamp, final Map<String, Geocache> caches) {
+            this.timestamp = timestamp;
+            this.caches = caches;
+        }
+    }
+
+    /** Result of a cache lookup for a viewport */
+    public static final class Lookup {
+        /** geocodes of caches found in cached tiles */
+        @NonNull public final Set<String> cachedGeocodes;
+        /** caches found in cached tiles, as they were retrieved */
+        @NonNull public final Collection<Geocache> cachedCaches;
+        /** viewport covering all tiles which are not cached and need to be retrieved. Null if everything is cached */
+        @Nullable public final Viewport missingViewport;
+        /** number of tiles used to cover the viewport */
+        public final int tileCount;
+        /** number of tiles found in cache */
+        public final int cachedTileCount;
+        /** tile level used for this lookup. Retrieval of the missing viewport should be stored using this level */
+        public final int level;
+
+        Lookup(@NonNull final Map<String, Geocache> cachedCaches, @Nullable final Viewport missingViewport, final int tileCount, final int cachedTileCount, final int level) {
+            this.cachedGeocodes = cachedCaches.keySet();
+            this.cachedCaches = cachedCaches.values();
+            this.level = level;
+            this.missingViewport = missingViewport;
+            this.tileCount = tileCount;
+            this.cachedTileCount = cachedTileCount;
+        }
+
+        public boolean isComplete() {
+            return missingViewport == null;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "tiles:" + cachedTileCount + "/" + tileCount + ", cached caches:" + cachedGeocodes.size() + ", missing:" + missingViewport;
+        }
+    }
+
+    public LiveMapTileCache() {
+        this(DEFAULT_MAX_TILES, DEFAULT_MAX_AGE);
+    }
+
+    public LiveMapTileCache(final int maxTiles, final long maxAge) {
+        this.maxTiles = maxTiles;
+        this.maxAge = maxAge;
+        this.tiles = new LinkedHashMap<TileKey, Tile>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<TileKey, Tile> eldest) {
+                return size() > LiveMapTileCache.this.maxTiles;
+            }
+        };
+    }
+
+    /** looks up given viewport for given filter in this cache */
+    @NonNull
+    public synchronized Lookup lookup(@NonNull final Viewport viewport, @Nullable final GeocacheFilter filter) {
+        final long now = System.currentTimeMillis();
+        final String filterKey = GeocacheFilter.getFilterKey(filter);
+        final int level = getLevel(viewport);
+        final List<TileKey> keys = getTiles(viewport, level, filterKey);
+        final Map<String, Geocache> caches = new HashMap<>();
+        final Viewport.ContainingViewportBuilder missing = new Viewport.ContainingViewportBuilder();
+        int cachedCount = 0;
+        for (TileKey key : keys) {
+            final Tile tile = getValidTile(key, now);
+            if (tile == null) {
+                final Viewport tileVp = key.getViewport();
+                missing.add(tileVp.bottomLeft, tileVp.topRight);
+            } else {
+                caches.putAll(tile.caches);
+                cachedCount++;
+            }
+        }
+        return new Lookup(caches, cachedCount == keys.size() ? null : missing.getViewport(), keys.size(), cachedCount, level);
+    }
+
+    /** checks whether given viewport is completely covered by valid tiles for given filter */
+    public synchronized boolean covers(@NonNull final Viewport viewport, @Nullable final GeocacheFilter filter) {
+        final long now = System.currentTimeMillis();
+        for (TileKey key : getTiles(viewport, getLevel(viewport), GeocacheFilter.getFilterKey(filter))) {
+            if (getValidTile(key, now) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Stores the result of a complete retrieval of given viewport for given filter, see {@link #put(Viewport, int, GeocacheFilter, Collection)} */
+    public void put(@NonNull final Viewport retrievedViewport, @Nullable final GeocacheFilter filter, @NonNull final Collection<Geocache> caches) {
+        put(retrievedViewport, getLevel(retrievedViewport), filter, caches);
+    }
+
+    /**
+     * Stores the result of a complete retrieval of given viewport for given filter.
+     * All tiles of given level lying completely inside the retrieved viewport are marked as cached.
+     * Use the level of the {@link Lookup} which led to the retrieval, so that a later lookup of the same area finds the tiles.
+     */
+    public synchronized void put(@NonNull final Viewport retrievedViewport, final int level, @Nullable final GeocacheFilter filter, @NonNull final Collection<Geocache> caches) {
+        final long now = System.currentTimeMillis();
+        final String filterKey = GeocacheFilter.getFilterKey(filter);
+        final List<TileKey> keys = getTiles(retrievedViewport, level, filterKey);
+        final Map<TileKey, Map<String, Geocache>> tileCaches = new LinkedHashMap<>();
+        for (TileKey key : keys) {
+            if (retrievedViewport.includes(key.getViewport())) {
+                tileCaches.put(key, new HashMap<>());
+            }
+        }
+        if (tileCaches.isEmpty()) {
+            return;
+        }
+        for (Geocache cache : caches) {
+            final Geopoint coords = cache.getCoords();
+            if (coords == null) {
+                continue;
+            }
+            final Map<String, Geocache> tile = tileCaches.get(new TileKey(filterKey, level, getTileX(coords.getLongitude(), level), getTileY(coords.getLatitude(), level)));
+            if (tile != null) {
+                tile.put(cache.getGeocode(), cache);
+            }
+        }
+        for (Map.Entry<TileKey, Map<String, Geocache>> entry : tileCaches.entrySet()) {
+            tiles.put(entry.getKey(), new Tile(now, entry.getValue()));
+        }
+    }
+
+    /** removes all expired tiles */
+    public synchronized void cleanup() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Tile> it = tiles.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().timestamp >= maxAge) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        tiles.clear();
+    }
+
+    public synchronized int size() {
+        return tiles.size();
+    }
+
+    /**
+     * gets tile, or a valid tile from a coarser level containing it, or the combination of valid finer tiles
+     * covering it completely. Returns null if there is none
+     */
+    @Nullable
+    private Tile getValidTile(@NonNull final TileKey key, final long now) {
+        final Tile tile = getIfValid(key, now);
+        if (tile != null) {
+            return tile;
+        }
+        //a coarser tile covers this tile completely (e.g. after zooming in)
+        for (int i = TILE_LEVELS.length - 1; i >= 0; i--) {
+            final int level = TILE_LEVELS[i];
+            if (level >= key.level) {
+                continue;
+            }
+            final int shift = key.level - level;
+            final Tile parent = getIfValid(new TileKey(key.filterKey, level, key.x >> shift, key.y >> shift), now);
+            if (parent != null) {
+                return parent;
+            }
+        }
+        //finer tiles cover this tile completely (e.g. after zooming out)
+        return getFromFinerTiles(key, now);
+    }
+
+    /** combines the valid tiles of the next finer level (or recursively their finer tiles) covering given tile. Returns null if any part is missing */
+    @Nullable
+    private Tile getFromFinerTiles(@NonNull final TileKey key, final long now) {
+        final int finerLevel = getFinerLevel(key.level);
+        if (finerLevel < 0) {
+            return null;
+        }
+        final int shift = finerLevel - key.level;
+        final Map<String, Geocache> caches = new HashMap<>();
+        long timestamp = now;
+        for (int x = key.x << shift; x < (key.x + 1) << shift; x++) {
+            for (int y = key.y << shift; y < (key.y + 1) << shift; y++) {
+                final TileKey finerKey = new TileKey(key.filterKey, finerLevel, x, y);
+                Tile finer = getIfValid(finerKey, now);
+                if (finer == null) {
+                    finer = getFromFinerTiles(finerKey, now);
+                }
+                if (finer == null) {
+                    return null;
+                }
+                caches.putAll(finer.caches);
+                timestamp = Math.min(timestamp, finer.timestamp);
+            }
+        }
+        return new Tile(timestamp, caches);
+    }
+
+    /** returns the tile level next finer to given one, or -1 if there is none */
+    private static int getFinerLevel(final int level) {
+        for (int tileLevel : TILE_LEVELS) {
+            if (tileLevel > level) {
+                return tileLevel;
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    private Tile getIfValid(@NonNull final TileKey key, final long now) {
+        final Tile tile = tiles.get(key);
+        if (tile != null && now - tile.timestamp >= maxAge) {
+            tiles.remove(key);
+            return null;
+        }
+        return tile;
+    }
+
+    /** returns the tiles of given level needed to cover the given viewport */
+    @NonNull
+    static List<TileKey> getTiles(@NonNull final Viewport viewport, final int level, @NonNull final String filterKey) {
+        final int minX = getTileX(viewport.getLongitudeMin(), level);
+        final int maxX = getTileX(viewport.getLongitudeMax(), level);
+        final int minY = getTileY(viewport.getLatitudeMin(), level);
+        final int maxY = getTileY(viewport.getLatitudeMax(), level);
+        final List<TileKey> result = new ArrayList<>((maxX - minX + 1) * (maxY - minY + 1));
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                result.add(new TileKey(filterKey, level, x, y));
+            }
+        }
+        return result;
+    }
+
+    /** returns finest tile level which covers given viewport with at most {@link #MAX_TILES_PER_VIEWPORT} tiles */
+    static int getLevel(@NonNull final Viewport viewport) {
+        for (int i = TILE_LEVELS.length - 1; i > 0; i--) {
+            final int level = TILE_LEVELS[i];
+            final long count = (long) (getTileX(viewport.getLongitudeMax(), level) - getTileX(viewport.getLongitudeMin(), level) + 1) *
+                (getTileY(viewport.getLatitudeMax(), level) - getTileY(viewport.getLatitudeMin(), level) + 1);
+            if (count <= MAX_TILES_PER_VIEWPORT) {
+                return level;
+            }
+        }
+        return TILE_LEVELS[0];
+    }
+
+    static int getTileX(final double lon, final int level) {
+        final int tiles = 1 << level;
+        return Math.max(0, Math.min(tiles - 1, (int) Math.floor((lon + 180d) / 360d * tiles)));
+    }
+
+    static int getTileY(final double lat, final int level) {
+        final int tiles = 1 << level;
+        return Math.max(0, Math.min(tiles - 1, (int) Math.floor((lat + 90d) / 180d * tiles)));
+    }
+
+}
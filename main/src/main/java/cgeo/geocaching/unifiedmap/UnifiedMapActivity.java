@@ -585,10 +585,11 @@ public class UnifiedMapActivity extends AbstractNavigationBarMapActivity impleme
                 spinner.setVisibility(View.VISIBLE);
                 spinner.setIndeterminate(false);
                 if (oldStatus != status.loadState) {
-                    final CountDownTimer timer = new CountDownTimer(LiveMapGeocacheLoader.PROCESS_DELAY, 20) {
+                    final long requestDelay = Math.max(1, status.requestDelay);
+                    final CountDownTimer timer = new CountDownTimer(requestDelay, 20) {
                         @Override
                         public void onTick(final long millisUntilFinished) {
-                            spinner.setProgress((int) ((LiveMapGeocacheLoader.PROCESS_DELAY - millisUntilFinished) * 100 / LiveMapGeocacheLoader.PROCESS_DELAY));
+                            spinner.setProgress((int) ((requestDelay - millisUntilFinished) * 100 / requestDelay));
                         }
 
                         @Override
@@ -31,6 +31,7 @@ public class IndividualRouteLayer {
 
     public IndividualRouteLayer(final AppCompatActivity activity, final GeoItemLayer<String> layer) {
         final UnifiedMapViewModel viewModel = new ViewModelProvider(activity).get(UnifiedMapViewModel.class);
+        final LevelOfDetailLayerHelper lodHelper = new LevelOfDetailLayerHelper(activity, viewModel, layer);
 
         viewModel.individualRoute.observe(activity, individualRoute -> {
 
@@ -41,12 +42,12 @@ public class IndividualRouteLayer {
             }
 
             if (individualRoute.isHidden() || individualRoute.getRouteItems().isEmpty()) {
-                layer.remove(KEY_INDIVIDUAL_ROUTE);
+                lodHelper.remove(KEY_INDIVIDUAL_ROUTE);
             } else {
                 final GeoGroup.Builder geoGroup = GeoGroup.builder();
                 GeoGroup.forAllPrimitives(individualRoute.getItem(), segment ->
                         geoGroup.addItems(GeoPrimitive.createPolyline(segment.getPoints(), lineStyle).buildUpon().setZLevel(LayerHelper.ZINDEX_TRACK_ROUTE).build()));
-                layer.put(KEY_INDIVIDUAL_ROUTE, geoGroup.build());
+                lodHelper.put(KEY_INDIVIDUAL_ROUTE, geoGroup.build());
 
                 for (RouteItem item : individualRoute.getRouteItems()) {
                     if (item.getType() == RouteItem.RouteItemType.COORDS) {
@@ -0,0 +1,89 @@
+package cgeo.geocaching.unifiedmap.layers;
+
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.geoitem.GeoItem;
+import cgeo.geocaching.models.geoitem.GeoItemLevelOfDetail;
+import cgeo.geocaching.unifiedmap.UnifiedMapViewModel;
+import cgeo.geocaching.unifiedmap.geoitemlayer.GeoItemLayer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Puts GeoItems with (potentially large) polylines onto a GeoItemLayer using a {@link GeoItemLevelOfDetail}
+ * representation. Items are re-put whenever the idle viewport changes in a way which requires another level of
+ * detail or another clipping area.
+ * <br>
+ * All items of the layer are simplified to the same zoom band, chosen so that they together stay within
+ * {@link GeoItemLevelOfDetail#MAX_POINTS_PER_VIEWPORT}.
+ */
+class LevelOfDetailLayerHelper {
+
+    private final GeoItemLayer<String> layer;
+    private final Map<String, GeoItemLevelOfDetail> items = new HashMap<>();
+    private Viewport viewport;
+    private int zoomBand = GeoItemLevelOfDetail.MAX_ZOOM_BAND;
+
+    LevelOfDetailLayerHelper(@NonNull final LifecycleOwner owner, @NonNull final UnifiedMapViewModel viewModel, @NonNull final GeoItemLayer<String> layer) {
+        this.layer = layer;
+        this.viewport = viewModel.viewportIdle.getValue();
+        viewModel.viewportIdle.observe(owner, this::setViewport);
+    }
+
+    /** puts an item onto the layer. If an item for the same key exists, it is replaced */
+    public void put(@NonNull final String key, @NonNull final GeoItem item) {
+        put(key, new GeoItemLevelOfDetail(item));
+    }
+
+    /** puts an item with an already prepared level-of-detail representation onto the layer */
+    public void put(@NonNull final String key, @NonNull final GeoItemLevelOfDetail lod) {
+        items.put(key, lod);
+        if (!updateZoomBand()) {
+            layer.put(key, lod.forViewport(viewport, zoomBand));
+        }
+    }
+
+    public void remove(@NonNull final String key) {
+        if (items.remove(key) != null) {
+            layer.remove(key);
+            // the freed budget may allow more details for the other items
+            updateZoomBand();
+        }
+    }
+
+    @Nullable
+    public GeoItemLevelOfDetail get(@NonNull final String key) {
+        return items.get(key);
+    }
+
+    private void setViewport(@Nullable final Viewport viewport) {
+        this.viewport = viewport;
+        zoomBand = GeoItemLevelOfDetail.getZoomBandWithinBudget(items.values(), viewport, GeoItemLevelOfDetail.MAX_POINTS_PER_VIEWPORT);
+        putAll();
+    }
+
+    /** recalculates the zoom band for all items of the layer and re-puts all items if it changed. Returns whether it changed */
+    private boolean updateZoomBand() {
+        final int newZoomBand = GeoItemLevelOfDetail.getZoomBandWithinBudget(items.values(), viewport, GeoItemLevelOfDetail.MAX_POINTS_PER_VIEWPORT);
+        if (newZoomBand == zoomBand) {
+            return false;
+        }
+        zoomBand = newZoomBand;
+        putAll();
+        return true;
+    }
+
+    private void putAll() {
+        for (Map.Entry<String, GeoItemLevelOfDetail> entry : items.entrySet()) {
+            final GeoItem item = entry.getValue().forViewport(viewport, zoomBand);
+            //forViewport returns same instance if nothing changed
+            if (item != layer.get(entry.getKey())) {
+                layer.put(entry.getKey(), item);
+            }
+        }
+    }
+}
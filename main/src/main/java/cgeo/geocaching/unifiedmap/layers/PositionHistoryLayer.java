@@ -3,7 +3,6 @@ package cgeo.geocaching.unifiedmap.layers;
 import cgeo.geocaching.location.Geopoint;
 import cgeo.geocaching.maps.PositionHistory;
 import cgeo.geocaching.models.TrailHistoryElement;
-import cgeo.geocaching.models.geoitem.GeoGroup;
 import cgeo.geocaching.models.geoitem.GeoPrimitive;
 import cgeo.geocaching.models.geoitem.GeoStyle;
 import cgeo.geocaching.settings.Settings;
@@ -17,45 +16,82 @@ import android.location.Location;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 import javax.annotation.Nullable;
 
+/**
+ * Draws the trail history.
+ * <br>
+ * The trail is drawn as a sequence of sealed segments with a fixed number of points which never change once
+ * they are drawn, plus a small "tail" segment which is the only one updated on new positions. This way the cost
+ * for a new position is independent of the trail length.
+ */
 public class PositionHistoryLayer {
 
     private final GeoItemLayer<String> layer;
-    private boolean pathStored = true;
+    private final LevelOfDetailLayerHelper lodHelper;
 
     /**
      * maximum distance (in meters) up to which two points in the trail get connected by a drawn line
      */
     private static final float LINE_MAXIMUM_DISTANCE_METERS = 10000;
 
+    /**
+     * number of points after which the tail segment gets sealed
+     */
+    private static final int SEGMENT_SIZE = 200;
+
     private static final String KEY_HISTORY_LINE = "historyLine";
+    private static final String KEY_HISTORY_TAIL = "historyTail";
 
     final UnifiedMapViewModel viewModel;
 
-
     private final GeoStyle lineStyle = GeoStyle.builder()
             .setStrokeColor(MapLineUtils.getTrailColor())
             .setStrokeWidth(MapLineUtils.getHistoryLineWidth(true))
             .build();
 
+    //drawing state
+    private PositionHistory drawnHistory = null;
+    private TrailHistoryElement lastProcessed = null;
+    private final Deque<SealedSegment> sealedSegments = new ArrayDeque<>();
+    private int nextSegmentId = 0;
+    private List<Geopoint> tailPoints = new ArrayList<>();
+    private long tailFirstTimestamp = 0;
+    private boolean tailStored = false;
+
+    private static final class SealedSegment {
+        public final String key;
+        public long firstTimestamp;
+        public final long lastTimestamp;
+
+        SealedSegment(final String key, final long firstTimestamp, final long lastTimestamp) {
+            this.key = key;
+            this.firstTimestamp = firstTimestamp;
+            this.lastTimestamp = lastTimestamp;
+        }
+    }
+
     public PositionHistoryLayer(final AppCompatActivity activity, final GeoItemLayer<String> layer) {
         this.layer = layer;
 
         viewModel = new ViewModelProvider(activity).get(UnifiedMapViewModel.class);
+        lodHelper = new LevelOfDetailLayerHelper(activity, viewModel, layer);
 
-        viewModel.positionHistory.observe(activity, positionHistory -> drawHistory(null));
+        viewModel.positionHistory.observe(activity, positionHistory -> drawHistory(null, true));
 
         viewModel.location.observe(activity, locationWrapper -> {
             if (locationWrapper.needsRepaintForDistanceOrAccuracy) {
-                drawHistory(locationWrapper.location);
+                drawHistory(locationWrapper.location, false);
             }
         });
     }
 
-    private void drawHistory(@Nullable final Location currentLoc) {
+    private void drawHistory(@Nullable final Location currentLoc, final boolean forceRedraw) {
         // only draw if position history is currently enabled. Remove possible old history line if not.
         if (!Settings.isMapTrail()) {
             removePath();
@@ -71,33 +107,115 @@ public class PositionHistoryLayer {
         }
 
         final ArrayList<TrailHistoryElement> historyElements = history.getHistory();
-        final GeoGroup.Builder geoGroup = GeoGroup.builder();
 
-        ArrayList<Geopoint> segmentPoints = new ArrayList<>();
+        // find out which elements were not yet processed. If history was changed otherwise than by appending, start from scratch
+        int start = forceRedraw || history != drawnHistory ? -1 : findLastProcessed(historyElements);
+        if (start < 0) {
+            removePath();
+            start = 0;
+        }
+        drawnHistory = history;
+
+        trimSealedSegments(historyElements);
 
-        segmentPoints.add(new Geopoint(historyElements.get(0).getLocation()));
-        for (int i = 1; i < historyElements.size(); i++) {
-            if (historyElements.get(i).getLocation().distanceTo(historyElements.get(i - 1).getLocation()) > LINE_MAXIMUM_DISTANCE_METERS) {
-                geoGroup.addItems(GeoPrimitive.createPolyline(segmentPoints, lineStyle));
-                segmentPoints = new ArrayList<>();
+        for (int i = start; i < historyElements.size(); i++) {
+            final TrailHistoryElement element = historyElements.get(i);
+            if (lastProcessed != null && element.distanceTo(lastProcessed.getLocation()) > LINE_MAXIMUM_DISTANCE_METERS) {
+                sealTail(false);
+            }
+            if (tailPoints.isEmpty()) {
+                tailFirstTimestamp = element.getTimestamp();
+            }
+            tailPoints.add(new Geopoint(element.getLocation()));
+            lastProcessed = element;
+            if (tailPoints.size() >= SEGMENT_SIZE) {
+                sealTail(true);
             }
-            segmentPoints.add(new Geopoint(historyElements.get(i).getLocation()));
         }
-        // always add current position
+
+        // tail is the only segment redrawn on every update. Always add current position
+        final List<Geopoint> tail = new ArrayList<>(tailPoints);
         if (currentLoc != null) {
-            segmentPoints.add(new Geopoint(currentLoc));
+            tail.add(new Geopoint(currentLoc));
         }
-        geoGroup.addItems(GeoPrimitive.createPolyline(segmentPoints, lineStyle).buildUpon().setZLevel(LayerHelper.ZINDEX_HISTORY).build());
+        layer.put(KEY_HISTORY_TAIL, createLine(tail));
+        tailStored = true;
+    }
 
-        layer.put(KEY_HISTORY_LINE, geoGroup.build());
-        pathStored = true;
+    /**
+     * removes sealed segments whose points were all dropped from the front of the history, and redraws the first
+     * remaining segment if some of its points were dropped
+     */
+    private void trimSealedSegments(final List<TrailHistoryElement> historyElements) {
+        final long firstTimestamp = historyElements.get(0).getTimestamp();
+        while (!sealedSegments.isEmpty() && sealedSegments.peekFirst().lastTimestamp < firstTimestamp) {
+            lodHelper.remove(sealedSegments.pollFirst().key);
+        }
+        final SealedSegment first = sealedSegments.peekFirst();
+        if (first == null || first.firstTimestamp >= firstTimestamp) {
+            return;
+        }
+        final List<Geopoint> points = new ArrayList<>();
+        for (TrailHistoryElement element : historyElements) {
+            if (element.getTimestamp() > first.lastTimestamp) {
+                break;
+            }
+            points.add(new Geopoint(element.getLocation()));
+        }
+        if (points.size() < 2) {
+            lodHelper.remove(sealedSegments.pollFirst().key);
+            return;
+        }
+        lodHelper.put(first.key, createLine(points));
+        first.firstTimestamp = firstTimestamp;
+    }
+
+    /** returns index of the first element not yet processed in given history, or -1 if last processed element is not contained */
+    private int findLastProcessed(final List<TrailHistoryElement> historyElements) {
+        if (lastProcessed == null) {
+            return -1;
+        }
+        // new elements are only appended, thus searching backwards finds the element quickly
+        for (int i = historyElements.size() - 1; i >= 0; i--) {
+            if (historyElements.get(i) == lastProcessed) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /** draws the current tail as a sealed segment and starts a new tail */
+    private void sealTail(final boolean continueLine) {
+        if (tailPoints.size() >= 2) {
+            final String key = KEY_HISTORY_LINE + "-" + (nextSegmentId++);
+            lodHelper.put(key, createLine(tailPoints));
+            sealedSegments.addLast(new SealedSegment(key, tailFirstTimestamp, lastProcessed.getTimestamp()));
+        }
+        final Geopoint last = tailPoints.isEmpty() ? null : tailPoints.get(tailPoints.size() - 1);
+        tailPoints = new ArrayList<>();
+        // a continued line starts at the last point of the sealed segment to avoid gaps
+        if (continueLine && last != null) {
+            tailPoints.add(last);
+            tailFirstTimestamp = lastProcessed.getTimestamp();
+        }
+    }
+
+    private GeoPrimitive createLine(final List<Geopoint> points) {
+        return GeoPrimitive.createPolyline(points, lineStyle).buildUpon().setZLevel(LayerHelper.ZINDEX_HISTORY).build();
     }
 
     private void removePath() {
-        if (pathStored) {
-            layer.remove(KEY_HISTORY_LINE);
-            pathStored = false;
+        for (SealedSegment segment : sealedSegments) {
+            lodHelper.remove(segment.key);
+        }
+        sealedSegments.clear();
+        if (tailStored) {
+            layer.remove(KEY_HISTORY_TAIL);
+            tailStored = false;
         }
+        tailPoints = new ArrayList<>();
+        lastProcessed = null;
+        drawnHistory = null;
     }
 
 }
@@ -0,0 +1,138 @@
+package cgeo.geocaching.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of bitmaps which are no longer used, to decode other images into them (see {@link BitmapFactory.Options#inBitmap})
+ * instead of allocating a new bitmap for every decoded image.
+ * <br>
+ * Bitmaps are kept in buckets by their allocation size (rounded up to the next power of two). A bitmap is taken from the
+ * smallest bucket holding bitmaps large enough, so small images do not use up the large bitmaps. The pool is bounded in bytes,
+ * bitmaps beyond that are dropped, largest first.
+ * <br>
+ * Only bitmaps which are certainly not displayed anymore (e.g. intermediate results of scaling) may be put into the pool.
+ */
+public final class BitmapPool {
+
+    private static final long MAX_BYTES = Math.min(Runtime.getRuntime().maxMemory() / 16, 24L * 1024 * 1024);
+    /** a bitmap of a bucket larger than the requested one by this factor or more is not used, to not waste memory */
+    private static final int MAX_BUCKET_FACTOR = 4;
+    /** assume 4 bytes per pixel, as the decoder may choose another config than the preferred one */
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final Object LOCK = new Object();
+    private static final TreeMap<Integer, ArrayDeque<Bitmap>> BUCKETS = new TreeMap<>();
+    private static long pooledBytes;
+    private static long hits;
+    private static long misses;
+
+    private BitmapPool() {
+        // utility class
+    }
+
+    /**
+     * @return size of the bucket for bitmaps of the given allocation size
+     */
+    static int getBucket(final int bytes) {
+        final int bucket = Integer.highestOneBit(Math.max(1, bytes));
+        return bucket == bytes ? bucket : bucket << 1;
+    }
+
+    /**
+     * Put a bitmap which is not used anymore into the pool. Immutable or recycled bitmaps are ignored.
+     */
+    public static void put(@Nullable final Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        final int bytes = bitmap.getAllocationByteCount();
+        if (bytes > MAX_BYTES / 2) {
+            return;
+        }
+        synchronized (LOCK) {
+            while (pooledBytes + bytes > MAX_BYTES && !BUCKETS.isEmpty()) {
+                final Map.Entry<Integer, ArrayDeque<Bitmap>> largest = BUCKETS.lastEntry();
+                final Bitmap dropped = largest.getValue().poll();
+                if (dropped != null) {
+                    pooledBytes -= dropped.getAllocationByteCount();
+                }
+                if (largest.getValue().isEmpty()) {
+                    BUCKETS.remove(largest.getKey());
+                }
+            }
+            ArrayDeque<Bitmap> bucket = BUCKETS.get(getBucket(bytes));
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                BUCKETS.put(getBucket(bytes), bucket);
+            }
+            bucket.push(bitmap);
+            pooledBytes += bytes;
+        }
+    }
+
+    /**
+     * @return a pooled bitmap with at least the given allocation size, or {@code null} if there is none
+     */
+    @Nullable
+    static Bitmap get(final int bytes) {
+        synchronized (LOCK) {
+            final int minBucket = getBucket(bytes);
+            for (Map.Entry<Integer, ArrayDeque<Bitmap>> entry = BUCKETS.ceilingEntry(minBucket);
+                    entry != null && entry.getKey() < (long) minBucket * MAX_BUCKET_FACTOR; entry = BUCKETS.higherEntry(entry.getKey())) {
+                final Iterator<Bitmap> bitmaps = entry.getValue().iterator();
+                while (bitmaps.hasNext()) {
+                    final Bitmap bitmap = bitmaps.next();
+                    if (bitmap.getAllocationByteCount() >= bytes) {
+                        bitmaps.remove();
+                        if (entry.getValue().isEmpty()) {
+                            BUCKETS.remove(entry.getKey());
+                        }
+                        pooledBytes -= bitmap.getAllocationByteCount();
+                        hits++;
+                        return bitmap;
+                    }
+                }
+            }
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Prepare the options for decoding an image of the given (sampled) size into a pooled bitmap, if one is available.
+     * The decoded bitmap will be mutable, so it can be put into the pool later on.
+     * If decoding fails with a pooled bitmap, it should be retried after {@link #clearReuse(BitmapFactory.Options)}.
+     */
+    public static void prepareDecode(@NonNull final BitmapFactory.Options options, final int width, final int height) {
+        options.inMutable = true;
+        if (width > 0 && height > 0) {
+            // sampled sizes may be rounded up by the decoder
+            options.inBitmap = get((width + 1) * (height + 1) * BYTES_PER_PIXEL);
+        }
+    }
+
+    /**
+     * @return whether the options had a pooled bitmap set, which is removed now
+     */
+    public static boolean clearReuse(@NonNull final BitmapFactory.Options options) {
+        final boolean hadBitmap = options.inBitmap != null;
+        options.inBitmap = null;
+        return hadBitmap;
+    }
+
+    @NonNull
+    public static String getStatistics() {
+        synchronized (LOCK) {
+            return "BitmapPool: " + Formatter.formatBytes(pooledBytes) + " pooled, " + hits + " reused, " + misses + " allocated";
+        }
+    }
+}
@@ -3,6 +3,9 @@ package cgeo.geocaching.utils;
 import cgeo.geocaching.network.HtmlImage;
 import cgeo.geocaching.utils.functions.Action1;
 
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -17,20 +20,33 @@ import io.reactivex.rxjava3.disposables.Disposable;
 /** Helper class to retrieve image data and cache it in-memory. Handles local and remote image uris */
 public class ImageLoader {
 
+    /** memory the cached images of one loader may use, in bytes */
+    private static final int MAX_CACHE_BYTES = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 16);
+
     private String htmlImageCode;
+    private final int thumbnailSize;
 
     private final Object imageCacheMutex = new Object();
-    private final LeastRecentlyUsedMap<String, HtmlImage.ImageData> imageCache;
+    private final LruCache<String, HtmlImage.ImageData> imageCache = new LruCache<String, HtmlImage.ImageData>(MAX_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(final String key, final HtmlImage.ImageData value) {
+            final Bitmap bitmap = value.bitmapDrawable == null ? null : value.bitmapDrawable.getBitmap();
+            return bitmap == null ? 1 : bitmap.getAllocationByteCount();
+        }
+    };
     private final Map<String, List<Action1<HtmlImage.ImageData>>> imageCacheListeners = new HashMap<>();
     private final CompositeDisposable imageCacheDisposable = new CompositeDisposable();
 
     public ImageLoader() {
-        this(2);
+        this(0);
     }
 
-    public ImageLoader(final int cacheSize) {
+    /**
+     * @param thumbnailSize size (in pixels) of the square the images are scaled to fit in, or 0 to load images fitting the display
+     */
+    public ImageLoader(final int thumbnailSize) {
         this.htmlImageCode = HtmlImage.SHARED;
-        this.imageCache = new LeastRecentlyUsedMap.LruCache<>(cacheSize);
+        this.thumbnailSize = thumbnailSize;
     }
 
     /** set the code BEFORE starting to use the imageloader */
@@ -48,8 +64,9 @@ public class ImageLoader {
 
     public void loadImage(final String imageUrl, final Action1<HtmlImage.ImageData> action, final Runnable actionOnCacheMiss) {
         synchronized (imageCacheMutex) {
-            if (imageCache.containsKey(imageUrl)) {
-                action.call(imageCache.get(imageUrl));
+            final HtmlImage.ImageData cached = imageCache.get(imageUrl);
+            if (cached != null) {
+                action.call(cached);
                 return;
             }
             if (actionOnCacheMiss != null) {
@@ -63,6 +80,9 @@ public class ImageLoader {
             imageCacheListeners.put(imageUrl, new ArrayList<>(Collections.singletonList(action)));
             final HtmlImage imgGetter = new HtmlImage(this.htmlImageCode, true, false, false);
             imgGetter.setLoadMetadata(true);
+            if (thumbnailSize > 0) {
+                imgGetter.setThumbnailSize(thumbnailSize);
+            }
 
             final Disposable disposable = imgGetter.fetchDrawableWithMetadata(imageUrl).observeOn(AndroidSchedulers.mainThread())
                     .subscribe(imgData -> {
@@ -82,7 +102,7 @@ public class ImageLoader {
 
     public void clear() {
         synchronized (imageCacheMutex) {
-            imageCache.clear();
+            imageCache.evictAll();
             imageCacheListeners.clear();
             imageCacheDisposable.clear();
         }
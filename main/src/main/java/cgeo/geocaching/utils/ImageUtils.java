@@ -6,6 +6,7 @@ import cgeo.geocaching.models.Image;
 import cgeo.geocaching.settings.Settings;
 import cgeo.geocaching.storage.ContentStorage;
 import cgeo.geocaching.storage.Folder;
+import cgeo.geocaching.storage.ImageStore;
 import cgeo.geocaching.storage.LocalStorage;
 import cgeo.geocaching.storage.PersistableFolder;
 import cgeo.geocaching.ui.ImageGalleryView;
@@ -45,6 +46,7 @@ import android.widget.TextView;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.core.content.FileProvider;
 import androidx.core.graphics.BitmapCompat;
 import androidx.core.util.Supplier;
@@ -75,6 +77,7 @@ import com.igreenwood.loupe.Loupe;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.functions.Consumer;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -225,6 +228,21 @@ public final class ImageUtils {
         return resultDrawable;
     }
 
+    /**
+     * @return largest power of two to use as {@link BitmapFactory.Options#inSampleSize}, such that the decoded image
+     * does not need to be enlarged for fitting it into the given target size
+     */
+    public static int calculateSampleSize(final int width, final int height, final int targetWidth, final int targetHeight) {
+        int sampleSize = 1;
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= targetWidth || height / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
     public static ImmutableTriple<Integer, Integer, Boolean> calculateScaledImageSizes(final int originalWidth, final int originalHeight, final int maxWidth, final int maxHeight) {
         return calculateScaledImageSizes(originalWidth, originalHeight, maxWidth, maxHeight, -1, -1);
     }
@@ -788,25 +806,27 @@ public final class ImageUtils {
             return;
         }
 
-        final Uri imageFileUri = getLocalImageFileUriForSharing(activity, imgUri, geocode);
-        if (imageFileUri == null) {
-            return;
-        }
-
-        try {
-            final Intent intent = new Intent().setAction(Intent.ACTION_VIEW);
-            intent.setDataAndType(imageFileUri, mimeTypeForUrl(imageFileUri.toString()));
-            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_ACTIVITY_NEW_TASK);
-            activity.startActivity(intent);
-        } catch (final Exception e) {
-            Log.e("ImageUtils.viewImageInStandardApp", e);
-        }
+        // looking up the image store (and possibly compressing the image) must not be done on the UI thread
+        AndroidRxUtils.andThenOnUi(Schedulers.io(), () -> getLocalImageFileUriForSharing(activity, imgUri, geocode), imageFileUri -> {
+            if (imageFileUri == null || activity.isFinishing()) {
+                return;
+            }
+            try {
+                final Intent intent = new Intent().setAction(Intent.ACTION_VIEW);
+                intent.setDataAndType(imageFileUri, mimeTypeForUrl(imageFileUri.toString()));
+                intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_ACTIVITY_NEW_TASK);
+                activity.startActivity(intent);
+            } catch (final Exception e) {
+                Log.e("ImageUtils.viewImageInStandardApp", e);
+            }
+        });
     }
 
     /**
      * gets or creates local file and shareable Uri for given image. Returns null if creation fails
      */
     @Nullable
+    @WorkerThread
     public static Uri getLocalImageFileUriForSharing(final Context context, final Uri imgUri, final String geocode) {
 
         if (imgUri == null) {
@@ -819,8 +839,8 @@ public final class ImageUtils {
 
         if (!UriUtils.isFileUri(imgUri)) {
             //try to find local file in cache image storage
-            final File file = LocalStorage.getGeocacheDataFile(storeCode, imgUri.toString(), true, true);
-            if (file.exists()) {
+            final File file = ImageStore.getFile(storeCode, imgUri.toString());
+            if (file != null) {
                 imageUri = Uri.fromFile(file);
             }
         }
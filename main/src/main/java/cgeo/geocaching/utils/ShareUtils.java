@@ -33,6 +33,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.apache.commons.collections4.IterableUtils;
 import org.apache.commons.lang3.StringUtils;
 
@@ -66,9 +67,10 @@ public class ShareUtils {
     }
 
     public static void shareImage(final Context context, final Uri imageUri, final String geocode, @StringRes final int titleResourceId) {
-        final Uri localFileImageUri = ImageUtils.getLocalImageFileUriForSharing(context, imageUri, geocode);
-        final Intent intent = createShareIntentInternal(context, TYPE_IMAGE, null, null, localFileImageUri, null);
-        shareInternal(context, intent, titleResourceId);
+        AndroidRxUtils.andThenOnUi(Schedulers.io(), () -> ImageUtils.getLocalImageFileUriForSharing(context, imageUri, geocode), localFileImageUri -> {
+            final Intent intent = createShareIntentInternal(context, TYPE_IMAGE, null, null, localFileImageUri, null);
+            shareInternal(context, intent, titleResourceId);
+        });
     }
 
     private static void shareAsEmail(final Context context, final String subject, final String body, @Nullable final Uri uri, @StringRes final int titleResourceId, final String receiver) {
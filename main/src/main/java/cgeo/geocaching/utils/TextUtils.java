@@ -108,11 +108,28 @@ public final class TextUtils {
      * @return defaultValue or the n-th group if the pattern matches (trimmed if wanted)
      */
     @Nullable
-    @SuppressFBWarnings("DM_STRING_CTOR")
     public static String getMatch(@Nullable final String data, final Pattern pattern, final boolean trim, final int group, @Nullable final String defaultValue, final boolean last) {
-        if (data != null) {
+        return getMatch(data, pattern, 0, trim, group, defaultValue, last);
+    }
+
+    /**
+     * Searches for the pattern pattern in the data, starting at the given position. If the pattern is not found defaultValue is returned
+     *
+     * @param data         Data to search in
+     * @param pattern      Pattern to search for
+     * @param start        Position in data to start searching at. Matches starting before are ignored
+     * @param trim         Set to true if the group found should be trim'ed
+     * @param group        Number of the group to return if found
+     * @param defaultValue Value to return if the pattern is not found
+     * @param last         Find the last occurring value
+     * @return defaultValue or the n-th group if the pattern matches (trimmed if wanted)
+     */
+    @Nullable
+    @SuppressFBWarnings("DM_STRING_CTOR")
+    public static String getMatch(@Nullable final String data, final Pattern pattern, final int start, final boolean trim, final int group, @Nullable final String defaultValue, final boolean last) {
+        if (data != null && start >= 0 && start <= data.length()) {
             final Matcher matcher = pattern.matcher(data);
-            if (matcher.find()) {
+            if (matcher.find(start)) {
                 String result = matcher.group(group);
                 while (last && matcher.find()) {
                     result = matcher.group(group);
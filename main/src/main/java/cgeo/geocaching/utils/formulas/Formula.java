@@ -19,6 +19,7 @@ import android.util.Pair;
 import androidx.annotation.NonNull;
 import androidx.core.util.Supplier;
 
+import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
@@ -53,6 +54,8 @@ import org.apache.commons.lang3.StringUtils;
  * * Ability to use string type was added (in addition to numeric)
  * * concated expressions were added. For example '3(5+1)4' is now interpreted as '364'. Likewise, if A=1, then 'AA5(A+1)3' will  be parsed to '11523'
  * * Localizable, user-displayable error message handling was added.
+ * * Subtrees consisting only of integer arithmetic are additionally compiled to plain long arithmetic. They are evaluated
+ *   without creating intermediate {@link Value}s and fall back to the general evaluation if a value is not a long integer or on overflow.
  */
 public final class Formula {
 
@@ -64,6 +67,9 @@ public final class Formula {
 
     private static final String RANGE_NODE_ID = "range-node";
 
+    /** maximum absolute value for which '^' is evaluated using doubles */
+    private static final long POWER_DOUBLE_RANGE_MAX = 450000000L;
+
     //Caches last used compiled expressions for performance reasons
     private static final LeastRecentlyUsedMap<String, Pair<Formula, FormulaException>> FORMULA_CACHE = new LeastRecentlyUsedMap.LruCache<>(500);
 
@@ -85,6 +91,30 @@ public final class Formula {
         return new ForegroundColorSpan(Color.GRAY);
     }
 
+    /** Evaluates a formula subtree using plain long arithmetic */
+    private interface LongFunction {
+        long eval(Function<String, Value> variables, int rangeIdx) throws NoLongResult;
+    }
+
+    /** Binary operation for {@link LongFunction}s */
+    private interface LongOperation {
+        long apply(long v1, long v2) throws NoLongResult;
+    }
+
+    /** Signals that a subtree can't be evaluated using long arithmetic, e.g. because a value is not an integer or on overflow */
+    private static final class NoLongResult extends Exception {
+
+        private static final long serialVersionUID = 6436287374582170214L;
+
+        private static final NoLongResult INSTANCE = new NoLongResult();
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            //used for control flow only, stack trace is never needed
+            return this;
+        }
+    }
+
     public static class ErrorValue extends Value {
 
         protected ErrorValue(final CharSequence errorString) {
@@ -109,6 +139,9 @@ public final class Formula {
         private Func3<ValueList, Function<String, Value>, Integer, Value> function;
         private Func4<ValueList, Function<String, Value>, Integer, Set<Integer>, CharSequence> functionToErrorString;
         private FormulaNode[] children;
+        private LongFunction longFunction;
+        private boolean keepOperandValues = false;
+        private boolean isConstant = false;
 
         public final Set<String> neededVars;
 
@@ -140,6 +173,35 @@ public final class Formula {
                 final CharSequence csResult = evalToCharSequenceInternal(y -> null, -1).getAsCharSequence();
                 this.functionToErrorString = (objs, vars, rangeIdx, b) -> csResult;
                 this.children = FORMULA_NODE_EMPTY_ARRAY;
+                this.longFunction = createConstantLongFunction();
+                this.isConstant = true;
+            }
+        }
+
+        /** sets a long arithmetic implementation for this node. Ignored for constant nodes (they already have one if applicable) */
+        FormulaNode setLongFunction(final LongFunction longFunction) {
+            if (!isConstant) {
+                this.longFunction = longFunction;
+            }
+            return this;
+        }
+
+        /**
+         * marks this node as depending on the exact values of its children (e.g. their text for concatenation),
+         * so children are never evaluated using long arithmetic
+         */
+        FormulaNode keepOperandValues() {
+            this.keepOperandValues = true;
+            return this;
+        }
+
+        private LongFunction createConstantLongFunction() {
+            try {
+                //derived from the general evaluation, so a constant is folded the same way with or without long arithmetic
+                final long result = toLong(evalInternal(y -> null, -1, false));
+                return (vars, rangeIdx) -> result;
+            } catch (FormulaException | NoLongResult e) {
+                return null;
             }
         }
 
@@ -181,7 +243,7 @@ public final class Formula {
             Value result = null;
             FormulaException resultException = null;
             try {
-                result = eval(y -> null, -1);
+                result = evalInternal(y -> null, -1, false);
             } catch (FormulaException fe) {
                 resultException = fe;
             }
@@ -196,13 +258,22 @@ public final class Formula {
         }
 
         private Value eval(final Function<String, Value> variables, final int rangeIdx) throws FormulaException {
-            return evalInternal(variables == null ? x -> null : variables, rangeIdx);
+            return evalInternal(variables == null ? x -> null : variables, rangeIdx, true);
         }
 
-        private Value evalInternal(final Function<String, Value> variables, final int rangeIdx) throws FormulaException {
+        private Value evalInternal(final Function<String, Value> variables, final int rangeIdx, final boolean useLongFunction) throws FormulaException {
+            boolean useLongFunctionForChildren = useLongFunction;
+            if (useLongFunction && longFunction != null) {
+                try {
+                    return Value.of(longFunction.eval(variables, rangeIdx));
+                } catch (NoLongResult nlr) {
+                    //evaluate whole subtree the general way, so results are exactly the same as without long arithmetic
+                    useLongFunctionForChildren = false;
+                }
+            }
             final ValueList childValues = new ValueList();
             for (FormulaNode child : children) {
-                childValues.add(child.eval(variables, rangeIdx));
+                childValues.add(child.evalInternal(variables, rangeIdx, useLongFunctionForChildren && !keepOperandValues));
             }
             return this.function.call(childValues, variables, rangeIdx);
         }
@@ -279,6 +350,17 @@ public final class Formula {
         return createNumeric(operatorSymbol, new FormulaNode[]{c1, c2}, false, valueList -> function.apply(valueList.get(0), valueList.get(1)));
     }
 
+    /** creates a binary numeric node which is evaluated using given long operation if both children support long arithmetic */
+    private FormulaNode createBiNumeric(final String operatorSymbol, final FormulaNode c1, final FormulaNode c2, final BiFunction<Value, Value, Number> function, final LongOperation longOperation) {
+        final FormulaNode node = createBiNumeric(operatorSymbol, c1, c2, function);
+        final LongFunction f1 = c1.longFunction;
+        final LongFunction f2 = c2.longFunction;
+        if (f1 != null && f2 != null) {
+            node.setLongFunction((vars, rangeIdx) -> longOperation.apply(f1.eval(vars, rangeIdx), f2.eval(vars, rangeIdx)));
+        }
+        return node;
+    }
+
     private FormulaNode createNumeric(final String operatorSymbol, final FormulaNode[] children, final boolean unaryBefore, final Function<ValueList, Number> function) {
         return new FormulaNode(operatorSymbol, children, (valueList, vars, rangeIdx) -> {
             valueList.assertCheckTypes((v, idx) -> v.isNumeric(), i -> "Number", false);
@@ -427,6 +509,11 @@ public final class Formula {
         }
     }
 
+    /** for test/benchmark purposes only: evaluates without using long arithmetic */
+    Value evaluateWithoutLongArithmetic(final Function<String, Value> vars, final int rangeIdx) throws FormulaException {
+        return compiledExpression.evalInternal(vars == null ? x -> null : vars, rangeIdx, false);
+    }
+
     public String evaluateToString(final Function<String, Value> vars) {
         return evaluateToCharSequence(vars).toString();
     }
@@ -507,7 +594,7 @@ public final class Formula {
         if (multiResult == null) {
             return singleResult;
         }
-        return new FormulaNode("concat-exp", multiResult.toArray(new FormulaNode[0]), (objs, vars, ri) -> concat(objs));
+        return new FormulaNode("concat-exp", multiResult.toArray(new FormulaNode[0]), (objs, vars, ri) -> concat(objs)).keepOperandValues();
 
     }
 
@@ -563,9 +650,9 @@ public final class Formula {
         FormulaNode x = parseMultiplyDivision();
         for (; ; ) {
             if (p.eat('+')) {
-                x = createBiNumeric("+", x, parseMultiplyDivision(), (v1, v2) -> v1.getAsDecimal().add(v2.getAsDecimal()));
+                x = createBiNumeric("+", x, parseMultiplyDivision(), (v1, v2) -> v1.getAsDecimal().add(v2.getAsDecimal()), Formula::longAdd);
             } else if (p.eat('-') || p.eat('—')) { //those are two different chars
-                x = createBiNumeric("-", x, parseMultiplyDivision(), (v1, v2) -> v1.getAsDecimal().subtract(v2.getAsDecimal()));
+                x = createBiNumeric("-", x, parseMultiplyDivision(), (v1, v2) -> v1.getAsDecimal().subtract(v2.getAsDecimal()), Formula::longSubtract);
             } else {
                 return x;
             }
@@ -576,11 +663,11 @@ public final class Formula {
         FormulaNode x = parseFactor();
         for (; ; ) {
             if (p.eat('*') || p.eat('•')) {
-                x = createBiNumeric("*", x, parseFactor(), (v1, v2) -> v1.getAsDecimal().multiply(v2.getAsDecimal()));
+                x = createBiNumeric("*", x, parseFactor(), (v1, v2) -> v1.getAsDecimal().multiply(v2.getAsDecimal()), Formula::longMultiply);
             } else if (p.eat('/') || p.eat(':') || p.eat('÷')) {
                 x = createBiNumeric("/", x, parseFactor(), (n1, n2) -> n1.getAsDecimal().divide(n2.getAsDecimal(), Math.max(n1.getAsDecimal().scale(), 30), RoundingMode.HALF_UP));
             } else if (p.eat('%')) {
-                x = createBiNumeric("%", x, parseFactor(), (n1, n2) -> n1.getAsDecimal().remainder(n2.getAsDecimal(), new MathContext(Math.max(n1.getAsDecimal().scale(), 30), RoundingMode.HALF_UP)));
+                x = createBiNumeric("%", x, parseFactor(), (n1, n2) -> n1.getAsDecimal().remainder(n2.getAsDecimal(), new MathContext(Math.max(n1.getAsDecimal().scale(), 30), RoundingMode.HALF_UP)), Formula::longRemainder);
             } else {
                 return x;
             }
@@ -592,7 +679,10 @@ public final class Formula {
             return parseFactor(); // unary plus
         }
         if (p.eat('-') || p.eat('—')) { // those are two different chars!
-            return createUnaryNumeric("-", parseFactor(), true, v -> v.getAsDecimal().negate());
+            final FormulaNode child = parseFactor();
+            final LongFunction childLong = child.longFunction;
+            final FormulaNode node = createUnaryNumeric("-", child, true, v -> v.getAsDecimal().negate());
+            return childLong == null ? node : node.setLongFunction((vars, rangeIdx) -> longSubtract(0, childLong.eval(vars, rangeIdx)));
         }
 
         FormulaNode x = parseConcatBlock();
@@ -617,7 +707,7 @@ public final class Formula {
                     return num1.getAsDecimal().pow((int) num2.getAsLong());
                 }
                 throw new FormulaException(NUMERIC_OVERFLOW);
-            });
+            }, Formula::longPower);
         }
         if (p.eat('#')) {
             p.parseUntil(c -> '#' == c, false, null, true); // drop potential user comments
@@ -669,7 +759,8 @@ public final class Formula {
         }
         final int divisor = registerRange(range);
         return new FormulaNode(RANGE_NODE_ID, null,
-                (objs, vars, rangeIdx) -> Value.of(range.getValue((rangeIdx % (divisor * range.getSize())) / divisor)));
+                (objs, vars, rangeIdx) -> Value.of(range.getValue((rangeIdx % (divisor * range.getSize())) / divisor)))
+                .setLongFunction((vars, rangeIdx) -> range.getValue((rangeIdx % (divisor * range.getSize())) / divisor));
     }
 
     private int registerRange(final IntegerRange range) {
@@ -690,9 +781,11 @@ public final class Formula {
                 final char expectedClosingChar = p.ch() == '(' ? ')' : ']';
                 p.next();
                 this.level++;
-                nodes.add(new FormulaNode("paren", new FormulaNode[]{parseExpression()},
+                final FormulaNode inner = parseExpression();
+                nodes.add(new FormulaNode("paren", new FormulaNode[]{inner},
                         (o, v, ri) -> o.get(0),
-                        (valueList, vars, rangeIdx, paramsInError) -> optionalError(TextUtils.concat("(", valueListToCharSequence(valueList), ")"), paramsInError)));
+                        (valueList, vars, rangeIdx, paramsInError) -> optionalError(TextUtils.concat("(", valueListToCharSequence(valueList), ")"), paramsInError))
+                        .setLongFunction(inner.longFunction));
                 this.level--;
                 if (!p.eat(expectedClosingChar)) {
                     final FormulaException fe = new FormulaException(UNEXPECTED_TOKEN, "" + expectedClosingChar);
@@ -727,7 +820,7 @@ public final class Formula {
         if (nodes.size() == 1) {
             return nodes.get(0);
         }
-        return new FormulaNode("concat", nodes.toArray(new FormulaNode[0]), (objs, vars, ri) -> concat(objs));
+        return new FormulaNode("concat", nodes.toArray(new FormulaNode[0]), (objs, vars, ri) -> concat(objs)).keepOperandValues();
     }
 
     private static FormulaNode createSingleValueNode(final String nodeId, final Object value) {
@@ -770,7 +863,7 @@ public final class Formula {
                 return value.getAsString();
             }
             return TextUtils.setSpan("?" + parsed, createErrorSpan());
-        }, result -> result.add(parsed));
+        }, result -> result.add(parsed)).setLongFunction((vars, ri) -> toLong(vars.apply(parsed)));
 
     }
 
@@ -809,7 +902,7 @@ public final class Formula {
     @NonNull
     private FormulaNode parseSingleLetterVariableBlock(final String varBlock) {
 
-        return new FormulaNode("varblock", null, (objs, vars, ri) -> {
+        final FormulaNode node = new FormulaNode("varblock", null, (objs, vars, ri) -> {
             final ValueList varValues = new ValueList();
             for (char l : varBlock.toCharArray()) {
                 final Value value = vars.apply("" + l);
@@ -827,6 +920,11 @@ public final class Formula {
                 result.add("" + l);
             }
         });
+        //blocks of more than one variable are concatenated as strings
+        if (varBlock.length() == 1) {
+            node.setLongFunction((vars, ri) -> toLong(vars.apply(varBlock)));
+        }
+        return node;
     }
 
     private FormulaException createMissingVarsException(final Function<String, Value> providedVars) {
@@ -871,7 +969,7 @@ public final class Formula {
                 },
                 (valueList, vars, rangeIdx, paramsInError) -> optionalError(TextUtils.concat(functionName + "(",
                     valueListToCharSequence(valueList, "; ", paramsInError, true),
-                    ")"), paramsInError));
+                    ")"), paramsInError)).keepOperandValues();
 
     }
 
@@ -957,5 +1055,111 @@ public final class Formula {
         return childrenInError != null && childrenInError.isEmpty() ? TextUtils.setSpan(value, createErrorSpan()) : value;
     }
 
+    /**
+     * Converts a value for long arithmetic. Only values which are exactly represented by a long integer are accepted,
+     * everything else (decimals, texts, big numbers, missing values) leads to the general evaluation.
+     * Texts are only accepted in canonical form (e.g. not "007" or "-0"), since their text would be lost otherwise.
+     */
+    private static long toLong(final Value value) throws NoLongResult {
+        final Object raw = value == null ? null : value.getRaw();
+        if (raw instanceof Long || raw instanceof Integer) {
+            return ((Number) raw).longValue();
+        }
+        if (raw instanceof String) {
+            return parseLong((String) raw);
+        }
+        if (raw instanceof BigDecimal && ((BigDecimal) raw).scale() == 0 && ((BigDecimal) raw).unscaledValue().bitLength() < 64) {
+            return ((BigDecimal) raw).longValue();
+        }
+        throw NoLongResult.INSTANCE;
+    }
+
+    /** parses plain integer numbers in canonical form (optional minus sign followed by up to 18 digits without leading zeros) */
+    private static long parseLong(final String value) throws NoLongResult {
+        final int len = value.length();
+        final int start = len > 0 && value.charAt(0) == '-' ? 1 : 0;
+        if (len == start || len - start > 18 || (value.charAt(start) == '0' && (len - start > 1 || start == 1))) {
+            throw NoLongResult.INSTANCE;
+        }
+        long result = 0;
+        for (int i = start; i < len; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw NoLongResult.INSTANCE;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return start == 1 ? -result : result;
+    }
+
+    private static long longAdd(final long v1, final long v2) throws NoLongResult {
+        final long result = v1 + v2;
+        //overflow iff both operands have same sign and result has a different one
+        if (((v1 ^ result) & (v2 ^ result)) < 0) {
+            throw NoLongResult.INSTANCE;
+        }
+        return result;
+    }
+
+    private static long longSubtract(final long v1, final long v2) throws NoLongResult {
+        final long result = v1 - v2;
+        //overflow iff operands have different signs and result sign differs from first operand
+        if (((v1 ^ v2) & (v1 ^ result)) < 0) {
+            throw NoLongResult.INSTANCE;
+        }
+        return result;
+    }
+
+    private static long longMultiply(final long v1, final long v2) throws NoLongResult {
+        final long high = Math.abs(v1) | Math.abs(v2);
+        if (high >>> 31 != 0) {
+            //operands too big for a quick check, use division to detect overflow
+            if ((v1 == Long.MIN_VALUE || v2 == Long.MIN_VALUE) && v1 != 0 && v2 != 0 && v1 != 1 && v2 != 1) {
+                throw NoLongResult.INSTANCE;
+            }
+            final long result = v1 * v2;
+            if (v1 != 0 && result / v1 != v2) {
+                throw NoLongResult.INSTANCE;
+            }
+            return result;
+        }
+        return v1 * v2;
+    }
+
+    private static long longRemainder(final long v1, final long v2) throws NoLongResult {
+        if (v2 == 0) {
+            throw NoLongResult.INSTANCE;
+        }
+        return v1 % v2;
+    }
+
+    /**
+     * power for long values. Negative exponents (decimal results), exponents above {@link #POWER_DOUBLE_RANGE_MAX},
+     * a zero exponent with a base outside of +/-{@link #POWER_DOUBLE_RANGE_MAX} and results overflowing a long throw {@link NoLongResult},
+     * so the general evaluation handles them
+     */
+    private static long longPower(final long base, final long exponent) throws NoLongResult {
+        if (exponent < 0 || exponent > POWER_DOUBLE_RANGE_MAX) {
+            throw NoLongResult.INSTANCE;
+        }
+        if (exponent == 0) {
+            //general evaluation uses doubles only up to POWER_DOUBLE_RANGE_MAX and reports an overflow for a zero exponent beyond
+            if (base > POWER_DOUBLE_RANGE_MAX || base < -POWER_DOUBLE_RANGE_MAX) {
+                throw NoLongResult.INSTANCE;
+            }
+            return 1;
+        }
+        if (base == 0 || base == 1) {
+            return base;
+        }
+        if (base == -1) {
+            return exponent % 2 == 0 ? 1 : -1;
+        }
+        long result = base;
+        for (long i = 1; i < exponent; i++) {
+            result = longMultiply(result, base);
+        }
+        return result;
+    }
 
 }
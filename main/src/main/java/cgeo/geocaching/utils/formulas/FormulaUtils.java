@@ -6,6 +6,7 @@ import cgeo.geocaching.ui.SimpleItemListModel;
 import cgeo.geocaching.ui.TextParam;
 import cgeo.geocaching.ui.dialog.SimpleDialog;
 import cgeo.geocaching.utils.CommonUtils;
+import cgeo.geocaching.utils.LeastRecentlyUsedMap;
 import cgeo.geocaching.utils.TextUtils;
 
 import android.content.Context;
@@ -61,6 +62,21 @@ public class FormulaUtils {
             "(?<lat>[nNsS](\\h*[0-9]|\\h+[A-Za-z])" + COORDINATE_SCAN_DIGIT_PATTERN + ")\\s*([a-zA-Z,()-]{2,}\\s+){0,3}(?<lon>[eEwWoO](\\h*[0-9]|\\h+[A-Za-z])" + COORDINATE_SCAN_DIGIT_PATTERN + ")"
     );
 
+    /**
+     * Characters which may be part of a formula operator (see F_OPS). Every formula found by FORMULA_SCAN_PATTERN contains at least one of those.
+     */
+    private static final String FORMULA_SCAN_OPERATOR_CHARS = "+/!^:*x-";
+
+    /**
+     * Max distance of any char of a match of FORMULA_SCAN_PATTERN to its nearest operator char (with some safety margin).
+     * Derived from the bounded quantifiers in F_FORMULA: each operand, whitespace and bracket sequence is limited in length
+     */
+    private static final int FORMULA_SCAN_OPERATOR_RADIUS = 128;
+
+    /** Scan results per scanned text, so repeated scans of the same listing (e.g. reopening a cache) cost nothing */
+    private static final LeastRecentlyUsedMap<String, List<String>> FORMULA_SCAN_CACHE = new LeastRecentlyUsedMap.LruCache<>(20);
+    private static final LeastRecentlyUsedMap<String, List<Pair<String, String>>> COORDINATE_SCAN_CACHE = new LeastRecentlyUsedMap.LruCache<>(20);
+
     private static final Pattern DEGREE_TRAILINGSTUFF_REMOVER = Pattern.compile("(\\s+[a-zA-Z]{2,}|[.,(\\[+:*/-])$");
 
     private static final Map<Character, Integer> SPECIAL_LETTER_VALUE_MAP = new HashMap<>();
@@ -266,6 +282,25 @@ public class FormulaUtils {
         if (stext == null) {
             return;
         }
+        for (Pair<String, String> candidate : getCoordinateCandidates(stext)) {
+            final String key = pairToKey(candidate.first, candidate.second);
+            if (!resultSet.contains(key)) {
+                result.add(candidate);
+                resultSet.add(key);
+            }
+        }
+    }
+
+    /** returns all coordinate candidates found in given text in order of appearance, using cached result if available */
+    private static List<Pair<String, String>> getCoordinateCandidates(@NonNull final String stext) {
+        synchronized (COORDINATE_SCAN_CACHE) {
+            final List<Pair<String, String>> cached = COORDINATE_SCAN_CACHE.get(stext);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final List<Pair<String, String>> candidates = new ArrayList<>();
+        final Set<String> candidateKeys = new HashSet<>();
         final String text = preprocessScanText(stext);
         final Matcher m = COORDINATE_SCAN_PATTERN.matcher(" " + text + " ");
         int start = 0;
@@ -275,12 +310,17 @@ public class FormulaUtils {
             final String latProcessed = processFoundDegree(lat);
             final String lonProcessed = processFoundDegree(lon);
             final String key = pairToKey(latProcessed, lonProcessed);
-            if (!resultSet.contains(key) && checkCandidate(latProcessed) && checkCandidate(lonProcessed)) {
-                result.add(new Pair<>(latProcessed, lonProcessed));
-                resultSet.add(key);
+            if (!candidateKeys.contains(key) && checkCandidate(latProcessed) && checkCandidate(lonProcessed)) {
+                candidates.add(new Pair<>(latProcessed, lonProcessed));
+                candidateKeys.add(key);
             }
             start = m.end();
         }
+        final List<Pair<String, String>> result = Collections.unmodifiableList(candidates);
+        synchronized (COORDINATE_SCAN_CACHE) {
+            COORDINATE_SCAN_CACHE.put(stext, result);
+        }
+        return result;
     }
 
     public static List<String> scanForFormulas(final Collection<String> texts, final Collection<String> excludeFormulas) {
@@ -297,20 +337,74 @@ public class FormulaUtils {
         if (stext == null) {
             return;
         }
-        final String text = preprocessScanText(stext);
-        final String searchText = " " + text + " ";
-        final Matcher m = FORMULA_SCAN_PATTERN.matcher(searchText);
-        int start = 0;
-        while (m.find(start)) {
-            final String found = processFoundText(Objects.requireNonNull(m.group(1)));
-            if (!resultSet.contains(found) && checkCandidate(found)) {
+        for (String found : getFormulaCandidates(stext)) {
+            if (!resultSet.contains(found)) {
                 result.add(found);
                 resultSet.add(found);
             }
-            start = m.end() - 1; //move one char to left to find patterns only separated by one char
         }
     }
 
+    /** returns all formula candidates found in given text in order of appearance, using cached result if available */
+    private static List<String> getFormulaCandidates(@NonNull final String stext) {
+        synchronized (FORMULA_SCAN_CACHE) {
+            final List<String> cached = FORMULA_SCAN_CACHE.get(stext);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final List<String> candidates = new ArrayList<>();
+        final Set<String> candidateSet = new HashSet<>();
+        final String searchText = " " + preprocessScanText(stext) + " ";
+        final Matcher m = FORMULA_SCAN_PATTERN.matcher(searchText);
+        //every match contains an operator char and lies near to it. Thus only the regions around operators are searched
+        int start = 0;
+        int idx = 0;
+        while (idx < searchText.length()) {
+            final int opIdx = indexOfAny(searchText, FORMULA_SCAN_OPERATOR_CHARS, idx);
+            if (opIdx < 0) {
+                break;
+            }
+            final int regionStart = Math.max(start, opIdx - FORMULA_SCAN_OPERATOR_RADIUS);
+            int regionEnd = opIdx + FORMULA_SCAN_OPERATOR_RADIUS;
+            int nextOpIdx = indexOfAny(searchText, FORMULA_SCAN_OPERATOR_CHARS, opIdx + 1);
+            while (nextOpIdx >= 0 && nextOpIdx - FORMULA_SCAN_OPERATOR_RADIUS <= regionEnd) {
+                regionEnd = nextOpIdx + FORMULA_SCAN_OPERATOR_RADIUS;
+                nextOpIdx = indexOfAny(searchText, FORMULA_SCAN_OPERATOR_CHARS, nextOpIdx + 1);
+            }
+            regionEnd = Math.min(regionEnd + 1, searchText.length());
+            start = regionStart;
+            while (start < regionEnd) {
+                m.region(start, regionEnd);
+                if (!m.find()) {
+                    break;
+                }
+                final String found = processFoundText(Objects.requireNonNull(m.group(1)));
+                if (!candidateSet.contains(found) && checkCandidate(found)) {
+                    candidates.add(found);
+                    candidateSet.add(found);
+                }
+                start = m.end() - 1; //move one char to left to find patterns only separated by one char
+            }
+            start = Math.max(start, regionEnd);
+            idx = nextOpIdx < 0 ? searchText.length() : nextOpIdx;
+        }
+        final List<String> result = Collections.unmodifiableList(candidates);
+        synchronized (FORMULA_SCAN_CACHE) {
+            FORMULA_SCAN_CACHE.put(stext, result);
+        }
+        return result;
+    }
+
+    private static int indexOfAny(final String text, final String chars, final int fromIdx) {
+        for (int i = fromIdx; i < text.length(); i++) {
+            if (chars.indexOf(text.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private static String preprocessScanText(final String text) {
         return text.replaceAll("\\h|\\s", " ").trim()
                 .replace(',', '.');
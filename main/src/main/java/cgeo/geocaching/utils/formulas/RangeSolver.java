@@ -0,0 +1,735 @@
+package cgeo.geocaching.utils.formulas;
+
+import cgeo.geocaching.location.Geopoint;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Searches all assignments of range variables (e.g. A in [:1-9]) which satisfy a set of constraints,
+ * e.g. that a resulting coordinate lies within a certain radius or that a checksum has a certain value.
+ * <br>
+ * Variables are enumerated in an order where constraints can be checked as early as possible. A constraint is checked
+ * as soon as all variables it depends on are assigned, so partial assignments violating it are pruned with all their
+ * combinations. Enumeration is split up and done in parallel on a scheduler. Solutions are either streamed to a listener
+ * while searching or collected and returned in range index order.
+ * <br>
+ * Additionally to range variables, formula variables may be defined whose values are calculated from other variables.
+ * Values of variables which are neither range nor formula variables can be provided externally.
+ * <br>
+ * Range variables are either plain integer ranges or formulas containing ranges (e.g. "[:1-3]*X"), which are enumerated
+ * over their range indexes. The latter may depend on other variables, which are then assigned before them.
+ */
+public class RangeSolver {
+
+    /** A condition the solutions have to satisfy */
+    public interface Constraint {
+
+        /** variables this constraint depends on */
+        @NonNull
+        Set<String> getNeededVariables();
+
+        /** returns true if given variable values satisfy this constraint */
+        boolean test(@NonNull Function<String, Value> variables);
+    }
+
+    /** Statistics about a solver run */
+    public static final class Statistics {
+        /** number of all combinations of range variable values */
+        public final long combinations;
+        /** number of combinations either checked or excluded by pruning */
+        public final long combinationsCovered;
+        /** number of complete assignments which were checked against all constraints */
+        public final long assignmentsChecked;
+        /** number of partial assignments which were pruned */
+        public final long prunedBranches;
+        public final long solutions;
+        public final long durationMs;
+        public final int threads;
+        public final boolean cancelled;
+
+        Statistics(final long combinations, final long combinationsCovered, final long assignmentsChecked, final long prunedBranches,
+                   final long solutions, final long durationMs, final int threads, final boolean cancelled) {
+            this.combinations = combinations;
+            this.combinationsCovered = combinationsCovered;
+            this.assignmentsChecked = assignmentsChecked;
+            this.prunedBranches = prunedBranches;
+            this.solutions = solutions;
+            this.durationMs = durationMs;
+            this.threads = threads;
+            this.cancelled = cancelled;
+        }
+
+        /** number of combinations covered (checked or pruned) per second */
+        public long getCombinationsPerSecond() {
+            return combinationsCovered * 1000 / Math.max(1, durationMs);
+        }
+
+        /** number of complete assignments checked per second */
+        public long getAssignmentsCheckedPerSecond() {
+            return assignmentsChecked * 1000 / Math.max(1, durationMs);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "combinations:" + combinationsCovered + "/" + combinations + ", checked:" + assignmentsChecked + ", pruned:" + prunedBranches +
+                    ", solutions:" + solutions + ", " + durationMs + "ms, " + getCombinationsPerSecond() + " comb/s (" + threads + " threads)" +
+                    (cancelled ? ", CANCELLED" : "");
+        }
+    }
+
+    /** values a range variable is enumerated over */
+    private interface RangeValues {
+
+        int getSize();
+
+        @Nullable
+        Value getValue(int idx, @NonNull Function<String, Value> variables);
+
+        /** variables the values depend on */
+        @NonNull
+        Set<String> getNeededVariables();
+    }
+
+    /** receives a solution together with the range indexes of the range variables (in order of their addition) */
+    private interface SolutionListener {
+        void onSolution(@NonNull int[] rangeIndexes, @NonNull Map<String, Value> values);
+    }
+
+    /** a solution which is sorted by the range indexes of the range variables, first added variable changing slowest */
+    private static final class SortableSolution implements Comparable<SortableSolution> {
+        final int[] rangeIndexes;
+        final Map<String, Value> values;
+
+        SortableSolution(final int[] rangeIndexes, final Map<String, Value> values) {
+            this.rangeIndexes = rangeIndexes;
+            this.values = values;
+        }
+
+        @Override
+        public int compareTo(final SortableSolution other) {
+            for (int i = 0; i < rangeIndexes.length; i++) {
+                final int cmp = Integer.compare(rangeIndexes[i], other.rangeIndexes[i]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        }
+    }
+
+    /** minimum number of parallel tasks per thread to balance work between threads */
+    private static final int TASKS_PER_THREAD = 8;
+
+    private final Map<String, RangeValues> rangeVariables = new LinkedHashMap<>();
+    private final Map<String, Formula> formulaVariables = new LinkedHashMap<>();
+    private final List<Constraint> constraints = new ArrayList<>();
+    private Function<String, Value> externalVariables = x -> null;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Scheduler scheduler = Schedulers.computation();
+    private long maxSolutions = -1;
+
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /** compiled enumeration plan, prepared at solve start */
+    private static final class Plan {
+        String[] vars;
+        RangeValues[] ranges;
+        /** position of variable at index in order of addition */
+        int[] positions;
+        /** formula variables to calculate after assigning variable at index (in calculation order) */
+        List<List<String>> formulasAtDepth;
+        /** constraints to check after assigning variable at index */
+        List<List<Constraint>> constraintsAtDepth;
+        /** constraints not depending on any range variable */
+        List<Constraint> constantConstraints;
+        /** formula variables not depending on any range variable */
+        List<String> constantFormulas;
+        /** number of combinations of variables from index on */
+        long[] suffixCombinations;
+    }
+
+    /** per-thread enumeration state */
+    private final class Worker {
+        final Plan plan;
+        final Map<String, Value> values = new HashMap<>();
+        final int[] rangeIndexes;
+        final Function<String, Value> variables;
+        final SolutionListener onSolution;
+        final AtomicLong solutionCount;
+        long covered = 0;
+        long checked = 0;
+        long pruned = 0;
+
+        Worker(final Plan plan, final SolutionListener onSolution, final AtomicLong solutionCount) {
+            this.plan = plan;
+            this.rangeIndexes = new int[plan.vars.length];
+            this.onSolution = onSolution;
+            this.solutionCount = solutionCount;
+            this.variables = v -> {
+                final Value value = values.get(v);
+                return value != null || values.containsKey(v) ? value : externalVariables.apply(v);
+            };
+        }
+
+        /** enumerates all combinations with given fixed values for first variables (given as combined prefix index) */
+        void runPrefix(final long prefixIdx, final int prefixLength) {
+            //combined prefix index has last prefix variable as the fastest changing one
+            final int[] rangeIdx = new int[prefixLength];
+            long rest = prefixIdx;
+            for (int d = prefixLength - 1; d >= 0; d--) {
+                final int size = plan.ranges[d].getSize();
+                rangeIdx[d] = (int) (rest % size);
+                rest /= size;
+            }
+            for (int d = 0; d < prefixLength; d++) {
+                assign(d, rangeIdx[d]);
+                if (!check(d)) {
+                    covered += plan.suffixCombinations[prefixLength];
+                    pruned++;
+                    return;
+                }
+            }
+            enumerate(prefixLength);
+        }
+
+        private void assign(final int depth, final int rangeIdx) {
+            rangeIndexes[depth] = rangeIdx;
+            values.put(plan.vars[depth], plan.ranges[depth].getValue(rangeIdx, variables));
+        }
+
+        /** calculates formula variables and checks constraints which become available with variable at given depth. Returns false on violation */
+        private boolean check(final int depth) {
+            for (String formulaVar : plan.formulasAtDepth.get(depth)) {
+                values.put(formulaVar, evaluate(formulaVariables.get(formulaVar), variables));
+            }
+            for (Constraint c : plan.constraintsAtDepth.get(depth)) {
+                if (!test(c, variables)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void enumerate(final int depth) {
+            if (cancelled.get()) {
+                return;
+            }
+            if (depth == plan.vars.length) {
+                checked++;
+                covered++;
+                final long count = solutionCount.incrementAndGet();
+                if (maxSolutions >= 0 && count > maxSolutions) {
+                    cancelled.set(true);
+                    return;
+                }
+                final Map<String, Value> solution = Collections.unmodifiableMap(new HashMap<>(values));
+                final int[] solutionIndexes = new int[rangeIndexes.length];
+                for (int d = 0; d < rangeIndexes.length; d++) {
+                    solutionIndexes[plan.positions[d]] = rangeIndexes[d];
+                }
+                synchronized (RangeSolver.this) {
+                    onSolution.onSolution(solutionIndexes, solution);
+                }
+                if (count == maxSolutions) {
+                    cancelled.set(true);
+                }
+                return;
+            }
+            final int size = plan.ranges[depth].getSize();
+            for (int i = 0; i < size; i++) {
+                assign(depth, i);
+                if (check(depth)) {
+                    enumerate(depth + 1);
+                } else {
+                    covered += plan.suffixCombinations[depth + 1];
+                    pruned++;
+                }
+                if (cancelled.get()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** adds a range variable, e.g. "A" with range config "1-9" or "0-5,7" */
+    public RangeSolver addRangeVariable(@NonNull final String var, @NonNull final String rangeConfig) throws FormulaException {
+        final IntegerRange range = IntegerRange.createFromConfig(rangeConfig);
+        if (range == null) {
+            throw new FormulaException(FormulaException.ErrorType.OTHER, "Invalid Range spec: " + rangeConfig);
+        }
+        return addRangeVariable(var, range);
+    }
+
+    public RangeSolver addRangeVariable(@NonNull final String var, @NonNull final IntegerRange range) {
+        rangeVariables.put(var, new RangeValues() {
+            @Override
+            public int getSize() {
+                return range.getSize();
+            }
+
+            @Override
+            public Value getValue(final int idx, @NonNull final Function<String, Value> variables) {
+                return Value.of(range.getValue(idx));
+            }
+
+            @NonNull
+            @Override
+            public Set<String> getNeededVariables() {
+                return Collections.emptySet();
+            }
+        });
+        return this;
+    }
+
+    /** adds a range variable whose values are given by a formula containing ranges, enumerated over all its range indexes */
+    public RangeSolver addRangeVariable(@NonNull final String var, @NonNull final Formula formula) {
+        rangeVariables.put(var, new RangeValues() {
+            @Override
+            public int getSize() {
+                return formula.getRangeIndexSize();
+            }
+
+            @Override
+            public Value getValue(final int idx, @NonNull final Function<String, Value> variables) {
+                try {
+                    return formula.evaluate(variables, idx);
+                } catch (FormulaException fe) {
+                    return null;
+                }
+            }
+
+            @NonNull
+            @Override
+            public Set<String> getNeededVariables() {
+                return formula.getNeededVariables();
+            }
+        });
+        return this;
+    }
+
+    /** adds a variable whose value is calculated from other variables using given formula */
+    public RangeSolver addFormulaVariable(@NonNull final String var, @NonNull final String formula) throws FormulaException {
+        return addFormulaVariable(var, Formula.compile(formula));
+    }
+
+    public RangeSolver addFormulaVariable(@NonNull final String var, @NonNull final Formula formula) {
+        formulaVariables.put(var, formula);
+        return this;
+    }
+
+    /** provides values for variables which are neither range nor formula variables */
+    public RangeSolver setExternalVariables(@Nullable final Function<String, Value> externalVariables) {
+        this.externalVariables = externalVariables == null ? x -> null : externalVariables;
+        return this;
+    }
+
+    public RangeSolver addConstraint(@NonNull final Constraint constraint) {
+        constraints.add(constraint);
+        return this;
+    }
+
+    /** adds a constraint given as a formula, e.g. "A+B+C==17". Constraint is satisfied if formula evaluates to a true value */
+    public RangeSolver addCondition(@NonNull final String conditionFormula) throws FormulaException {
+        final Formula formula = Formula.compile(conditionFormula);
+        return addConstraint(createConstraint(formula.getNeededVariables(), vars -> {
+            final Value result = formula.evaluate(vars);
+            return result != null && result.getAsBoolean();
+        }));
+    }
+
+    /**
+     * adds a constraint that the coordinate given by latitude and longitude formulas lies within the given radius around a center.
+     * <br>
+     * Besides the exact check, latitude and longitude are also checked separately, so assignments can be pruned as soon
+     * as variables for one of them are assigned.
+     */
+    public RangeSolver addCoordinateCondition(@NonNull final String latFormula, @NonNull final String lonFormula,
+                                              @NonNull final Geopoint center, final float radiusKm) throws FormulaException {
+        final DegreeFormula lat = DegreeFormula.compile(latFormula, false);
+        final DegreeFormula lon = DegreeFormula.compile(lonFormula, true);
+
+        //one degree of latitude is at least 110.5km
+        final double latDelta = radiusKm / 110.5;
+        addConstraint(createConstraint(lat.getNeededVars(), vars -> {
+            final Double value = lat.evaluateToDouble(vars);
+            return value != null && Math.abs(value - center.getLatitude()) <= latDelta;
+        }));
+
+        //one degree of longitude is at least 111.3km * cos(lat) within the latitude band
+        final double maxAbsLat = Math.abs(center.getLatitude()) + latDelta;
+        if (maxAbsLat < 89) {
+            final double lonDelta = radiusKm / (111.3 * Math.cos(Math.toRadians(maxAbsLat)));
+            addConstraint(createConstraint(lon.getNeededVars(), vars -> {
+                final Double value = lon.evaluateToDouble(vars);
+                if (value == null) {
+                    return false;
+                }
+                final double diff = Math.abs(value - center.getLongitude()) % 360;
+                return Math.min(diff, 360 - diff) <= lonDelta;
+            }));
+        }
+
+        final Set<String> needed = new HashSet<>(lat.getNeededVars());
+        needed.addAll(lon.getNeededVars());
+        return addConstraint(createConstraint(needed, vars -> {
+            final Double latValue = lat.evaluateToDouble(vars);
+            final Double lonValue = lon.evaluateToDouble(vars);
+            if (latValue == null || lonValue == null || Math.abs(latValue) > 90 || Math.abs(lonValue) > 180) {
+                return false;
+            }
+            return new Geopoint(latValue, lonValue).distanceTo(center) <= radiusKm;
+        }));
+    }
+
+    @NonNull
+    public static Constraint createConstraint(@NonNull final Collection<String> neededVariables, @NonNull final Predicate<Function<String, Value>> test) {
+        final Set<String> needed = Collections.unmodifiableSet(new HashSet<>(neededVariables));
+        return new Constraint() {
+            @NonNull
+            @Override
+            public Set<String> getNeededVariables() {
+                return needed;
+            }
+
+            @Override
+            public boolean test(@NonNull final Function<String, Value> variables) {
+                return test.test(variables);
+            }
+        };
+    }
+
+    /** sets number of threads to use. Default is the number of available processors */
+    public RangeSolver setThreads(final int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /** sets scheduler the enumeration is run on. Default is {@link Schedulers#computation()} */
+    public RangeSolver setScheduler(@NonNull final Scheduler scheduler) {
+        this.scheduler = scheduler;
+        return this;
+    }
+
+    /** stops search after given number of solutions. Negative value means no limit (default) */
+    public RangeSolver setMaxSolutions(final long maxSolutions) {
+        this.maxSolutions = maxSolutions;
+        return this;
+    }
+
+    /** cancels a running search. {@link #solve} will return as soon as possible. Has no effect on later runs */
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /** returns number of all combinations of range variable values */
+    public long getCombinationCount() {
+        long result = 1;
+        for (RangeValues range : rangeVariables.values()) {
+            result = multiplySaturated(result, range.getSize());
+        }
+        return result;
+    }
+
+    /**
+     * Searches all solutions. Blocks until search is finished or cancelled.
+     * Must not be called from a thread of the scheduler the search runs on.
+     *
+     * @param onSolution is called for each solution found with the values of all range and formula variables.
+     *                   Calls are synchronized but done from worker threads, in no particular order
+     * @return statistics about the run
+     */
+    @NonNull
+    public Statistics solve(@NonNull final Consumer<Map<String, Value>> onSolution) throws FormulaException {
+        return search((rangeIndexes, values) -> onSolution.accept(values)).blockingGet();
+    }
+
+    /**
+     * Searches all solutions without blocking. The search is cancelled when the subscription is disposed.
+     * <br>
+     * Solutions are sorted by the range indexes of the range variables, the variable added first changing slowest.
+     * If the number of solutions is limited (see {@link #setMaxSolutions(long)}), search stops as soon as the limit
+     * is reached, so the solutions returned are not necessarily the first ones in this order.
+     */
+    @NonNull
+    public Single<List<Map<String, Value>>> solveSorted() {
+        return Single.defer(() -> {
+            final List<SortableSolution> solutions = new ArrayList<>();
+            return search((rangeIndexes, values) -> solutions.add(new SortableSolution(rangeIndexes, values))).map(statistics -> {
+                Collections.sort(solutions);
+                final List<Map<String, Value>> result = new ArrayList<>(solutions.size());
+                for (SortableSolution solution : solutions) {
+                    result.add(solution.values);
+                }
+                return result;
+            });
+        });
+    }
+
+    /** creates the search. It is started on subscription, partitions are processed in parallel on the scheduler */
+    @NonNull
+    private Single<Statistics> search(@NonNull final SolutionListener onSolution) {
+        return Single.defer(() -> {
+            final long startTs = System.currentTimeMillis();
+            cancelled.set(false);
+            final Plan plan = createPlan();
+            final AtomicLong solutionCount = new AtomicLong(0);
+
+            //constraints not depending on range variables at all
+            final Worker constantWorker = new Worker(plan, onSolution, solutionCount);
+            for (String formulaVar : plan.constantFormulas) {
+                constantWorker.values.put(formulaVar, evaluate(formulaVariables.get(formulaVar), constantWorker.variables));
+            }
+            for (Constraint c : plan.constantConstraints) {
+                if (!test(c, constantWorker.variables)) {
+                    return Single.just(new Statistics(plan.suffixCombinations[0], plan.suffixCombinations[0], 0, 1, 0,
+                            System.currentTimeMillis() - startTs, 1, cancelled.get()));
+                }
+            }
+            final Map<String, Value> constantValues = new HashMap<>(constantWorker.values);
+
+            //split enumeration into tasks by fixing values of first variables
+            int prefixLength = 0;
+            long prefixCount = 1;
+            while (prefixLength < plan.vars.length && prefixCount < (long) threads * TASKS_PER_THREAD) {
+                prefixCount *= plan.ranges[prefixLength].getSize();
+                prefixLength++;
+            }
+            final int usedThreads = (int) Math.max(1, Math.min(threads, prefixCount));
+
+            final AtomicLong nextPrefix = new AtomicLong(0);
+            final long finalPrefixCount = prefixCount;
+            final int finalPrefixLength = prefixLength;
+            final List<Worker> workers = new ArrayList<>();
+            for (int t = 0; t < usedThreads; t++) {
+                final Worker worker = new Worker(plan, onSolution, solutionCount);
+                worker.values.putAll(constantValues);
+                workers.add(worker);
+            }
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+            //each rail runs one worker, which takes the next task until all are done
+            return Flowable.range(0, usedThreads)
+                    .parallel(usedThreads)
+                    .runOn(scheduler)
+                    .doOnNext(t -> {
+                        final Worker worker = workers.get(t);
+                        try {
+                            long idx;
+                            while (!cancelled.get() && (idx = nextPrefix.getAndIncrement()) < finalPrefixCount) {
+                                worker.runPrefix(idx, finalPrefixLength);
+                            }
+                        } catch (RuntimeException re) {
+                            failure.compareAndSet(null, re);
+                            cancelled.set(true);
+                        }
+                    })
+                    .sequential()
+                    .ignoreElements()
+                    .toSingle(() -> {
+                        final Throwable cause = failure.get();
+                        if (cause instanceof FormulaException) {
+                            throw (FormulaException) cause;
+                        }
+                        if (cause != null) {
+                            throw new FormulaException(cause, null, FormulaException.ErrorType.OTHER, "Solver failed: " + cause.getMessage());
+                        }
+                        long covered = 0;
+                        long checked = 0;
+                        long pruned = 0;
+                        for (Worker w : workers) {
+                            covered += w.covered;
+                            checked += w.checked;
+                            pruned += w.pruned;
+                        }
+                        return new Statistics(plan.suffixCombinations[0], covered, checked, pruned, Math.min(solutionCount.get(), maxSolutions < 0 ? Long.MAX_VALUE : maxSolutions),
+                                System.currentTimeMillis() - startTs, usedThreads, cancelled.get());
+                    })
+                    .doOnDispose(this::cancel);
+        });
+    }
+
+    @NonNull
+    private Plan createPlan() throws FormulaException {
+        //formula variables: resolve dependencies to range variables and calculation order
+        final Map<String, Set<String>> formulaRangeDeps = new HashMap<>();
+        final List<String> formulaOrder = new ArrayList<>();
+        for (String fv : formulaVariables.keySet()) {
+            resolveFormulaVariable(fv, formulaRangeDeps, formulaOrder, new HashSet<>());
+        }
+
+        //constraints: range variables each one depends on (directly or through formula variables)
+        final List<Set<String>> constraintDeps = new ArrayList<>();
+        for (Constraint c : constraints) {
+            constraintDeps.add(getRangeDependencies(c.getNeededVariables(), formulaRangeDeps));
+        }
+        //range variables given by formulas: range variables they depend on have to be assigned before them
+        final Map<String, Set<String>> rangeDeps = new HashMap<>();
+        for (Map.Entry<String, RangeValues> range : rangeVariables.entrySet()) {
+            rangeDeps.put(range.getKey(), getRangeDependencies(range.getValue().getNeededVariables(), formulaRangeDeps));
+        }
+
+        //order range variables greedily so that constraints become checkable as early as possible
+        final List<String> order = new ArrayList<>();
+        final Set<String> remaining = new HashSet<>(rangeVariables.keySet());
+        while (!remaining.isEmpty()) {
+            String best = null;
+            int bestMissing = Integer.MAX_VALUE;
+            for (String var : rangeVariables.keySet()) {
+                if (!remaining.contains(var) || !Collections.disjoint(rangeDeps.get(var), remaining)) {
+                    continue;
+                }
+                int missing = Integer.MAX_VALUE;
+                for (Set<String> deps : constraintDeps) {
+                    if (deps.contains(var)) {
+                        int m = 0;
+                        for (String d : deps) {
+                            if (remaining.contains(d)) {
+                                m++;
+                            }
+                        }
+                        missing = Math.min(missing, m);
+                    }
+                }
+                if (best == null || missing < bestMissing ||
+                        (missing == bestMissing && rangeVariables.get(var).getSize() < rangeVariables.get(best).getSize())) {
+                    best = var;
+                    bestMissing = missing;
+                }
+            }
+            if (best == null) {
+                throw new FormulaException(FormulaException.ErrorType.CYCLIC_DEPENDENCY, StringUtils.join(remaining, ", "));
+            }
+            order.add(best);
+            remaining.remove(best);
+        }
+
+        final Plan plan = new Plan();
+        final int n = order.size();
+        plan.vars = order.toArray(new String[0]);
+        plan.ranges = new RangeValues[n];
+        plan.suffixCombinations = new long[n + 1];
+        plan.suffixCombinations[n] = 1;
+        final Map<String, Integer> depthOf = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            plan.ranges[i] = rangeVariables.get(plan.vars[i]);
+            depthOf.put(plan.vars[i], i);
+        }
+        plan.positions = new int[n];
+        int position = 0;
+        for (String var : rangeVariables.keySet()) {
+            plan.positions[depthOf.get(var)] = position++;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            plan.suffixCombinations[i] = multiplySaturated(plan.suffixCombinations[i + 1], plan.ranges[i].getSize());
+        }
+
+        plan.formulasAtDepth = new ArrayList<>();
+        plan.constraintsAtDepth = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            plan.formulasAtDepth.add(new ArrayList<>());
+            plan.constraintsAtDepth.add(new ArrayList<>());
+        }
+        plan.constantFormulas = new ArrayList<>();
+        plan.constantConstraints = new ArrayList<>();
+        for (String fv : formulaOrder) {
+            final int depth = getDepth(formulaRangeDeps.get(fv), depthOf);
+            (depth < 0 ? plan.constantFormulas : plan.formulasAtDepth.get(depth)).add(fv);
+        }
+        for (int i = 0; i < constraints.size(); i++) {
+            final int depth = getDepth(constraintDeps.get(i), depthOf);
+            (depth < 0 ? plan.constantConstraints : plan.constraintsAtDepth.get(depth)).add(constraints.get(i));
+        }
+        return plan;
+    }
+
+    private void resolveFormulaVariable(final String var, final Map<String, Set<String>> formulaRangeDeps, final List<String> formulaOrder, final Set<String> visiting) throws FormulaException {
+        if (formulaRangeDeps.containsKey(var)) {
+            return;
+        }
+        if (!visiting.add(var)) {
+            throw new FormulaException(FormulaException.ErrorType.CYCLIC_DEPENDENCY, var);
+        }
+        final Set<String> deps = new HashSet<>();
+        for (String needed : formulaVariables.get(var).getNeededVariables()) {
+            if (rangeVariables.containsKey(needed)) {
+                deps.add(needed);
+            } else if (formulaVariables.containsKey(needed)) {
+                resolveFormulaVariable(needed, formulaRangeDeps, formulaOrder, visiting);
+                deps.addAll(formulaRangeDeps.get(needed));
+            }
+        }
+        visiting.remove(var);
+        formulaRangeDeps.put(var, deps);
+        formulaOrder.add(var);
+    }
+
+    private Set<String> getRangeDependencies(final Set<String> neededVars, final Map<String, Set<String>> formulaRangeDeps) {
+        final Set<String> result = new HashSet<>();
+        for (String needed : neededVars) {
+            if (rangeVariables.containsKey(needed)) {
+                result.add(needed);
+            } else if (formulaRangeDeps.containsKey(needed)) {
+                result.addAll(formulaRangeDeps.get(needed));
+            }
+        }
+        return result;
+    }
+
+    private static int getDepth(final Set<String> rangeDeps, final Map<String, Integer> depthOf) {
+        int depth = -1;
+        for (String var : rangeDeps) {
+            depth = Math.max(depth, depthOf.get(var));
+        }
+        return depth;
+    }
+
+    @Nullable
+    private static Value evaluate(final Formula formula, final Function<String, Value> variables) {
+        try {
+            return formula.evaluate(variables);
+        } catch (FormulaException fe) {
+            return null;
+        }
+    }
+
+    private static boolean test(final Constraint constraint, final Function<String, Value> variables) {
+        try {
+            return constraint.test(variables);
+        } catch (FormulaException fe) {
+            return false;
+        }
+    }
+
+    private static long multiplySaturated(final long v1, final long v2) {
+        return v2 != 0 && v1 > Long.MAX_VALUE / v2 ? Long.MAX_VALUE : v1 * v2;
+    }
+
+}
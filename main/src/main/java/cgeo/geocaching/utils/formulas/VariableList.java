@@ -217,6 +217,18 @@ public class VariableList {
         sortVariables(TextUtils.COLLATOR::compare);
     }
 
+    /**
+     * Returns all vars whose value changed since last call to {@link #resetChangedVariables()}, see {@link VariableMap#getChangedVariables()}
+     */
+    @NonNull
+    public Set<String> getChangedVariables() {
+        return variableMap.getChangedVariables();
+    }
+
+    public void resetChangedVariables() {
+        variableMap.resetChangedVariables();
+    }
+
     public Set<String> getDependentVariables(final Collection<String> variables) {
         return variableMap.calculateDependentVariables(variables);
     }
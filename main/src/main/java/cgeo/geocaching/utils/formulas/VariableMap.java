@@ -3,6 +3,7 @@ package cgeo.geocaching.utils.formulas;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -33,6 +34,9 @@ public class VariableMap {
 
     private final Map<String, VariableState> variableStateMap = new HashMap<>();
 
+    /** vars whose value or state changed since last call to {@link #resetChangedVariables()} */
+    private final Set<String> changedVariables = new HashSet<>();
+
     /**
      * State of a variable
      */
@@ -181,9 +185,24 @@ public class VariableMap {
         if (state.isNeededBy.isEmpty()) {
             variableStateMap.remove(var);
         }
+        changedVariables.add(var);
+    }
+
+    /**
+     * Returns all vars whose value or state changed (or which were removed) since last call to {@link #resetChangedVariables()}.
+     * This includes vars which changed because a var they depend on changed.
+     */
+    @NonNull
+    public Set<String> getChangedVariables() {
+        return Collections.unmodifiableSet(changedVariables);
+    }
+
+    public void resetChangedVariables() {
+        changedVariables.clear();
     }
 
     public void clear() {
+        changedVariables.addAll(variableStateMap.keySet());
         variableStateMap.clear();
 
     }
@@ -267,6 +286,27 @@ public class VariableMap {
         return result;
     }
 
+    /**
+     * Calculates a set of all variables which depend (directly or indirectly) on the given var, including the var itself
+     */
+    private Set<String> calculateDependingVariables(final String var) {
+        final Set<String> result = new HashSet<>();
+        final ArrayDeque<String> queue = new ArrayDeque<>();
+        result.add(var);
+        queue.add(var);
+        while (!queue.isEmpty()) {
+            final VariableState state = get(queue.poll());
+            if (state != null) {
+                for (String n : state.isNeededBy) {
+                    if (result.add(n)) {
+                        queue.add(n);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     private void calculateDependentVariablesInternal(final Set<String> result, final String var) {
         if (result.contains(var)) {
             return;
@@ -329,12 +369,106 @@ public class VariableMap {
         state.needs.addAll(newNeeds);
     }
 
+    /**
+     * Recalculates given var and all vars depending on it (directly or indirectly).
+     * <br>
+     * If there is no cycle in the dependency graph reachable from var, then the dependent vars are recalculated in topological order,
+     * each one at most once. A var is only recalculated if at least one of the vars it needs actually changed its value, otherwise
+     * its previous result is kept. Only if cycles are involved, the (more expensive) cycle-detecting recalculation is done.
+     */
     private void recalculate(final String var) {
         final VariableState state = get(var);
         if (state == null) {
             return;
         }
         state.state = State.OK;
+        final List<String> order = getTopologicalOrderOfDependents(var);
+        if (order == null) {
+            recalculateWithCycleDetection(state, var);
+            return;
+        }
+
+        final Set<String> changed = new HashSet<>();
+        for (String v : order) {
+            final VariableState s = Objects.requireNonNull(get(v));
+            if (!v.equals(var) && Collections.disjoint(s.needs, changed)) {
+                continue;
+            }
+            final State oldState = s.state;
+            final Value oldResult = s.result;
+            final String oldError = s.error;
+            recalculateSingle(s, false);
+            if (v.equals(var) || oldState != s.state || !isSameResult(oldResult, s.result) || !Objects.equals(oldError, s.error)) {
+                changed.add(v);
+            }
+        }
+        changedVariables.addAll(changed);
+    }
+
+    /**
+     * Checks whether two results are exactly the same. {@link Value#equals(Object)} compares numerically, but e.g. "3" and "03"
+     * lead to different results when concatenated, so their text and type are compared instead.
+     */
+    private static boolean isSameResult(@Nullable final Value v1, @Nullable final Value v2) {
+        if (v1 == null || v2 == null) {
+            return v1 == v2;
+        }
+        final Object raw1 = v1.getRaw();
+        final Object raw2 = v2.getRaw();
+        return v1.getClass() == v2.getClass() && (raw1 == null ? raw2 == null : raw2 != null && raw1.getClass() == raw2.getClass())
+                && v1.getAsString().equals(v2.getAsString());
+    }
+
+    /**
+     * Returns given var and all vars depending on it (directly or indirectly) in topological order,
+     * meaning that each var comes after all the vars it needs. Returns null if those vars contain a cycle.
+     */
+    @Nullable
+    private List<String> getTopologicalOrderOfDependents(final String var) {
+        //collect all dependents
+        final Set<String> cone = new HashSet<>();
+        final ArrayDeque<String> queue = new ArrayDeque<>();
+        cone.add(var);
+        queue.add(var);
+        while (!queue.isEmpty()) {
+            for (String n : Objects.requireNonNull(get(queue.poll())).isNeededBy) {
+                if (cone.add(n)) {
+                    queue.add(n);
+                }
+            }
+        }
+
+        //order them (Kahn's algorithm), only considering dependencies inside the collected vars
+        final Map<String, Integer> inDegree = new HashMap<>();
+        for (String v : cone) {
+            int count = 0;
+            for (String n : Objects.requireNonNull(get(v)).needs) {
+                if (cone.contains(n)) {
+                    count++;
+                }
+            }
+            if (count == 0) {
+                queue.add(v);
+            }
+            inDegree.put(v, count);
+        }
+        final List<String> order = new ArrayList<>(cone.size());
+        while (!queue.isEmpty()) {
+            final String v = queue.poll();
+            order.add(v);
+            for (String n : Objects.requireNonNull(get(v)).isNeededBy) {
+                final int count = Objects.requireNonNull(inDegree.get(n)) - 1;
+                inDegree.put(n, count);
+                if (count == 0) {
+                    queue.add(n);
+                }
+            }
+        }
+        return order.size() == cone.size() ? order : null;
+    }
+
+    private void recalculateWithCycleDetection(final VariableState state, final String var) {
+        changedVariables.addAll(calculateDependingVariables(var));
         final List<List<String>> cyclesFound = new ArrayList<>();
         recalculate(state, var, true, new LinkedList<>(), cyclesFound);
 
@@ -0,0 +1,123 @@
+package cgeo.geocaching.connector.gc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.fail;
+
+public class GCWebApiPagerTest {
+
+    /** simulates the web API search with the given number of results and latency per request */
+    private static class FakeSearch implements GCWebApiPager.PageLoader {
+        private final int total;
+        private final long latency;
+        private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+        private int failAtSkip = -1;
+
+        FakeSearch(final int total, final long latency) {
+            this.total = total;
+            this.latency = latency;
+        }
+
+        @Override
+        public GCWebAPI.MapSearchResultSet load(final int take, final int skip) {
+            requests.add(take + "@" + skip);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            if (skip == failAtSkip) {
+                throw new IllegalStateException("page failed");
+            }
+            final GCWebAPI.MapSearchResultSet resultSet = new GCWebAPI.MapSearchResultSet();
+            resultSet.total = total;
+            resultSet.results = new ArrayList<>();
+            for (int i = skip; i < Math.min(total, skip + take); i++) {
+                final GCWebAPI.MapSearchResult result = new GCWebAPI.MapSearchResult();
+                result.code = "GC" + i;
+                resultSet.results.add(result);
+            }
+            return resultSet;
+        }
+    }
+
+    /** fetches and returns the codes of all results, ordered by skip */
+    private static List<String> fetch(final FakeSearch search, final int take, final int skip) {
+        final Map<Integer, GCWebAPI.MapSearchResultSet> pages = new TreeMap<>();
+        final int total = GCWebApiPager.fetch(take, skip, search, Schedulers.io(), pages::put);
+        assertThat(total).isEqualTo(search.total);
+        final List<String> codes = new ArrayList<>();
+        for (GCWebAPI.MapSearchResultSet page : pages.values()) {
+            for (GCWebAPI.MapSearchResult result : page.results) {
+                codes.add(result.code);
+            }
+        }
+        return codes;
+    }
+
+    @Test
+    public void smallSearchIsSingleRequest() {
+        final FakeSearch search = new FakeSearch(1000, 0);
+        assertThat(fetch(search, 50, 200)).hasSize(50).startsWith("GC200");
+        assertThat(search.requests).containsExactly("50@200");
+    }
+
+    @Test
+    public void searchUpToPageSizeIsSingleRequest() {
+        final FakeSearch search = new FakeSearch(2000, 0);
+        assertThat(fetch(search, GCWebApiPager.PAGE_SIZE, 0)).hasSize(GCWebApiPager.PAGE_SIZE);
+        assertThat(search.requests).containsExactly(GCWebApiPager.PAGE_SIZE + "@0");
+    }
+
+    @Test
+    public void largeSearchIsPagedConcurrently() {
+        final FakeSearch search = new FakeSearch(5000, 100);
+        final List<String> codes = fetch(search, 500, 0);
+
+        assertThat(codes).hasSize(500);
+        for (int i = 0; i < codes.size(); i++) {
+            assertThat(codes.get(i)).isEqualTo("GC" + i);
+        }
+        assertThat(search.requests.get(0)).isEqualTo("100@0");
+        assertThat(search.requests).containsOnly("100@0", "100@100", "100@200", "100@300", "100@400").hasSize(5);
+        assertThat(search.maxRunning.get()).isGreaterThan(1).isLessThanOrEqualTo(GCWebApiPager.MAX_CONCURRENT_PAGES);
+    }
+
+    @Test
+    public void pagesEndWithTotal() {
+        final FakeSearch search = new FakeSearch(230, 0);
+        assertThat(fetch(search, 500, 0)).hasSize(230);
+        assertThat(search.requests).containsOnly("100@0", "100@100", "30@200").hasSize(3);
+
+        final FakeSearch small = new FakeSearch(70, 0);
+        assertThat(fetch(small, 500, 0)).hasSize(70);
+        assertThat(small.requests).containsExactly("100@0");
+    }
+
+    @Test
+    public void failingPageIsReported() {
+        final FakeSearch search = new FakeSearch(5000, 0);
+        search.failAtSkip = 300;
+        final List<Integer> arrived = Collections.synchronizedList(new ArrayList<>());
+        try {
+            GCWebApiPager.fetch(500, 0, search, Schedulers.io(), (skip, page) -> arrived.add(skip));
+            fail("exception expected");
+        } catch (RuntimeException expected) {
+            // expected
+        }
+        assertThat(arrived).contains(0).doesNotContain(300);
+    }
+}
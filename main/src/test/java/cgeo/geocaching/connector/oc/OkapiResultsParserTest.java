@@ -0,0 +1,130 @@
+package cgeo.geocaching.connector.oc;
+
+import cgeo.geocaching.utils.JsonUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.fail;
+
+public class OkapiResultsParserTest {
+
+    private static InputStream stream(final String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** creates a response like search_and_retrieve with full cache details */
+    private static String createResponse(final int count, final boolean moreFirst) {
+        final StringBuilder json = new StringBuilder("{");
+        if (moreFirst) {
+            json.append("\"more\": true, ");
+        }
+        json.append("\"results\": {");
+        for (int i = 0; i < count; i++) {
+            final String code = "OC" + Integer.toHexString(0x1000 + i).toUpperCase();
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(code).append("\": {\"code\": \"").append(code).append("\", \"name\": \"Cache \\\"").append(i)
+                    .append("\\\" ä\", \"location\": \"52.").append(i).append("|13.").append(i).append("\", \"type\": \"Traditional\", \"status\": \"Available\",")
+                    .append(" \"difficulty\": 1.5, \"terrain\": 2, \"size2\": \"regular\", \"trackables_count\": 0,")
+                    .append(" \"owner\": {\"uuid\": \"u").append(i).append("\", \"username\": \"owner\", \"profile_url\": \"https://opencaching.de/viewprofile.php?userid=").append(i).append("\"},")
+                    .append(" \"attr_acodes\": [\"A1\", \"A12\"], \"attrnames\": [\"Wheelchair\", \"Night\"], \"rating\": null,")
+                    .append(" \"description\": \"");
+            for (int d = 0; d < 40; d++) {
+                json.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit.</p>");
+            }
+            json.append("\", \"images\": [{\"url\": \"https://opencaching.de/images/").append(code).append(".jpg\", \"caption\": \"Spoiler\"}],")
+                    .append(" \"latest_logs\": [");
+            for (int l = 0; l < 10; l++) {
+                json.append(l > 0 ? "," : "").append("{\"uuid\": \"l").append(l).append("\", \"date\": \"2023-05-0").append(l % 9 + 1)
+                        .append("T12:00:00+02:00\", \"user\": {\"username\": \"finder").append(l).append("\"}, \"type\": \"Found it\", \"comment\": \"TFTC, nice cache!\"}");
+            }
+            json.append("]}");
+        }
+        json.append("}");
+        if (!moreFirst) {
+            json.append(", \"more\": false");
+        }
+        return json.append("}").toString();
+    }
+
+    private static List<String> parseCodes(final String json, final boolean[] more) throws IOException {
+        final List<String> codes = new ArrayList<>();
+        more[0] = OkapiResultsParser.parse(stream(json), cache -> codes.add(cache.get("code").asText()));
+        return codes;
+    }
+
+    @Test
+    public void sameCachesAsTreeParsing() throws IOException {
+        final String json = createResponse(50, false);
+        final JsonNode tree = JsonUtils.reader.readTree(json);
+        final List<ObjectNode> streamed = new ArrayList<>();
+        assertThat(OkapiResultsParser.parse(stream(json), streamed::add)).isFalse();
+
+        assertThat(streamed).hasSize(50);
+        final Iterator<JsonNode> expected = tree.get("results").elements();
+        for (ObjectNode cache : streamed) {
+            assertThat(cache).isEqualTo(expected.next());
+        }
+    }
+
+    @Test
+    public void moreFlag() throws IOException {
+        final boolean[] more = new boolean[1];
+        assertThat(parseCodes(createResponse(3, true), more)).containsExactly("OC1000", "OC1001", "OC1002");
+        assertThat(more[0]).isTrue();
+        assertThat(parseCodes(createResponse(3, false), more)).hasSize(3);
+        assertThat(more[0]).isFalse();
+    }
+
+    @Test
+    public void emptyAndMissingResults() throws IOException {
+        final boolean[] more = new boolean[1];
+        assertThat(parseCodes("{\"results\": {}, \"more\": false}", more)).isEmpty();
+        assertThat(parseCodes("{\"results\": [], \"more\": true}", more)).isEmpty();
+        assertThat(more[0]).isTrue();
+        assertThat(parseCodes("{\"results\": {\"OC1\": null, \"OC2\": {\"code\": \"OC2\"}}}", more)).containsExactly("OC2");
+        assertThat(parseCodes("{\"error\": {\"developer_message\": \"invalid\", \"reason_stack\": [\"bad_request\"]}}", more)).isEmpty();
+        assertThat(more[0]).isFalse();
+    }
+
+    @Test
+    public void invalidResponse() {
+        try {
+            OkapiResultsParser.parse(stream("[1, 2]"), cache -> fail("no cache expected"));
+            fail("exception expected");
+        } catch (IOException expected) {
+            // expected
+        }
+        try {
+            OkapiResultsParser.parse(stream("{\"results\": {\"OC1\": {\"code\": "), cache -> fail("no cache expected"));
+            fail("exception expected");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void largeResponseSameAsTree() throws IOException {
+        final byte[] json = createResponse(500, false).getBytes(StandardCharsets.UTF_8);
+        final List<String> streamedCodes = new ArrayList<>();
+        OkapiResultsParser.parse(new ByteArrayInputStream(json), cache -> streamedCodes.add(cache.get("code").asText()));
+
+        final List<String> treeCodes = new ArrayList<>();
+        for (final JsonNode cache : JsonUtils.reader.readTree(new ByteArrayInputStream(json)).get("results")) {
+            treeCodes.add(cache.get("code").asText());
+        }
+        assertThat(streamedCodes).hasSize(500).containsExactlyElementsOf(treeCodes);
+    }
+
+}
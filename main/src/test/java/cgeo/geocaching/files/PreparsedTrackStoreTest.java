@@ -0,0 +1,99 @@
+package cgeo.geocaching.files;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.models.Route;
+import cgeo.geocaching.models.RouteItem;
+import cgeo.geocaching.models.RouteSegment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class PreparsedTrackStoreTest {
+
+    private static final PreparsedTrackStore.SourceInfo INFO = new PreparsedTrackStore.SourceInfo(1234, 5678, new byte[] {1, 2, 3, 4});
+
+    private static RouteSegment segment(final boolean linkToPrevious, final ArrayList<Float> elevation, final Geopoint... points) {
+        final ArrayList<Geopoint> list = new ArrayList<>(Arrays.asList(points));
+        return new RouteSegment(new RouteItem(list.get(list.size() - 1)), list, elevation, linkToPrevious);
+    }
+
+    private static Route roundTrip(final Route route) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PreparsedTrackStore.write(bos, INFO, route);
+        return PreparsedTrackStore.read(new ByteArrayInputStream(bos.toByteArray()));
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        final Route route = new Route(false);
+        route.setName("Tour d'Äpfel");
+        route.add(segment(false, new ArrayList<>(Arrays.asList(500f, 510.5f)),
+                new Geopoint(48.123456, 11.654321), new Geopoint(-33.9, 151.2)));
+        route.add(segment(true, null,
+                new Geopoint(0, 0), new Geopoint(89.999999, -179.999999), new Geopoint(-89.999999, 179.999999)));
+
+        final Route result = roundTrip(route);
+        assertThat(result).isNotNull();
+        assertThat(result.getName()).isEqualTo("Tour d'Äpfel");
+        assertThat(result.isRouteable()).isFalse();
+        assertThat(result.getNumSegments()).isEqualTo(2);
+        assertThat(result.getNumPoints()).isEqualTo(5);
+
+        final RouteSegment[] segments = result.getSegments();
+        assertThat(segments[0].getPoints()).isEqualTo(route.getSegments()[0].getPoints());
+        assertThat(segments[0].getElevation()).containsExactly(500f, 510.5f);
+        assertThat(segments[0].getLinkToPreviousSegment()).isFalse();
+        assertThat(segments[1].getPoints()).isEqualTo(route.getSegments()[1].getPoints());
+        assertThat(segments[1].getElevation()).isNull();
+        assertThat(segments[1].getLinkToPreviousSegment()).isTrue();
+    }
+
+    @Test
+    public void roundTripKeepsMissingValues() throws IOException {
+        final Route route = new Route(false);
+        route.setName(null);
+        route.add(segment(false, new ArrayList<>(Arrays.asList(500f, null, Float.NaN)),
+                new Geopoint(48.1, 11.6), new Geopoint(48.2, 11.7), new Geopoint(48.3, 11.8)));
+
+        final Route result = roundTrip(route);
+        assertThat(result.getName()).isNull();
+        assertThat(result.getSegments()[0].getElevation()).containsExactly(500f, null, Float.NaN);
+    }
+
+    @Test
+    public void routeWithoutSegments() throws IOException {
+        final Route result = roundTrip(new Route(false));
+        assertThat(result.getName()).isEmpty();
+        assertThat(result.getNumSegments()).isEqualTo(0);
+    }
+
+    @Test
+    public void largeTrackIsCompact() throws IOException {
+        final ArrayList<Geopoint> points = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            points.add(new Geopoint(48 + i * 0.00005, 11 + i * 0.00007));
+        }
+        final Route route = new Route(false);
+        route.add(new RouteSegment(new RouteItem(points.get(points.size() - 1)), points, false));
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PreparsedTrackStore.write(bos, INFO, route);
+        //delta encoding needs far less than the 8 bytes per point of raw E6 coordinates
+        assertThat(bos.size()).isLessThan(points.size() * 8);
+
+        final Route result = PreparsedTrackStore.read(new ByteArrayInputStream(bos.toByteArray()));
+        assertThat(result.getSegments()[0].getPoints()).isEqualTo(points);
+    }
+
+    @Test
+    public void rejectsForeignData() throws IOException {
+        assertThat(PreparsedTrackStore.read(new ByteArrayInputStream("<gpx></gpx>".getBytes("UTF-8")))).isNull();
+    }
+
+}
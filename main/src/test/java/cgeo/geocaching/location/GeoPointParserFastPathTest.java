@@ -0,0 +1,168 @@
+package cgeo.geocaching.location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+/**
+ * Checks that the fast path and the result cache of {@link GeopointParser} yield the same results as the regular expression based parsers.
+ */
+public class GeoPointParserFastPathTest {
+
+    /** texts parsed as coordinate pairs in GeoPointParserTest and GeopointTest, plus some additional decimal degree variants */
+    private static final String[] PAIR_CORPUS = {
+            "-47,648883, 9,348067",
+            "00° 00.000 00° 00.000",
+            "00° 00.000 E 036° 00.000",
+            "00° 00.000′ 000° 00.00′",
+            "00° 00′ 00.00″ 000° 00′ 00.00″",
+            "00° 00′ 000° 00′",
+            "00° E 000°",
+            "47,648883  -122,348067",
+            "47,648883  122,348067",
+            "47,648883, +122,348067",
+            "47,648883, -122,348067",
+            "47,648883, 122,348067",
+            "47,648883. -122,348067",
+            "47,648883. 122,348067",
+            "47. 648883   122. 348067",
+            "47. 648883 122.348067",
+            "47.648883   122. 348067",
+            "47.648883  -122.348067",
+            "47.648883  122.348067",
+            "47.648883  122.348067\u00a0",
+            "47.648883,  -122.348067",
+            "47.648883,  122.348067",
+            "47.648883,  9.348067",
+            "52,55123 10,56789",
+            "52.55123° 10.56789°",
+            "52° -10°",
+            "52° 10°",
+            "54S E 293848 N 3915114",
+            "N  47 38. 933  E  122 20. 884",
+            "N 23° 00.000 00° 00.000",
+            "N 47° 38. 933   E 122° 20. 884",
+            "N 47° 38.933 E 122° 20.884",
+            "N 47° 38.933 E 9° 20.884",
+            "N 47° 38.933 O 122° 20.884",
+            "N 47° 38.933 W 122° 20.884",
+            "N 49 43.95 E2°12.5833333333",
+            "N 49° 43' 57\" | E 2 12' 35",
+            "N 49° 43' 57\" · E 2 12' 35",
+            "N 49° 56.031 | E 8° 38.564",
+            "N 51° 23.123' W ° 17.123",
+            "N 52° 36.123 E 010° 06.456'",
+            "N12 34. 567\nW001 23. 456",
+            "N12 34. 567\nW001 23.456",
+            "N12 34.567\nW001 23. 456",
+            "N47°38.933E122°20.884",
+            "N49° 56.031', E08° 38.564'",
+            "N51 21.523 E07 02.680",
+            "N52 36.123 E010 06.456",
+            "N52° 36.123 E010°06.456",
+            "S 47° 38.933 E 9° 20.884",
+            "S 89° 59.999′ W 179° 59.999′",
+            "S 89° 59′ 59.99″ W 179° 59′ 59.99″",
+            "S 89° 59′ W 179° 59′",
+            "S 90° 00.000′ W 180° 00.000′",
+            "S 90° 00′ 00.00″ W 180° 00′ 00.00″",
+            "S 90° 00′ W 180° 00′",
+            "Station3: N51 21.523 / E07 02.680",
+            "48.123456 11.654321", "-48.123456, -11.654321", "48.1,11.5", "48.1 ,\t11.5", "0.0 -0.0", "-0.000 0.000",
+            "90.0 180.0", "90.000001 11.5", "48.5 180.000001", "123.456 78.9", "48.1 11.5 12.3", "48. 11.5", "48.1 .5", "48.1-11.5",
+            "+48.1 11.5", "48.1° 11.5", "١٢.٥ ٣٤.٥", "48.12345678901234567890 11.1"
+    };
+
+    /** texts parsed as single latitude/longitude in GeoPointParserTest, plus some additional decimal degree variants */
+    private static final String[] SINGLE_CORPUS = {
+            "    N 49° 56, 031   ",
+            "-47.648883",
+            "47.648883",
+            "N 1.1.1.1.1.1.1",
+            "N 47° 38.933",
+            "N 49° 56, 031",
+            "N 49° 56. 031",
+            "N 49° 56.031",
+            "S 47° 38.933",
+            "S 49° 56.031",
+            "E 8° 38.564",
+            "E 99?++?9.93@#$%&-+777",
+            "W 8° 38.564",
+            "e 8° 38.564",
+            "48.1", " 48.1 ", "-0.0", "0.0", "123.456", "48.", ".5", "48", "+48.1", "48.1°", "--48.1", "4 8.1"
+    };
+
+    private static Geopoint parseResult(final String text) {
+        try {
+            return GeopointParser.parse(text);
+        } catch (final Geopoint.ParseException e) {
+            return null;
+        }
+    }
+
+    private static Geopoint parseResultWithParsers(final String text) {
+        try {
+            return GeopointParser.parseWithParsers(text);
+        } catch (final Geopoint.ParseException e) {
+            return null;
+        }
+    }
+
+    private static Double parseLatLonResult(final String text, final Geopoint.LatLon latlon) {
+        try {
+            return latlon == Geopoint.LatLon.LAT ? GeopointParser.parseLatitude(text) : GeopointParser.parseLongitude(text);
+        } catch (final Geopoint.ParseException e) {
+            return null;
+        }
+    }
+
+    private static List<String> createDecimalPairs(final int count) {
+        final Random rnd = new Random(42);
+        final List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(String.format(Locale.US, "%.6f %.6f", rnd.nextDouble() * 180 - 90, rnd.nextDouble() * 360 - 180));
+        }
+        return result;
+    }
+
+    @Test
+    public void pairsSameAsParsers() {
+        final List<String> corpus = new ArrayList<>(Arrays.asList(PAIR_CORPUS));
+        corpus.addAll(createDecimalPairs(500));
+        for (String text : corpus) {
+            final Geopoint expected = parseResultWithParsers(text);
+            // second call is served from result cache
+            assertThat(parseResult(text)).as(text).isEqualTo(expected);
+            assertThat(parseResult(text)).as(text).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void latLonSameAsParsers() {
+        final List<String> corpus = new ArrayList<>(Arrays.asList(SINGLE_CORPUS));
+        for (String pair : createDecimalPairs(500)) {
+            corpus.addAll(Arrays.asList(pair.split(" ")));
+        }
+        for (String text : corpus) {
+            for (Geopoint.LatLon latlon : Geopoint.LatLon.values()) {
+                final Double expected = GeopointParser.parseLatLonWithParsers(text, latlon);
+                assertThat(parseLatLonResult(text, latlon)).as(text).isEqualTo(expected);
+                assertThat(parseLatLonResult(text, latlon)).as(text).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void fastPathIsUsedForDecimalDegrees() {
+        assertThat(GeopointParser.parseDecimalDegrees("47.648883,  -122.348067")).isEqualTo(new Geopoint(47.648883, -122.348067));
+        assertThat(GeopointParser.parseDecimalDegrees("N 47° 38.933 E 122° 20.884")).isNull();
+        assertThat(GeopointParser.parseDecimalDegree(" -47.648883 ")).isEqualTo(-47.648883);
+        assertThat(GeopointParser.parseDecimalDegree("47,648883")).isNull();
+    }
+
+}
@@ -0,0 +1,122 @@
+package cgeo.geocaching.models.geoitem;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class GeoItemLevelOfDetailTest {
+
+    private static List<Geopoint> createTrack(final int size) {
+        //a zigzag line slowly walking north-east with some noise
+        final List<Geopoint> points = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final double noise = ((i * 7919) % 13 - 6) * 0.000002;
+            points.add(new Geopoint(48 + i * 0.00001 + noise, 11 + i * 0.00002 + (i % 20 < 10 ? i % 10 : 10 - i % 10) * 0.00001));
+        }
+        return points;
+    }
+
+    private static int countPoints(final GeoItem item) {
+        final int[] count = new int[]{0};
+        GeoGroup.forAllPrimitives(item, p -> count[0] += p.getPoints().size());
+        return count[0];
+    }
+
+    @Test
+    public void tolerancesKeepEndpointsAndStraightLinesCollapse() {
+        final List<Geopoint> line = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            line.add(new Geopoint(48, 11 + i * 0.001));
+        }
+        final float[] tolerances = GeoItemLevelOfDetail.calculateTolerances(line);
+        assertThat(tolerances[0]).isEqualTo(Float.MAX_VALUE);
+        assertThat(tolerances[9]).isEqualTo(Float.MAX_VALUE);
+        for (int i = 1; i < 9; i++) {
+            assertThat(tolerances[i]).isEqualTo(0f);
+        }
+    }
+
+    @Test
+    public void tolerancesAreCappedByParent() {
+        //middle point is the farthest, its neighbours deviate from their sub-segments more than the middle one from the full line
+        final List<Geopoint> line = Arrays.asList(new Geopoint(0, 0), new Geopoint(0.001, 1), new Geopoint(0.002, 2), new Geopoint(0.001, 3), new Geopoint(0, 4));
+        final float[] tolerances = GeoItemLevelOfDetail.calculateTolerances(line);
+        assertThat(tolerances[2]).isGreaterThan(0f);
+        assertThat(tolerances[1]).isLessThanOrEqualTo(tolerances[2]);
+        assertThat(tolerances[3]).isLessThanOrEqualTo(tolerances[2]);
+    }
+
+    @Test
+    public void zoomBand() {
+        assertThat(GeoItemLevelOfDetail.getZoomBand(new Viewport(new Geopoint(0, 0), 180, 360))).isEqualTo(0);
+        assertThat(GeoItemLevelOfDetail.getZoomBand(new Viewport(new Geopoint(48, 11), 0.0001, 0.0001))).isEqualTo(GeoItemLevelOfDetail.MAX_ZOOM_BAND);
+        final int band1 = GeoItemLevelOfDetail.getZoomBand(new Viewport(new Geopoint(48, 11), 0.1, 0.1));
+        final int band2 = GeoItemLevelOfDetail.getZoomBand(new Viewport(new Geopoint(48, 11), 0.05, 0.05));
+        assertThat(band2).isEqualTo(band1 + 1);
+    }
+
+    @Test
+    public void smallItemsArePassedUnchanged() {
+        final GeoItem item = GeoPrimitive.createPolyline(createTrack(10), null);
+        assertThat(new GeoItemLevelOfDetail(item).forViewport(new Viewport(new Geopoint(48, 11), 1, 1))).isSameAs(item);
+    }
+
+    @Test
+    public void simplifyAndClip() {
+        final GeoItemLevelOfDetail lod = new GeoItemLevelOfDetail(GeoGroup.create(
+                GeoPrimitive.createPolyline(createTrack(5000), null),
+                GeoPrimitive.createMarker(new Geopoint(48, 11), null)));
+        assertThat(lod.getSourcePointCount()).isEqualTo(5000);
+
+        //overview: heavily simplified, marker is retained
+        final GeoItem overview = lod.forViewport(new Viewport(new Geopoint(48, 11), 2, 2));
+        assertThat(countPoints(overview)).isLessThan(100);
+        final int[] markers = new int[]{0};
+        GeoGroup.forAllPrimitives(overview, p -> markers[0] += p.getType() == GeoItem.GeoType.MARKER ? 1 : 0);
+        assertThat(markers[0]).isEqualTo(1);
+
+        //same viewport again -> same instance
+        assertThat(lod.forViewport(new Viewport(new Geopoint(48, 11), 2, 2))).isSameAs(overview);
+
+        //far away -> only the marker remains
+        assertThat(countPoints(lod.forViewport(new Viewport(new Geopoint(10, 10), 0.01, 0.01)))).isEqualTo(1);
+
+        //deep zoom on part of the track: clipped, so only a fraction of the points remain
+        final GeoItem detail = lod.forViewport(new Viewport(new Geopoint(48.01, 11.02), 0.001, 0.001));
+        assertThat(countPoints(detail)).isGreaterThan(1).isLessThan(1000);
+    }
+
+    @Test
+    public void pointBudgetIsRespected() {
+        final GeoItemLevelOfDetail lod = new GeoItemLevelOfDetail(GeoPrimitive.createPolyline(createTrack(50000), null));
+        //invalid viewport -> unclipped, but budget-limited
+        assertThat(countPoints(lod.forViewport(null))).isLessThanOrEqualTo(GeoItemLevelOfDetail.MAX_POINTS_PER_VIEWPORT);
+    }
+
+    @Test
+    public void pointBudgetIsSharedByAllItems() {
+        final List<GeoItemLevelOfDetail> lods = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lods.add(new GeoItemLevelOfDetail(GeoPrimitive.createPolyline(createTrack(5000), null)));
+        }
+        final Viewport viewport = new Viewport(new Geopoint(48.25, 11.5), 1, 1);
+        final int zoomBand = GeoItemLevelOfDetail.getZoomBandWithinBudget(lods, viewport, GeoItemLevelOfDetail.MAX_POINTS_PER_VIEWPORT);
+        assertThat(zoomBand).isLessThanOrEqualTo(GeoItemLevelOfDetail.getZoomBand(viewport));
+
+        int points = 0;
+        for (GeoItemLevelOfDetail lod : lods) {
+            points += countPoints(lod.forViewport(viewport, zoomBand));
+        }
+        assertThat(points).isLessThanOrEqualTo(GeoItemLevelOfDetail.MAX_POINTS_PER_VIEWPORT);
+
+        //an item alone may get more details than when sharing the budget
+        assertThat(GeoItemLevelOfDetail.getZoomBandWithinBudget(lods.subList(0, 1), viewport, GeoItemLevelOfDetail.MAX_POINTS_PER_VIEWPORT)).isGreaterThanOrEqualTo(zoomBand);
+    }
+
+}
@@ -0,0 +1,110 @@
+package cgeo.geocaching.network;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class HttpCacheTest {
+
+    private MockWebServer mockServer;
+    private File cacheDir;
+
+    @Before
+    public void before() throws IOException {
+        mockServer = new MockWebServer();
+        mockServer.start();
+        cacheDir = File.createTempFile("cgeo-test-httpcache-" + System.currentTimeMillis(), "");
+        assertThat(cacheDir.delete() && cacheDir.mkdirs()).isTrue();
+    }
+
+    @After
+    public void after() throws IOException {
+        mockServer.shutdown();
+        FileUtils.deleteDirectory(cacheDir);
+    }
+
+    private static String get(final OkHttpClient client, final HttpUrl url) throws IOException {
+        try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+            return response.body().string();
+        }
+    }
+
+    @Test
+    public void coalesceIdenticalRequests() throws Exception {
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setHeadersDelay(1, TimeUnit.SECONDS).setBody("shared"));
+        final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new RequestCoalescer()).build();
+        final HttpUrl url = mockServer.url("/static/map.png");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(() -> get(client, url)));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo("shared");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(mockServer.getRequestCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void sequentialRequestsAreNotCoalesced() throws IOException {
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("first"));
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setBody("second"));
+        final OkHttpClient client = new OkHttpClient.Builder().addInterceptor(new RequestCoalescer()).build();
+        final HttpUrl url = mockServer.url("/getVotes.php");
+
+        assertThat(get(client, url)).isEqualTo("first");
+        assertThat(get(client, url)).isEqualTo("second");
+        assertThat(mockServer.getRequestCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void revalidateWithETag() throws Exception {
+        mockServer.enqueue(new MockResponse().setResponseCode(200).setHeader("ETag", "\"v1\"").setHeader("Cache-Control", "no-cache").setBody("content"));
+        mockServer.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+        final OkHttpClient client = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir, 1024 * 1024))
+                .addNetworkInterceptor(new HttpCachePolicy.PolicyInterceptor())
+                .build();
+        final HttpUrl url = mockServer.url("/cache/GC12345");
+
+        assertThat(get(client, url)).isEqualTo("content");
+        assertThat(get(client, url)).isEqualTo("content");
+        assertThat(mockServer.getRequestCount()).isEqualTo(2);
+        mockServer.takeRequest();
+        assertThat(mockServer.takeRequest().getHeader("If-None-Match")).isEqualTo("\"v1\"");
+    }
+
+    @Test
+    public void policyOnlyForMatchingEndpoints() {
+        assertThat(HttpCachePolicy.find(HttpUrl.get("https://img.geocaching.com/cache/large/1711f8a1.jpg"))).isNotNull();
+        assertThat(HttpCachePolicy.find(HttpUrl.get("https://www.geocaching.com/images/wpttypes/2.gif"))).isNotNull();
+        assertThat(HttpCachePolicy.find(HttpUrl.get("https://ssl.webpack.de/gcvote.com/getVotes.php?waypoints=GC1"))).isNotNull();
+        assertThat(HttpCachePolicy.find(HttpUrl.get("https://ssl.webpack.de/gcvote.com/setVote.php"))).isNull();
+        assertThat(HttpCachePolicy.find(HttpUrl.get("https://www.geocaching.com/geocache/GC12345"))).isNull();
+        assertThat(HttpCachePolicy.find(HttpUrl.get("https://notgeocaching.com/images/x.gif"))).isNull();
+    }
+
+}
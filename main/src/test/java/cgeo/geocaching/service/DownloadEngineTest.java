@@ -0,0 +1,289 @@
+package cgeo.geocaching.service;
+
+import cgeo.geocaching.network.Network;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class DownloadEngineTest {
+
+    private MockWebServer mockServer;
+    private String mockServerBaseUrl;
+
+    /** number of requests per geocode */
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    /** maximum number of parallel requests per connector */
+    private final Map<String, AtomicInteger> maxInFlight = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    /** simulated persisted queue: geocode -> attempts */
+    private final Map<String, Integer> persistedQueue = new ConcurrentHashMap<>();
+    /** geocodes in the order their downloads started */
+    private final List<String> started = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * responds depending on the geocode: FAIL... always fails, RETRY... fails on first request,
+     * THROTTLE... is always throttled, all others succeed
+     */
+    private final Dispatcher dispatcher = new Dispatcher() {
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull final RecordedRequest request) {
+            final String geocode = request.getPath().substring(request.getPath().lastIndexOf('/') + 1);
+            final int count = counter(requests, geocode).incrementAndGet();
+            final MockResponse response = new MockResponse().setBodyDelay(20, TimeUnit.MILLISECONDS);
+            if (geocode.contains("FAIL") || (geocode.contains("RETRY") && count == 1)) {
+                return response.setResponseCode(500);
+            }
+            if (geocode.contains("THROTTLE")) {
+                return response.setResponseCode(429);
+            }
+            return response.setResponseCode(200).setBody(geocode);
+        }
+    };
+
+    @Before
+    public void before() throws IOException {
+        mockServer = new MockWebServer();
+        mockServer.setDispatcher(dispatcher);
+        mockServer.start();
+        mockServerBaseUrl = mockServer.url("").url().toString();
+    }
+
+    @After
+    public void after() throws IOException {
+        mockServer.shutdown();
+    }
+
+    private static AtomicInteger counter(final Map<String, AtomicInteger> counters, final String key) {
+        AtomicInteger counter = counters.get(key);
+        if (counter == null) {
+            counters.putIfAbsent(key, new AtomicInteger());
+            counter = counters.get(key);
+        }
+        return counter;
+    }
+
+    private static String connectorOf(final String geocode) {
+        return geocode.substring(0, 2);
+    }
+
+    @NonNull
+    private DownloadEngine.Result download(@NonNull final String geocode) {
+        started.add(geocode);
+        final String connector = connectorOf(geocode);
+        final int current = counter(inFlight, connector).incrementAndGet();
+        final AtomicInteger max = counter(maxInFlight, connector);
+        while (true) {
+            final int previous = max.get();
+            if (current <= previous || max.compareAndSet(previous, current)) {
+                break;
+            }
+        }
+        final Network.ThrottlingMonitor throttling = new Network.ThrottlingMonitor();
+        try (Response response = throttling.call(() -> Network.getRequest(mockServerBaseUrl + "cache/" + geocode).blockingGet())) {
+            if (response.isSuccessful()) {
+                return DownloadEngine.Result.SUCCESS;
+            }
+            return throttling.isThrottled() ? DownloadEngine.Result.THROTTLED : DownloadEngine.Result.FAILED;
+        } finally {
+            counter(inFlight, connector).decrementAndGet();
+        }
+    }
+
+    private final DownloadEngine.Listener listener = new DownloadEngine.Listener() {
+        @Override
+        public void onAttemptStarted(@NonNull final String geocode, final int attempts) {
+            persistedQueue.put(geocode, attempts);
+        }
+
+        @Override
+        public void onAttemptFinished(@NonNull final String geocode, @NonNull final DownloadEngine.Result result, final int attempts, final boolean willRetry) {
+            if (!willRetry) {
+                persistedQueue.remove(geocode);
+            }
+        }
+    };
+
+    private DownloadEngine createEngine() {
+        return new DownloadEngine(this::download, DownloadEngineTest::connectorOf, listener, 3, 10);
+    }
+
+    private int requestCount(final String geocode) {
+        final AtomicInteger count = requests.get(geocode);
+        return count == null ? 0 : count.get();
+    }
+
+    @Test
+    public void downloadWithRetries() {
+        final DownloadEngine engine = createEngine();
+        for (int i = 0; i < 40; i++) {
+            final String geocode = (i % 2 == 0 ? "GC" : "OC") + (i % 5 == 0 ? "RETRY" : "") + i;
+            persistedQueue.put(geocode, 0);
+            engine.add(geocode, 0);
+        }
+        engine.run();
+
+        final DownloadEngine.Statistics statistics = engine.getStatistics();
+        assertThat(statistics.succeeded).isEqualTo(40);
+        assertThat(statistics.failed).isEqualTo(0);
+        assertThat(statistics.retries).isEqualTo(8);
+        assertThat(statistics.pending).isEqualTo(0);
+        assertThat(requestCount("GCRETRY0")).isEqualTo(2);
+        assertThat(requestCount("OC1")).isEqualTo(1);
+        assertThat(persistedQueue).isEmpty();
+    }
+
+    @Test
+    public void giveUpAfterMaxAttempts() {
+        final DownloadEngine engine = createEngine();
+        engine.add("GCFAIL1", 0);
+        persistedQueue.put("GCFAIL2", 2);
+        engine.add("GCFAIL2", 2); // resumed from the persisted queue with two attempts made already
+        engine.add("GC3", 0);
+        engine.run();
+
+        final DownloadEngine.Statistics statistics = engine.getStatistics();
+        assertThat(statistics.succeeded).isEqualTo(1);
+        assertThat(statistics.failed).isEqualTo(2);
+        assertThat(requestCount("GCFAIL1")).isEqualTo(3);
+        assertThat(requestCount("GCFAIL2")).isEqualTo(1);
+        // downloads failing on the last attempt are removed from the persisted queue
+        assertThat(persistedQueue).isEmpty();
+        // failures reduce the concurrency of the connector
+        assertThat(engine.getConcurrencyLimit("GC")).isEqualTo(DownloadEngine.MIN_CONCURRENCY);
+    }
+
+    @Test
+    public void throttlingReducesConcurrencyOfConnector() {
+        final DownloadEngine engine = createEngine();
+        engine.add("GCTHROTTLE", 0);
+        engine.run();
+
+        assertThat(engine.getStatistics().throttled).isEqualTo(3);
+        assertThat(engine.getStatistics().failed).isEqualTo(1);
+        assertThat(engine.getConcurrencyLimit("GC")).isEqualTo(DownloadEngine.MIN_CONCURRENCY);
+        // other connectors are not affected
+        assertThat(engine.getConcurrencyLimit("OC")).isEqualTo(DownloadEngine.INITIAL_CONCURRENCY);
+    }
+
+    @Test
+    public void throttlingIsReportedToTheIssuingCallOnly() {
+        final Network.ThrottlingMonitor throttled = new Network.ThrottlingMonitor();
+        final Network.ThrottlingMonitor other = new Network.ThrottlingMonitor();
+        throttled.call(() -> Network.getRequest(mockServerBaseUrl + "cache/GCTHROTTLE").blockingGet()).close();
+        other.call(() -> Network.getRequest(mockServerBaseUrl + "cache/GC1").blockingGet()).close();
+
+        assertThat(throttled.isThrottled()).isTrue();
+        assertThat(other.isThrottled()).isFalse();
+    }
+
+    @Test
+    public void attemptsAreReportedBeforeDownloadStarts() {
+        final List<Integer> startedAttempts = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> finishedAttempts = Collections.synchronizedList(new ArrayList<>());
+        final DownloadEngine engine = new DownloadEngine(this::download, DownloadEngineTest::connectorOf, new DownloadEngine.Listener() {
+            @Override
+            public void onAttemptStarted(@NonNull final String geocode, final int attempts) {
+                startedAttempts.add(attempts);
+            }
+
+            @Override
+            public void onAttemptFinished(@NonNull final String geocode, @NonNull final DownloadEngine.Result result, final int attempts, final boolean willRetry) {
+                finishedAttempts.add(attempts);
+            }
+        }, 3, 10);
+        engine.add("GCFAIL1", 1); // resumed with one attempt made already
+        engine.run();
+
+        assertThat(startedAttempts).containsExactly(2, 3);
+        assertThat(finishedAttempts).containsExactly(2, 3);
+    }
+
+    @Test
+    public void concurrencyGrowsWithinLimits() {
+        final DownloadEngine engine = createEngine();
+        for (int i = 0; i < 100; i++) {
+            engine.add("GC" + i, 0);
+        }
+        engine.add("OC1", 0);
+        engine.run();
+
+        assertThat(engine.getStatistics().succeeded).isEqualTo(101);
+        assertThat(engine.getConcurrencyLimit("GC")).isEqualTo(DownloadEngine.MAX_CONCURRENCY);
+        assertThat(maxInFlight.get("GC").get()).isGreaterThan(DownloadEngine.INITIAL_CONCURRENCY).isLessThanOrEqualTo(DownloadEngine.MAX_CONCURRENCY);
+        assertThat(engine.getStatistics().getJobsPerMinute()).isGreaterThan(0);
+    }
+
+    @Test
+    public void stopKeepsPendingJobs() {
+        final DownloadEngine engine = createEngine();
+        for (int i = 0; i < 50; i++) {
+            final String geocode = "GC" + i;
+            persistedQueue.put(geocode, 0);
+            engine.add(geocode, 0);
+        }
+        engine.stop();
+        engine.run();
+
+        assertThat(engine.getStatistics().succeeded).isEqualTo(0);
+        assertThat(persistedQueue).hasSize(50);
+    }
+
+    @Test
+    public void prioritizedJobsStartFirst() {
+        final DownloadEngine engine = createEngine();
+        for (int i = 0; i < 20; i++) {
+            engine.add("GC" + i, 0);
+        }
+        assertThat(engine.prioritize(geocode -> geocode.endsWith("7"))).isEqualTo(2);
+        engine.run();
+
+        assertThat(engine.getStatistics().succeeded).isEqualTo(20);
+        assertThat(started.subList(0, 2)).containsExactlyInAnyOrder("GC7", "GC17");
+    }
+
+    @Test
+    public void removedJobsAreNotDownloaded() {
+        final DownloadEngine engine = createEngine();
+        for (int i = 0; i < 20; i++) {
+            engine.add("GC" + i, 0);
+        }
+        assertThat(engine.remove(geocode -> geocode.endsWith("7"))).isEqualTo(2);
+        engine.run();
+
+        assertThat(engine.getStatistics().succeeded).isEqualTo(18);
+        assertThat(started).doesNotContain("GC7", "GC17");
+
+        // removed jobs can be added again
+        engine.add("GC7", 0);
+        engine.run();
+        assertThat(started).contains("GC7");
+    }
+
+    @Test
+    public void backoff() {
+        final DownloadEngine engine = createEngine();
+        assertThat(engine.getBackoff(1, DownloadEngine.Result.FAILED)).isEqualTo(10);
+        assertThat(engine.getBackoff(3, DownloadEngine.Result.FAILED)).isEqualTo(40);
+        assertThat(engine.getBackoff(3, DownloadEngine.Result.THROTTLED)).isEqualTo(80);
+    }
+
+}
@@ -0,0 +1,122 @@
+package cgeo.geocaching.sorting;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.models.Geocache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.within;
+
+public class IncrementalDistanceSorterTest {
+
+    private static List<Geocache> createCaches(final int count) {
+        final Random rnd = new Random(42);
+        final List<Geocache> caches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Geocache cache = new Geocache();
+            cache.setGeocode("GC" + Integer.toString(i, 36).toUpperCase());
+            if (i % 20 != 0) {
+                cache.setCoords(new Geopoint(48 + rnd.nextDouble() * 0.5, 11 + rnd.nextDouble() * 0.5));
+            }
+            caches.add(cache);
+        }
+        return caches;
+    }
+
+    /** asserts that caches are ordered by their approximate distance to given position, caches without coordinates last (first if descending) */
+    private static void assertSortedByDistance(final List<Geocache> caches, final Geopoint position, final boolean descending) {
+        final double lat = Math.toRadians(position.getLatitude());
+        final double lon = Math.toRadians(position.getLongitude());
+        float previous = descending ? Float.NaN : Float.NEGATIVE_INFINITY;
+        for (Geocache cache : caches) {
+            final float distance = cache.getCoords() == null ? Float.NaN : IncrementalDistanceSorter.approximateDistance(lat, lon, cache.getCoords());
+            assertThat(descending ? Float.compare(previous, distance) : Float.compare(distance, previous)).isGreaterThanOrEqualTo(0);
+            previous = distance;
+        }
+    }
+
+    @Test
+    public void approximateDistance() {
+        final Geopoint position = new Geopoint(48.1, 11.5);
+        final double lat = Math.toRadians(position.getLatitude());
+        final double lon = Math.toRadians(position.getLongitude());
+        for (Geopoint point : new Geopoint[]{new Geopoint(48.1, 11.5), new Geopoint(48.2, 11.6), new Geopoint(47.5, 12.3), new Geopoint(48.9, 10.1)}) {
+            final float exact = position.distanceTo(point);
+            assertThat(IncrementalDistanceSorter.approximateDistance(lat, lon, point)).isCloseTo(exact, within(exact * 0.005f + 0.001f));
+        }
+        //crossing the antimeridian
+        final Geopoint east = new Geopoint(10, 179.9);
+        final float distance = IncrementalDistanceSorter.approximateDistance(Math.toRadians(10), Math.toRadians(-179.9), east);
+        assertThat(distance).isCloseTo(east.distanceTo(new Geopoint(10, -179.9)), within(0.5f));
+    }
+
+    @Test
+    public void repairOrderOnSmallMovements() {
+        final List<Geocache> caches = createCaches(2000);
+        final TargetDistanceComparator comparator = new TargetDistanceComparator(new Geopoint(48.25, 11.25));
+        comparator.sort(caches);
+
+        double lat = 48.25;
+        for (int step = 0; step < 20; step++) {
+            lat += 0.0005;
+            final Geopoint position = new Geopoint(lat, 11.25);
+            final int[] changed = IncrementalDistanceSorter.resort(caches, position, false);
+            assertSortedByDistance(caches, position, false);
+            if (changed != null) {
+                assertThat(changed[0]).isLessThan(changed[1]);
+                assertThat(changed[1] - changed[0]).isLessThan(caches.size());
+            }
+        }
+    }
+
+    @Test
+    public void unchangedOrder() {
+        final List<Geocache> caches = createCaches(500);
+        final Geopoint position = new Geopoint(48.25, 11.25);
+        IncrementalDistanceSorter.resort(caches, position, false);
+        assertSortedByDistance(caches, position, false);
+        assertThat(IncrementalDistanceSorter.resort(caches, position, false)).isNull();
+    }
+
+    @Test
+    public void invertedOrder() {
+        final List<Geocache> caches = createCaches(500);
+        IncrementalDistanceSorter.resort(caches, new Geopoint(48.25, 11.25), true);
+        assertSortedByDistance(caches, new Geopoint(48.25, 11.25), true);
+        assertThat(caches.get(0).getCoords()).isNull();
+        IncrementalDistanceSorter.resort(caches, new Geopoint(48.3, 11.3), true);
+        assertSortedByDistance(caches, new Geopoint(48.3, 11.3), true);
+    }
+
+    @Test
+    public void distancesOfCachesAreNotChanged() {
+        final List<Geocache> caches = createCaches(200);
+        new TargetDistanceComparator(new Geopoint(48.25, 11.25)).sort(caches);
+        final Map<String, Float> distances = new HashMap<>();
+        for (Geocache cache : caches) {
+            distances.put(cache.getGeocode(), cache.getDistance());
+        }
+        IncrementalDistanceSorter.resort(caches, new Geopoint(48.4, 11.4), false);
+        for (Geocache cache : caches) {
+            assertThat(cache.getDistance()).isEqualTo(distances.get(cache.getGeocode()));
+        }
+    }
+
+    @Test
+    public void bigJumpSortsCompletely() {
+        final List<Geocache> caches = createCaches(1000);
+        final TargetDistanceComparator comparator = new TargetDistanceComparator(new Geopoint(48, 11));
+        comparator.sort(caches);
+        // moving to the opposite corner reverses the order nearly completely
+        final int[] changed = IncrementalDistanceSorter.resort(caches, new Geopoint(48.5, 11.5), false);
+        assertThat(changed).containsExactly(0, caches.size());
+        assertSortedByDistance(caches, new Geopoint(48.5, 11.5), false);
+    }
+
+}
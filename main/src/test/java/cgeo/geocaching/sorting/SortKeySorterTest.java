@@ -0,0 +1,189 @@
+package cgeo.geocaching.sorting;
+
+import cgeo.geocaching.enumerations.CacheSize;
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.log.LogType;
+import cgeo.geocaching.models.Geocache;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class SortKeySorterTest {
+
+    private static final String[] NAME_PARTS = {"Forest", "bridge", "Mystery", "tree", "Lake", "Hill", "Église", "Stone"};
+    private static final CacheSize[] SIZES = {CacheSize.MICRO, CacheSize.SMALL, CacheSize.REGULAR, CacheSize.LARGE, CacheSize.UNKNOWN};
+
+    private static List<Geocache> createCaches(final int count) {
+        final Random rnd = new Random(42);
+        final List<Geocache> caches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final Geocache cache = new Geocache();
+            // duplicate geocodes and few distinct values make sure that stability is checked as well
+            cache.setGeocode((rnd.nextBoolean() ? "GC" : "OC") + Integer.toString(rnd.nextInt(count), 36).toUpperCase());
+            if (rnd.nextInt(10) > 0) {
+                cache.setName(NAME_PARTS[rnd.nextInt(NAME_PARTS.length)] + " #" + rnd.nextInt(100));
+            }
+            cache.setDifficulty(rnd.nextInt(10) * 0.5f);
+            cache.setTerrain(rnd.nextInt(10) * 0.5f);
+            cache.setSize(SIZES[rnd.nextInt(SIZES.length)]);
+            cache.setFavoritePoints(rnd.nextInt(20));
+            cache.setRating(rnd.nextInt(10) * 0.5f);
+            cache.setVotes(rnd.nextInt(5));
+            cache.setMyVote(rnd.nextInt(3) * 2.5f);
+            cache.setInventoryItems(rnd.nextInt(3));
+            cache.setUpdated(rnd.nextInt(50));
+            cache.setVisitedDate(rnd.nextInt(50));
+            if (rnd.nextInt(10) > 0) {
+                final Map<LogType, Integer> logCounts = new EnumMap<>(LogType.class);
+                logCounts.put(LogType.FOUND_IT, rnd.nextInt(30));
+                cache.setLogCounts(logCounts);
+            }
+            if (rnd.nextInt(10) > 0) {
+                cache.setCoords(new Geopoint(rnd.nextInt(10) * 0.1, rnd.nextInt(10) * 0.1));
+            }
+            caches.add(cache);
+        }
+        return caches;
+    }
+
+    private static List<CacheComparator> createComparators() {
+        return Arrays.asList(new NameComparator(), new DifficultyComparator(), new TerrainComparator(), new SizeComparator(),
+                new FindsComparator(), new PopularityComparator(), new PopularityRatioComparator(), new RatingComparator(),
+                new VoteComparator(), new InventoryComparator(), new StorageTimeComparator(), new VisitComparator(),
+                new GeocodeComparator(), new TargetDistanceComparator(new Geopoint(0.45, 0.45)),
+                new InverseComparator(new DifficultyComparator()),
+                new MultiComparator().add(new SizeComparator(), new NameComparator()),
+                new MultiComparator().add(new InverseComparator(new TerrainComparator()), new VoteComparator(), new GeocodeComparator()));
+    }
+
+    /** sorts like CacheComparator.sort did before sort keys were introduced */
+    private static List<Geocache> sortViaComparator(final List<Geocache> caches, final CacheComparator comparator) {
+        final List<Geocache> expected = new ArrayList<>(caches);
+        if (comparator instanceof AbstractCacheComparator) {
+            ((AbstractCacheComparator) comparator).beforeSort(expected);
+        }
+        Collections.sort(expected, comparator);
+        return expected;
+    }
+
+    private static void assertSameOrder(final List<Geocache> caches, final CacheComparator comparator) {
+        assertThat(comparator.getSortKeys()).as(comparator.getClass().getSimpleName()).isNotNull();
+        final List<Geocache> expected = sortViaComparator(caches, comparator);
+        final List<Geocache> sorted = new ArrayList<>(caches);
+        comparator.sort(sorted);
+        assertThat(sorted).as(comparator.getClass().getSimpleName()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void sameOrderAsComparator() {
+        final List<Geocache> caches = createCaches(2000);
+        for (CacheComparator comparator : createComparators()) {
+            assertSameOrder(caches, comparator);
+        }
+    }
+
+    @Test
+    public void sameOrderAsComparatorParallel() {
+        final List<Geocache> caches = createCaches(SortKeySorter.PARALLEL_THRESHOLD + 1234);
+        for (CacheComparator comparator : createComparators()) {
+            assertSameOrder(caches, comparator);
+        }
+    }
+
+    @Test
+    public void smallLists() {
+        final List<Geocache> empty = new ArrayList<>();
+        new NameComparator().sort(empty);
+        assertThat(empty).isEmpty();
+
+        final List<Geocache> caches = createCaches(3);
+        for (int size = 1; size <= caches.size(); size++) {
+            assertSameOrder(caches.subList(0, size), new NameComparator());
+        }
+    }
+
+    @Test
+    public void comparatorWithoutSortKeys() {
+        final CacheComparator withoutKeys = new CacheComparator() {
+            @Override
+            public int compare(final Geocache cache1, final Geocache cache2) {
+                return Float.compare(cache1.getTerrain(), cache2.getTerrain());
+            }
+
+            @Override
+            public String getSortableSection(@NonNull final Geocache cache) {
+                return "";
+            }
+
+            @Override
+            public void sort(final List<Geocache> list) {
+                Collections.sort(list, this);
+            }
+        };
+        final CacheComparator multi = new MultiComparator().add(new SizeComparator(), withoutKeys);
+        assertThat(multi.getSortKeys()).isNull();
+        assertThat(new InverseComparator(withoutKeys).getSortKeys()).isNull();
+
+        final List<Geocache> caches = createCaches(500);
+        final List<Geocache> sorted = new ArrayList<>(caches);
+        multi.sort(sorted);
+        assertThat(sorted).containsExactlyElementsOf(sortViaComparator(caches, multi));
+    }
+
+    @Test
+    public void sameDateKeyOnlyCalculatedForSameDates() {
+        final AtomicInteger sameDateKeys = new AtomicInteger();
+        final AbstractDateCacheComparator comparator = new AbstractDateCacheComparator() {
+            @Override
+            protected Date getCacheDate(final Geocache cache) {
+                return cache.getUpdated() == 0 ? null : new Date(cache.getUpdated());
+            }
+
+            @Override
+            protected int sortSameDate(final Geocache cache1, final Geocache cache2) {
+                return Float.compare(cache1.getDifficulty(), cache2.getDifficulty());
+            }
+
+            @Override
+            protected Comparable<?> getSameDateSortKey(final Geocache cache) {
+                sameDateKeys.incrementAndGet();
+                return cache.getDifficulty();
+            }
+        };
+
+        final List<Geocache> distinctDates = createCaches(1000);
+        for (int i = 0; i < distinctDates.size(); i++) {
+            distinctDates.get(i).setUpdated(1000 - i);
+        }
+        assertSameOrder(distinctDates, comparator);
+        assertThat(sameDateKeys.get()).isZero();
+
+        // createCaches uses few distinct "updated" values, so most caches share their date with others
+        assertSameOrder(createCaches(1000), comparator);
+        assertThat(sameDateKeys.get()).isPositive();
+    }
+
+    @Test
+    public void largeListsAreSortedLikeComparator() {
+        for (int size : new int[]{5000, 50000}) {
+            final List<Geocache> caches = createCaches(size);
+            for (CacheComparator comparator : Arrays.asList(new NameComparator(), new PopularityRatioComparator(),
+                    new MultiComparator().add(new SizeComparator(), new RatingComparator(), new NameComparator()))) {
+                assertSameOrder(caches, comparator);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package cgeo.geocaching.storage;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class CacheModificationTrackerTest {
+
+    @Test
+    public void modifiedSince() {
+        final long start = CacheModificationTracker.getModificationCounter();
+        CacheModificationTracker.markModified("GCTRACK1");
+        final long middle = CacheModificationTracker.getModificationCounter();
+        CacheModificationTracker.markModifiedGeocodes(Collections.singletonList("GCTRACK2"));
+
+        assertThat(CacheModificationTracker.getModifiedSince(start)).contains("GCTRACK1", "GCTRACK2");
+        assertThat(CacheModificationTracker.getModifiedSince(middle)).containsOnly("GCTRACK2");
+        assertThat(CacheModificationTracker.getModifiedSince(CacheModificationTracker.getModificationCounter())).isEmpty();
+    }
+
+    @Test
+    public void trackedCachesAreBounded() {
+        final long start = CacheModificationTracker.getModificationCounter();
+        for (int i = 0; i < CacheModificationTracker.MAX_TRACKED_CACHES * 2; i++) {
+            CacheModificationTracker.markModified("GCBOUND" + i);
+        }
+        final long recent = CacheModificationTracker.getModificationCounter();
+        CacheModificationTracker.markModified("GCBOUNDLAST");
+
+        assertThat(CacheModificationTracker.getTrackedCount()).isLessThanOrEqualTo(CacheModificationTracker.MAX_TRACKED_CACHES);
+        // dropped modifications must be reported as "everything modified"
+        assertThat(CacheModificationTracker.getModifiedSince(start)).isNull();
+        final Set<String> modified = CacheModificationTracker.getModifiedSince(recent);
+        assertThat(modified).containsOnly("GCBOUNDLAST");
+    }
+}
@@ -0,0 +1,116 @@
+package cgeo.geocaching.unifiedmap;
+
+import cgeo.geocaching.location.Geopoint;
+import cgeo.geocaching.location.Viewport;
+import cgeo.geocaching.models.Geocache;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class LiveMapTileCacheTest {
+
+    private static Geocache cache(final String geocode, final double lat, final double lon) {
+        final Geocache cache = new Geocache();
+        cache.setGeocode(geocode);
+        cache.setCoords(new Geopoint(lat, lon));
+        return cache;
+    }
+
+    @Test
+    public void tileCoordinates() {
+        assertThat(LiveMapTileCache.getTileX(-180, 6)).isEqualTo(0);
+        assertThat(LiveMapTileCache.getTileX(180, 6)).isEqualTo(63);
+        assertThat(LiveMapTileCache.getTileY(-90, 6)).isEqualTo(0);
+        assertThat(LiveMapTileCache.getTileY(90, 6)).isEqualTo(63);
+        assertThat(LiveMapTileCache.getTileX(0, 6)).isEqualTo(32);
+    }
+
+    @Test
+    public void levelAdaptsToViewportSize() {
+        final Viewport small = new Viewport(new Geopoint(48, 11), 0.05, 0.05);
+        final Viewport large = new Viewport(new Geopoint(48, 11), 5, 5);
+        assertThat(LiveMapTileCache.getLevel(small)).isGreaterThan(LiveMapTileCache.getLevel(large));
+        assertThat(LiveMapTileCache.getTiles(small, LiveMapTileCache.getLevel(small), "").size()).isLessThanOrEqualTo(LiveMapTileCache.MAX_TILES_PER_VIEWPORT);
+    }
+
+    @Test
+    public void retrievedViewportIsServedFromCache() {
+        final LiveMapTileCache tileCache = new LiveMapTileCache();
+        final Viewport vp = new Viewport(new Geopoint(48, 11), 0.1, 0.1);
+
+        final LiveMapTileCache.Lookup before = tileCache.lookup(vp, null);
+        assertThat(before.isComplete()).isFalse();
+        assertThat(before.cachedTileCount).isEqualTo(0);
+
+        tileCache.put(before.missingViewport, before.level, null, Arrays.asList(cache("GC1", 48, 11), cache("GC2", 10, 10)));
+
+        final LiveMapTileCache.Lookup after = tileCache.lookup(vp, null);
+        assertThat(after.isComplete()).isTrue();
+        assertThat(after.cachedGeocodes).containsExactly("GC1");
+        assertThat(tileCache.covers(vp, null)).isTrue();
+
+        //a smaller viewport inside is served by the coarser tiles
+        assertThat(tileCache.covers(new Viewport(new Geopoint(48.01, 11.01), 0.01, 0.01), null)).isTrue();
+    }
+
+    @Test
+    public void zoomingOutIsServedByFinerTiles() {
+        final LiveMapTileCache tileCache = new LiveMapTileCache();
+        final Viewport large = new Viewport(new Geopoint(48, 11), 0.5, 0.5);
+        final int largeLevel = LiveMapTileCache.getLevel(large);
+
+        //retrieve the area in small parts, stored with a finer level
+        final Viewport small = new Viewport(new Geopoint(48, 11), 0.1, 0.1);
+        final int smallLevel = LiveMapTileCache.getLevel(small);
+        assertThat(smallLevel).isGreaterThan(largeLevel);
+        final Viewport area = tileCache.lookup(large, null).missingViewport;
+        tileCache.put(area.resize(0.5), smallLevel, null, Collections.singletonList(cache("GC1", 48, 11)));
+        assertThat(tileCache.covers(large, null)).isFalse();
+
+        tileCache.put(area, smallLevel, null, Arrays.asList(cache("GC1", 48, 11), cache("GC2", 48.2, 11.2)));
+        assertThat(tileCache.covers(large, null)).isTrue();
+        final LiveMapTileCache.Lookup lookup = tileCache.lookup(large, null);
+        assertThat(lookup.isComplete()).isTrue();
+        assertThat(lookup.cachedGeocodes).containsOnly("GC1", "GC2");
+        assertThat(lookup.cachedCaches).extracting("geocode").containsOnly("GC1", "GC2");
+    }
+
+    @Test
+    public void onlyMissingTilesAreRequested() {
+        final LiveMapTileCache tileCache = new LiveMapTileCache();
+        final Viewport first = new Viewport(new Geopoint(48, 11), 0.1, 0.1);
+        final LiveMapTileCache.Lookup firstLookup = tileCache.lookup(first, null);
+        tileCache.put(firstLookup.missingViewport, firstLookup.level, null, Collections.singletonList(cache("GC1", 48, 11)));
+
+        //move half a viewport to the east: part of the tiles is cached, only the rest is missing
+        final Viewport second = new Viewport(new Geopoint(48, 11.05), 0.1, 0.1);
+        final LiveMapTileCache.Lookup secondLookup = tileCache.lookup(second, null);
+        assertThat(secondLookup.isComplete()).isFalse();
+        assertThat(secondLookup.cachedTileCount).isGreaterThan(0).isLessThan(secondLookup.tileCount);
+        assertThat(secondLookup.missingViewport.getLongitudeMin()).isGreaterThan(11.0);
+        assertThat(secondLookup.cachedGeocodes).containsExactly("GC1");
+    }
+
+    @Test
+    public void bounds() throws InterruptedException {
+        final LiveMapTileCache tileCache = new LiveMapTileCache(4, 50);
+        final Viewport vp = new Viewport(new Geopoint(48, 11), 0.1, 0.1);
+        final LiveMapTileCache.Lookup lookup = tileCache.lookup(vp, null);
+        tileCache.put(lookup.missingViewport, lookup.level, null, Collections.emptyList());
+        assertThat(lookup.tileCount).isGreaterThan(4);
+        assertThat(tileCache.size()).isEqualTo(4);
+        assertThat(tileCache.covers(vp, null)).isFalse();
+
+        final Viewport small = new Viewport(new Geopoint(48, 11), 0.001, 0.001);
+        tileCache.put(tileCache.lookup(small, null).missingViewport, tileCache.lookup(small, null).level, null, Collections.emptyList());
+        assertThat(tileCache.covers(small, null)).isTrue();
+        Thread.sleep(60);
+        assertThat(tileCache.covers(small, null)).isFalse();
+        tileCache.cleanup();
+        assertThat(tileCache.size()).isEqualTo(0);
+    }
+
+}
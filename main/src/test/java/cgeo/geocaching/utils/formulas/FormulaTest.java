@@ -14,10 +14,12 @@ import android.util.Pair;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.assertj.core.data.Offset;
 import org.junit.Test;
@@ -535,4 +537,68 @@ public class FormulaTest {
         assertThat(eval("2 * (3 + 4) #comment")).isEqualTo(2 * (3 + 4));
     }
 
+    private static String evaluateOrError(final Supplier<Value> evaluation) {
+        try {
+            return evaluation.get().toString();
+        } catch (FormulaException fe) {
+            return "ERROR";
+        }
+    }
+
+    @Test
+    public void longArithmeticGivesSameResults() {
+        final String[] expressions = new String[] { "A+B*C", "A-B-C", "-A*(B+C)", "A%B", "A%C", "A^B", "B^0", "C^A",
+                "A*B*C*A*B*C*A*B*C*A*B*C*A*B*C", "(A+B)/C", "A+[:1-9]*B", "A B", "AB+C", "A+$B2",
+                "A06", "1 007", "06(3*A)", "(A)(B)", "A+0", "$B2", "$B2 1" };
+        final Object[][] varSets = new Object[][] {
+                { "A", 3, "B", 4, "C", 5, "B2", 6 },
+                { "A", "-3", "B", "12", "C", "0", "B2", "007" },
+                { "A", "3.5", "B", 4, "C", "x", "B2", "1" },
+                { "A", Long.MAX_VALUE, "B", 2, "C", 1000000000L, "B2", -1 },
+                { "A", "450000001", "B", "0", "C", "-1", "B2", "99999999999999999999" },
+                { "A", "05", "B", "05", "C", "-0", "B2", "007" }
+        };
+        for (String expression : expressions) {
+            final Formula formula = Formula.compile(expression);
+            for (Object[] vars : varSets) {
+                final Function<String, Value> varProvider = Formula.toVarProvider(vars);
+                for (int rangeIdx = 0; rangeIdx < formula.getRangeIndexSize(); rangeIdx++) {
+                    final int ri = rangeIdx;
+                    assertThat(evaluateOrError(() -> formula.evaluate(varProvider, ri))).as(expression + " " + Arrays.toString(vars))
+                            .isEqualTo(evaluateOrError(() -> formula.evaluateWithoutLongArithmetic(varProvider, ri)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void longArithmeticKeepsLeadingZeros() {
+        assertThat(Formula.evaluate("A06", "A", 3).getAsString()).isEqualTo("306");
+        assertThat(Formula.evaluate("1 007").getAsString()).isEqualTo("1007");
+        assertThat(Formula.evaluate("06(3*A)", "A", 3).getAsString()).isEqualTo("069");
+        assertThat(Formula.evaluate("A", "A", "007").getAsString()).isEqualTo("007");
+        assertThat(Formula.evaluate("(A)(B)", "A", "05", "B", "05").getAsString()).isEqualTo("0505");
+        assertThat(Formula.evaluate("A+1", "A", "007").getAsLong()).isEqualTo(8);
+    }
+
+    @Test
+    public void longArithmeticMatchesGeneralEvaluation() {
+        final Formula formula = Formula.compile("(A*100+B*10+C)*[:1-9]-(D+E)^2%17+F");
+        final Function<String, Value> vars = Formula.toVarProvider("A", 4, "B", "7", "C", 1, "D", 12, "E", "3", "F", 42);
+        for (int rangeIdx = 0; rangeIdx < formula.getRangeIndexSize(); rangeIdx++) {
+            assertThat(formula.evaluate(vars, rangeIdx)).isEqualTo(formula.evaluateWithoutLongArithmetic(vars, rangeIdx));
+        }
+    }
+
+    @Test
+    public void longPowerLeavesSpecialCasesToGeneralEvaluation() {
+        final Formula formula = Formula.compile("A^B");
+        final long[][] cases = new long[][] { { 2, -1 }, { 500000000, 0 }, { -500000000, 0 }, { 3, 0 }, { 0, 0 }, { 1000000000, 2 }, { 3, 40 }, { -2, 63 } };
+        for (long[] c : cases) {
+            final Function<String, Value> vars = Formula.toVarProvider("A", c[0], "B", c[1]);
+            assertThat(evaluateOrError(() -> formula.evaluate(vars))).as(c[0] + "^" + c[1])
+                    .isEqualTo(evaluateOrError(() -> formula.evaluateWithoutLongArithmetic(vars, 0)));
+        }
+    }
+
 }
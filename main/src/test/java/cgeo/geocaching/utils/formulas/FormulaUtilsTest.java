@@ -428,6 +428,23 @@ public class FormulaUtilsTest {
                 "N 50° 00.A + B + C + D + E + F + G + H + I + J + K + L + M|E 009° 00.A * B * C * ( N + O ) + P + Q + R + S - T - U - V - W");
     }
 
+    @Test
+    public void scanForFormulasInLongListing() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            sb.append("This is a long listing without anything to calculate, at least most of the time. ");
+            if (i % 500 == 0) {
+                sb.append("Now use (A+").append(i).append(")*2 here. ");
+            }
+        }
+        final String listing = sb.toString();
+        final List<String> result = FormulaUtils.scanForFormulas(Collections.singleton(listing), null);
+        assertThat(result).containsExactlyInAnyOrder("(A+0)*2", "(A+500)*2", "(A+1000)*2", "(A+1500)*2");
+        //second scan of same text is served from cache, excluded formulas are still respected
+        assertThat(FormulaUtils.scanForFormulas(Collections.singleton(listing), Collections.singleton("(A+0)*2")))
+                .containsExactlyInAnyOrder("(A+500)*2", "(A+1000)*2", "(A+1500)*2");
+    }
+
     private void assertScanCoordinates(final String textToScan, final String... expectedFindPairs) {
         final List<Pair<String, String>> result = FormulaUtils.scanForCoordinates(Collections.singleton(textToScan), null);
         if (expectedFindPairs == null || expectedFindPairs.length == 0) {
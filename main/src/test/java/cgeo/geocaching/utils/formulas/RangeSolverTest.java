@@ -0,0 +1,184 @@
+package cgeo.geocaching.utils.formulas;
+
+import cgeo.geocaching.location.Geopoint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.reactivex.rxjava3.disposables.Disposable;
+import org.junit.Test;
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.assertThatThrownBy;
+
+public class RangeSolverTest {
+
+    private static List<String> solve(final RangeSolver solver, final String... vars) {
+        final List<String> result = new ArrayList<>();
+        solver.solve(solution -> {
+            final StringBuilder sb = new StringBuilder();
+            for (String v : vars) {
+                sb.append(v).append("=").append(solution.get(v)).append(";");
+            }
+            result.add(sb.toString());
+        });
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    public void simpleCondition() {
+        final RangeSolver solver = new RangeSolver()
+                .addRangeVariable("A", "1-9")
+                .addRangeVariable("B", "1-9")
+                .addCondition("A*B==12")
+                .addCondition("A<B");
+        assertThat(solve(solver, "A", "B")).containsExactly("A=2;B=6;", "A=3;B=4;");
+    }
+
+    @Test
+    public void formulaVariablesAndExternalValues() {
+        final RangeSolver solver = new RangeSolver()
+                .addRangeVariable("A", "0-9")
+                .addRangeVariable("B", "0-9")
+                .addFormulaVariable("S", "A+B+X")
+                .addFormulaVariable("T", "S*2")
+                .setExternalVariables(Formula.toVarProvider("X", 100))
+                .addCondition("T==204")
+                .addCondition("A==B");
+        assertThat(solve(solver, "A", "B", "S", "T")).containsExactly("A=1;B=1;S=102;T=204;");
+    }
+
+    @Test
+    public void pruning() {
+        //condition on A alone prunes all combinations of the other variables for A != 5
+        final RangeSolver solver = new RangeSolver()
+                .setThreads(1)
+                .addRangeVariable("B", "0-9")
+                .addRangeVariable("C", "0-9")
+                .addRangeVariable("A", "0-9")
+                .addCondition("A==5")
+                .addCondition("B+C==3");
+        final RangeSolver.Statistics[] stats = new RangeSolver.Statistics[1];
+        final List<Map<String, Value>> solutions = new ArrayList<>();
+        stats[0] = solver.solve(solutions::add);
+        assertThat(solutions).hasSize(4);
+        assertThat(stats[0].combinations).isEqualTo(1000);
+        assertThat(stats[0].combinationsCovered).isEqualTo(1000);
+        //A is enumerated first, so only 10*10 assignments of B and C are enumerated for A=5
+        assertThat(stats[0].assignmentsChecked).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    public void coordinateCondition() {
+        final Geopoint center = new Geopoint(48.123, 11.456);
+        final RangeSolver solver = new RangeSolver()
+                .addRangeVariable("A", "0-9")
+                .addRangeVariable("B", "0-9")
+                .addRangeVariable("C", "0-9")
+                .addRangeVariable("D", "0-9")
+                .addCoordinateCondition("N48° 0A.1B3", "E011° 2C.4D6", center, 1.0f);
+        final List<String> result = solve(solver, "A", "B", "C", "D");
+        assertThat(result).contains("A=7;B=2;C=7;D=5;");
+        for (String r : result) {
+            assertThat(r).startsWith("A=7;");
+        }
+    }
+
+    @Test
+    public void formulaRangeVariables() {
+        //B is given by a formula depending on range variable A, so A has to be assigned first
+        final RangeSolver solver = new RangeSolver()
+                .addRangeVariable("B", Formula.compile("A*[:1-3]"))
+                .addRangeVariable("A", "1-2")
+                .addCondition("B>=4");
+        assertThat(solve(solver, "A", "B")).containsExactly("A=2;B=4;", "A=2;B=6;");
+
+        final RangeSolver cyclic = new RangeSolver()
+                .addRangeVariable("A", Formula.compile("B+[:1-2]"))
+                .addRangeVariable("B", Formula.compile("A+[:1-2]"));
+        assertThatThrownBy(() -> cyclic.solve(s -> { })).isInstanceOf(FormulaException.class);
+    }
+
+    @Test
+    public void failureKeepsCause() {
+        final IllegalStateException failure = new IllegalStateException("broken constraint");
+        final RangeSolver solver = new RangeSolver()
+                .setThreads(2)
+                .addRangeVariable("A", "0-99")
+                .addConstraint(RangeSolver.createConstraint(Collections.singleton("A"), vars -> {
+                    throw failure;
+                }));
+        assertThatThrownBy(() -> solver.solve(s -> { })).isInstanceOf(FormulaException.class).hasCause(failure);
+    }
+
+    @Test
+    public void maxSolutionsAndCancel() {
+        final RangeSolver solver = new RangeSolver()
+                .addRangeVariable("A", "0-99")
+                .addRangeVariable("B", "0-99")
+                .setMaxSolutions(5);
+        final List<Map<String, Value>> solutions = new ArrayList<>();
+        final RangeSolver.Statistics stats = solver.solve(solutions::add);
+        assertThat(solutions).hasSize(5);
+        assertThat(stats.solutions).isEqualTo(5);
+        assertThat(stats.cancelled).isTrue();
+
+        final RangeSolver cancelling = new RangeSolver()
+                .addRangeVariable("A", "0-999")
+                .addRangeVariable("B", "0-999");
+        final int[] count = new int[]{0};
+        final RangeSolver.Statistics cancelStats = cancelling.solve(s -> {
+            if (++count[0] == 10) {
+                cancelling.cancel();
+            }
+        });
+        assertThat(cancelStats.cancelled).isTrue();
+        assertThat(cancelStats.combinationsCovered).isLessThan(cancelStats.combinations);
+    }
+
+    @Test
+    public void parallelSearchFindsAllSolutions() {
+        for (int threads : new int[]{1, 4}) {
+            final RangeSolver solver = new RangeSolver()
+                    .setThreads(threads)
+                    .addRangeVariable("A", "0-9")
+                    .addRangeVariable("B", "0-9")
+                    .addRangeVariable("C", "0-9")
+                    .addRangeVariable("D", "0-9")
+                    .addRangeVariable("E", "0-9")
+                    .addCondition("(A*10000+B*1000+C*100+D*10+E)%97==13");
+            final RangeSolver.Statistics stats = solver.solve(s -> { });
+            assertThat(stats.solutions).isEqualTo(1031);
+            assertThat(stats.combinationsCovered).isEqualTo(stats.combinations);
+        }
+    }
+
+    @Test
+    public void solveSortedKeepsRangeIndexOrder() {
+        //values of C decrease with their range index, B is added first and changes slowest
+        final RangeSolver solver = new RangeSolver()
+                .setThreads(4)
+                .addRangeVariable("B", "1-3")
+                .addRangeVariable("C", Formula.compile("10-[:1-3]"))
+                .addCondition("B+C<>10");
+        final List<String> result = new ArrayList<>();
+        for (Map<String, Value> solution : solver.solveSorted().blockingGet()) {
+            result.add(solution.get("B") + "," + solution.get("C"));
+        }
+        assertThat(result).containsExactly("1,8", "1,7", "2,9", "2,7", "3,9", "3,8");
+    }
+
+    @Test
+    public void disposingSolveSortedCancelsSearch() {
+        final RangeSolver solver = new RangeSolver()
+                .addRangeVariable("A", "0-999")
+                .addRangeVariable("B", "0-999")
+                .addRangeVariable("C", "0-999");
+        final Disposable disposable = solver.solveSorted().subscribe(solutions -> { }, error -> { });
+        disposable.dispose();
+        assertThat(solver.isCancelled()).isTrue();
+    }
+
+}
@@ -164,6 +164,68 @@ public class VariableMapTest {
         assertThat(cMap.getNullEntries()).containsExactlyInAnyOrder("C", "E");
     }
 
+    @Test
+    public void changedVariables() {
+        final VariableMap cMap = createTestMap();
+        cMap.put("E", "5");
+        cMap.resetChangedVariables();
+        assertThat(cMap.getChangedVariables()).isEmpty();
+
+        //value of A does not change, so dependent vars are not recalculated
+        cMap.put("A", "1+1");
+        assertThat(cMap.getChangedVariables()).containsExactlyInAnyOrder("A");
+
+        cMap.put("A", "3");
+        assertCalculatorMap(cMap, "A", 3d, "B", 6d, "C", 4d, "D", 10d, "E", 5d);
+        assertThat(cMap.getChangedVariables()).containsExactlyInAnyOrder("A", "B", "C", "D");
+
+        cMap.resetChangedVariables();
+        cMap.put("C", "B-2");
+        assertCalculatorMap(cMap, "A", 3d, "B", 6d, "C", 4d, "D", 10d, "E", 5d);
+        assertThat(cMap.getChangedVariables()).containsExactlyInAnyOrder("C");
+
+        cMap.resetChangedVariables();
+        cMap.remove("E");
+        assertThat(cMap.getChangedVariables()).containsExactlyInAnyOrder("E");
+    }
+
+    @Test
+    public void textualChangesArePropagated() {
+        //"03" and "3.0" equal "3" numerically, but concatenation of B keeps the text
+        final VariableMap cMap = new VariableMap();
+        cMap.put("A", "3");
+        cMap.put("B", "A");
+        cMap.put("C", "B1");
+        assertThat(cMap.get("C").getResult().getAsString()).isEqualTo("31");
+
+        cMap.resetChangedVariables();
+        cMap.put("A", "03");
+        assertThat(cMap.get("C").getResult().getAsString()).isEqualTo("031");
+        assertThat(cMap.getChangedVariables()).containsExactlyInAnyOrder("A", "B", "C");
+
+        cMap.put("A", "3.0");
+        assertThat(cMap.get("C").getResult().getAsString()).isEqualTo("3.01");
+    }
+
+    @Test
+    public void manyDiamondDependencies() {
+        //each level depends twice on previous level. Recalculating all paths separately would need 2^levels steps
+        final VariableMap cMap = new VariableMap();
+        final int levels = 40;
+        cMap.put("X0", "1");
+        cMap.put("Y0", "1");
+        for (int i = 1; i <= levels; i++) {
+            final String x = "$X" + (i - 1);
+            final String y = "$Y" + (i - 1);
+            cMap.put("X" + i, x + "+" + y);
+            cMap.put("Y" + i, x + "*" + y + "-" + x + "*" + y + "+1");
+        }
+        assertThat(cMap.get("X" + levels).getResult().getAsDouble()).isEqualTo(levels + 1d);
+
+        cMap.put("X0", "2");
+        assertThat(cMap.get("X" + levels).getResult().getAsDouble()).isEqualTo(levels + 2d);
+    }
+
     private void assertCalculatorMap(final VariableMap cMap, final Object... propertiesToAssert) {
         String var = null;
         VariableMap.VariableState state = null;